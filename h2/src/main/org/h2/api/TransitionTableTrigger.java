@@ -0,0 +1,65 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.api;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A trigger that is called once for each statement, with all rows that were
+ * changed by the statement. Such a trigger is created with the statement
+ * CREATE TRIGGER ... AFTER ... REFERENCING OLD TABLE AS ... NEW TABLE AS ...
+ * (the transition tables).
+ * <p>
+ * This is a lot faster than a row based trigger if statements change many
+ * rows, as the rows are not converted to Java objects unless they are read,
+ * and the trigger is only called once.
+ * </p>
+ */
+public interface TransitionTableTrigger extends Trigger {
+
+    /**
+     * This method is called once for each statement, after the rows have been
+     * changed (before the changes are committed).
+     * <p>
+     * The result sets contain all columns of the table, in the same order as
+     * defined in the table. The old rows are the deleted rows, and the old
+     * values of the updated rows; the new rows are the inserted rows, and the
+     * new values of the updated rows. The rows of an update are in the same
+     * order in both result sets. Large results are stored in a temporary file.
+     * The result sets may only be used within this method.
+     * </p>
+     * <p>
+     * Before statement triggers, and after statement triggers without
+     * transition tables, are called with both result sets set to null.
+     * </p>
+     *
+     * @param conn a connection to the database
+     * @param oldRows the old rows, or null if there is no OLD TABLE
+     * @param newRows the new rows, or null if there is no NEW TABLE
+     * @throws SQLException if the operation must be undone
+     */
+    void fireStatement(Connection conn, ResultSet oldRows, ResultSet newRows)
+            throws SQLException;
+
+    /**
+     * This method is only called for row based triggers (FOR EACH ROW).
+     *
+     * @param conn a connection to the database
+     * @param oldRow the old row, or null if no old row is available (for
+     *            INSERT)
+     * @param newRow the new row, or null if no new row is available (for
+     *            DELETE)
+     * @throws SQLException if the operation must be undone
+     */
+    @Override
+    default void fire(Connection conn, Object[] oldRow, Object[] newRow)
+            throws SQLException {
+        // Does nothing by default
+    }
+
+}
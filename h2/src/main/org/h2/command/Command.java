@@ -6,7 +6,9 @@
 package org.h2.command;
 
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.h2.api.ErrorCode;
@@ -22,6 +24,7 @@
 import org.h2.result.ResultWithGeneratedKeys;
 import org.h2.result.ResultWithPaddedStrings;
 import org.h2.util.MathUtils;
+import org.h2.value.Value;
 
 /**
  * Represents a SQL statement. This object is only used on the server side.
@@ -30,7 +33,7 @@ public abstract class Command implements CommandInterface {
     /**
      * The session.
      */
-    protected final Session session;
+    protected Session session;
 
     /**
      * The last start time.
@@ -51,6 +54,8 @@ public abstract class Command implements CommandInterface {
 
     private boolean canReuse;
 
+    private Object sharedCacheKey;
+
     Command(Session session, String sql) {
         this.session = session;
         this.sql = sql;
@@ -305,6 +310,45 @@ public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
         }
     }
 
+    @Override
+    public int[] executeBatchUpdate(ArrayList<Value[]> batchParameters, ArrayList<DbException> exceptions) {
+        int size = batchParameters.size();
+        int[] result = new int[size];
+        boolean autoCommit = session.getAutoCommit();
+        if (autoCommit) {
+            // commit once after the last row
+            session.setAutoCommit(false);
+        }
+        try {
+            for (int i = 0; i < size; i++) {
+                Value[] set = batchParameters.get(i);
+                // the parameter list is replaced if the command is recompiled
+                ArrayList<? extends ParameterInterface> parameters = getParameters();
+                for (int j = 0; j < set.length; j++) {
+                    parameters.get(j).setValue(set[j], false);
+                }
+                try {
+                    result[i] = executeUpdate(false).getUpdateCount();
+                } catch (DbException e) {
+                    if (autoCommit && e.getErrorCode() == ErrorCode.DEADLOCK_1) {
+                        // the previous rows were rolled back as well
+                        Arrays.fill(result, 0, i, Statement.EXECUTE_FAILED);
+                    }
+                    result[i] = Statement.EXECUTE_FAILED;
+                    exceptions.add(e);
+                }
+            }
+        } finally {
+            if (autoCommit) {
+                session.setAutoCommit(true);
+                if (!session.isClosed()) {
+                    session.commit(false);
+                }
+            }
+        }
+        return result;
+    }
+
     private long filterConcurrentUpdate(DbException e, long start) {
         int errorCode = e.getErrorCode();
         if (errorCode != ErrorCode.CONCURRENT_UPDATE_1 && errorCode != ErrorCode.ROW_NOT_FOUND_IN_PRIMARY_INDEX
@@ -355,6 +399,40 @@ public boolean isCacheable() {
         return false;
     }
 
+    /**
+     * Whether the command can be used by other sessions once it is no longer
+     * used by this session.
+     *
+     * @return true if it can
+     */
+    public boolean isShareable() {
+        return false;
+    }
+
+    /**
+     * Use this command in another session. This is only allowed for
+     * shareable commands that are not in use.
+     *
+     * @param session the new session
+     */
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Get the key of this command in the query cache that is shared by all
+     * sessions.
+     *
+     * @return the key, or null if the command is not shared
+     */
+    public Object getSharedCacheKey() {
+        return sharedCacheKey;
+    }
+
+    public void setSharedCacheKey(Object sharedCacheKey) {
+        this.sharedCacheKey = sharedCacheKey;
+    }
+
     /**
      * Whether the command is already closed (in which case it can be re-used).
      *
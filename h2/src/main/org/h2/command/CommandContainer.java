@@ -83,6 +83,7 @@ public void addRow(Value... values) {
     private Prepared prepared;
     private boolean readOnlyKnown;
     private boolean readOnly;
+    private boolean shareable;
 
     /**
      * Clears CTE views for a specified statement.
@@ -156,6 +157,9 @@ private static void prepareJoinBatch(Prepared prepared) {
 
     private void recompileIfRequired() {
         if (prepared.needRecompile()) {
+            // the new statement was not checked by the parser
+            shareable = false;
+            setSharedCacheKey(null);
             // TODO test with 'always recompile'
             prepared.setModificationMetaId(0);
             String sql = prepared.getSQL();
@@ -321,6 +325,21 @@ public boolean isCacheable() {
         return prepared.isCacheable();
     }
 
+    @Override
+    public boolean isShareable() {
+        return shareable;
+    }
+
+    void setShareable(boolean shareable) {
+        this.shareable = shareable;
+    }
+
+    @Override
+    public void setSession(Session session) {
+        super.setSession(session);
+        prepared.setSession(session);
+    }
+
     @Override
     public int getCommandType() {
         return prepared.getType();
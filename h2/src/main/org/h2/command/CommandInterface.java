@@ -7,8 +7,10 @@
 
 import java.util.ArrayList;
 import org.h2.expression.ParameterInterface;
+import org.h2.message.DbException;
 import org.h2.result.ResultInterface;
 import org.h2.result.ResultWithGeneratedKeys;
+import org.h2.value.Value;
 
 /**
  * Represents a SQL statement.
@@ -537,6 +539,19 @@ public interface CommandInterface extends AutoCloseable {
      */
     ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest);
 
+    /**
+     * Execute the statement once for each row of parameter values, without
+     * returning generated keys. If auto-commit is enabled, the rows are
+     * committed together after the last row.
+     *
+     * @param batchParameters the parameter values of each row
+     * @param exceptions the list where the exceptions of the failed rows are
+     *            added to
+     * @return the update count of each row, or
+     *         {@link java.sql.Statement#EXECUTE_FAILED} if it failed
+     */
+    int[] executeBatchUpdate(ArrayList<Value[]> batchParameters, ArrayList<DbException> exceptions);
+
     /**
      * Stop the command execution, release all locks and resources
      */
@@ -6,6 +6,7 @@
 package org.h2.command;
 
 import java.io.IOException;
+import java.sql.Statement;
 import java.util.ArrayList;
 
 import org.h2.engine.Constants;
@@ -259,6 +260,68 @@ public ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest) {
         }
     }
 
+    @Override
+    public int[] executeBatchUpdate(ArrayList<Value[]> batchParameters, ArrayList<DbException> exceptions) {
+        if (session.getClientVersion() < Constants.TCP_PROTOCOL_VERSION_20) {
+            // the server does not support batches, execute each row
+            int size = batchParameters.size();
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                Value[] set = batchParameters.get(i);
+                for (int j = 0; j < set.length; j++) {
+                    parameters.get(j).setValue(set[j], false);
+                }
+                try {
+                    result[i] = executeUpdate(null).getUpdateCount();
+                } catch (DbException e) {
+                    result[i] = Statement.EXECUTE_FAILED;
+                    exceptions.add(e);
+                }
+            }
+            return result;
+        }
+        synchronized (session) {
+            int[] result = null;
+            ArrayList<DbException> list = null;
+            boolean autoCommit = false;
+            for (int i = 0, count = 0; i < transferList.size(); i++) {
+                prepareIfRequired();
+                Transfer transfer = transferList.get(i);
+                try {
+                    session.traceOperation("COMMAND_EXECUTE_BATCH_UPDATE", id);
+                    int size = batchParameters.size();
+                    transfer.writeInt(SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE).writeInt(id).writeInt(size);
+                    for (Value[] set : batchParameters) {
+                        transfer.writeInt(set.length);
+                        for (Value v : set) {
+                            transfer.writeValue(v);
+                        }
+                    }
+                    session.done(transfer);
+                    result = new int[size];
+                    for (int j = 0; j < size; j++) {
+                        result[j] = transfer.readInt();
+                    }
+                    int exceptionCount = transfer.readInt();
+                    list = new ArrayList<>(exceptionCount);
+                    for (int j = 0; j < exceptionCount; j++) {
+                        list.add(DbException.convert(SessionRemote.readException(transfer)));
+                    }
+                    autoCommit = transfer.readBoolean();
+                } catch (IOException e) {
+                    session.removeServer(e, i--, ++count);
+                }
+            }
+            session.setAutoCommitFromServer(autoCommit);
+            session.autoCommitIfCluster();
+            session.readSessionState();
+            if (list != null) {
+                exceptions.addAll(list);
+            }
+            return result;
+        }
+    }
+
     private void checkParameters() {
         if (cmdType != EXPLAIN) {
             for (ParameterInterface p : parameters) {
@@ -240,6 +240,7 @@
 import org.h2.schema.Schema;
 import org.h2.schema.Sequence;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.DataChangeDeltaTable;
 import org.h2.table.DataChangeDeltaTable.ResultOption;
 import org.h2.table.DualTable;
@@ -249,7 +250,9 @@
 import org.h2.table.RangeTable;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
+import org.h2.table.TableType;
 import org.h2.table.TableView;
+import org.h2.util.IntArray;
 import org.h2.util.IntervalUtils;
 import org.h2.util.ParserUtil;
 import org.h2.util.StringUtils;
@@ -706,6 +709,8 @@ public class Parser {
     private boolean rightsChecked;
     private boolean recompileAlways;
     private boolean literalsChecked;
+    private boolean shareable;
+    private int queryCount;
     private int orderInFrom;
 
     /**
@@ -768,6 +773,7 @@ public Command prepareCommand(String sql) {
                 sql = sql.substring(0, parseIndex);
             }
             CommandContainer c = new CommandContainer(session, sql, p);
+            c.setShareable(isShareable(p));
             if (currentTokenType == SEMICOLON) {
                 String remaining = originalSQL.substring(parseIndex);
                 if (!StringUtils.isWhitespaceOrEmpty(remaining)) {
@@ -857,10 +863,43 @@ private Prepared parse(String sql, boolean withExpectedList) {
         currentPrepared = null;
         createView = null;
         recompileAlways = false;
+        shareable = true;
+        queryCount = 0;
         read();
         return parsePrepared();
     }
 
+    /**
+     * Check whether the parsed statement can be used by other sessions. This
+     * is only the case for simple statements that don't have subqueries, and
+     * that only use regular tables; such statements keep no state that
+     * belongs to a session between executions.
+     */
+    private boolean isShareable(Prepared p) {
+        if (!shareable) {
+            return false;
+        }
+        switch (p.getType()) {
+        case CommandInterface.SELECT:
+            return queryCount == 1 && p instanceof Select && p.isCacheable();
+        case CommandInterface.INSERT:
+        case CommandInterface.UPDATE:
+        case CommandInterface.DELETE:
+            return queryCount == 0 && p.isCacheable();
+        default:
+            return false;
+        }
+    }
+
+    private Table checkShareable(Table table) {
+        if (table.getTableType() != TableType.TABLE || table.isTemporary() && !table.isGlobalTemporary()) {
+            if (!(table instanceof DualTable)) {
+                shareable = false;
+            }
+        }
+        return table;
+    }
+
     private Prepared parsePrepared() {
         int start = lastParseIndex;
         Prepared c = null;
@@ -2005,6 +2044,7 @@ private TableFilter readTableFilter() {
                 table = readTableOrView(tableName);
             }
         }
+        checkShareable(table);
         ArrayList<String> derivedColumnNames = null;
         IndexHints indexHints = null;
         // for backward compatibility, handle case where USE is a table alias
@@ -2723,6 +2763,7 @@ private Query parseSelectUnion() {
                 break;
             }
             command = new SelectUnion(session, type, command, parseQuerySub());
+            queryCount++;
         }
         parseEndOfQuery(command);
         setSQL(command, start);
@@ -2999,6 +3040,7 @@ private void parseSelectExpressions(Select command) {
 
     private Select parseSelect(int start) {
         Select command = new Select(session, currentSelect);
+        queryCount++;
         Select oldSelect = currentSelect;
         Prepared oldPrepared = currentPrepared;
         currentSelect = command;
@@ -3067,6 +3109,7 @@ private Select parseSelect(int start) {
     private Query parseExplicitTable(int start) {
         Table table = readTableOrView();
         Select command = new Select(session, currentSelect);
+        queryCount++;
         TableFilter filter = new TableFilter(session, table, null, rightsChecked,
                 command, orderInFrom++, null);
         command.addTableFilter(filter, true);
@@ -5893,6 +5936,9 @@ private Column parseColumnForTable(String columnName,
             int value = readNonNegativeInt();
             column.setSelectivity(value);
         }
+        if (readIf("STATISTICS")) {
+            column.setStatistics(parseColumnStatistics(column));
+        }
         String comment = readCommentIf();
         if (comment != null) {
             column.setComment(comment);
@@ -5900,6 +5946,51 @@ private Column parseColumnForTable(String columnName,
         return column;
     }
 
+    private ColumnStatistics parseColumnStatistics(Column column) {
+        read(OPEN_PAREN);
+        int rowCount = readNonNegativeInt();
+        read(COMMA);
+        int nullCount = readNonNegativeInt();
+        read(COMMA);
+        int distinctCount = readNonNegativeInt();
+        read(COMMA);
+        ArrayList<Value> commonValues = Utils.newSmallArrayList();
+        IntArray commonCounts = new IntArray();
+        read(OPEN_PAREN);
+        if (!readIf(CLOSE_PAREN)) {
+            do {
+                commonValues.add(readExpression().optimize(session).getValue(session));
+                read(COMMA);
+                commonCounts.add(readNonNegativeInt());
+            } while (readIfMore());
+        }
+        read(COMMA);
+        ArrayList<Value> bounds = Utils.newSmallArrayList();
+        read(OPEN_PAREN);
+        if (!readIf(CLOSE_PAREN)) {
+            do {
+                bounds.add(readExpression().optimize(session).getValue(session));
+            } while (readIfMore());
+        }
+        read(CLOSE_PAREN);
+        int[] counts = new int[commonCounts.size()];
+        commonCounts.toArray(counts);
+        TypeInfo type = column.getType();
+        try {
+            for (int i = 0, size = commonValues.size(); i < size; i++) {
+                commonValues.set(i, commonValues.get(i).convertTo(type, session, false, column));
+            }
+            for (int i = 0, size = bounds.size(); i < size; i++) {
+                bounds.set(i, bounds.get(i).convertTo(type, session, false, column));
+            }
+        } catch (DbException e) {
+            // the statistics are not required, and will be re-calculated
+            return null;
+        }
+        return new ColumnStatistics(rowCount, nullCount, distinctCount,
+                commonValues.toArray(new Value[0]), counts, bounds.toArray(new Value[0]));
+    }
+
     private void parseAutoIncrement(Column column) {
         SequenceOptions options = new SequenceOptions();
         if (readIf(OPEN_PAREN)) {
@@ -6523,7 +6614,7 @@ private Prepared parseCreate() {
             return parseCreateSynonym(orReplace);
         } else {
             boolean hash = false, primaryKey = false;
-            boolean unique = false, spatial = false;
+            boolean unique = false, spatial = false, concurrently = false;
             String indexName = null;
             Schema oldSchema = null;
             boolean ifNotExists = false;
@@ -6549,6 +6640,9 @@ private Prepared parseCreate() {
                     spatial = true;
                 }
                 if (readIf("INDEX")) {
+                    if (readIf("CONCURRENTLY")) {
+                        concurrently = true;
+                    }
                     if (!isToken(ON)) {
                         ifNotExists = readIfNotExists();
                         indexName = readIdentifierWithSchema(null);
@@ -6585,6 +6679,7 @@ private Prepared parseCreate() {
             command.setUnique(unique);
             command.setHash(hash);
             command.setSpatial(spatial);
+            command.setConcurrently(concurrently);
             command.setIndexName(indexName);
             command.setComment(comment);
             command.setIndexColumns(parseIndexColumnList());
@@ -6713,6 +6808,7 @@ private TableValueConstructor parseValues() {
                 columns.set(i, c);
             }
         }
+        queryCount++;
         return new TableValueConstructor(session, columns.toArray(new Column[0]), rows);
     }
 
@@ -6899,10 +6995,30 @@ private CreateTrigger parseCreateTrigger(boolean force) {
         command.setOnRollback(onRollback);
         command.setTypeMask(typeMask);
         command.setTableName(tableName);
+        if (readIf("REFERENCING")) {
+            do {
+                boolean old = readIf("OLD");
+                if (!old) {
+                    read("NEW");
+                }
+                read(TABLE);
+                readIf("AS");
+                String name = readColumnIdentifier();
+                if (old) {
+                    command.setOldTableName(name);
+                } else {
+                    command.setNewTableName(name);
+                }
+            } while (isToken("OLD") || isToken("NEW"));
+        }
         if (readIf(FOR)) {
             read("EACH");
-            read(ROW);
-            command.setRowBased(true);
+            if (readIf(ROW)) {
+                command.setRowBased(true);
+            } else {
+                read("STATEMENT");
+                command.setRowBased(false);
+            }
         } else {
             command.setRowBased(false);
         }
@@ -7868,13 +7984,13 @@ private Table readTableOrView(String tableName) {
         if (schemaName != null) {
             Table table = getSchema().resolveTableOrView(session, tableName);
             if (table != null) {
-                return table;
+                return checkShareable(table);
             }
         } else {
             Table table = database.getSchema(session.getCurrentSchemaName())
                     .resolveTableOrView(session, tableName);
             if (table != null) {
-                return table;
+                return checkShareable(table);
             }
             String[] schemaNames = session.getSchemaSearchPath();
             if (schemaNames != null) {
@@ -7882,7 +7998,7 @@ private Table readTableOrView(String tableName) {
                     Schema s = database.getSchema(name);
                     table = s.resolveTableOrView(session, tableName);
                     if (table != null) {
-                        return table;
+                        return checkShareable(table);
                     }
                 }
             }
@@ -14,6 +14,7 @@
 import org.h2.expression.Parameter;
 import org.h2.result.ResultInterface;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.Table;
 import org.h2.table.TableType;
 import org.h2.value.DataType;
@@ -136,9 +137,61 @@ public static void analyzeTable(Session session, Table table, int sample,
                 columns[j].setSelectivity(selectivity);
             }
         }
+        analyzeValues(session, table, sample > 0 ? sample : db.getSettings().analyzeSample);
         db.updateMeta(session, table);
     }
 
+    /**
+     * Calculate the most common values and the histogram of each column from
+     * the first rows of the table. The values are kept in memory, so the
+     * number of rows is always limited.
+     *
+     * @param session the session
+     * @param table the table
+     * @param sample the number of sample rows
+     */
+    private static void analyzeValues(Session session, Table table, int sample) {
+        ArrayList<Column> list = new ArrayList<>();
+        for (Column col : table.getColumns()) {
+            if (ColumnStatistics.isSupported(col.getType().getValueType())) {
+                list.add(col);
+            } else {
+                col.setStatistics(null);
+            }
+        }
+        int columnCount = list.size();
+        if (columnCount == 0) {
+            return;
+        }
+        StringBuilder buff = new StringBuilder("SELECT ");
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                buff.append(", ");
+            }
+            list.get(i).getSQL(buff, true);
+        }
+        buff.append(" FROM ");
+        table.getSQL(buff, true).append(" FETCH FIRST ? ROWS ONLY");
+        Prepared command = session.prepare(buff.toString());
+        command.getParameters().get(0).setValue(ValueInt.get(sample));
+        ArrayList<ArrayList<Value>> values = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            values.add(new ArrayList<Value>());
+        }
+        ResultInterface result = command.query(0);
+        while (result.next()) {
+            Value[] row = result.currentRow();
+            for (int i = 0; i < columnCount; i++) {
+                values.get(i).add(row[i]);
+            }
+        }
+        result.close();
+        for (int i = 0; i < columnCount; i++) {
+            ArrayList<Value> v = values.get(i);
+            list.get(i).setStatistics(v.isEmpty() ? null : ColumnStatistics.create(session, v));
+        }
+    }
+
     public void setTop(int top) {
         this.sampleRows = top;
     }
@@ -26,7 +26,7 @@ public class CreateIndex extends SchemaCommand {
     private String tableName;
     private String indexName;
     private IndexColumn[] indexColumns;
-    private boolean primaryKey, unique, hash, spatial, affinity;
+    private boolean primaryKey, unique, hash, spatial, affinity, concurrently;
     private boolean ifTableExists;
     private boolean ifNotExists;
     private String comment;
@@ -76,7 +76,10 @@ public int update() {
             throw DbException.get(ErrorCode.INDEX_ALREADY_EXISTS_1, indexName);
         }
         session.getUser().checkRight(table, Right.ALL);
-        table.lock(session, true, true);
+        if (!concurrently) {
+            // for a concurrent build, the table takes the locks itself
+            table.lock(session, true, true);
+        }
         if (!table.isPersistIndexes()) {
             persistent = false;
         }
@@ -104,8 +107,11 @@ public int update() {
             indexType = IndexType.createNonUnique(persistent, hash, spatial);
         }
         IndexColumn.mapColumns(indexColumns, table);
-        table.addIndex(session, indexName, id, indexColumns, indexType, create,
-                comment);
+        if (concurrently) {
+            table.addIndexConcurrently(session, indexName, id, indexColumns, indexType, create, comment);
+        } else {
+            table.addIndex(session, indexName, id, indexColumns, indexType, create, comment);
+        }
         return 0;
     }
 
@@ -129,6 +135,10 @@ public void setAffinity(boolean b) {
         this.affinity = b;
     }
 
+    public void setConcurrently(boolean concurrently) {
+        this.concurrently = concurrently;
+    }
+
     public void setComment(String comment) {
         this.comment = comment;
     }
@@ -35,6 +35,7 @@ public class CreateTrigger extends SchemaCommand {
     private String triggerSource;
     private boolean force;
     private boolean onRollback;
+    private String oldTableName, newTableName;
 
     public CreateTrigger(Session session, Schema schema) {
         super(session, schema);
@@ -101,6 +102,19 @@ public int update() {
                     ErrorCode.TRIGGER_SELECT_AND_ROW_BASED_NOT_SUPPORTED,
                     triggerName);
         }
+        if (oldTableName != null || newTableName != null) {
+            // only after statement triggers can have transition tables
+            if (before || rowBased || (typeMask & Trigger.SELECT) != 0) {
+                throw DbException.getUnsupportedException("REFERENCING with "
+                        + (before ? "BEFORE or INSTEAD OF" : rowBased ? "FOR EACH ROW" : "SELECT"));
+            }
+            if (oldTableName != null && (typeMask & (Trigger.UPDATE | Trigger.DELETE)) == 0) {
+                throw DbException.getUnsupportedException("OLD TABLE for INSERT");
+            }
+            if (newTableName != null && (typeMask & (Trigger.INSERT | Trigger.UPDATE)) == 0) {
+                throw DbException.getUnsupportedException("NEW TABLE for DELETE");
+            }
+        }
         int id = getObjectId();
         Table table = getSchema().getTableOrView(session, tableName);
         TriggerObject trigger = new TriggerObject(getSchema(), id, triggerName, table);
@@ -111,6 +125,7 @@ public int update() {
         trigger.setRowBased(rowBased);
         trigger.setTypeMask(typeMask);
         trigger.setOnRollback(onRollback);
+        trigger.setTransitionTableNames(oldTableName, newTableName);
         if (this.triggerClassName != null) {
             trigger.setTriggerClassName(triggerClassName, force);
         } else {
@@ -129,6 +144,14 @@ public void setOnRollback(boolean onRollback) {
         this.onRollback = onRollback;
     }
 
+    public void setOldTableName(String oldTableName) {
+        this.oldTableName = oldTableName;
+    }
+
+    public void setNewTableName(String newTableName) {
+        this.newTableName = newTableName;
+    }
+
     @Override
     public int getType() {
         return CommandInterface.CREATE_TRIGGER;
@@ -10,6 +10,7 @@
 import org.h2.api.Trigger;
 import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
+import org.h2.constraint.DeferredReferentialChecks;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -148,9 +149,19 @@ public int update() {
                 session.log(table, UndoLogRecord.DELETE, row);
             }
             if (table.fireRow()) {
-                for (rows.reset(); rows.hasNext();) {
-                    Row row = rows.next();
-                    table.fireAfterRow(session, row, null, false);
+                DeferredReferentialChecks outerChecks = session.setDeferredReferentialChecks(
+                        rows.size() > 1 ? new DeferredReferentialChecks() : null);
+                try {
+                    for (rows.reset(); rows.hasNext();) {
+                        Row row = rows.next();
+                        table.fireAfterRow(session, row, null, false);
+                    }
+                    DeferredReferentialChecks checks = session.getDeferredReferentialChecks();
+                    if (checks != null) {
+                        checks.execute(session);
+                    }
+                } finally {
+                    session.setDeferredReferentialChecks(outerChecks);
                 }
             }
             table.fire(session, Trigger.DELETE, false);
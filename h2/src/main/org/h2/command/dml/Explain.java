@@ -97,6 +97,12 @@ public ResultInterface query(int maxrows) {
                     command.update();
                 }
                 plan = command.getPlanSQL(alwaysQuote);
+                if (command instanceof Select) {
+                    int spillCount = ((Select) command).getGroupSpillCount();
+                    if (spillCount > 0) {
+                        plan += "\n/* group spill count: " + spillCount + " */";
+                    }
+                }
                 Map<String, Integer> statistics = null;
                 if (store != null) {
                     statistics = store.statisticsEnd();
@@ -14,6 +14,7 @@
 import org.h2.api.Trigger;
 import org.h2.command.Command;
 import org.h2.command.CommandInterface;
+import org.h2.constraint.DeferredReferentialChecks;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -162,6 +163,22 @@ private int insertRows() {
         table.fire(session, Trigger.INSERT, true);
         rowNumber = 0;
         int listSize = valuesExpressionList.size();
+        DeferredReferentialChecks outerChecks = session.setDeferredReferentialChecks(
+                listSize == 1 ? null : new DeferredReferentialChecks());
+        try {
+            insertRows(listSize);
+            DeferredReferentialChecks checks = session.getDeferredReferentialChecks();
+            if (checks != null) {
+                checks.execute(session);
+            }
+        } finally {
+            session.setDeferredReferentialChecks(outerChecks);
+        }
+        table.fire(session, Trigger.INSERT, false);
+        return rowNumber;
+    }
+
+    private void insertRows(int listSize) {
         if (listSize > 0) {
             int columnLen = columns.length;
             for (int x = 0; x < listSize; x++) {
@@ -235,8 +252,6 @@ private int insertRows() {
                 rows.close();
             }
         }
-        table.fire(session, Trigger.INSERT, false);
-        return rowNumber;
     }
 
     @Override
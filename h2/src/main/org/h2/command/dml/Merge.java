@@ -11,6 +11,7 @@
 import org.h2.api.Trigger;
 import org.h2.command.Command;
 import org.h2.command.CommandInterface;
+import org.h2.constraint.DeferredReferentialChecks;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -91,6 +92,16 @@ public void setDeltaChangeCollector(ResultTarget deltaChangeCollector, ResultOpt
 
     @Override
     public int update() {
+        // the referential constraints are checked for each merged row
+        DeferredReferentialChecks outerChecks = session.setDeferredReferentialChecks(null);
+        try {
+            return mergeRows();
+        } finally {
+            session.setDeferredReferentialChecks(outerChecks);
+        }
+    }
+
+    private int mergeRows() {
         int count = 0;
         session.getUser().checkRight(table, Right.INSERT);
         session.getUser().checkRight(table, Right.UPDATE);
@@ -151,6 +151,17 @@ static final class OffsetFetch {
         super(session);
     }
 
+    @Override
+    public void setSession(Session currentSession) {
+        if (currentSession != session) {
+            // the last result may contain uncommitted rows of the other
+            // session, and may still be read by it, so it is not closed
+            lastResult = null;
+            lastParameters = null;
+        }
+        super.setSession(currentSession);
+    }
+
     public void setNeverLazy(boolean b) {
         this.neverLazy = b;
     }
@@ -850,6 +861,29 @@ OffsetFetch getOffsetFetch(int maxRows) {
         return new OffsetFetch(offset, fetch, fetchPercent);
     }
 
+    /**
+     * Passes limits to a sorted result before the rows are added, so it only
+     * needs to keep the first offset + fetch rows.
+     *
+     * @param result
+     *            the result
+     * @param offset
+     *            OFFSET value
+     * @param fetch
+     *            FETCH value
+     * @param fetchPercent
+     *            whether FETCH value is a PERCENT value
+     */
+    void setTopRowsLimit(LocalResult result, long offset, int fetch, boolean fetchPercent) {
+        if (fetch > 0 && !fetchPercent && offset <= Integer.MAX_VALUE) {
+            result.setOffset((int) offset);
+            result.setLimit(fetch);
+            if (withTies) {
+                result.setWithTies(sort);
+            }
+        }
+    }
+
     /**
      * Applies limits, if any, to a result and makes it ready for value
      * retrieval.
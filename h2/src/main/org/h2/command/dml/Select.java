@@ -23,7 +23,9 @@
 import org.h2.expression.ExpressionColumn;
 import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.Parameter;
+import org.h2.expression.ValueVector;
 import org.h2.expression.Wildcard;
+import org.h2.expression.aggregate.Aggregate;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.Window;
 import org.h2.expression.condition.Comparison;
@@ -46,6 +48,7 @@
 import org.h2.table.ColumnResolver;
 import org.h2.table.IndexColumn;
 import org.h2.table.JoinBatch;
+import org.h2.table.RowBatch;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
 import org.h2.table.TableType;
@@ -72,6 +75,22 @@
  */
 public class Select extends Query {
 
+    /**
+     * There are no more rows to read, see {@link #nextBatch(RowBatch)}.
+     */
+    private static final int BATCH_END = 0;
+
+    /**
+     * The batch only contains rows that match the condition.
+     */
+    private static final int BATCH_FILTERED = 1;
+
+    /**
+     * The condition could not be evaluated for the batch, and needs to be
+     * evaluated for each row.
+     */
+    private static final int BATCH_NOT_FILTERED = 2;
+
     /**
      * The main (top) table filter.
      */
@@ -151,6 +170,18 @@ public class Select extends Query {
 
     private boolean isGroupWindowStage2;
 
+    /**
+     * How many times the groups were written to disk in the last execution,
+     * only reported by EXPLAIN ANALYZE.
+     */
+    private int groupSpillCount;
+
+    /**
+     * The number of threads used to gather the groups, decided when the query
+     * is prepared.
+     */
+    private int parallelism = 1;
+
     private HashMap<String, Window> windows;
 
     public Select(Session session, Select parentSelect) {
@@ -481,10 +512,12 @@ private void queryGroupWindow(int columnCount, LocalResult result, long offset,
 
     private void queryGroup(int columnCount, LocalResult result, long offset, boolean quickOffset) {
         initGroupData(columnCount);
+        groupData.allowSpill();
         try {
             gatherGroup(columnCount, DataAnalysisOperation.STAGE_GROUP);
             processGroupResult(columnCount, result, offset, quickOffset, true);
         } finally {
+            groupSpillCount = groupData.getSpillCount();
             groupData.reset();
         }
     }
@@ -498,6 +531,15 @@ private void initGroupData(int columnCount) {
         groupData.reset();
     }
 
+    @Override
+    public void setSession(Session currentSession) {
+        if (currentSession != session && groupData != null) {
+            // the group data holds the session it was created for
+            setGroupData(null);
+        }
+        super.setSession(currentSession);
+    }
+
     void setGroupData(final SelectGroups groupData) {
         this.groupData = groupData;
         topTableFilter.visit(f -> {
@@ -509,6 +551,16 @@ void setGroupData(final SelectGroups groupData) {
     }
 
     private void gatherGroup(int columnCount, int stage) {
+        if (stage == DataAnalysisOperation.STAGE_GROUP) {
+            if (gatherGroupParallel(columnCount)) {
+                return;
+            }
+            ArrayList<Aggregate> aggregates = getBatchAggregates(columnCount);
+            if (aggregates != null) {
+                gatherGroupBatch(columnCount, aggregates);
+                return;
+            }
+        }
         long rowNumber = 0;
         setCurrentRowNumber(0);
         int sampleSize = getSampleSizeValue(session);
@@ -526,6 +578,239 @@ private void gatherGroup(int columnCount, int stage) {
         groupData.done();
     }
 
+    /**
+     * Get the aggregates of a query without GROUP BY if they can be updated
+     * for a batch of rows at once.
+     *
+     * @param columnCount the number of columns
+     * @return the distinct aggregates, or null if batch evaluation is not
+     *         possible
+     */
+    private ArrayList<Aggregate> getBatchAggregates(int columnCount) {
+        if (groupIndex != null || isWindowQuery || !isBatchEvaluationPossible()) {
+            return null;
+        }
+        ArrayList<Aggregate> aggregates = Utils.newSmallArrayList();
+        for (int i = 0; i < columnCount; i++) {
+            Expression expr = expressions.get(i).getNonAliasExpression();
+            if (expr instanceof Aggregate && ((Aggregate) expr).isBatchSupported()) {
+                if (!aggregates.contains(expr)) {
+                    aggregates.add((Aggregate) expr);
+                }
+            } else if (!expr.isConstant()) {
+                return null;
+            }
+        }
+        return aggregates;
+    }
+
+    private void gatherGroupBatch(int columnCount, ArrayList<Aggregate> aggregates) {
+        setCurrentRowNumber(0);
+        int count = aggregates.size();
+        ValueVector[] values = new ValueVector[count];
+        RowBatch batch = new RowBatch(topTableFilter);
+        int state;
+        while ((state = nextBatch(batch)) != BATCH_END) {
+            int size = batch.getSize();
+            if (state == BATCH_NOT_FILTERED) {
+                for (int i = 0; i < size; i++) {
+                    batch.setCurrentRow(i);
+                    if (isConditionMet()) {
+                        groupData.nextSource();
+                        updateAgg(columnCount, DataAnalysisOperation.STAGE_GROUP);
+                    }
+                }
+                continue;
+            }
+            try {
+                for (int i = 0; i < count; i++) {
+                    values[i] = aggregates.get(i).getArgumentValues(session, batch);
+                }
+            } catch (DbException e) {
+                // evaluate the batch row by row, as some expressions
+                // only fail for rows the batch evaluation did not skip
+                for (int i = 0; i < size; i++) {
+                    batch.setCurrentRow(i);
+                    groupData.nextSource();
+                    updateAgg(columnCount, DataAnalysisOperation.STAGE_GROUP);
+                }
+                continue;
+            }
+            groupData.nextSource();
+            for (int i = 0; i < count; i++) {
+                aggregates.get(i).updateAggregate(session, values[i], size);
+            }
+        }
+        groupData.done();
+    }
+
+    /**
+     * Get how many times the groups were written to disk in the last
+     * execution of this query.
+     *
+     * @return the spill count
+     */
+    int getGroupSpillCount() {
+        return groupSpillCount;
+    }
+
+    /**
+     * Get the number of threads used to gather the groups of this query.
+     *
+     * @param columnCount the number of columns
+     * @return the number of threads, 1 if the query is not processed in
+     *         parallel
+     */
+    private int getParallelism(int columnCount) {
+        int parallelism = session.getQueryParallelism();
+        if (parallelism < 2 || topTableFilter == null || getParallelAggregates(columnCount) == null) {
+            return 1;
+        }
+        long rows = topTableFilter.getTable().getRowCountApproximation() / SelectParallel.MIN_ROWS_PER_THREAD;
+        return rows < parallelism ? (int) Math.max(rows, 1) : parallelism;
+    }
+
+    /**
+     * Get the aggregates of a group query if the groups can be gathered by
+     * multiple threads, see {@link SelectParallel}.
+     *
+     * @param columnCount the number of columns
+     * @return the distinct aggregates, or null if this is not possible
+     */
+    private ArrayList<Aggregate> getParallelAggregates(int columnCount) {
+        if (!isGroupQuery || isWindowQuery || isGroupSortedQuery || isQuickAggregateQuery
+                || !isBatchEvaluationPossible() || !topTableFilter.getIndexConditions().isEmpty()
+                || condition != null && !condition.isBatchThreadSafe(topTableFilter)) {
+            return null;
+        }
+        if (groupIndex != null) {
+            for (int idx : groupIndex) {
+                if (!expressions.get(idx).getNonAliasExpression().isBatchThreadSafe(topTableFilter)) {
+                    return null;
+                }
+            }
+        }
+        ArrayList<Aggregate> aggregates = Utils.newSmallArrayList();
+        for (int i = 0; i < columnCount; i++) {
+            if (groupByExpression != null && groupByExpression[i]
+                    || groupByCopies != null && groupByCopies[i] >= 0) {
+                continue;
+            }
+            Expression expr = expressions.get(i).getNonAliasExpression();
+            if (expr instanceof Aggregate) {
+                Aggregate aggregate = (Aggregate) expr;
+                if (!aggregate.isBatchSupported() || !aggregate.isArgumentThreadSafe(topTableFilter)) {
+                    return null;
+                }
+                if (!aggregates.contains(aggregate)) {
+                    aggregates.add(aggregate);
+                }
+            } else if (!expr.isConstant()) {
+                return null;
+            }
+        }
+        return aggregates;
+    }
+
+    private boolean gatherGroupParallel(int columnCount) {
+        if (parallelism < 2) {
+            return false;
+        }
+        ArrayList<Aggregate> aggregates = getParallelAggregates(columnCount);
+        if (aggregates == null) {
+            return false;
+        }
+        Cursor[] cursors = topTableFilter.getIndex().findParallel(session, parallelism);
+        if (cursors == null) {
+            return false;
+        }
+        int groupCount = groupIndex == null ? 0 : groupIndex.length;
+        Expression[] groupExpressions = new Expression[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            groupExpressions[i] = expressions.get(groupIndex[i]).getNonAliasExpression();
+        }
+        SelectParallel.Part[] parts = new SelectParallel(session, topTableFilter, condition, groupExpressions,
+                aggregates.toArray(new Aggregate[0])).gather(cursors);
+        setCurrentRowNumber(0);
+        int count = aggregates.size();
+        for (SelectParallel.Part part : parts) {
+            for (Entry<ValueRow, Object[]> entry : part.groups.entrySet()) {
+                groupData.nextSource(entry.getKey());
+                Object[] data = entry.getValue();
+                for (int i = 0; i < count; i++) {
+                    aggregates.get(i).mergePartial(session, data[i]);
+                }
+            }
+        }
+        for (SelectParallel.Part part : parts) {
+            for (Row row : part.deferredRows) {
+                topTableFilter.set(row);
+                if (isConditionMet()) {
+                    groupData.nextSource();
+                    updateAgg(columnCount, DataAnalysisOperation.STAGE_GROUP);
+                }
+            }
+        }
+        groupData.done();
+        return true;
+    }
+
+    /**
+     * Check whether the rows of this query can be read and filtered in
+     * batches, see {@link RowBatch}. This is only the case for a scan of a
+     * single table with a deterministic condition.
+     *
+     * @return true if batch evaluation is possible
+     */
+    private boolean isBatchEvaluationPossible() {
+        if (!session.getDatabase().getSettings().optimizeBatchEvaluation || isForUpdate || filters.size() != 1
+                || getSampleSizeValue(session) > 0) {
+            return false;
+        }
+        TableFilter f = topTableFilter;
+        if (f.getJoin() != null || f.getNestedJoin() != null || f.getJoinBatch() != null
+                || f.getJoinCondition() != null || f.getFilterCondition() != null) {
+            return false;
+        }
+        Index index = f.getIndex();
+        if (index == null || !index.isRowIdIndex()) {
+            return false;
+        }
+        return condition == null || condition.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR);
+    }
+
+    /**
+     * Read the next batch of rows that match the condition. If the condition
+     * can not be evaluated for the whole batch, the rows are not filtered, and
+     * the condition needs to be evaluated for each row when it is used, so
+     * that errors are only thrown for rows that are actually read.
+     *
+     * @param batch the batch
+     * @return BATCH_FILTERED, BATCH_NOT_FILTERED, or BATCH_END if there are no
+     *         more rows
+     */
+    private int nextBatch(RowBatch batch) {
+        while (batch.fill()) {
+            if (condition != null) {
+                ValueVector v;
+                try {
+                    v = condition.getValues(session, batch);
+                } catch (DbException e) {
+                    return BATCH_NOT_FILTERED;
+                }
+                int size = batch.getSize();
+                boolean[] selected = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    selected[i] = v.isTrue(i);
+                }
+                batch.retain(selected);
+            }
+            if (batch.getSize() > 0) {
+                return BATCH_FILTERED;
+            }
+        }
+        return BATCH_END;
+    }
 
     /**
      * Update any aggregate expressions with the query stage.
@@ -719,13 +1004,16 @@ private LazyResult queryFlat(int columnCount, ResultTarget result, long offset,
             }
         }
         int sampleSize = getSampleSizeValue(session);
+        boolean readAllRows = limitRows < 0 || sort != null && !sortUsingIndex || withTies && !quickOffset;
+        // rows past the limit may not be read in advance, the condition
+        // could fail for them
         LazyResultQueryFlat lazyResult = new LazyResultQueryFlat(expressionArray, columnCount, sampleSize,
-                isForUpdateMvcc);
+                isForUpdateMvcc, readAllRows && isBatchEvaluationPossible());
         skipOffset(lazyResult, offset, quickOffset);
         if (result == null) {
             return lazyResult;
         }
-        if (limitRows < 0 || sort != null && !sortUsingIndex || withTies && !quickOffset) {
+        if (readAllRows) {
             limitRows = Long.MAX_VALUE;
         }
         Value[] row = null;
@@ -768,6 +1056,7 @@ private void queryQuick(int columnCount, ResultTarget result, boolean skipResult
 
     @Override
     protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
+        groupSpillCount = 0;
         disableLazyForJoinSubqueries(topTableFilter);
         OffsetFetch offsetFetch = getOffsetFetch(maxRows);
         long offset = offsetFetch.offset;
@@ -789,6 +1078,7 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
             result.setSortOrder(sort);
             if (!sortUsingIndex) {
                 quickOffset = false;
+                setTopRowsLimit(result, offset, fetch, fetchPercent);
             }
         }
         if (distinct) {
@@ -1298,6 +1588,7 @@ public void prepare() {
             }
         }
         expressionArray = expressions.toArray(new Expression[0]);
+        parallelism = getParallelism(expressions.size());
         isPrepared = true;
     }
 
@@ -1513,6 +1804,9 @@ public String getPlanSQL(boolean alwaysQuote) {
             if (isGroupSortedQuery) {
                 builder.append("\n/* group sorted */");
             }
+            if (parallelism > 1) {
+                builder.append("\n/* parallel: ").append(parallelism).append(" */");
+            }
         }
         // builder.append("\n/* cost: " + cost + " */");
         return builder.toString();
@@ -1824,32 +2118,80 @@ private final class LazyResultQueryFlat extends LazyResultSelect {
 
         private boolean forUpdate;
 
-        LazyResultQueryFlat(Expression[] expressions, int columnCount, int sampleSize, boolean forUpdate) {
+        /**
+         * The rows read in advance, or null if the condition is evaluated row
+         * by row.
+         */
+        private final RowBatch batch;
+
+        private int batchIndex;
+
+        /**
+         * Whether the condition needs to be evaluated for the rows of the
+         * batch.
+         */
+        private boolean batchNotFiltered;
+
+        LazyResultQueryFlat(Expression[] expressions, int columnCount, int sampleSize, boolean forUpdate,
+                boolean batchEvaluation) {
             super(expressions, columnCount);
             this.sampleSize = sampleSize;
             this.forUpdate = forUpdate;
+            batch = batchEvaluation ? new RowBatch(topTableFilter) : null;
         }
 
         @Override
         protected Value[] fetchNextRow() {
+            if (batch != null) {
+                if (!nextBatchRow()) {
+                    return null;
+                }
+                return getRow();
+            }
             while ((sampleSize <= 0 || rowNumber < sampleSize) && topTableFilter.next()) {
                 setCurrentRowNumber(rowNumber + 1);
                 // This method may lock rows
                 if (forUpdate ? isConditionMetForUpdate() : isConditionMet()) {
                     ++rowNumber;
-                    Value[] row = new Value[columnCount];
-                    for (int i = 0; i < columnCount; i++) {
-                        Expression expr = expressions.get(i);
-                        row[i] = expr.getValue(getSession());
-                    }
-                    return row;
+                    return getRow();
                 }
             }
             return null;
         }
 
+        private Value[] getRow() {
+            Value[] row = new Value[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                Expression expr = expressions.get(i);
+                row[i] = expr.getValue(getSession());
+            }
+            return row;
+        }
+
+        private boolean nextBatchRow() {
+            while (true) {
+                if (batchIndex >= batch.getSize()) {
+                    int state = nextBatch(batch);
+                    if (state == BATCH_END) {
+                        return false;
+                    }
+                    batchNotFiltered = state == BATCH_NOT_FILTERED;
+                    batchIndex = 0;
+                }
+                setCurrentRowNumber(rowNumber + 1);
+                batch.setCurrentRow(batchIndex++);
+                if (!batchNotFiltered || isConditionMet()) {
+                    ++rowNumber;
+                    return true;
+                }
+            }
+        }
+
         @Override
         protected boolean skipNextRow() {
+            if (batch != null) {
+                return nextBatchRow();
+            }
             while ((sampleSize <= 0 || rowNumber < sampleSize) && topTableFilter.next()) {
                 setCurrentRowNumber(rowNumber + 1);
                 // This method does not lock rows
@@ -1861,6 +2203,15 @@ protected boolean skipNextRow() {
             return false;
         }
 
+        @Override
+        public void reset() {
+            super.reset();
+            if (batch != null) {
+                batch.clear();
+                batchIndex = 0;
+            }
+        }
+
     }
 
     /**
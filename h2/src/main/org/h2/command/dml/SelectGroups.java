@@ -7,17 +7,31 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
 
+import org.h2.engine.Database;
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.ValueExpression;
+import org.h2.expression.aggregate.Aggregate;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.PartitionData;
+import org.h2.message.DbException;
+import org.h2.mvstore.db.MVTempResult;
+import org.h2.result.ResultExternal;
+import org.h2.result.SortOrder;
+import org.h2.value.CompareMode;
 import org.h2.value.Value;
+import org.h2.value.ValueLong;
+import org.h2.value.ValueNull;
 import org.h2.value.ValueRow;
 
 /**
@@ -64,6 +78,42 @@ private static final class Grouped extends SelectGroups {
          */
         private Iterator<Entry<ValueRow, Object[]>> cursor;
 
+        /**
+         * The maximum number of groups kept in memory.
+         */
+        private int maxMemoryGroups;
+
+        /**
+         * The expressions whose data is written to disk, or null if the groups
+         * were not written to disk yet.
+         */
+        private Expression[] spillExpressions;
+
+        /**
+         * The groups that were written to disk, sorted by the group key.
+         */
+        private ResultExternal spilled;
+
+        /**
+         * The first row of the next group in the groups that were written to
+         * disk.
+         */
+        private Value[] nextSpilledRow;
+
+        /**
+         * The number of rows written to disk, used to keep partial results of
+         * the same group apart.
+         */
+        private long spilledRowCount;
+
+        /**
+         * The data of the groups in memory that got more rows since the groups
+         * were last written to disk. These groups are kept in memory if
+         * possible. This is null until the groups are written to disk for the
+         * first time.
+         */
+        private Set<Object[]> recentlyUpdated;
+
         Grouped(Session session, ArrayList<Expression> expressions, int[] groupIndex) {
             super(session, expressions);
             this.groupIndex = groupIndex;
@@ -75,6 +125,28 @@ public void reset() {
             groupByData = new TreeMap<>(session.getDatabase().getCompareMode());
             currentGroupsKey = null;
             cursor = null;
+            maxMemoryGroups = Integer.MAX_VALUE;
+            spillExpressions = null;
+            if (spilled != null) {
+                spilled.close();
+                spilled = null;
+            }
+            nextSpilledRow = null;
+            spilledRowCount = 0;
+            recentlyUpdated = null;
+        }
+
+        @Override
+        public void allowSpill() {
+            Database db = session.getDatabase();
+            if (groupIndex != null && db.isPersistent() && !db.isReadOnly()) {
+                maxMemoryGroups = db.getMaxMemoryRows();
+            }
+        }
+
+        @Override
+        public int getSpillCount() {
+            return (int) Math.min(spilledRowCount, Integer.MAX_VALUE);
         }
 
         @Override
@@ -91,22 +163,175 @@ public void nextSource() {
                 }
                 currentGroupsKey = ValueRow.get(keyValues);
             }
+            nextGroup();
+        }
+
+        @Override
+        public void nextSource(ValueRow key) {
+            currentGroupsKey = key;
+            nextGroup();
+        }
+
+        private void nextGroup() {
             Object[] values = groupByData.get(currentGroupsKey);
             if (values == null) {
+                if (groupByData.size() >= maxMemoryGroups) {
+                    spill(false);
+                }
                 values = createRow();
                 groupByData.put(currentGroupsKey, values);
+            } else if (recentlyUpdated != null) {
+                recentlyUpdated.add(values);
             }
             currentGroupByExprData = values;
             currentGroupRowId++;
         }
 
+        /**
+         * Write the partial results of groups in memory to disk, if the data of
+         * all expressions can be merged later. The groups that got no more rows
+         * since the last time are written first. The recently updated groups
+         * are kept in memory as long as they use at most half of it, so that
+         * frequent groups are not written each time.
+         *
+         * @param all whether all groups need to be written
+         */
+        private void spill(boolean all) {
+            if (spillExpressions == null) {
+                Expression[] list = getMergeableExpressions();
+                if (list == null) {
+                    maxMemoryGroups = Integer.MAX_VALUE;
+                    return;
+                }
+                spillExpressions = list;
+                int keyCount = groupIndex.length, columnCount = keyCount + 1 + list.length;
+                Expression[] columns = new Expression[columnCount];
+                int[] sortColumns = new int[keyCount + 1];
+                for (int i = 0; i < keyCount; i++) {
+                    columns[i] = expressions.get(groupIndex[i]);
+                    sortColumns[i] = i;
+                }
+                for (int i = keyCount; i < columnCount; i++) {
+                    columns[i] = ValueExpression.getNull();
+                }
+                sortColumns[keyCount] = keyCount;
+                Database db = session.getDatabase();
+                spilled = MVTempResult.of(db, columns, false, null, columnCount, columnCount,
+                        new SortOrder(db, sortColumns, new int[keyCount + 1], null));
+            }
+            Set<Object[]> keep = all ? null : recentlyUpdated;
+            if (keep != null) {
+                for (Iterator<Entry<ValueRow, Object[]>> it = groupByData.entrySet().iterator(); it.hasNext();) {
+                    Entry<ValueRow, Object[]> entry = it.next();
+                    if (!keep.contains(entry.getValue())) {
+                        writeGroup(entry);
+                        it.remove();
+                    }
+                }
+                keep.clear();
+            }
+            int maxGroups = keep == null ? 0 : maxMemoryGroups / 2;
+            for (Iterator<Entry<ValueRow, Object[]>> it = groupByData.entrySet().iterator();
+                    groupByData.size() > maxGroups && it.hasNext();) {
+                writeGroup(it.next());
+                it.remove();
+            }
+            if (recentlyUpdated == null && !all) {
+                recentlyUpdated = Collections.newSetFromMap(new IdentityHashMap<>());
+            }
+        }
+
+        private void writeGroup(Entry<ValueRow, Object[]> entry) {
+            Expression[] list = spillExpressions;
+            int keyCount = groupIndex.length;
+            Value[] row = new Value[keyCount + 1 + list.length];
+            System.arraycopy(entry.getKey().getList(), 0, row, 0, keyCount);
+            row[keyCount] = ValueLong.get(spilledRowCount++);
+            Object[] data = entry.getValue();
+            for (int i = 0; i < list.length; i++) {
+                Expression expr = list[i];
+                Object obj = data[getExprIndex(expr)];
+                Value v;
+                if (obj == null) {
+                    v = ValueNull.INSTANCE;
+                } else if (expr instanceof Aggregate) {
+                    v = ((Aggregate) expr).getPartialValue(obj);
+                } else {
+                    v = (Value) obj;
+                }
+                row[keyCount + 1 + i] = v;
+            }
+            spilled.addRow(row);
+        }
+
+        /**
+         * Get the expressions with group data if partial results of all of them
+         * can be merged.
+         *
+         * @return the expressions, or null
+         */
+        private Expression[] getMergeableExpressions() {
+            Expression[] list = getExpressionsWithData();
+            for (Expression expr : list) {
+                if (expr instanceof Aggregate ? !((Aggregate) expr).isMergeSupported()
+                        : !(expr instanceof ExpressionColumn)) {
+                    return null;
+                }
+                // ENUM values cannot be restored without their column
+                if (expr.getType().getValueType() == Value.ENUM) {
+                    return null;
+                }
+            }
+            return list;
+        }
+
+        /**
+         * Read the next group from the groups that were written to disk and
+         * merge all its partial results.
+         *
+         * @return the key of the group, or null
+         */
+        private ValueRow nextSpilled() {
+            Value[] row = nextSpilledRow;
+            if (row == null) {
+                return null;
+            }
+            Expression[] list = spillExpressions;
+            int keyCount = groupIndex.length;
+            ValueRow key = ValueRow.get(Arrays.copyOf(row, keyCount));
+            CompareMode compareMode = session.getDatabase().getCompareMode();
+            Object[] data = createRow();
+            do {
+                for (int i = 0; i < list.length; i++) {
+                    Value v = row[keyCount + 1 + i];
+                    Expression expr = list[i];
+                    int index = getExprIndex(expr);
+                    if (expr instanceof Aggregate) {
+                        if (v != ValueNull.INSTANCE) {
+                            data[index] = ((Aggregate) expr).mergePartialValue(session, data[index], v);
+                        }
+                    } else if (data[index] == null) {
+                        data[index] = v;
+                    }
+                }
+                row = spilled.next();
+            } while (row != null && compareMode.compare(key, ValueRow.get(Arrays.copyOf(row, keyCount))) == 0);
+            nextSpilledRow = row;
+            currentGroupByExprData = data;
+            currentGroupRowId++;
+            return key;
+        }
+
         @Override
         void updateCurrentGroupExprData() {
             // this can be null in lazy mode
             if (currentGroupsKey != null) {
                 // since we changed the size of the array, update the object in
                 // the groups map
-                groupByData.put(currentGroupsKey, currentGroupByExprData);
+                Object[] old = groupByData.put(currentGroupsKey, currentGroupByExprData);
+                if (recentlyUpdated != null && recentlyUpdated.remove(old)) {
+                    recentlyUpdated.add(currentGroupByExprData);
+                }
             }
         }
 
@@ -116,11 +341,19 @@ public void done() {
             if (groupIndex == null && groupByData.size() == 0) {
                 groupByData.put(ValueRow.getEmpty(), createRow());
             }
+            if (spilled != null) {
+                spill(true);
+                spilled.reset();
+                nextSpilledRow = spilled.next();
+            }
             cursor = groupByData.entrySet().iterator();
         }
 
         @Override
         public ValueRow next() {
+            if (spilled != null) {
+                return nextSpilled();
+            }
             if (cursor.hasNext()) {
                 Map.Entry<ValueRow, Object[]> entry = cursor.next();
                 currentGroupByExprData = entry.getValue();
@@ -263,6 +496,26 @@ public boolean isCurrentGroup() {
         return currentGroupByExprData != null;
     }
 
+    /**
+     * Get the index of the data of the given expression in the group-by data.
+     *
+     * @param expr
+     *            expression
+     * @return the index
+     */
+    final int getExprIndex(Expression expr) {
+        return exprToIndexInGroupByData.get(expr);
+    }
+
+    /**
+     * Get the expressions that have group-by data.
+     *
+     * @return the expressions
+     */
+    final Expression[] getExpressionsWithData() {
+        return exprToIndexInGroupByData.keySet().toArray(new Expression[0]);
+    }
+
     /**
      * Get the group-by data for the current group and the passed in expression.
      *
@@ -385,6 +638,36 @@ public void reset() {
      */
     public abstract void nextSource();
 
+    /**
+     * Invoked for a partial result of a group that was calculated separately,
+     * for example by another thread. Makes the group with the given key the
+     * current group, so that the partial result can be merged into it.
+     *
+     * @param key the key of the group
+     */
+    public void nextSource(ValueRow key) {
+        throw DbException.getUnsupportedException("nextSource");
+    }
+
+    /**
+     * Allows to write the partial results of the groups to disk if there are
+     * more groups than MAX_MEMORY_ROWS. This is only done if all aggregates of
+     * the query can merge their partial results. Should be invoked after
+     * {@link #reset()}, and only if the groups are read only once.
+     */
+    public void allowSpill() {
+        // nothing to do
+    }
+
+    /**
+     * Get how many partial results of groups were written to disk.
+     *
+     * @return the number of partial results
+     */
+    public int getSpillCount() {
+        return 0;
+    }
+
     /**
      * Invoked after all source rows are evaluated.
      */
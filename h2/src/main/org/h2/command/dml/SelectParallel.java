@@ -0,0 +1,234 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command.dml;
+
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.h2.engine.Constants;
+import org.h2.engine.Session;
+import org.h2.expression.Expression;
+import org.h2.expression.ValueVector;
+import org.h2.expression.aggregate.Aggregate;
+import org.h2.index.Cursor;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.table.RowBatch;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueRow;
+
+/**
+ * Calculates the groups and aggregates of a query over a single table with
+ * multiple threads. Each thread scans a range of keys in batches of rows,
+ * filters the rows, and calculates a partial result for each group. The
+ * partial results are then merged by the calling thread.
+ * <p>
+ * The session is not thread-safe. The other threads only evaluate expressions
+ * that use the session to get the database, see
+ * {@link Expression#isBatchThreadSafe(TableFilter)}. Only the calling thread
+ * checks whether the statement was canceled, and then stops the others.
+ */
+final class SelectParallel {
+
+    /**
+     * The minimum number of rows for each thread.
+     */
+    static final int MIN_ROWS_PER_THREAD = 4 * RowBatch.DEFAULT_CAPACITY;
+
+    /**
+     * The partial result of a range of keys.
+     */
+    static final class Part {
+
+        /**
+         * The data of the aggregates, by group key.
+         */
+        final TreeMap<ValueRow, Object[]> groups;
+
+        /**
+         * The rows that could not be evaluated in batches, and need to be
+         * evaluated one by one by the calling thread.
+         */
+        final ArrayList<Row> deferredRows = new ArrayList<>();
+
+        Part(Session session) {
+            groups = new TreeMap<>(session.getDatabase().getCompareMode());
+        }
+
+    }
+
+    private final Session session;
+    private final TableFilter filter;
+    private final Expression condition;
+    private final Expression[] groupExpressions;
+    private final Aggregate[] aggregates;
+    private volatile boolean stopped;
+
+    /**
+     * Create a new parallel aggregation.
+     *
+     * @param session the session
+     * @param filter the table filter
+     * @param condition the condition, or null
+     * @param groupExpressions the expressions of the group key, in the same
+     *            order as they are used by {@link SelectGroups}
+     * @param aggregates the aggregates
+     */
+    SelectParallel(Session session, TableFilter filter, Expression condition, Expression[] groupExpressions,
+            Aggregate[] aggregates) {
+        this.session = session;
+        this.filter = filter;
+        this.condition = condition;
+        this.groupExpressions = groupExpressions;
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Scan the rows of all cursors. The first cursor is scanned by the calling
+     * thread, the others by the query executor of the database.
+     *
+     * @param cursors the cursors over disjoint key ranges
+     * @return the partial results, one for each cursor
+     */
+    Part[] gather(Cursor[] cursors) {
+        int count = cursors.length;
+        ForkJoinPool executor = session.getDatabase().getQueryExecutor();
+        ArrayList<Future<Part>> futures = new ArrayList<>(count - 1);
+        Part[] parts = new Part[count];
+        DbException exception = null;
+        try {
+            for (int i = 1; i < count; i++) {
+                final Cursor cursor = cursors[i];
+                futures.add(executor.submit(() -> scan(cursor, false)));
+            }
+            parts[0] = scan(cursors[0], true);
+        } catch (Throwable e) {
+            stopped = true;
+            exception = DbException.convert(e);
+        }
+        for (int i = 1; i <= futures.size(); i++) {
+            Future<Part> future = futures.get(i - 1);
+            while (true) {
+                try {
+                    parts[i] = future.get(Constants.DEADLOCK_CHECK, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    if (exception == null) {
+                        try {
+                            session.checkCanceled();
+                        } catch (DbException e2) {
+                            stopped = true;
+                            exception = e2;
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    stopped = true;
+                    if (exception == null) {
+                        exception = DbException.convert(e.getCause());
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    stopped = true;
+                    if (exception == null) {
+                        exception = DbException.convert(e);
+                    }
+                    break;
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return parts;
+    }
+
+    /**
+     * Scan the rows of a cursor.
+     *
+     * @param cursor the cursor
+     * @param callingThread whether this is the calling thread, which may use
+     *            the session
+     * @return the partial result
+     */
+    private Part scan(Cursor cursor, boolean callingThread) {
+        Part part = new Part(session);
+        RowBatch batch = new RowBatch(filter, cursor);
+        int groupCount = groupExpressions.length, aggregateCount = aggregates.length;
+        ValueVector[] keys = new ValueVector[groupCount];
+        ValueVector[] values = new ValueVector[aggregateCount];
+        while (!stopped && batch.fill()) {
+            if (callingThread) {
+                session.checkCanceled();
+            }
+            int size;
+            try {
+                if (condition != null) {
+                    ValueVector v = condition.getValues(session, batch);
+                    size = batch.getSize();
+                    boolean[] selected = new boolean[size];
+                    for (int i = 0; i < size; i++) {
+                        selected[i] = v.isTrue(i);
+                    }
+                    batch.retain(selected);
+                }
+                size = batch.getSize();
+                if (size == 0) {
+                    continue;
+                }
+                for (int i = 0; i < groupCount; i++) {
+                    keys[i] = groupExpressions[i].getValues(session, batch);
+                }
+                for (int i = 0; i < aggregateCount; i++) {
+                    values[i] = aggregates[i].getArgumentValues(session, batch);
+                }
+            } catch (DbException e) {
+                // some expressions only fail for rows the batch evaluation
+                // did not skip
+                for (int i = 0, l = batch.getSize(); i < l; i++) {
+                    part.deferredRows.add(batch.getRow(i));
+                }
+                continue;
+            }
+            if (groupCount == 0) {
+                Object[] data = getGroup(part, ValueRow.getEmpty());
+                for (int i = 0; i < aggregateCount; i++) {
+                    aggregates[i].addPartial(session, data[i], values[i], size);
+                }
+            } else {
+                for (int row = 0; row < size; row++) {
+                    Value[] keyValues = new Value[groupCount];
+                    for (int i = 0; i < groupCount; i++) {
+                        keyValues[i] = keys[i].getValue(row);
+                    }
+                    Object[] data = getGroup(part, ValueRow.get(keyValues));
+                    for (int i = 0; i < aggregateCount; i++) {
+                        aggregates[i].addPartialRow(session, data[i], values[i], row);
+                    }
+                }
+            }
+        }
+        return part;
+    }
+
+    private Object[] getGroup(Part part, ValueRow key) {
+        Object[] data = part.groups.get(key);
+        if (data == null) {
+            data = new Object[aggregates.length];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = aggregates[i].createPartialData();
+            }
+            part.groups.put(key, data);
+        }
+        return data;
+    }
+
+}
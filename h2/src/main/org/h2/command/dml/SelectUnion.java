@@ -153,6 +153,7 @@ protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
         LocalResult result = createLocalResult(columnCount);
         if (sort != null) {
             result.setSortOrder(sort);
+            setTopRowsLimit(result, offset, fetch, fetchPercent);
         }
         if (distinct) {
             left.setDistinctIfPossible();
@@ -595,6 +595,14 @@ public int update() {
             session.setLazyQueryExecution(value == 1);
             break;
         }
+        case SetTypes.QUERY_PARALLELISM: {
+            int value = getIntValue();
+            if (value < 1) {
+                throw DbException.getInvalidValueException("QUERY_PARALLELISM", value);
+            }
+            session.setQueryParallelism(value);
+            break;
+        }
         case SetTypes.BUILTIN_ALIAS_OVERRIDE: {
             session.getUser().checkAdmin();
             int value = getIntValue();
@@ -662,10 +670,39 @@ public int update() {
         database.getNextModificationDataId();
         // query caches might be affected as well, for example
         // when changing the compatibility mode
-        database.getNextModificationMetaId();
+        if (isQueryCacheAffected()) {
+            database.getNextModificationMetaId();
+        }
         return 0;
     }
 
+    /**
+     * Check whether this setting can change how statements are parsed or
+     * prepared. Settings that are only used at runtime don't need to clear
+     * the query caches, which are shared by all sessions.
+     *
+     * @return true if the query caches need to be cleared
+     */
+    private boolean isQueryCacheAffected() {
+        switch (type) {
+        case SetTypes.QUERY_TIMEOUT:
+        case SetTypes.LOCK_TIMEOUT:
+        case SetTypes.DEFAULT_LOCK_TIMEOUT:
+        case SetTypes.THROTTLE:
+        case SetTypes.TRACE_LEVEL_FILE:
+        case SetTypes.TRACE_LEVEL_SYSTEM_OUT:
+        case SetTypes.TRACE_MAX_FILE_SIZE:
+        case SetTypes.LOG:
+        case SetTypes.WRITE_DELAY:
+        case SetTypes.MAX_LOG_SIZE:
+        case SetTypes.RETENTION_TIME:
+        case SetTypes.QUERY_PARALLELISM:
+            return false;
+        default:
+            return true;
+        }
+    }
+
     private int getIntValue() {
         expression = expression.optimize(session);
         return expression.getValue(session).getInt();
@@ -267,7 +267,12 @@ public class SetTypes {
      */
     public static final int CATALOG = IGNORE_CATALOGS + 1;
 
-    private static final int COUNT = CATALOG + 1;
+    /**
+     * The type of a SET QUERY_PARALLELISM statement.
+     */
+    public static final int QUERY_PARALLELISM = CATALOG + 1;
+
+    private static final int COUNT = QUERY_PARALLELISM + 1;
 
     private static final ArrayList<String> TYPES;
 
@@ -329,6 +334,7 @@ private SetTypes() {
         list.add(UUID_COLLATION, "UUID_COLLATION");
         list.add(IGNORE_CATALOGS, "IGNORE_CATALOGS");
         list.add(CATALOG, "CATALOG");
+        list.add(QUERY_PARALLELISM, "QUERY_PARALLELISM");
         TYPES = list;
     }
 
@@ -14,6 +14,7 @@
 import org.h2.api.Trigger;
 import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
+import org.h2.constraint.DeferredReferentialChecks;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -224,10 +225,21 @@ public int update() {
             // the cached row is already updated - we need the old values
             table.updateRows(this, session, rows);
             if (table.fireRow()) {
-                for (rows.reset(); rows.hasNext();) {
-                    Row o = rows.next();
-                    Row n = rows.next();
-                    table.fireAfterRow(session, o, n, false);
+                // the list contains the old and the new row
+                DeferredReferentialChecks outerChecks = session.setDeferredReferentialChecks(
+                        rows.size() > 2 ? new DeferredReferentialChecks() : null);
+                try {
+                    for (rows.reset(); rows.hasNext();) {
+                        Row o = rows.next();
+                        Row n = rows.next();
+                        table.fireAfterRow(session, o, n, false);
+                    }
+                    DeferredReferentialChecks checks = session.getDeferredReferentialChecks();
+                    if (checks != null) {
+                        checks.execute(session);
+                    }
+                } finally {
+                    session.setDeferredReferentialChecks(outerChecks);
                 }
             }
             table.fire(session, Trigger.UPDATE, false);
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.compress;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.StringTokenizer;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.h2.api.ErrorCode;
+import org.h2.message.DbException;
+
+/**
+ * The DEFLATE algorithm with a preset dictionary. Small blocks of data, for
+ * example the pages of a map, compress a lot better if the dictionary
+ * contains the byte sequences that are common in the data. The dictionary
+ * can be created from sample data using {@link #train(Collection, int)}, and
+ * the same dictionary is needed to expand the data. The checksum of the
+ * dictionary is stored in the compressed data, so that a wrong dictionary is
+ * detected.
+ * <p>
+ * This algorithm supports the option l or level: -1 (default), 0 (no
+ * compression), 1 (best speed), ..., 9 (best compression).
+ * <p>
+ * Each instance should be used by a single thread only for compression.
+ * Expansion does not modify the state and may be used concurrently.
+ */
+public class CompressDictionary implements Compressor {
+
+    /**
+     * The maximum useful size of a dictionary (the DEFLATE window size).
+     */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    /**
+     * The length of the sequences that are counted when training.
+     */
+    private static final int SEQUENCE_LENGTH = 8;
+
+    /**
+     * The length of the segments the dictionary is built from.
+     */
+    private static final int SEGMENT_LENGTH = 64;
+
+    private final byte[] dictionary;
+
+    private final int dictionaryId;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private Deflater deflater;
+
+    /**
+     * Create a new compressor with the given dictionary.
+     *
+     * @param dictionary the dictionary
+     */
+    public CompressDictionary(byte[] dictionary) {
+        this.dictionary = dictionary;
+        Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        dictionaryId = (int) adler.getValue();
+    }
+
+    /**
+     * Get the dictionary.
+     *
+     * @return the dictionary
+     */
+    public byte[] getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public int getAlgorithm() {
+        return Compressor.DICTIONARY;
+    }
+
+    @Override
+    public void setOptions(String options) {
+        if (options == null) {
+            return;
+        }
+        try {
+            StringTokenizer tokenizer = new StringTokenizer(options);
+            while (tokenizer.hasMoreElements()) {
+                String option = tokenizer.nextToken();
+                if ("level".equals(option) || "l".equals(option)) {
+                    level = Integer.parseInt(tokenizer.nextToken());
+                }
+            }
+            new Deflater(level).end();
+            deflater = null;
+        } catch (Exception e) {
+            throw DbException.get(ErrorCode.UNSUPPORTED_COMPRESSION_OPTIONS_1, options);
+        }
+    }
+
+    @Override
+    public int compress(byte[] in, int inLen, byte[] out, int outPos) {
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        }
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(in, 0, inLen);
+            deflater.finish();
+            int len = deflater.deflate(out, outPos, out.length - outPos);
+            if (!deflater.finished()) {
+                // the output area is too small: store uncompressed
+                return out.length;
+            }
+            return outPos + len;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public void expand(byte[] in, int inPos, int inLen, byte[] out, int outPos,
+            int outLen) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(in, inPos, inLen);
+            int len = inflater.inflate(out, outPos, outLen);
+            if (inflater.needsDictionary()) {
+                if (inflater.getAdler() != dictionaryId) {
+                    throw new DataFormatException("Wrong dictionary");
+                }
+                inflater.setDictionary(dictionary);
+                len += inflater.inflate(out, outPos + len, outLen - len);
+            }
+            if (len != outLen) {
+                throw new DataFormatException(len + " " + outLen);
+            }
+        } catch (DataFormatException e) {
+            throw DbException.get(ErrorCode.COMPRESSION_ERROR, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Create a dictionary from sample data. The dictionary consists of the
+     * segments of the samples that contain the most byte sequences which are
+     * common in all samples. The most useful segments are at the end of the
+     * dictionary, where they can be referenced with the shortest distance.
+     *
+     * @param samples the sample data
+     * @param size the maximum size of the dictionary
+     * @return the dictionary
+     */
+    public static byte[] train(Collection<byte[]> samples, int size) {
+        size = Math.min(size, MAX_SIZE);
+        // the number of samples that contain a sequence, so that sequences
+        // that are repeated within a sample (which DEFLATE compresses well
+        // anyway) are not preferred
+        HashMap<Long, Integer> counts = new HashMap<>();
+        HashSet<Long> set = new HashSet<>();
+        for (byte[] sample : samples) {
+            set.clear();
+            for (int i = 0; i + SEQUENCE_LENGTH <= sample.length; i++) {
+                set.add(readLong(sample, i));
+            }
+            for (Long x : set) {
+                counts.merge(x, 1, Integer::sum);
+            }
+        }
+        PriorityQueue<Segment> queue = new PriorityQueue<>();
+        for (byte[] sample : samples) {
+            for (int start = 0; start < sample.length; start += SEGMENT_LENGTH / 2) {
+                Segment s = new Segment(sample, start, Math.min(start + SEGMENT_LENGTH, sample.length));
+                s.score = s.score(counts);
+                if (s.score > 0) {
+                    queue.add(s);
+                }
+            }
+        }
+        ArrayList<Segment> selected = new ArrayList<>();
+        int len = 0;
+        while (len < size && !queue.isEmpty()) {
+            Segment s = queue.poll();
+            // the sequences of the segments that are already selected no
+            // longer count
+            long score = s.score(counts);
+            if (score < s.score) {
+                s.score = score;
+                if (score > 0) {
+                    queue.add(s);
+                }
+                continue;
+            }
+            selected.add(s);
+            len += s.end - s.start;
+            for (int i = s.start; i + SEQUENCE_LENGTH <= s.end; i++) {
+                counts.put(readLong(s.data, i), 0);
+            }
+        }
+        byte[] dictionary = new byte[Math.min(len, size)];
+        int pos = dictionary.length;
+        for (Segment s : selected) {
+            int l = Math.min(s.end - s.start, pos);
+            pos -= l;
+            System.arraycopy(s.data, s.end - l, dictionary, pos, l);
+            if (pos == 0) {
+                break;
+            }
+        }
+        return dictionary;
+    }
+
+    private static long readLong(byte[] data, int pos) {
+        long x = 0;
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            x = (x << 8) | (data[pos + i] & 255);
+        }
+        return x;
+    }
+
+    /**
+     * A candidate segment of the sample data.
+     */
+    private static final class Segment implements Comparable<Segment> {
+
+        final byte[] data;
+
+        final int start, end;
+
+        /**
+         * The number of samples that contain the distinct sequences of this
+         * segment (sequences that occur in one sample only are not counted).
+         */
+        long score;
+
+        Segment(byte[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+        }
+
+        long score(HashMap<Long, Integer> counts) {
+            long score = 0;
+            HashSet<Long> set = new HashSet<>();
+            for (int i = start; i + SEQUENCE_LENGTH <= end; i++) {
+                long x = readLong(data, i);
+                if (set.add(x)) {
+                    int count = counts.get(x);
+                    if (count > 1) {
+                        score += count;
+                    }
+                }
+            }
+            return score;
+        }
+
+        @Override
+        public int compareTo(Segment o) {
+            return Long.compare(o.score, score);
+        }
+
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.compress;
+
+import java.util.Arrays;
+
+import org.h2.api.ErrorCode;
+import org.h2.message.DbException;
+
+/**
+ * <p>
+ * This class implements a fast compression algorithm that uses the LZ4 block
+ * format. Expansion is faster than with LZF, and the compression ratio is
+ * usually a bit better.
+ * </p>
+ * <p>
+ * The compressed data is a sequence of literal runs, each followed by a
+ * back-reference (except for the last run). Each sequence starts with a token
+ * byte: the high four bits are the literal length, and the low four bits are
+ * the back-reference length minus 4. If a length is 15 or more, it is continued
+ * in the following bytes (each byte is added, until a byte is not 255). The
+ * literal bytes follow, then the back-reference offset (two bytes, least
+ * significant byte first), then the rest of the back-reference length. The
+ * last five bytes are always literals.
+ * </p>
+ * <p>
+ * Each instance should be used by a single thread only for compression.
+ * Expansion does not modify the state and may be used concurrently.
+ * </p>
+ */
+public final class CompressLZ4 implements Compressor {
+
+    private static final int HASH_LOG = 12;
+
+    private static final int MIN_MATCH = 4;
+
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * A back-reference may not start in the last 12 bytes.
+     */
+    private static final int MATCH_FIND_LIMIT = 12;
+
+    private static final int MAX_OFFSET = 0xffff;
+
+    /**
+     * The positions of the 4-byte sequences, plus one (0 means unused).
+     */
+    private int[] hashTab;
+
+    @Override
+    public int getAlgorithm() {
+        return Compressor.LZ4;
+    }
+
+    @Override
+    public void setOptions(String options) {
+        // nothing to do
+    }
+
+    @Override
+    public int compress(byte[] in, int inLen, byte[] out, int outPos) {
+        if (hashTab == null) {
+            hashTab = new int[1 << HASH_LOG];
+        } else {
+            Arrays.fill(hashTab, 0);
+        }
+        int anchor = 0;
+        int inPos = 0;
+        int matchFindLimit = inLen - MATCH_FIND_LIMIT;
+        int matchLimit = inLen - LAST_LITERALS;
+        while (inPos < matchFindLimit) {
+            int seq = readInt(in, inPos);
+            int hash = (seq * -1640531535) >>> (32 - HASH_LOG);
+            int ref = hashTab[hash] - 1;
+            hashTab[hash] = inPos + 1;
+            if (ref < 0 || inPos - ref > MAX_OFFSET || readInt(in, ref) != seq) {
+                // skip faster over data that doesn't compress
+                inPos += 1 + ((inPos - anchor) >>> 6);
+                continue;
+            }
+            while (inPos > anchor && ref > 0 && in[inPos - 1] == in[ref - 1]) {
+                inPos--;
+                ref--;
+            }
+            int len = MIN_MATCH;
+            while (inPos + len < matchLimit && in[inPos + len] == in[ref + len]) {
+                len++;
+            }
+            int tokenPos = outPos;
+            outPos = writeLiterals(in, anchor, inPos - anchor, out, outPos);
+            int offset = inPos - ref;
+            out[outPos++] = (byte) offset;
+            out[outPos++] = (byte) (offset >>> 8);
+            int token = len - MIN_MATCH;
+            if (token >= 15) {
+                outPos = writeLength(token - 15, out, outPos);
+                token = 15;
+            }
+            out[tokenPos] |= token;
+            inPos += len;
+            anchor = inPos;
+        }
+        return writeLiterals(in, anchor, inLen - anchor, out, outPos);
+    }
+
+    private static int writeLiterals(byte[] in, int inPos, int len, byte[] out, int outPos) {
+        int tokenPos = outPos++;
+        if (len >= 15) {
+            out[tokenPos] = (byte) (15 << 4);
+            outPos = writeLength(len - 15, out, outPos);
+        } else {
+            out[tokenPos] = (byte) (len << 4);
+        }
+        System.arraycopy(in, inPos, out, outPos, len);
+        return outPos + len;
+    }
+
+    private static int writeLength(int len, byte[] out, int outPos) {
+        while (len >= 255) {
+            out[outPos++] = (byte) 255;
+            len -= 255;
+        }
+        out[outPos++] = (byte) len;
+        return outPos;
+    }
+
+    private static int readInt(byte[] in, int pos) {
+        return (in[pos] << 24) | ((in[pos + 1] & 255) << 16) | ((in[pos + 2] & 255) << 8) | (in[pos + 3] & 255);
+    }
+
+    @Override
+    public void expand(byte[] in, int inPos, int inLen, byte[] out, int outPos, int outLen) {
+        int inEnd = inPos + inLen;
+        int outStart = outPos;
+        int outEnd = outPos + outLen;
+        try {
+            while (true) {
+                int token = in[inPos++] & 255;
+                int len = token >>> 4;
+                if (len == 15) {
+                    int b;
+                    do {
+                        b = in[inPos++] & 255;
+                        len += b;
+                    } while (b == 255);
+                }
+                if (len > inEnd - inPos || len > outEnd - outPos) {
+                    throw DbException.get(ErrorCode.COMPRESSION_ERROR);
+                }
+                System.arraycopy(in, inPos, out, outPos, len);
+                inPos += len;
+                outPos += len;
+                if (inPos >= inEnd) {
+                    break;
+                }
+                int offset = (in[inPos++] & 255) | ((in[inPos++] & 255) << 8);
+                len = token & 15;
+                if (len == 15) {
+                    int b;
+                    do {
+                        b = in[inPos++] & 255;
+                        len += b;
+                    } while (b == 255);
+                }
+                len += MIN_MATCH;
+                int ref = outPos - offset;
+                if (offset == 0 || ref < outStart || len > outEnd - outPos) {
+                    throw DbException.get(ErrorCode.COMPRESSION_ERROR);
+                }
+                if (offset >= len) {
+                    System.arraycopy(out, ref, out, outPos, len);
+                    outPos += len;
+                } else {
+                    // overlapping, repeat the last bytes
+                    for (int i = 0; i < len; i++) {
+                        out[outPos++] = out[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw DbException.get(ErrorCode.COMPRESSION_ERROR, e);
+        }
+        if (outPos != outEnd) {
+            throw DbException.get(ErrorCode.COMPRESSION_ERROR);
+        }
+    }
+
+}
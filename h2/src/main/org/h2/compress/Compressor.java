@@ -26,6 +26,16 @@ public interface Compressor {
      */
     int DEFLATE = 2;
 
+    /**
+     * The LZ4 compression algorithm is used.
+     */
+    int LZ4 = 3;
+
+    /**
+     * The DEFLATE compression algorithm with a preset dictionary is used.
+     */
+    int DICTIONARY = 4;
+
     /**
      * Get the compression algorithm type.
      *
@@ -6,6 +6,7 @@
 package org.h2.constraint;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import org.h2.api.ErrorCode;
 import org.h2.command.Prepared;
@@ -41,6 +42,7 @@ public class ConstraintReferential extends Constraint {
     private boolean indexOwner;
     private boolean refIndexOwner;
     private String deleteSQL, updateSQL;
+    private String deleteInSQL;
     private boolean skipOwnTable;
 
     public ConstraintReferential(Schema schema, int id, String name, Table table) {
@@ -242,6 +244,7 @@ public void removeChildrenAndResources(Session session) {
         columns = null;
         refColumns = null;
         deleteSQL = null;
+        deleteInSQL = null;
         updateSQL = null;
         table = null;
         invalidate();
@@ -315,12 +318,125 @@ private void checkRowOwnTable(Session session, Row oldRow, Row newRow) {
             int refIdx = refCol.getColumnId();
             check.setValue(refIdx, refCol.convert(v, true));
         }
+        DeferredReferentialChecks deferred = getDeferredChecks(session);
+        if (deferred != null) {
+            deferred.addParentKey(session, this, check);
+            return;
+        }
         if (!existsRow(session, refIndex, check, null)) {
             throw DbException.get(ErrorCode.REFERENTIAL_INTEGRITY_VIOLATED_PARENT_MISSING_1,
                     getShortDescription(refIndex, check));
         }
     }
 
+    /**
+     * Get the checks of the current statement that are done at the end of the
+     * statement. Self-referencing constraints are always checked for each row,
+     * because the statement may reference rows it changes itself.
+     *
+     * @param session the session
+     * @return the deferred checks, or null
+     */
+    private DeferredReferentialChecks getDeferredChecks(Session session) {
+        return refTable == table ? null : session.getDeferredReferentialChecks();
+    }
+
+    /**
+     * Check that the referenced rows exist.
+     *
+     * @param session the session
+     * @param keys the keys (rows of the referenced table)
+     */
+    void checkParentKeys(Session session, ArrayList<Row> keys) {
+        sortDistinct(keys);
+        for (Row check : keys) {
+            if (!existsRow(session, refIndex, check, null)) {
+                throw DbException.get(ErrorCode.REFERENTIAL_INTEGRITY_VIOLATED_PARENT_MISSING_1,
+                        getShortDescription(refIndex, check));
+            }
+        }
+    }
+
+    /**
+     * Check that the removed rows of the referenced table are not referenced.
+     *
+     * @param session the session
+     * @param oldRows the removed rows
+     */
+    void checkNotReferenced(Session session, ArrayList<Row> oldRows) {
+        sortDistinct(oldRows);
+        for (Row oldRow : oldRows) {
+            checkRow(session, oldRow);
+        }
+    }
+
+    /**
+     * Apply the ON DELETE action for the deleted rows of the referenced table.
+     * For single column keys, all referencing rows are deleted or updated
+     * with one statement.
+     *
+     * @param session the session
+     * @param oldRows the deleted rows
+     */
+    void applyDeleteAction(Session session, ArrayList<Row> oldRows) {
+        sortDistinct(oldRows);
+        if (columns.length == 1) {
+            // the values are constants, so that the condition can use
+            // a hash set
+            int idx = refColumns[0].column.getColumnId();
+            StringBuilder builder = new StringBuilder(deleteInSQL);
+            boolean empty = true;
+            for (Row oldRow : oldRows) {
+                Value v = oldRow.getValue(idx);
+                if (v != ValueNull.INSTANCE) {
+                    if (!empty) {
+                        builder.append(", ");
+                    }
+                    v.getSQL(builder);
+                    empty = false;
+                }
+            }
+            if (empty) {
+                return;
+            }
+            updateWithSkipCheck(prepare(session, builder.append(')').toString(), deleteAction));
+        } else {
+            int pos = deleteAction == ConstraintActionType.CASCADE ? 0 : columns.length;
+            Prepared deleteCommand = getDelete(session);
+            for (Row oldRow : oldRows) {
+                setWhere(deleteCommand, pos, oldRow);
+                updateWithSkipCheck(deleteCommand);
+            }
+        }
+    }
+
+    /**
+     * Sort the rows by the referenced columns, and remove the rows with the
+     * same key.
+     *
+     * @param rows the rows of the referenced table
+     */
+    private void sortDistinct(ArrayList<Row> rows) {
+        Comparator<Row> comparator = (a, b) -> {
+            for (IndexColumn col : refColumns) {
+                int idx = col.column.getColumnId();
+                int comp = refTable.compareValues(a.getValue(idx), b.getValue(idx));
+                if (comp != 0) {
+                    return comp;
+                }
+            }
+            return 0;
+        };
+        rows.sort(comparator);
+        int size = 0;
+        for (Row row : rows) {
+            if (size == 0 || comparator.compare(rows.get(size - 1), row) != 0) {
+                rows.set(size++, row);
+            }
+        }
+        rows.subList(size, rows.size()).clear();
+    }
+
     private boolean existsRow(Session session, Index searchIndex,
             SearchRow check, Row excluding) {
         Table searchTable = searchIndex.getTable();
@@ -384,10 +500,17 @@ private void checkRowRefTable(Session session, Row oldRow, Row newRow) {
             // on an update, if both old and new are the same, don't do anything
             return;
         }
+        DeferredReferentialChecks deferred = getDeferredChecks(session);
         if (newRow == null) {
             // this is a delete
             if (deleteAction == ConstraintActionType.RESTRICT) {
-                checkRow(session, oldRow);
+                if (deferred != null) {
+                    deferred.addRemovedParentRow(session, this, oldRow);
+                } else {
+                    checkRow(session, oldRow);
+                }
+            } else if (deferred != null) {
+                deferred.addDeletedParentRow(session, this, oldRow);
             } else {
                 int i = deleteAction == ConstraintActionType.CASCADE ? 0 : columns.length;
                 Prepared deleteCommand = getDelete(session);
@@ -397,7 +520,11 @@ private void checkRowRefTable(Session session, Row oldRow, Row newRow) {
         } else {
             // this is an update
             if (updateAction == ConstraintActionType.RESTRICT) {
-                checkRow(session, oldRow);
+                if (deferred != null) {
+                    deferred.addRemovedParentRow(session, this, oldRow);
+                } else {
+                    checkRow(session, oldRow);
+                }
             } else {
                 Prepared updateCommand = getUpdate(session);
                 if (updateAction == ConstraintActionType.CASCADE) {
@@ -463,6 +590,7 @@ public void setDeleteAction(ConstraintActionType action) {
     public void updateOnTableColumnRename() {
         if (deleteAction != null) {
             deleteSQL = null;
+            deleteInSQL = null;
             buildDeleteSQL();
         }
         if (updateAction != null) {
@@ -482,8 +610,15 @@ private void buildDeleteSQL() {
         } else {
             appendUpdate(builder);
         }
+        int length = builder.length();
         appendWhere(builder);
         deleteSQL = builder.toString();
+        if (columns.length == 1) {
+            builder.setLength(length);
+            builder.append(" WHERE ");
+            columns[0].column.getSQL(builder, true).append(" IN(");
+            deleteInSQL = builder.toString();
+        }
     }
 
     private Prepared getUpdate(Session session) {
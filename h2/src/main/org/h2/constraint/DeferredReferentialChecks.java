@@ -0,0 +1,119 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.constraint;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.h2.engine.Session;
+import org.h2.result.Row;
+
+/**
+ * The referential constraint checks and actions of a data change statement
+ * that affects multiple rows. Instead of searching the index once for each
+ * row, the keys are collected, and at the end of the statement they are
+ * sorted, duplicates are removed, and the index is searched in key order.
+ * For single column keys, the rows of the referencing table that are deleted
+ * or updated by an ON DELETE action are changed by a single statement.
+ * <p>
+ * Self-referencing constraints, and actions on update, are not deferred.
+ */
+public final class DeferredReferentialChecks {
+
+    /**
+     * The number of collected rows after which the checks are done, so that
+     * the memory usage of large statements is limited.
+     */
+    private static final int MAX_ROWS = 10_000;
+
+    /**
+     * The keys of the referenced table that need to exist.
+     */
+    private final LinkedHashMap<ConstraintReferential, ArrayList<Row>> parentKeys = new LinkedHashMap<>();
+
+    /**
+     * The removed rows of the referenced table that may not be referenced
+     * (ON DELETE RESTRICT or ON UPDATE RESTRICT).
+     */
+    private final LinkedHashMap<ConstraintReferential, ArrayList<Row>> removedParentRows = new LinkedHashMap<>();
+
+    /**
+     * The deleted rows of the referenced table for which the ON DELETE action
+     * is applied (CASCADE, SET NULL, or SET DEFAULT).
+     */
+    private final LinkedHashMap<ConstraintReferential, ArrayList<Row>> deletedParentRows = new LinkedHashMap<>();
+
+    private int rowCount;
+
+    /**
+     * Add a key of the referenced table that needs to exist.
+     *
+     * @param session the session
+     * @param constraint the constraint
+     * @param key the key (a row of the referenced table)
+     */
+    void addParentKey(Session session, ConstraintReferential constraint, Row key) {
+        add(session, parentKeys, constraint, key);
+    }
+
+    /**
+     * Add a deleted or updated row of the referenced table that may not be
+     * referenced.
+     *
+     * @param session the session
+     * @param constraint the constraint
+     * @param oldRow the old row
+     */
+    void addRemovedParentRow(Session session, ConstraintReferential constraint, Row oldRow) {
+        add(session, removedParentRows, constraint, oldRow);
+    }
+
+    /**
+     * Add a deleted row of the referenced table for which the ON DELETE action
+     * needs to be applied.
+     *
+     * @param session the session
+     * @param constraint the constraint
+     * @param oldRow the deleted row
+     */
+    void addDeletedParentRow(Session session, ConstraintReferential constraint, Row oldRow) {
+        add(session, deletedParentRows, constraint, oldRow);
+    }
+
+    private void add(Session session, LinkedHashMap<ConstraintReferential, ArrayList<Row>> map,
+            ConstraintReferential constraint, Row row) {
+        map.computeIfAbsent(constraint, c -> new ArrayList<>()).add(row);
+        if (++rowCount >= MAX_ROWS) {
+            execute(session);
+        }
+    }
+
+    /**
+     * Apply the collected actions and do the collected checks. The actions are
+     * applied first, so that the rows they delete or update are no longer
+     * checked.
+     *
+     * @param session the session
+     * @throws org.h2.message.DbException if a constraint is violated
+     */
+    public void execute(Session session) {
+        rowCount = 0;
+        for (Map.Entry<ConstraintReferential, ArrayList<Row>> e : deletedParentRows.entrySet()) {
+            e.getKey().applyDeleteAction(session, e.getValue());
+        }
+        deletedParentRows.clear();
+        for (Map.Entry<ConstraintReferential, ArrayList<Row>> e : removedParentRows.entrySet()) {
+            e.getKey().checkNotReferenced(session, e.getValue());
+        }
+        removedParentRows.clear();
+        for (Map.Entry<ConstraintReferential, ArrayList<Row>> e : parentKeys.entrySet()) {
+            e.getKey().checkParentKeys(session, e.getValue());
+        }
+        parentKeys.clear();
+    }
+
+}
@@ -111,6 +111,12 @@ public class Constants {
      */
     public static final int TCP_PROTOCOL_VERSION_19 = 19;
 
+    /**
+     * The TCP protocol version number 20.
+     * @since 1.4.201
+     */
+    public static final int TCP_PROTOCOL_VERSION_20 = 20;
+
     /**
      * Minimum supported version of TCP protocol.
      */
@@ -119,7 +125,7 @@ public class Constants {
     /**
      * Maximum supported version of TCP protocol.
      */
-    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_19;
+    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_20;
 
     /**
      * The major version of this database.
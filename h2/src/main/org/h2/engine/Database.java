@@ -22,6 +22,7 @@
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -167,6 +168,8 @@ public class Database implements DataHandler, CastDataProvider {
     private Index metaIdIndex;
     private FileLock lock;
     private WriterThread writer;
+    private volatile ForkJoinPool queryExecutor;
+    private final SharedQueryCache sharedQueryCache;
     private volatile boolean starting;
     private TraceSystem traceSystem;
     private Trace trace;
@@ -240,6 +243,8 @@ public Database(ConnectionInfo ci, String cipher) {
         }
         String name = ci.getName();
         this.dbSettings = ci.getDbSettings();
+        this.sharedQueryCache = dbSettings.queryCacheSize > 0 && dbSettings.sharedQueryCacheSize > 0
+                ? new SharedQueryCache(dbSettings.sharedQueryCacheSize) : null;
         this.compareMode = CompareMode.getInstance(null, 0);
         this.persistent = ci.isPersistent();
         this.filePasswordHash = ci.getFilePasswordHash();
@@ -1472,6 +1477,34 @@ private void stopWriter() {
         }
     }
 
+    /**
+     * Get the query cache that is shared by all sessions.
+     *
+     * @return the shared query cache, or null if it is disabled
+     */
+    SharedQueryCache getSharedQueryCache() {
+        return sharedQueryCache;
+    }
+
+    /**
+     * Get the thread pool used to process parts of a query in parallel, see
+     * SET QUERY_PARALLELISM.
+     *
+     * @return the thread pool
+     */
+    public ForkJoinPool getQueryExecutor() {
+        ForkJoinPool executor = queryExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = queryExecutor;
+                if (executor == null) {
+                    queryExecutor = executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return executor;
+    }
+
     /**
      * Close all open files and unlock the database.
      *
@@ -1480,6 +1513,10 @@ private void stopWriter() {
     private synchronized void closeOpenFilesAndUnlock(boolean flush) {
         try {
             stopWriter();
+            if (queryExecutor != null) {
+                queryExecutor.shutdownNow();
+                queryExecutor = null;
+            }
             if (pageStore != null) {
                 if (flush) {
                     try {
@@ -2307,15 +2344,18 @@ public void exceptionThrown(SQLException e, String sql) {
      * Synchronize the files with the file system. This method is called when
      * executing the SQL statement CHECKPOINT SYNC.
      */
-    public synchronized void sync() {
+    public void sync() {
         if (readOnly) {
             return;
         }
         if (store != null) {
+            // not synchronized, so that concurrent calls can be combined
             store.sync();
         }
         if (pageStore != null) {
-            pageStore.sync();
+            synchronized (this) {
+                pageStore.sync();
+            }
         }
     }
 
@@ -150,6 +150,23 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean functionsInSchema = get("FUNCTIONS_IN_SCHEMA", true);
 
+    /**
+     * Database setting <code>GROUP_COMMIT_DELAY</code> (default: 0).<br />
+     * The time in microseconds CHECKPOINT SYNC waits for other sessions that
+     * also want to sync, so that the changes of all of them are written with
+     * one sync operation. Sessions that start to wait while another sync is in
+     * progress are always combined. This setting only applies to MVStore
+     * databases.
+     */
+    public final int groupCommitDelay = get("GROUP_COMMIT_DELAY", 0);
+
+    /**
+     * Database setting <code>GROUP_COMMIT_SIZE</code> (default: 16).<br />
+     * The number of waiting sessions after which a group commit is written
+     * without waiting for the GROUP_COMMIT_DELAY to expire.
+     */
+    public final int groupCommitSize = get("GROUP_COMMIT_SIZE", 16);
+
     /**
      * Database setting <code>LOB_TIMEOUT</code> (default: 300000,
      * which means 5 minutes).<br />
@@ -181,6 +198,14 @@ public class DbSettings extends SettingsBase {
      */
     public final int maxQueryTimeout = get("MAX_QUERY_TIMEOUT", 0);
 
+    /**
+     * Database setting <code>OPTIMIZE_BATCH_EVALUATION</code> (default:
+     * true).<br />
+     * Evaluate the condition and simple aggregates of single table queries
+     * for a batch of rows at once.
+     */
+    public final boolean optimizeBatchEvaluation = get("OPTIMIZE_BATCH_EVALUATION", true);
+
     /**
      * Database setting <code>OPTIMIZE_DISTINCT</code> (default: true).<br />
      * Improve the performance of simple DISTINCT queries if an index is
@@ -203,6 +228,14 @@ public class DbSettings extends SettingsBase {
     public final boolean optimizeEvaluatableSubqueries = get(
             "OPTIMIZE_EVALUATABLE_SUBQUERIES", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_HASH_JOIN</code> (default: true).<br />
+     * Use an in-memory hash table for equi-joins with a table that has no
+     * usable index on the join columns and not more rows than
+     * MAX_MEMORY_ROWS.
+     */
+    public final boolean optimizeHashJoin = get("OPTIMIZE_HASH_JOIN", true);
+
     /**
      * Database setting <code>OPTIMIZE_INSERT_FROM_SELECT</code>
      * (default: true).<br />
@@ -305,6 +338,18 @@ public class DbSettings extends SettingsBase {
     public final boolean shareLinkedConnections = get(
             "SHARE_LINKED_CONNECTIONS", true);
 
+    /**
+     * Database setting <code>SHARED_QUERY_CACHE_SIZE</code>
+     * (default: 256).<br />
+     * The size of the query cache that is shared by all sessions, in number of
+     * cached statements. Statements that are no longer in the query cache of a
+     * session, or that belong to a closed session, are moved to this cache, so
+     * that other sessions don't need to parse them again. Only SELECT, INSERT,
+     * UPDATE, and DELETE statements without subqueries that only use regular
+     * tables are shared. Use 0 to disable the shared cache.
+     */
+    public final int sharedQueryCacheSize = get("SHARED_QUERY_CACHE_SIZE", 256);
+
     /**
      * Database setting <code>DEFAULT_TABLE_ENGINE</code>
      * (default: null).<br />
@@ -326,6 +371,15 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean compressData = get("COMPRESS", false);
 
+    /**
+     * Database setting <code>MEMORY_MAPPED</code>
+     * (default: false).<br />
+     * Read pages directly from the memory mapped database file instead of
+     * copying them to the heap. This setting only applies to MVStore
+     * databases that are not encrypted.
+     */
+    public final boolean memoryMapped = get("MEMORY_MAPPED", false);
+
     /**
      * Database setting <code>IGNORE_CATALOGS</code>
      * (default: false).<br />
@@ -28,6 +28,7 @@
 import org.h2.command.dml.Query;
 import org.h2.command.dml.SetTypes;
 import org.h2.constraint.Constraint;
+import org.h2.constraint.DeferredReferentialChecks;
 import org.h2.index.Index;
 import org.h2.index.ViewIndex;
 import org.h2.jdbc.JdbcConnection;
@@ -35,6 +36,7 @@
 import org.h2.message.Trace;
 import org.h2.message.TraceSystem;
 import org.h2.mvstore.MVMap;
+import org.h2.mvstore.db.LazyValueArray;
 import org.h2.mvstore.db.MVIndex;
 import org.h2.mvstore.db.MVTable;
 import org.h2.mvstore.db.MVTableEngine;
@@ -45,6 +47,7 @@
 import org.h2.result.SortOrder;
 import org.h2.schema.Schema;
 import org.h2.schema.Sequence;
+import org.h2.schema.TriggerObject;
 import org.h2.store.DataHandler;
 import org.h2.store.InDoubtTransaction;
 import org.h2.store.LobStorageFrontend;
@@ -102,6 +105,10 @@ public enum State { INIT, RUNNING, BLOCKED, SLEEP, THROTTLED, SUSPENDED, CLOSED
     private int lockTimeout;
 
     private WeakHashMap<Sequence, Value> currentValueFor;
+    private WeakHashMap<Sequence, Sequence.Range> sequenceRanges;
+    private DeferredReferentialChecks deferredReferentialChecks;
+    private HashMap<TriggerObject, TriggerObject.TransitionTables> transitionTables;
+    private int savepointSequence;
     private Value lastIdentity = ValueLong.get(0);
     private Value lastScopeIdentity = ValueLong.get(0);
     private Value lastTriggerIdentity;
@@ -149,6 +156,7 @@ public enum State { INIT, RUNNING, BLOCKED, SLEEP, THROTTLED, SUSPENDED, CLOSED
     private boolean joinBatchEnabled;
     private boolean forceJoinOrder;
     private boolean lazyQueryExecution;
+    private int queryParallelism = 1;
     private ColumnNamerConfiguration columnNamerConfiguration;
     /**
      * Tables marked for ANALYZE after the current transaction is committed.
@@ -218,6 +226,20 @@ public boolean isLazyQueryExecution() {
         return lazyQueryExecution;
     }
 
+    public void setQueryParallelism(int queryParallelism) {
+        this.queryParallelism = queryParallelism;
+    }
+
+    /**
+     * Get the maximum number of threads that may be used by a single query.
+     *
+     * @return the number of threads, 1 if queries are not processed in
+     *         parallel
+     */
+    public int getQueryParallelism() {
+        return queryParallelism;
+    }
+
     public void setForceJoinOrder(boolean forceJoinOrder) {
         this.forceJoinOrder = forceJoinOrder;
     }
@@ -636,6 +658,7 @@ public Command prepareLocal(String sql) {
                     "session closed");
         }
         Command command;
+        SharedQueryCache.Key sharedKey = null;
         if (queryCacheSize > 0) {
             if (queryCache == null) {
                 queryCache = SmallLRUCache.newInstance(queryCacheSize);
@@ -652,6 +675,18 @@ public Command prepareLocal(String sql) {
                     return command;
                 }
             }
+            SharedQueryCache sharedQueryCache = database.getSharedQueryCache();
+            // local temporary tables could hide the tables of a shared command
+            if (sharedQueryCache != null && (localTempTables == null || localTempTables.isEmpty())) {
+                sharedKey = new SharedQueryCache.Key(this, sql);
+                command = sharedQueryCache.take(sharedKey, modificationMetaID);
+                if (command != null) {
+                    command.setSession(this);
+                    command.reuse();
+                    addToQueryCache(sql, command);
+                    return command;
+                }
+            }
         }
         Parser parser = new Parser(this);
         try {
@@ -663,12 +698,51 @@ public Command prepareLocal(String sql) {
         command.prepareJoinBatch();
         if (queryCache != null) {
             if (command.isCacheable()) {
-                queryCache.put(sql, command);
+                if (sharedKey != null && command.isShareable()) {
+                    command.setSharedCacheKey(sharedKey);
+                }
+                addToQueryCache(sql, command);
             }
         }
         return command;
     }
 
+    private void addToQueryCache(String sql, Command command) {
+        SharedQueryCache sharedQueryCache = database.getSharedQueryCache();
+        if (sharedQueryCache != null && queryCache.size() >= queryCacheSize && !queryCache.containsKey(sql)) {
+            // remove the least recently used command before the cache does,
+            // so that other sessions can use it
+            Iterator<Command> it = queryCache.values().iterator();
+            Command eldest = it.next();
+            it.remove();
+            shareCommand(sharedQueryCache, eldest);
+        }
+        queryCache.put(sql, command);
+    }
+
+    /**
+     * Clear the query cache, and move the commands that can be used by other
+     * sessions to the shared cache.
+     */
+    private void shareQueryCache() {
+        SharedQueryCache sharedQueryCache = database.getSharedQueryCache();
+        if (sharedQueryCache != null && modificationMetaID == database.getModificationMetaId()) {
+            for (Command command : queryCache.values()) {
+                shareCommand(sharedQueryCache, command);
+            }
+        }
+        queryCache.clear();
+    }
+
+    private void shareCommand(SharedQueryCache sharedQueryCache, Command command) {
+        Object key = command.getSharedCacheKey();
+        if (key != null && command.canReuse()) {
+            // detach the command from this session
+            command.setSession(null);
+            sharedQueryCache.add((SharedQueryCache.Key) key, command, modificationMetaID);
+        }
+    }
+
     /**
      * Arranges for the specified database object id to be released
      * at the end of the current transaction.
@@ -847,6 +921,9 @@ public void rollback() {
             database.commit(this);
         }
         idsToRelease = null;
+        if (transitionTables != null) {
+            rollbackTransitionTables(0);
+        }
         cleanTempTables(false);
         if (autoCommitAtTransactionEnd) {
             autoCommit = true;
@@ -862,6 +939,9 @@ public void rollback() {
      */
     public void rollbackTo(Savepoint savepoint) {
         int index = savepoint == null ? 0 : savepoint.logIndex;
+        if (transitionTables != null) {
+            rollbackTransitionTables(savepoint == null ? 0 : savepoint.sequence);
+        }
         if (undoLog != null) {
             while (undoLog.size() > index) {
                 UndoLogRecord entry = undoLog.getLast();
@@ -893,7 +973,13 @@ public void rollbackTo(Savepoint savepoint) {
         // which is based on data from uncommitted transaction.,
         // It is not valid after rollback, therefore cache has to be cleared.
         if (queryCache != null) {
-            queryCache.clear();
+            if (savepoint == null) {
+                // other sessions may still use the commands, shared commands
+                // don't keep the last result
+                shareQueryCache();
+            } else {
+                queryCache.clear();
+            }
         }
     }
 
@@ -909,6 +995,7 @@ public boolean hasPendingTransaction() {
      */
     public Savepoint setSavepoint() {
         Savepoint sp = new Savepoint();
+        sp.sequence = ++savepointSequence;
         if (undoLog != null) {
             sp.logIndex = undoLog.size();
         }
@@ -947,6 +1034,10 @@ public void close() {
 
                 database.checkPowerOff();
 
+                if (queryCache != null) {
+                    shareQueryCache();
+                }
+
                 // release any open table locks
                 rollback();
 
@@ -1148,6 +1239,120 @@ public Value getCurrentValueFor(Sequence sequence) {
         throw DbException.get(ErrorCode.CURRENT_SEQUENCE_VALUE_IS_NOT_DEFINED_IN_SESSION_1, sequence.getSQL(false));
     }
 
+    /**
+     * Get the range of sequence values that is reserved for this session.
+     *
+     * @param sequence
+     *            the sequence
+     * @return the range, or null if this session doesn't use a range for the
+     *         sequence
+     */
+    public Sequence.Range getSequenceRange(Sequence sequence) {
+        WeakHashMap<Sequence, Sequence.Range> sequenceRanges = this.sequenceRanges;
+        return sequenceRanges != null ? sequenceRanges.get(sequence) : null;
+    }
+
+    /**
+     * Set the range of sequence values that is reserved for this session.
+     *
+     * @param sequence
+     *            the sequence
+     * @param range
+     *            the range
+     */
+    public void setSequenceRange(Sequence sequence, Sequence.Range range) {
+        WeakHashMap<Sequence, Sequence.Range> sequenceRanges = this.sequenceRanges;
+        if (sequenceRanges == null) {
+            this.sequenceRanges = sequenceRanges = new WeakHashMap<>();
+        }
+        sequenceRanges.put(sequence, range);
+    }
+
+    /**
+     * Get the referential constraint checks of the current data change
+     * statement that are done at the end of the statement.
+     *
+     * @return the checks, or null if they are done for each row
+     */
+    public DeferredReferentialChecks getDeferredReferentialChecks() {
+        return deferredReferentialChecks;
+    }
+
+    /**
+     * Set the referential constraint checks of the data change statement
+     * that is started or ended.
+     *
+     * @param checks
+     *            the checks, or null if they are done for each row
+     * @return the checks of the enclosing statement
+     */
+    public DeferredReferentialChecks setDeferredReferentialChecks(DeferredReferentialChecks checks) {
+        DeferredReferentialChecks old = deferredReferentialChecks;
+        deferredReferentialChecks = checks;
+        return old;
+    }
+
+    /**
+     * Get the rows collected for a trigger with transition tables by the
+     * current statement.
+     *
+     * @param trigger the trigger
+     * @return the transition tables, or null
+     */
+    public TriggerObject.TransitionTables getTransitionTables(TriggerObject trigger) {
+        HashMap<TriggerObject, TriggerObject.TransitionTables> transitionTables = this.transitionTables;
+        return transitionTables != null ? transitionTables.get(trigger) : null;
+    }
+
+    /**
+     * Set the rows collected for a trigger with transition tables by the
+     * current statement.
+     *
+     * @param trigger the trigger
+     * @param tables the transition tables, or null
+     */
+    public void setTransitionTables(TriggerObject trigger, TriggerObject.TransitionTables tables) {
+        HashMap<TriggerObject, TriggerObject.TransitionTables> transitionTables = this.transitionTables;
+        if (tables != null) {
+            if (transitionTables == null) {
+                this.transitionTables = transitionTables = new HashMap<>();
+            }
+            transitionTables.put(trigger, tables);
+        } else if (transitionTables != null) {
+            transitionTables.remove(trigger);
+        }
+    }
+
+    /**
+     * Get the number of savepoints created in this session so far. A
+     * statement that is started later uses a higher number.
+     *
+     * @return the number of savepoints
+     */
+    public int getSavepointSequence() {
+        return savepointSequence;
+    }
+
+    /**
+     * Remove the rows collected for triggers with transition tables by the
+     * statements that were started after the given savepoint, as these
+     * statements have failed.
+     *
+     * @param sequence the sequence number of the savepoint
+     */
+    private void rollbackTransitionTables(int sequence) {
+        for (Iterator<Map.Entry<TriggerObject, TriggerObject.TransitionTables>> it =
+                transitionTables.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<TriggerObject, TriggerObject.TransitionTables> e = it.next();
+            TriggerObject.TransitionTables tables = e.getValue().rollbackTo(sequence);
+            if (tables == null) {
+                it.remove();
+            } else {
+                e.setValue(tables);
+            }
+        }
+    }
+
     public void setLastIdentity(Value last) {
         this.lastIdentity = last;
         this.lastScopeIdentity = last;
@@ -1995,6 +2200,8 @@ private static Row getRowFromVersionedValue(MVTable table, long recKey,
         if(value instanceof Row) {
             result = (Row) value;
             assert result.getKey() == recKey : result.getKey() + " != " + recKey;
+        } else if (value instanceof LazyValueArray) {
+            result = ((LazyValueArray) value).createRow(recKey);
         } else {
             ValueArray array = (ValueArray) value;
             result = table.createRow(array.getList(), 0);
@@ -2019,6 +2226,12 @@ public static class Savepoint {
          * The transaction savepoint id.
          */
         long transactionSavepoint;
+
+        /**
+         * The number of savepoints created in this session, including this
+         * one.
+         */
+        int sequence;
     }
 
     /**
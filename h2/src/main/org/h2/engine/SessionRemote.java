@@ -64,6 +64,7 @@ public class SessionRemote extends SessionWithState implements DataHandler {
     public static final int SESSION_HAS_PENDING_TRANSACTION = 16;
     public static final int LOB_READ = 17;
     public static final int SESSION_PREPARE_READ_PARAMS2 = 18;
+    public static final int COMMAND_EXECUTE_BATCH_UPDATE = 19;
 
     public static final int STATUS_ERROR = 0;
     public static final int STATUS_OK = 1;
@@ -603,13 +604,8 @@ public void done(Transfer transfer) throws IOException {
         transfer.flush();
         int status = transfer.readInt();
         if (status == STATUS_ERROR) {
-            String sqlstate = transfer.readString();
-            String message = transfer.readString();
-            String sql = transfer.readString();
-            int errorCode = transfer.readInt();
-            String stackTrace = transfer.readString();
-            SQLException s = DbException.getJdbcSQLException(message, sql, sqlstate, errorCode, null, stackTrace);
-            if (errorCode == ErrorCode.CONNECTION_BROKEN_1) {
+            SQLException s = readException(transfer);
+            if (s.getErrorCode() == ErrorCode.CONNECTION_BROKEN_1) {
                 // allow re-connect
                 throw new IOException(s.toString(), s);
             }
@@ -627,6 +623,22 @@ public void done(Transfer transfer) throws IOException {
         }
     }
 
+    /**
+     * Read an exception sent by the server.
+     *
+     * @param transfer the transfer object
+     * @return the exception
+     * @throws IOException on failure
+     */
+    public static SQLException readException(Transfer transfer) throws IOException {
+        String sqlstate = transfer.readString();
+        String message = transfer.readString();
+        String sql = transfer.readString();
+        int errorCode = transfer.readInt();
+        String stackTrace = transfer.readString();
+        return DbException.getJdbcSQLException(message, sql, sqlstate, errorCode, null, stackTrace);
+    }
+
     /**
      * Returns true if the connection was opened in cluster mode.
      *
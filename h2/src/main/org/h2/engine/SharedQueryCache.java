@@ -0,0 +1,147 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.engine;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.h2.command.Command;
+
+/**
+ * The query cache that is shared by all sessions of a database. It contains
+ * prepared commands that are not used by any session. A session takes a
+ * command out of this cache, so that a command is only ever used by one
+ * session at a time, and adds it again once it no longer needs it.
+ */
+final class SharedQueryCache {
+
+    /**
+     * The key of a cached command: the SQL statement, and the settings of the
+     * session that affect how the statement is parsed and prepared.
+     */
+    static final class Key {
+
+        private final String sql;
+        private final User user;
+        private final String schemaName;
+        private final String[] schemaSearchPath;
+        private final boolean allowLiterals;
+        private final boolean forceJoinOrder;
+        private final boolean joinBatchEnabled;
+        private final int hash;
+
+        Key(Session session, String sql) {
+            this.sql = sql;
+            user = session.getUser();
+            schemaName = session.getCurrentSchemaName();
+            schemaSearchPath = session.getSchemaSearchPath();
+            allowLiterals = session.getAllowLiterals();
+            forceJoinOrder = session.isForceJoinOrder();
+            joinBatchEnabled = session.isJoinBatchEnabled();
+            hash = sql.hashCode() * 31 + schemaName.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && sql.equals(other.sql) && user == other.user
+                    && schemaName.equals(other.schemaName)
+                    && Arrays.equals(schemaSearchPath, other.schemaSearchPath)
+                    && allowLiterals == other.allowLiterals && forceJoinOrder == other.forceJoinOrder
+                    && joinBatchEnabled == other.joinBatchEnabled;
+        }
+
+    }
+
+    private final int maxSize;
+
+    /**
+     * The idle commands by key, the least recently used key first.
+     */
+    private final LinkedHashMap<Key, ArrayDeque<Command>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int size;
+
+    private long modificationMetaId = -1;
+
+    SharedQueryCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Take a command out of the cache.
+     *
+     * @param key the key
+     * @param modificationMetaId the meta data modification id of the session
+     * @return the command, or null if there is none
+     */
+    synchronized Command take(Key key, long modificationMetaId) {
+        if (modificationMetaId != this.modificationMetaId) {
+            return null;
+        }
+        ArrayDeque<Command> commands = map.get(key);
+        if (commands == null) {
+            return null;
+        }
+        Command command = commands.poll();
+        if (commands.isEmpty()) {
+            map.remove(key);
+        }
+        size--;
+        return command;
+    }
+
+    /**
+     * Add a command that is no longer used to the cache. If the cache is
+     * full, the least recently used commands are removed.
+     *
+     * @param key the key
+     * @param command the command
+     * @param modificationMetaId the meta data modification id at the time
+     *            the command was prepared
+     */
+    synchronized void add(Key key, Command command, long modificationMetaId) {
+        if (modificationMetaId != this.modificationMetaId) {
+            if (modificationMetaId < this.modificationMetaId) {
+                return;
+            }
+            // the meta data has changed, all cached commands are outdated
+            map.clear();
+            size = 0;
+            this.modificationMetaId = modificationMetaId;
+        }
+        ArrayDeque<Command> commands = map.get(key);
+        if (commands == null) {
+            commands = new ArrayDeque<>();
+            map.put(key, commands);
+        }
+        commands.add(command);
+        size++;
+        while (size > maxSize) {
+            Iterator<ArrayDeque<Command>> it = map.values().iterator();
+            ArrayDeque<Command> eldest = it.next();
+            eldest.poll();
+            if (eldest.isEmpty()) {
+                it.remove();
+            }
+            size--;
+        }
+    }
+
+}
@@ -383,6 +383,15 @@ public class SysProperties {
     public static final int SERVER_RESULT_SET_FETCH_SIZE =
             Utils.getProperty("h2.serverResultSetFetchSize", 100);
 
+    /**
+     * System property <code>h2.serverNioThreads</code> (default: 32).<br />
+     * TCP Server started with -tcpNio: the number of worker threads that
+     * process the requests of all connections and are kept when idle. More
+     * threads are started when all of them are busy.
+     */
+    public static final int SERVER_NIO_THREADS =
+            Utils.getProperty("h2.serverNioThreads", 32);
+
     /**
      * System property <code>h2.socketConnectRetry</code> (default: 16).<br />
      * The number of times to retry opening a socket. Windows sometimes fails
@@ -11,6 +11,7 @@
 import org.h2.expression.function.Function;
 import org.h2.message.DbException;
 import org.h2.table.ColumnResolver;
+import org.h2.table.RowBatch;
 import org.h2.table.TableFilter;
 import org.h2.value.DataType;
 import org.h2.value.TypeInfo;
@@ -103,9 +104,140 @@ private String getOperationToken() {
 
     @Override
     public Value getValue(Session session) {
+        return calculate(session.getDatabase(), left.getValue(session), right.getValue(session));
+    }
+
+    @Override
+    public boolean isBatchThreadSafe(TableFilter filter) {
+        return left.isBatchThreadSafe(filter) && right.isBatchThreadSafe(filter);
+    }
+
+    @Override
+    public ValueVector getValues(Session session, RowBatch batch) {
+        ValueVector l = left.getValues(session, batch);
+        ValueVector r = right.getValues(session, batch);
+        int valueType = type.getValueType();
+        int size = batch.getSize();
         Database database = session.getDatabase();
-        Value l = left.getValue(session).convertTo(type, database, true, null);
-        Value r = right.getValue(session);
+        if (!l.isNumeric() || !r.isNumeric() || !convertRight) {
+            Value[] values = new Value[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = calculate(database, l.getValue(i), r.getValue(i));
+            }
+            return ValueVector.get(size, values);
+        }
+        boolean[] nulls = null;
+        for (int i = 0; i < size; i++) {
+            if (l.isNull(i) || r.isNull(i)) {
+                if (nulls == null) {
+                    nulls = new boolean[size];
+                }
+                nulls[i] = true;
+            }
+        }
+        switch (valueType) {
+        case Value.INT:
+        case Value.LONG: {
+            if (!l.isIntegral() || !r.isIntegral()) {
+                break;
+            }
+            long[] longs = new long[size];
+            for (int i = 0; i < size; i++) {
+                if (nulls == null || !nulls[i]) {
+                    longs[i] = calculate(database, valueType, l, r, i);
+                }
+            }
+            return ValueVector.getLongs(valueType, size, longs, nulls);
+        }
+        case Value.DOUBLE: {
+            double[] doubles = new double[size];
+            for (int i = 0; i < size; i++) {
+                if (nulls == null || !nulls[i]) {
+                    doubles[i] = calculate(database, l, r, i);
+                }
+            }
+            return ValueVector.getDoubles(size, doubles, nulls);
+        }
+        default:
+        }
+        Value[] values = new Value[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = calculate(database, l.getValue(i), r.getValue(i));
+        }
+        return ValueVector.get(size, values);
+    }
+
+    /**
+     * Calculate the result for INT or BIGINT operands. Overflows and
+     * divisions by zero are delegated to the value objects, so that the same
+     * exceptions are thrown as when evaluating row by row.
+     */
+    private long calculate(Database database, int valueType, ValueVector l, ValueVector r, int i) {
+        long x = l.getLong(i), y = r.getLong(i), result;
+        try {
+            switch (opType) {
+            case PLUS:
+                result = Math.addExact(x, y);
+                break;
+            case MINUS:
+                result = Math.subtractExact(x, y);
+                break;
+            case MULTIPLY:
+                result = Math.multiplyExact(x, y);
+                break;
+            case DIVIDE:
+                if (y == 0 || y == -1) {
+                    return calculate(database, l.getValue(i), r.getValue(i)).getLong();
+                }
+                result = x / y;
+                break;
+            case MODULUS:
+                if (y == 0) {
+                    return calculate(database, l.getValue(i), r.getValue(i)).getLong();
+                }
+                result = x % y;
+                break;
+            default:
+                throw DbException.throwInternalError("type=" + opType);
+            }
+        } catch (ArithmeticException e) {
+            return calculate(database, l.getValue(i), r.getValue(i)).getLong();
+        }
+        if (valueType == Value.INT && (int) result != result) {
+            return calculate(database, l.getValue(i), r.getValue(i)).getLong();
+        }
+        return result;
+    }
+
+    /**
+     * Calculate the result for DOUBLE operands.
+     */
+    private double calculate(Database database, ValueVector l, ValueVector r, int i) {
+        double x = l.getDouble(i), y = r.getDouble(i);
+        switch (opType) {
+        case PLUS:
+            return x + y;
+        case MINUS:
+            return x - y;
+        case MULTIPLY:
+            return x * y;
+        case DIVIDE:
+            if (y == 0) {
+                return calculate(database, l.getValue(i), r.getValue(i)).getDouble();
+            }
+            return x / y;
+        case MODULUS:
+            if (y == 0) {
+                return calculate(database, l.getValue(i), r.getValue(i)).getDouble();
+            }
+            return x % y;
+        default:
+            throw DbException.throwInternalError("type=" + opType);
+        }
+    }
+
+    private Value calculate(Database database, Value l, Value r) {
+        l = l.convertTo(type, database, true, null);
         if (convertRight) {
             r = r.convertTo(type, database, true, null);
         }
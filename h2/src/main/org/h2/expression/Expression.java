@@ -12,6 +12,7 @@
 import org.h2.result.ResultInterface;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
+import org.h2.table.RowBatch;
 import org.h2.table.TableFilter;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
@@ -87,6 +88,44 @@ public static void writeExpressions(StringBuilder builder, Expression[] expressi
      */
     public abstract Value getValue(Session session);
 
+    /**
+     * Return the resulting values for all rows of the batch. Expressions that
+     * are only used for deterministic calculations may override this method
+     * to process the batch at once. The default implementation evaluates the
+     * expression row by row.
+     *
+     * @param session the session
+     * @param batch the rows
+     * @return the results, one for each row
+     */
+    public ValueVector getValues(Session session, RowBatch batch) {
+        int size = batch.getSize();
+        if (isConstant()) {
+            return ValueVector.getConstant(size, getValue(session));
+        }
+        Value[] values = new Value[size];
+        for (int i = 0; i < size; i++) {
+            batch.setCurrentRow(i);
+            values[i] = getValue(session);
+        }
+        return ValueVector.get(size, values);
+    }
+
+    /**
+     * Check whether {@link #getValues(Session, RowBatch)} only reads the rows
+     * of the batch and never changes the current row of the table filter.
+     * The session must only be used to get the database: the variables, the
+     * current values and the caches of the session are not thread-safe. Such
+     * expressions can be evaluated for different batches of the same table
+     * filter by multiple threads concurrently.
+     *
+     * @param filter the table filter the rows of the batches belong to
+     * @return true if the expression can be evaluated concurrently
+     */
+    public boolean isBatchThreadSafe(TableFilter filter) {
+        return isConstant();
+    }
+
     /**
      * Returns the data type. The data type may not be known before the
      * optimization phase.
@@ -15,16 +15,19 @@
 import org.h2.expression.condition.Comparison;
 import org.h2.index.IndexCondition;
 import org.h2.message.DbException;
+import org.h2.result.Row;
 import org.h2.schema.Constant;
 import org.h2.schema.Schema;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
+import org.h2.table.RowBatch;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
 import org.h2.value.ExtTypeInfo;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
 import org.h2.value.ValueBoolean;
+import org.h2.value.ValueLong;
 import org.h2.value.ValueNull;
 
 /**
@@ -219,6 +222,74 @@ public Value getValue(Session session) {
         return value;
     }
 
+    @Override
+    public boolean isBatchThreadSafe(TableFilter filter) {
+        return columnResolver == filter && column.getType().getExtTypeInfo() == null;
+    }
+
+    @Override
+    public ValueVector getValues(Session session, RowBatch batch) {
+        TypeInfo columnType = column.getType();
+        if (columnResolver != batch.getTableFilter() || columnType.getExtTypeInfo() != null) {
+            return super.getValues(session, batch);
+        }
+        Select select = columnResolver.getSelect();
+        if (select != null) {
+            SelectGroups groupData = select.getGroupDataIfCurrent(false);
+            if (groupData != null && groupData.getCurrentGroupExprData(this) != null) {
+                return super.getValues(session, batch);
+            }
+        }
+        int columnId = column.getColumnId();
+        int size = batch.getSize();
+        int valueType = columnType.getValueType();
+        if (!ValueVector.isLongType(valueType) && valueType != Value.DOUBLE) {
+            Value[] values = new Value[size];
+            for (int i = 0; i < size; i++) {
+                Row row = batch.getRow(i);
+                values[i] = columnId == -1 ? ValueLong.get(row.getKey()) : row.getValue(columnId);
+            }
+            return ValueVector.get(size, values);
+        }
+        boolean[] nulls = null;
+        if (valueType == Value.DOUBLE) {
+            double[] doubles = new double[size];
+            for (int i = 0; i < size; i++) {
+                Value v = batch.getRow(i).getValue(columnId);
+                if (v == ValueNull.INSTANCE) {
+                    if (nulls == null) {
+                        nulls = new boolean[size];
+                    }
+                    nulls[i] = true;
+                } else {
+                    doubles[i] = v.getDouble();
+                }
+            }
+            return ValueVector.getDoubles(size, doubles, nulls);
+        }
+        long[] longs = new long[size];
+        if (columnId == -1) {
+            for (int i = 0; i < size; i++) {
+                longs[i] = batch.getRow(i).getKey();
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                Value v = batch.getRow(i).getValue(columnId);
+                if (v == ValueNull.INSTANCE) {
+                    if (nulls == null) {
+                        nulls = new boolean[size];
+                    }
+                    nulls[i] = true;
+                } else if (valueType == Value.BOOLEAN) {
+                    longs[i] = v.getBoolean() ? 1 : 0;
+                } else {
+                    longs[i] = v.getLong();
+                }
+            }
+        }
+        return ValueVector.getLongs(valueType, size, longs, nulls);
+    }
+
     @Override
     public TypeInfo getType() {
         return column == null ? TypeInfo.TYPE_UNKNOWN : column.getType();
@@ -11,6 +11,7 @@
 import org.h2.message.DbException;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
+import org.h2.table.RowBatch;
 import org.h2.table.TableFilter;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
@@ -61,6 +62,16 @@ public Value getValue(Session session) {
         return getParamValue();
     }
 
+    @Override
+    public boolean isBatchThreadSafe(TableFilter filter) {
+        return true;
+    }
+
+    @Override
+    public ValueVector getValues(Session session, RowBatch batch) {
+        return ValueVector.getConstant(batch.getSize(), getParamValue());
+    }
+
     @Override
     public TypeInfo getType() {
         if (value != null) {
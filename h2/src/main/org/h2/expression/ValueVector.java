@@ -0,0 +1,229 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression;
+
+import java.util.Arrays;
+
+import org.h2.value.Value;
+import org.h2.value.ValueBoolean;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueLong;
+import org.h2.value.ValueNull;
+
+/**
+ * The values of an expression for all rows of a batch. Values of the data
+ * types INT, BIGINT, and BOOLEAN are stored in a long array, DOUBLE values in
+ * a double array, and all other values as value objects.
+ */
+public final class ValueVector {
+
+    private final int valueType;
+    private final int size;
+    private final long[] longs;
+    private final double[] doubles;
+    private final Value[] values;
+    private final boolean[] nulls;
+
+    private ValueVector(int valueType, int size, long[] longs, double[] doubles, Value[] values,
+            boolean[] nulls) {
+        this.valueType = valueType;
+        this.size = size;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    /**
+     * Create a vector of INT, BIGINT, or BOOLEAN values.
+     *
+     * @param valueType the value type
+     * @param size the number of values
+     * @param longs the values (booleans as 0 and 1)
+     * @param nulls which values are NULL, or null if none
+     * @return the vector
+     */
+    public static ValueVector getLongs(int valueType, int size, long[] longs, boolean[] nulls) {
+        return new ValueVector(valueType, size, longs, null, null, nulls);
+    }
+
+    /**
+     * Create a vector of DOUBLE values.
+     *
+     * @param size the number of values
+     * @param doubles the values
+     * @param nulls which values are NULL, or null if none
+     * @return the vector
+     */
+    public static ValueVector getDoubles(int size, double[] doubles, boolean[] nulls) {
+        return new ValueVector(Value.DOUBLE, size, null, doubles, null, nulls);
+    }
+
+    /**
+     * Create a vector of value objects.
+     *
+     * @param size the number of values
+     * @param values the values
+     * @return the vector
+     */
+    public static ValueVector get(int size, Value[] values) {
+        return new ValueVector(Value.UNKNOWN, size, null, null, values, null);
+    }
+
+    /**
+     * Create a vector where all values are the same.
+     *
+     * @param size the number of values
+     * @param v the value
+     * @return the vector
+     */
+    public static ValueVector getConstant(int size, Value v) {
+        int type = v.getValueType();
+        switch (type) {
+        case Value.BOOLEAN:
+            return getLongs(type, size, filled(size, v.getBoolean() ? 1 : 0), null);
+        case Value.INT:
+        case Value.LONG:
+            return getLongs(type, size, filled(size, v.getLong()), null);
+        case Value.DOUBLE: {
+            double[] doubles = new double[size];
+            Arrays.fill(doubles, v.getDouble());
+            return getDoubles(size, doubles, null);
+        }
+        default: {
+            Value[] values = new Value[size];
+            Arrays.fill(values, v);
+            return get(size, values);
+        }
+        }
+    }
+
+    private static long[] filled(int size, long x) {
+        long[] longs = new long[size];
+        if (x != 0) {
+            Arrays.fill(longs, x);
+        }
+        return longs;
+    }
+
+    /**
+     * Check whether values of the given type are stored in a long array.
+     *
+     * @param valueType the value type
+     * @return true for INT, BIGINT, and BOOLEAN
+     */
+    public static boolean isLongType(int valueType) {
+        return valueType == Value.INT || valueType == Value.LONG || valueType == Value.BOOLEAN;
+    }
+
+    /**
+     * Get the value type of a primitive vector, or Value.UNKNOWN if the
+     * values are stored as objects.
+     *
+     * @return the value type
+     */
+    public int getValueType() {
+        return valueType;
+    }
+
+    /**
+     * Check whether the values are INT or BIGINT values stored in a long
+     * array.
+     *
+     * @return true if they are
+     */
+    public boolean isIntegral() {
+        return valueType == Value.INT || valueType == Value.LONG;
+    }
+
+    /**
+     * Check whether the values are INT, BIGINT, or DOUBLE values stored in a
+     * primitive array.
+     *
+     * @return true if they are
+     */
+    public boolean isNumeric() {
+        return valueType == Value.INT || valueType == Value.LONG || valueType == Value.DOUBLE;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Check whether the value at the given index is NULL.
+     *
+     * @param index the index
+     * @return true if the value is NULL
+     */
+    public boolean isNull(int index) {
+        if (values != null) {
+            return values[index] == ValueNull.INSTANCE;
+        }
+        return nulls != null && nulls[index];
+    }
+
+    /**
+     * Get the value at the given index of a primitive vector as a long.
+     *
+     * @param index the index
+     * @return the value, or 0 if it is NULL
+     */
+    public long getLong(int index) {
+        return longs != null ? longs[index] : (long) doubles[index];
+    }
+
+    /**
+     * Get the value at the given index of a primitive vector as a double.
+     *
+     * @param index the index
+     * @return the value, or 0 if it is NULL
+     */
+    public double getDouble(int index) {
+        return doubles != null ? doubles[index] : longs[index];
+    }
+
+    /**
+     * Check whether the value at the given index is TRUE, using the same rules
+     * as {@link Value#getBoolean()}, where NULL is not true.
+     *
+     * @param index the index
+     * @return true if the value is TRUE
+     */
+    public boolean isTrue(int index) {
+        if (valueType == Value.BOOLEAN) {
+            return longs[index] != 0 && (nulls == null || !nulls[index]);
+        }
+        return getValue(index).getBoolean();
+    }
+
+    /**
+     * Get the value at the given index as a value object.
+     *
+     * @param index the index
+     * @return the value
+     */
+    public Value getValue(int index) {
+        if (values != null) {
+            return values[index];
+        }
+        if (nulls != null && nulls[index]) {
+            return ValueNull.INSTANCE;
+        }
+        switch (valueType) {
+        case Value.BOOLEAN:
+            return ValueBoolean.get(longs[index] != 0);
+        case Value.INT:
+            return ValueInt.get((int) longs[index]);
+        case Value.LONG:
+            return ValueLong.get(longs[index]);
+        default:
+            return ValueDouble.get(doubles[index]);
+        }
+    }
+
+}
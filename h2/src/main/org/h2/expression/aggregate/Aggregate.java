@@ -25,6 +25,7 @@
 import org.h2.expression.ExpressionWithFlags;
 import org.h2.expression.Subquery;
 import org.h2.expression.ValueExpression;
+import org.h2.expression.ValueVector;
 import org.h2.expression.analysis.Window;
 import org.h2.expression.function.Function;
 import org.h2.index.Cursor;
@@ -35,6 +36,7 @@
 import org.h2.result.SortOrder;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
+import org.h2.table.RowBatch;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
 import org.h2.value.CompareMode;
@@ -193,6 +195,169 @@ private void sortWithOrderBy(Value[] array) {
                         : select.getSession().getDatabase().getCompareMode());
     }
 
+    /**
+     * Check whether this aggregate can be updated with the values of a batch
+     * of rows, see {@link #updateAggregate(Session, ValueVector, int)}.
+     *
+     * @return true if batches are supported
+     */
+    public boolean isBatchSupported() {
+        if (distinct || filterCondition != null || over != null || orderByList != null) {
+            return false;
+        }
+        switch (aggregateType) {
+        case COUNT_ALL:
+            return true;
+        case COUNT:
+        case SUM:
+        case AVG:
+        case MIN:
+        case MAX:
+            return args[0].isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Evaluate the argument of this aggregate for all rows of the batch.
+     *
+     * @param session the session
+     * @param batch the rows
+     * @return the values, or null for COUNT(*)
+     */
+    public ValueVector getArgumentValues(Session session, RowBatch batch) {
+        return args.length == 0 ? null : args[0].getValues(session, batch);
+    }
+
+    /**
+     * Update the data of the current group with the argument values of a
+     * batch of rows.
+     *
+     * @param session the session
+     * @param values the argument values, or null for COUNT(*)
+     * @param rowCount the number of rows
+     */
+    public void updateAggregate(Session session, ValueVector values, int rowCount) {
+        addPartial(session, getGroupData(select.getGroupDataIfCurrent(false), false), values, rowCount);
+    }
+
+    /**
+     * Check whether the argument of this aggregate can be evaluated for
+     * batches of the given table filter by multiple threads concurrently.
+     *
+     * @param filter the table filter
+     * @return true if it can
+     */
+    public boolean isArgumentThreadSafe(TableFilter filter) {
+        return args.length == 0 || args[0].isBatchThreadSafe(filter);
+    }
+
+    /**
+     * Create the data for a partial result of this aggregate. Partial results
+     * are calculated independently of the current group, for example by
+     * another thread, and then merged into the data of a group, see
+     * {@link #mergePartial(Session, Object)}.
+     *
+     * @return the data
+     */
+    public Object createPartialData() {
+        return createAggregateData();
+    }
+
+    /**
+     * Add the argument values of a batch of rows to a partial result.
+     *
+     * @param session the session
+     * @param data the data of the partial result
+     * @param values the argument values, or null for COUNT(*)
+     * @param rowCount the number of rows
+     */
+    public void addPartial(Session session, Object data, ValueVector values, int rowCount) {
+        if (values == null) {
+            ((AggregateDataCount) data).add(rowCount);
+        } else {
+            ((AggregateData) data).add(session.getDatabase(), values);
+        }
+    }
+
+    /**
+     * Add the argument value of one row of a batch to a partial result.
+     *
+     * @param session the session
+     * @param data the data of the partial result
+     * @param values the argument values, or null for COUNT(*)
+     * @param index the index of the row in the batch
+     */
+    public void addPartialRow(Session session, Object data, ValueVector values, int index) {
+        if (values == null) {
+            ((AggregateDataCount) data).add(1);
+        } else {
+            ((AggregateData) data).add(session.getDatabase(), values.getValue(index));
+        }
+    }
+
+    /**
+     * Merge a partial result into the data of the current group.
+     *
+     * @param session the session
+     * @param data the data of the partial result
+     */
+    public void mergePartial(Session session, Object data) {
+        AggregateData target = (AggregateData) getGroupData(select.getGroupDataIfCurrent(false), false);
+        target.merge(session.getDatabase(), (AggregateData) data);
+    }
+
+    /**
+     * Check whether the partial results of this aggregate can be written to
+     * disk and merged later, see {@link #getPartialValue(Object)}.
+     *
+     * @return true if this is supported
+     */
+    public boolean isMergeSupported() {
+        if (distinct || over != null || orderByList != null) {
+            return false;
+        }
+        switch (aggregateType) {
+        case COUNT_ALL:
+        case COUNT:
+        case SUM:
+        case AVG:
+        case MIN:
+        case MAX:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Get a partial result of this aggregate as a value.
+     *
+     * @param data the data of the partial result
+     * @return the value
+     */
+    public Value getPartialValue(Object data) {
+        return ((AggregateData) data).getPartialValue();
+    }
+
+    /**
+     * Merge a partial result returned by {@link #getPartialValue(Object)} into
+     * the given data.
+     *
+     * @param session the session
+     * @param data the data to merge into, or null
+     * @param v the value of the partial result
+     * @return the data
+     */
+    public Object mergePartialValue(Session session, Object data, Value v) {
+        if (data == null) {
+            data = createAggregateData();
+        }
+        ((AggregateData) data).mergePartialValue(session.getDatabase(), v);
+        return data;
+    }
+
     @Override
     protected void updateAggregate(Session session, Object aggregateData) {
         AggregateData data = (AggregateData) aggregateData;
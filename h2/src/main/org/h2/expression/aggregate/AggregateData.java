@@ -7,6 +7,7 @@
 
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
+import org.h2.expression.ValueVector;
 import org.h2.message.DbException;
 import org.h2.value.Value;
 
@@ -83,6 +84,51 @@ static AggregateData create(AggregateType aggregateType, boolean distinct, int d
      */
     abstract void add(Database database, Value v);
 
+    /**
+     * Add all values of a batch to this aggregate.
+     *
+     * @param database the database
+     * @param values the values
+     */
+    void add(Database database, ValueVector values) {
+        for (int i = 0, size = values.getSize(); i < size; i++) {
+            add(database, values.getValue(i));
+        }
+    }
+
+    /**
+     * Merge the data of a partial result into this aggregate. Only COUNT,
+     * SUM, AVG, MIN, and MAX without DISTINCT support this.
+     *
+     * @param database the database
+     * @param other the data of the partial result
+     */
+    void merge(Database database, AggregateData other) {
+        throw DbException.throwInternalError("merge");
+    }
+
+    /**
+     * Get the data of this partial result as a value, so that it can be
+     * written to disk. Only COUNT, SUM, AVG, MIN, and MAX without DISTINCT
+     * support this.
+     *
+     * @return the value
+     */
+    Value getPartialValue() {
+        throw DbException.throwInternalError("getPartialValue");
+    }
+
+    /**
+     * Merge a partial result returned by {@link #getPartialValue()} into this
+     * aggregate.
+     *
+     * @param database the database
+     * @param v the value of the partial result
+     */
+    void mergePartialValue(Database database, Value v) {
+        throw DbException.throwInternalError("mergePartialValue");
+    }
+
     /**
      * Get the aggregate result.
      *
@@ -6,6 +6,7 @@
 package org.h2.expression.aggregate;
 
 import org.h2.engine.Database;
+import org.h2.expression.ValueVector;
 import org.h2.value.Value;
 import org.h2.value.ValueLong;
 import org.h2.value.ValueNull;
@@ -30,6 +31,44 @@ void add(Database database, Value v) {
         }
     }
 
+    @Override
+    void add(Database database, ValueVector values) {
+        int size = values.getSize();
+        if (all) {
+            count += size;
+        } else {
+            for (int i = 0; i < size; i++) {
+                if (!values.isNull(i)) {
+                    count++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the given number of rows to COUNT(*).
+     *
+     * @param rowCount the number of rows
+     */
+    void add(long rowCount) {
+        count += rowCount;
+    }
+
+    @Override
+    void merge(Database database, AggregateData other) {
+        count += ((AggregateDataCount) other).count;
+    }
+
+    @Override
+    Value getPartialValue() {
+        return ValueLong.get(count);
+    }
+
+    @Override
+    void mergePartialValue(Database database, Value v) {
+        count += v.getLong();
+    }
+
     @Override
     Value getValue(Database database, int dataType) {
         return ValueLong.get(count).convertTo(dataType);
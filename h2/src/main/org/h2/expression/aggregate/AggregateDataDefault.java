@@ -5,11 +5,16 @@
  */
 package org.h2.expression.aggregate;
 
+import java.math.BigDecimal;
+
 import org.h2.engine.Database;
+import org.h2.expression.ValueVector;
 import org.h2.message.DbException;
 import org.h2.value.DataType;
 import org.h2.value.Value;
+import org.h2.value.ValueArray;
 import org.h2.value.ValueBoolean;
+import org.h2.value.ValueDecimal;
 import org.h2.value.ValueDouble;
 import org.h2.value.ValueLong;
 import org.h2.value.ValueNull;
@@ -120,6 +125,183 @@ void add(Database database, Value v) {
         }
     }
 
+    @Override
+    void add(Database database, ValueVector values) {
+        switch (aggregateType) {
+        case SUM:
+        case AVG:
+            if (addSum(database, values)) {
+                return;
+            }
+            break;
+        case MIN:
+        case MAX:
+            if (values.isNumeric()) {
+                addMinMax(database, values);
+                return;
+            }
+            break;
+        default:
+        }
+        super.add(database, values);
+    }
+
+    /**
+     * Add INT, BIGINT, or DOUBLE values to SUM or AVG. The values are added in
+     * the same order, and overflows are detected at the same position, as when
+     * adding them one by one.
+     *
+     * @param database the database
+     * @param values the values
+     * @return false if the values need to be added one by one
+     */
+    private boolean addSum(Database database, ValueVector values) {
+        int sumType = value != null ? value.getValueType()
+                : aggregateType == AggregateType.SUM ? dataType : DataType.getAddProofType(dataType);
+        int size = values.getSize();
+        if (values.isIntegral() && sumType == Value.LONG) {
+            boolean found = value != null;
+            long total = found ? value.getLong() : 0;
+            for (int i = 0; i < size; i++) {
+                if (values.isNull(i)) {
+                    continue;
+                }
+                long x = values.getLong(i), result = total + x;
+                if (((total ^ result) & (x ^ result)) < 0) {
+                    // let the value object throw the exception
+                    value = ValueLong.get(total);
+                    for (; i < size; i++) {
+                        add(database, values.getValue(i));
+                    }
+                    return true;
+                }
+                count++;
+                total = result;
+                found = true;
+            }
+            if (found) {
+                value = ValueLong.get(total);
+            }
+            return true;
+        } else if (values.isIntegral() && sumType == Value.DECIMAL) {
+            boolean found = false;
+            long partial = 0;
+            for (int i = 0; i < size; i++) {
+                if (values.isNull(i)) {
+                    continue;
+                }
+                long x = values.getLong(i), result = partial + x;
+                if (((partial ^ result) & (x ^ result)) < 0) {
+                    addDecimal(partial);
+                    result = x;
+                }
+                count++;
+                partial = result;
+                found = true;
+            }
+            if (found) {
+                addDecimal(partial);
+            }
+            return true;
+        } else if (values.getValueType() == Value.DOUBLE && sumType == Value.DOUBLE) {
+            boolean found = value != null;
+            double total = found ? value.getDouble() : 0;
+            for (int i = 0; i < size; i++) {
+                if (values.isNull(i)) {
+                    continue;
+                }
+                double x = values.getDouble(i);
+                total = found ? total + x : x;
+                count++;
+                found = true;
+            }
+            if (found) {
+                value = ValueDouble.get(total);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void addDecimal(long x) {
+        Value v = ValueDecimal.get(BigDecimal.valueOf(x));
+        value = value == null ? v : value.add(v);
+    }
+
+    private void addMinMax(Database database, ValueVector values) {
+        boolean integral = values.isIntegral(), min = aggregateType == AggregateType.MIN;
+        int best = -1;
+        for (int i = 0, size = values.getSize(); i < size; i++) {
+            if (values.isNull(i)) {
+                continue;
+            }
+            count++;
+            if (best < 0) {
+                best = i;
+            } else {
+                int cmp = integral ? Long.compare(values.getLong(i), values.getLong(best))
+                        : Double.compare(values.getDouble(i), values.getDouble(best));
+                if (min ? cmp < 0 : cmp > 0) {
+                    best = i;
+                }
+            }
+        }
+        if (best >= 0) {
+            Value v = values.getValue(best);
+            if (value == null) {
+                value = v;
+            } else {
+                int cmp = database.compare(v, value);
+                if (min ? cmp < 0 : cmp > 0) {
+                    value = v;
+                }
+            }
+        }
+    }
+
+    @Override
+    void merge(Database database, AggregateData other) {
+        AggregateDataDefault o = (AggregateDataDefault) other;
+        merge(database, o.value, o.count);
+    }
+
+    @Override
+    Value getPartialValue() {
+        return ValueArray.get(new Value[] { value == null ? ValueNull.INSTANCE : value, ValueLong.get(count) });
+    }
+
+    @Override
+    void mergePartialValue(Database database, Value v) {
+        Value[] list = ((ValueArray) v).getList();
+        Value value = list[0];
+        merge(database, value == ValueNull.INSTANCE ? null : value, list[1].getLong());
+    }
+
+    private void merge(Database database, Value v, long count) {
+        if (v == null) {
+            return;
+        }
+        switch (aggregateType) {
+        case SUM:
+        case AVG:
+            value = value == null ? v : value.add(v.convertTo(value.getValueType()));
+            break;
+        case MIN:
+            if (value == null || database.compare(v, value) < 0) {
+                value = v;
+            }
+            break;
+        case MAX:
+            if (value == null || database.compare(v, value) > 0) {
+                value = v;
+            }
+            break;
+        default:
+            DbException.throwInternalError("type=" + aggregateType);
+        }
+        this.count += count;
+    }
+
     @Override
     Value getValue(Database database, int dataType) {
         Value v = null;
@@ -15,12 +15,14 @@
 import org.h2.expression.Parameter;
 import org.h2.expression.TypedValueExpression;
 import org.h2.expression.ValueExpression;
+import org.h2.expression.ValueVector;
 import org.h2.expression.aggregate.Aggregate;
 import org.h2.expression.aggregate.AggregateType;
 import org.h2.index.IndexCondition;
 import org.h2.message.DbException;
 import org.h2.table.Column;
 import org.h2.table.ColumnResolver;
+import org.h2.table.RowBatch;
 import org.h2.table.TableFilter;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
@@ -256,6 +258,70 @@ public Value getValue(Session session) {
         return compare(database, l, right.getValue(session), compareType);
     }
 
+    @Override
+    public boolean isBatchThreadSafe(TableFilter filter) {
+        return left.isBatchThreadSafe(filter) && right.isBatchThreadSafe(filter);
+    }
+
+    @Override
+    public ValueVector getValues(Session session, RowBatch batch) {
+        ValueVector l = left.getValues(session, batch);
+        ValueVector r = right.getValues(session, batch);
+        int size = batch.getSize();
+        boolean nullSafe = (compareType & NULL_SAFE) != 0;
+        if (l.isNumeric() && r.isNumeric() && compareType != SPATIAL_INTERSECTS) {
+            boolean integral = l.isIntegral() && r.isIntegral();
+            long[] result = new long[size];
+            boolean[] nulls = null;
+            for (int i = 0; i < size; i++) {
+                boolean lNull = l.isNull(i), rNull = r.isNull(i);
+                if (lNull || rNull) {
+                    if (nullSafe) {
+                        result[i] = (lNull && rNull) == (compareType == EQUAL_NULL_SAFE) ? 1 : 0;
+                    } else {
+                        if (nulls == null) {
+                            nulls = new boolean[size];
+                        }
+                        nulls[i] = true;
+                    }
+                    continue;
+                }
+                int cmp = integral ? Long.compare(l.getLong(i), r.getLong(i))
+                        : Double.compare(l.getDouble(i), r.getDouble(i));
+                result[i] = isMatch(cmp) ? 1 : 0;
+            }
+            return ValueVector.getLongs(Value.BOOLEAN, size, result, nulls);
+        }
+        Value[] values = new Value[size];
+        for (int i = 0; i < size; i++) {
+            Value v = l.getValue(i);
+            values[i] = v == ValueNull.INSTANCE && !nullSafe ? ValueNull.INSTANCE
+                    : compare(database, v, r.getValue(i), compareType);
+        }
+        return ValueVector.get(size, values);
+    }
+
+    private boolean isMatch(int cmp) {
+        switch (compareType) {
+        case EQUAL:
+        case EQUAL_NULL_SAFE:
+            return cmp == 0;
+        case NOT_EQUAL:
+        case NOT_EQUAL_NULL_SAFE:
+            return cmp != 0;
+        case BIGGER_EQUAL:
+            return cmp >= 0;
+        case BIGGER:
+            return cmp > 0;
+        case SMALLER_EQUAL:
+            return cmp <= 0;
+        case SMALLER:
+            return cmp < 0;
+        default:
+            throw DbException.throwInternalError("type=" + compareType);
+        }
+    }
+
     /**
      * Compare two values.
      *
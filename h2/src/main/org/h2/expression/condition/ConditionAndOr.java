@@ -9,8 +9,10 @@
 import org.h2.expression.Expression;
 import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.ValueExpression;
+import org.h2.expression.ValueVector;
 import org.h2.message.DbException;
 import org.h2.table.ColumnResolver;
+import org.h2.table.RowBatch;
 import org.h2.table.TableFilter;
 import org.h2.value.Value;
 import org.h2.value.ValueBoolean;
@@ -128,6 +130,77 @@ public Value getValue(Session session) {
         }
     }
 
+    private Value calculate(Value l, Value r) {
+        switch (andOrType) {
+        case AND:
+            if (l != ValueNull.INSTANCE && !l.getBoolean() || r != ValueNull.INSTANCE && !r.getBoolean()) {
+                return ValueBoolean.FALSE;
+            }
+            break;
+        case OR:
+            if (l.getBoolean() || r.getBoolean()) {
+                return ValueBoolean.TRUE;
+            }
+            break;
+        default:
+            throw DbException.throwInternalError("type=" + andOrType);
+        }
+        if (l == ValueNull.INSTANCE || r == ValueNull.INSTANCE) {
+            return ValueNull.INSTANCE;
+        }
+        return ValueBoolean.get(andOrType == AND);
+    }
+
+    @Override
+    public boolean isBatchThreadSafe(TableFilter filter) {
+        return left.isBatchThreadSafe(filter) && right.isBatchThreadSafe(filter);
+    }
+
+    @Override
+    public ValueVector getValues(Session session, RowBatch batch) {
+        ValueVector l = left.getValues(session, batch);
+        int size = batch.getSize();
+        boolean and = andOrType == AND;
+        if (l.getValueType() == Value.BOOLEAN) {
+            // skip the right side if the left side decides all rows
+            boolean decided = true;
+            for (int i = 0; i < size; i++) {
+                if (l.isNull(i) || l.isTrue(i) == and) {
+                    decided = false;
+                    break;
+                }
+            }
+            if (decided) {
+                return ValueVector.getConstant(size, ValueBoolean.get(!and));
+            }
+        }
+        ValueVector r = right.getValues(session, batch);
+        if (l.getValueType() != Value.BOOLEAN || r.getValueType() != Value.BOOLEAN) {
+            Value[] values = new Value[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = calculate(l.getValue(i), r.getValue(i));
+            }
+            return ValueVector.get(size, values);
+        }
+        long[] result = new long[size];
+        boolean[] nulls = null;
+        for (int i = 0; i < size; i++) {
+            boolean lNull = l.isNull(i), rNull = r.isNull(i);
+            boolean lTrue = l.isTrue(i), rTrue = r.isTrue(i);
+            if (and ? !lNull && !lTrue || !rNull && !rTrue : lTrue || rTrue) {
+                result[i] = and ? 0 : 1;
+            } else if (lNull || rNull) {
+                if (nulls == null) {
+                    nulls = new boolean[size];
+                }
+                nulls[i] = true;
+            } else {
+                result[i] = and ? 1 : 0;
+            }
+        }
+        return ValueVector.getLongs(Value.BOOLEAN, size, result, nulls);
+    }
+
     @Override
     public Expression optimize(Session session) {
         // NULL handling: see wikipedia,
@@ -11,16 +11,20 @@
 import org.h2.engine.Constants;
 import org.h2.engine.DbObject;
 import org.h2.engine.Session;
+import org.h2.expression.Expression;
+import org.h2.expression.condition.Comparison;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
 import org.h2.schema.SchemaObjectBase;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
 import org.h2.util.StringUtils;
+import org.h2.value.CompareMode;
 import org.h2.value.DataType;
 import org.h2.value.Value;
 import org.h2.value.ValueNull;
@@ -144,6 +148,11 @@ protected final long getCostRangeIndex(int[] masks, long rowCount,
         int totalSelectivity = 0;
         long rowsCost = rowCount;
         if (masks != null) {
+            TableFilter tableFilter = filters == null ? null : filters[filter];
+            // the estimated fraction of matching rows, if the statistics of
+            // at least one column could be used
+            double fraction = 1;
+            boolean estimated = false;
             int i = 0, len = columns.length;
             boolean tryAdditional = false;
             while (i < len) {
@@ -157,21 +166,33 @@ protected final long getCostRangeIndex(int[] masks, long rowCount,
                     }
                     totalSelectivity = 100 - ((100 - totalSelectivity) *
                             (100 - column.getSelectivity()) / 100);
-                    long distinctRows = rowCount * totalSelectivity / 100;
-                    if (distinctRows <= 0) {
-                        distinctRows = 1;
+                    double f = getEqualFraction(tableFilter, column);
+                    if (f >= 0) {
+                        estimated = true;
+                    } else {
+                        f = 1d / Math.max(rowCount * column.getSelectivity() / 100, 1);
+                    }
+                    fraction *= f;
+                    if (estimated) {
+                        rowsCost = 2 + Math.max((long) (rowCount * fraction), 1);
+                    } else {
+                        long distinctRows = rowCount * totalSelectivity / 100;
+                        if (distinctRows <= 0) {
+                            distinctRows = 1;
+                        }
+                        rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
+                    }
+                } else if ((mask & IndexCondition.START) != 0 || (mask & IndexCondition.END) != 0) {
+                    double f = getRangeFraction(tableFilter, column);
+                    if (f >= 0) {
+                        rowsCost = 2 + Math.max((long) (rowsCost * f), 1);
+                    } else if ((mask & IndexCondition.RANGE) == IndexCondition.RANGE) {
+                        rowsCost = 2 + rowsCost / 4;
+                    } else if ((mask & IndexCondition.START) == IndexCondition.START) {
+                        rowsCost = 2 + rowsCost / 3;
+                    } else {
+                        rowsCost = rowsCost / 3;
                     }
-                    rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
-                } else if ((mask & IndexCondition.RANGE) == IndexCondition.RANGE) {
-                    rowsCost = 2 + rowsCost / 4;
-                    tryAdditional = true;
-                    break;
-                } else if ((mask & IndexCondition.START) == IndexCondition.START) {
-                    rowsCost = 2 + rowsCost / 3;
-                    tryAdditional = true;
-                    break;
-                } else if ((mask & IndexCondition.END) == IndexCondition.END) {
-                    rowsCost = rowsCost / 3;
                     tryAdditional = true;
                     break;
                 } else {
@@ -279,6 +300,135 @@ protected final long getCostRangeIndex(int[] masks, long rowCount,
         return rc;
     }
 
+    /**
+     * Estimate the fraction of rows that match the equality and IN(..)
+     * conditions with constant values on the given column, using the
+     * statistics of the column.
+     *
+     * @param filter the table filter, or null
+     * @param column the column
+     * @return the fraction of rows, or -1 if it can not be estimated
+     */
+    private static double getEqualFraction(TableFilter filter, Column column) {
+        ColumnStatistics statistics = column.getStatistics();
+        if (filter == null || statistics == null) {
+            return -1;
+        }
+        Session session = filter.getSession();
+        double result = -1;
+        try {
+            for (IndexCondition condition : filter.getIndexConditions()) {
+                if (condition.getColumn() != column || !condition.isEvaluatable()) {
+                    continue;
+                }
+                double f;
+                int compareType = condition.getCompareType();
+                if (compareType == Comparison.EQUAL || compareType == Comparison.EQUAL_NULL_SAFE) {
+                    Expression e = condition.getExpression();
+                    if (!e.isConstant()) {
+                        continue;
+                    }
+                    Value v = e.getValue(session);
+                    f = v == ValueNull.INSTANCE && compareType == Comparison.EQUAL ? 0
+                            : statistics.getEqualFraction(session, v);
+                } else if (compareType == Comparison.IN_LIST) {
+                    f = 0;
+                    for (Expression e : condition.getExpressionList()) {
+                        if (!e.isConstant()) {
+                            f = -1;
+                            break;
+                        }
+                        f += statistics.getEqualFraction(session, e.getValue(session));
+                    }
+                    if (f < 0) {
+                        continue;
+                    }
+                } else {
+                    continue;
+                }
+                f = Math.min(f, 1);
+                result = result < 0 ? f : Math.min(result, f);
+            }
+        } catch (DbException e) {
+            // the value can not be compared with the column
+            return -1;
+        }
+        return result;
+    }
+
+    /**
+     * Estimate the fraction of rows that match the range conditions with
+     * constant values on the given column, using the statistics of the
+     * column.
+     *
+     * @param filter the table filter, or null
+     * @param column the column
+     * @return the fraction of rows, or -1 if it can not be estimated
+     */
+    private static double getRangeFraction(TableFilter filter, Column column) {
+        ColumnStatistics statistics = column.getStatistics();
+        if (filter == null || statistics == null) {
+            return -1;
+        }
+        Session session = filter.getSession();
+        CompareMode compareMode = session.getDatabase().getCompareMode();
+        Value min = null, max = null;
+        boolean minInclusive = true, maxInclusive = true;
+        try {
+            for (IndexCondition condition : filter.getIndexConditions()) {
+                if (condition.getColumn() != column || !condition.isEvaluatable()) {
+                    continue;
+                }
+                boolean start;
+                int compareType = condition.getCompareType();
+                switch (compareType) {
+                case Comparison.BIGGER_EQUAL:
+                case Comparison.BIGGER:
+                    start = true;
+                    break;
+                case Comparison.SMALLER_EQUAL:
+                case Comparison.SMALLER:
+                    start = false;
+                    break;
+                default:
+                    continue;
+                }
+                Expression e = condition.getExpression();
+                if (!e.isConstant()) {
+                    continue;
+                }
+                Value v = e.getValue(session);
+                if (v == ValueNull.INSTANCE) {
+                    return 0;
+                }
+                if (start) {
+                    int c = min == null ? 1 : v.compareTo(min, session, compareMode);
+                    if (c > 0) {
+                        min = v;
+                        minInclusive = compareType == Comparison.BIGGER_EQUAL;
+                    } else if (c == 0 && compareType == Comparison.BIGGER) {
+                        minInclusive = false;
+                    }
+                } else {
+                    int c = max == null ? -1 : v.compareTo(max, session, compareMode);
+                    if (c < 0) {
+                        max = v;
+                        maxInclusive = compareType == Comparison.SMALLER_EQUAL;
+                    } else if (c == 0 && compareType == Comparison.SMALLER) {
+                        maxInclusive = false;
+                    }
+                }
+            }
+            if (min == null && max == null) {
+                return -1;
+            }
+            return statistics.getRangeFraction(session, min, minInclusive, max, maxInclusive);
+        } catch (DbException e) {
+            // the value can not be compared with the column
+            return -1;
+        }
+    }
+
     @Override
     public int compareRows(SearchRow rowData, SearchRow compare) {
         if (rowData == compare) {
@@ -282,6 +282,18 @@ default boolean isRowIdIndex() {
         return false;
     }
 
+    /**
+     * Split a scan over all rows into cursors over disjoint key ranges. The
+     * cursors may be iterated by different threads concurrently.
+     *
+     * @param session the session
+     * @param parts the maximum number of cursors
+     * @return the cursors in key order, or null if this is not supported
+     */
+    default Cursor[] findParallel(Session session, int parts) {
+        return null;
+    }
+
     /**
      * Can this index iterate over all rows?
      *
@@ -2011,6 +2011,19 @@ public String toString() {
         return getTraceObjectName() + ": url=" + url + " user=" + user;
     }
 
+    /**
+     * INTERNAL. Create a scrollable result set for the given result. The
+     * result is not copied, so that large results are read from the temporary
+     * file.
+     *
+     * @param result the result
+     * @return the result set
+     */
+    public ResultSet createResultSet(ResultInterface result) {
+        int id = getNextId(TraceObject.RESULT_SET);
+        return new JdbcResultSet(this, null, null, result, id, false, true, false);
+    }
+
     /**
      * Convert an object to the default Java object for the given SQL type. For
      * example, LOB objects are converted to java.sql.Clob / java.sql.Blob.
@@ -29,6 +29,7 @@
 
 import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
+import org.h2.engine.GeneratedKeysMode;
 import org.h2.expression.ParameterInterface;
 import org.h2.message.DbException;
 import org.h2.message.TraceObject;
@@ -1256,28 +1257,51 @@ public int[] executeBatch() throws SQLException {
             SQLException first = null;
             SQLException last = null;
             checkClosedForWrite();
-            for (int i = 0; i < size; i++) {
-                Value[] set = batchParameters.get(i);
-                ArrayList<? extends ParameterInterface> parameters =
-                        command.getParameters();
-                for (int j = 0; j < set.length; j++) {
-                    Value value = set[j];
-                    ParameterInterface param = parameters.get(j);
-                    param.setValue(value, false);
+            if (GeneratedKeysMode.valueOf(generatedKeysRequest) == GeneratedKeysMode.NONE
+                    && !conn.scopeGeneratedKeys()) {
+                // generated keys are not needed, so all rows can be sent at once
+                ArrayList<DbException> exceptions = new ArrayList<>();
+                closeOldResultSet();
+                synchronized (session) {
+                    try {
+                        setExecutingStatement(command);
+                        result = command.executeBatchUpdate(batchParameters, exceptions);
+                    } finally {
+                        setExecutingStatement(null);
+                    }
                 }
-                try {
-                    result[i] = executeUpdateInternal();
-                    // Cannot use own implementation, it returns batch identities
-                    ResultSet rs = super.getGeneratedKeys();
-                    batchIdentities.add(((JdbcResultSet) rs).result);
-                } catch (Exception re) {
+                for (DbException re : exceptions) {
                     SQLException e = logAndConvert(re);
                     if (last == null) {
                         first = last = e;
                     } else {
                         last.setNextException(e);
                     }
-                    result[i] = Statement.EXECUTE_FAILED;
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    Value[] set = batchParameters.get(i);
+                    ArrayList<? extends ParameterInterface> parameters =
+                            command.getParameters();
+                    for (int j = 0; j < set.length; j++) {
+                        Value value = set[j];
+                        ParameterInterface param = parameters.get(j);
+                        param.setValue(value, false);
+                    }
+                    try {
+                        result[i] = executeUpdateInternal();
+                        // Cannot use own implementation, it returns batch identities
+                        ResultSet rs = super.getGeneratedKeys();
+                        batchIdentities.add(((JdbcResultSet) rs).result);
+                    } catch (Exception re) {
+                        SQLException e = logAndConvert(re);
+                        if (last == null) {
+                            first = last = e;
+                        } else {
+                            last.setNextException(e);
+                        }
+                        result[i] = Statement.EXECUTE_FAILED;
+                    }
                 }
             }
             batchParameters = null;
@@ -127,6 +127,12 @@ public final class DataUtils {
      */
     public static final int PAGE_COMPRESSED_HIGH = 2 + 4;
 
+    /**
+     * The bit mask for compressed pages where the compression algorithm is
+     * stored in the page.
+     */
+    public static final int PAGE_COMPRESSED_ALGORITHM = 2 + 8;
+
     /**
      * The maximum length of a variable size int.
      */
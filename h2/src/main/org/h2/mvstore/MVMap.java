@@ -16,6 +16,7 @@
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
 import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.LongKeyType;
 import org.h2.mvstore.type.ObjectDataType;
 import org.h2.mvstore.type.StringDataType;
 
@@ -44,6 +45,7 @@
     private final int id;
     private final long createVersion;
     private final DataType keyType;
+    private final LongKeyType longKeyType;
     private final DataType valueType;
     private final int keysPerPage;
     private final boolean singleWriter;
@@ -101,6 +103,7 @@ private MVMap(MVStore store, DataType keyType, DataType valueType, int id, long
         this.id = id;
         this.createVersion = createVersion;
         this.keyType = keyType;
+        longKeyType = keyType instanceof LongKeyType ? (LongKeyType) keyType : null;
         this.valueType = valueType;
         this.root = root;
         this.keysPerPage = keysPerPage;
@@ -649,6 +652,15 @@ public final DataType getKeyType() {
         return keyType;
     }
 
+    /**
+     * Get the key type if the keys are 64-bit integers.
+     *
+     * @return the key type, or null
+     */
+    final LongKeyType getLongKeyType() {
+        return longKeyType;
+    }
+
     /**
      * Get the value type.
      *
@@ -1340,44 +1352,7 @@ private RootReference flushAppendBuffer(RootReference rootReference, boolean ful
                 }
 
                 unsavedMemoryHolder.value = 0;
-                if (page != null) {
-                    assert page.map == this;
-                    assert page.getKeyCount() > 0;
-                    Object key = page.getKey(0);
-                    unsavedMemoryHolder.value += page.getMemory();
-                    while (true) {
-                        if (pos == null) {
-                            if (p.getKeyCount() == 0) {
-                                p = page;
-                            } else {
-                                Object[] keys = new Object[]{key};
-                                Page.PageReference[] children = new Page.PageReference[]{
-                                        new Page.PageReference(p),
-                                        new Page.PageReference(page)};
-                                unsavedMemoryHolder.value += p.getMemory();
-                                p = Page.createNode(this, keys, children, p.getTotalCount() + page.getTotalCount(), 0);
-                            }
-                            break;
-                        }
-                        Page c = p;
-                        p = pos.page;
-                        index = pos.index;
-                        pos = pos.parent;
-                        p = p.copy();
-                        p.setChild(index, page);
-                        p.insertNode(index, key, c);
-                        keyCount = p.getKeyCount();
-                        int at = keyCount - (p.isLeaf() ? 1 : 2);
-                        if (keyCount <= keysPerPage &&
-                                (p.getMemory() < store.getMaxPageSize() || at <= 0)) {
-                            break;
-                        }
-                        key = p.getKey(at);
-                        page = p.split(at);
-                        unsavedMemoryHolder.value += p.getMemory() + page.getMemory();
-                    }
-                }
-                p = replacePage(pos, p, unsavedMemoryHolder);
+                p = appendLeaf(pos, p, page, unsavedMemoryHolder);
                 rootReference = rootReference.updatePageAndLockedStatus(p, preLocked || isPersistent(),
                         remainingBuffer);
                 if (rootReference != null) {
@@ -1399,6 +1374,58 @@ private RootReference flushAppendBuffer(RootReference rootReference, boolean ful
         return rootReference;
     }
 
+    /**
+     * Add a new leaf page after the last leaf page of the tree, splitting the
+     * parent nodes at their end if needed, so that they stay full.
+     *
+     * @param pos the path to the parent of the last leaf page
+     * @param p the (possibly modified) last leaf page
+     * @param page the new leaf page, or null
+     * @param unsavedMemoryHolder the holder for the unsaved memory
+     * @return the new root page
+     */
+    private Page appendLeaf(CursorPos pos, Page p, Page page, IntValueHolder unsavedMemoryHolder) {
+        if (page != null) {
+            assert page.map == this;
+            assert page.getKeyCount() > 0;
+            int keysPerPage = store.getKeysPerPage();
+            Object key = page.getKey(0);
+            unsavedMemoryHolder.value += page.getMemory();
+            while (true) {
+                if (pos == null) {
+                    if (p.getKeyCount() == 0) {
+                        p = page;
+                    } else {
+                        Object[] keys = new Object[]{key};
+                        Page.PageReference[] children = new Page.PageReference[]{
+                                new Page.PageReference(p),
+                                new Page.PageReference(page)};
+                        unsavedMemoryHolder.value += p.getMemory();
+                        p = Page.createNode(this, keys, children, p.getTotalCount() + page.getTotalCount(), 0);
+                    }
+                    break;
+                }
+                Page c = p;
+                p = pos.page;
+                int index = pos.index;
+                pos = pos.parent;
+                p = p.copy();
+                p.setChild(index, page);
+                p.insertNode(index, key, c);
+                int keyCount = p.getKeyCount();
+                int at = keyCount - (p.isLeaf() ? 1 : 2);
+                if (keyCount <= keysPerPage &&
+                        (p.getMemory() < store.getMaxPageSize() || at <= 0)) {
+                    break;
+                }
+                key = p.getKey(at);
+                page = p.split(at);
+                unsavedMemoryHolder.value += p.getMemory() + page.getMemory();
+            }
+        }
+        return replacePage(pos, p, unsavedMemoryHolder);
+    }
+
     private static Page replacePage(CursorPos path, Page replacement, IntValueHolder unsavedMemoryHolder) {
         int unsavedMemory = replacement.isSaved() ? 0 : replacement.getMemory();
         while (path != null) {
@@ -1447,6 +1474,45 @@ public void append(K key, V value) {
         }
     }
 
+    /**
+     * Appends a leaf page with the given entries to this map. This is the
+     * fastest way to load sorted data into a map: the pages are filled
+     * completely and attached at the right edge of the tree directly, while
+     * adding the same entries one by one would split each page in the middle.
+     * Unlike {@link #append(Object, Object)}, this method may be used with any
+     * map, concurrently with other updates.
+     *
+     * @param keys the keys, sorted and higher in map's order than any existing
+     *            key; the array is used as is and may not be modified later
+     * @param values the values, the array is used as is and may not be
+     *            modified later
+     */
+    public void appendLeaf(Object[] keys, Object[] values) {
+        assert keys.length > 0 && keys.length == values.length;
+        beforeWrite();
+        RootReference rootReference = lockRoot(getRoot(), 1);
+        Page rootPage = rootReference.root;
+        try {
+            if (rootReference.getAppendCounter() > 0) {
+                rootReference = flushAppendBuffer(rootReference, true);
+                rootPage = rootReference.root;
+            }
+            long version = rootReference.version;
+            CursorPos pos = rootPage.getAppendCursorPos(null);
+            Page p = pos.page;
+            assert p.getKeyCount() == 0 || compare(p.getKey(p.getKeyCount() - 1), keys[0]) < 0;
+            CursorPos tip = pos.parent;
+            IntValueHolder unsavedMemoryHolder = new IntValueHolder();
+            rootPage = appendLeaf(tip, p, Page.createLeaf(this, keys, values, 0), unsavedMemoryHolder);
+            if (isPersistent()) {
+                store.registerUnsavedMemory(unsavedMemoryHolder.value +
+                        (tip == null ? 0 : tip.processRemovalInfo(version)));
+            }
+        } finally {
+            unlockRoot(rootPage);
+        }
+    }
+
     /**
      * Removes last entry from this map. this method is NOT thread safe and can not be used
      * neither concurrently, nor in combination with any method that updates this map.
@@ -1859,13 +1925,22 @@ public V operate(K key, V value, DecisionMaker<? super V> decisionMaker) {
                         value = decisionMaker.selectValue(result, value);
                         p = p.copy();
                         if (index < 0) {
-                            p.insertLeaf(-index - 1, key, value);
+                            index = -index - 1;
+                            // keys added in ascending order go to the end of
+                            // the last leaf; the pages are then split at the
+                            // end, so that they stay full
+                            boolean rightEdge = index == p.getKeyCount();
+                            for (CursorPos c = pos; rightEdge && c != null; c = c.parent) {
+                                rightEdge = c.index == c.page.getKeyCount();
+                            }
+                            p.insertLeaf(index, key, value);
                             int keyCount;
                             while ((keyCount = p.getKeyCount()) > store.getKeysPerPage()
                                     || p.getMemory() > store.getMaxPageSize()
                                     && keyCount > (p.isLeaf() ? 1 : 2)) {
                                 long totalCount = p.getTotalCount();
-                                int at = keyCount >> 1;
+                                int at = rightEdge && keyCount > 3 ? keyCount - (p.isLeaf() ? 1 : 2)
+                                        : keyCount >> 1;
                                 Object k = p.getKey(at);
                                 Page split = p.split(at);
                                 unsavedMemoryHolder.value += p.getMemory() + split.getMemory();
@@ -17,13 +17,17 @@
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -31,10 +35,14 @@
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import org.h2.compress.CompressDeflate;
+import org.h2.compress.CompressLZ4;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
+import org.h2.mvstore.cache.CacheLongKey;
 import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.mvstore.cache.CacheLongKeyTinyLFU;
 import org.h2.util.MathUtils;
 import org.h2.util.Utils;
 
@@ -148,8 +156,25 @@ public class MVStore implements AutoCloseable
      */
     static final int BLOCK_SIZE = 4 * 1024;
 
-    private static final int FORMAT_WRITE = 1;
-    private static final int FORMAT_READ = 1;
+    /**
+     * The file format. Format 2 files may contain pages that are compressed
+     * with an algorithm other than LZF and Deflate (see
+     * {@link DataUtils#PAGE_COMPRESSED_ALGORITHM}), which older versions would
+     * read as LZF. Format 2 is only used if the store is configured with such
+     * a compressor, so that older versions can still open the other files.
+     */
+    private static final int FORMAT_WRITE = 2;
+    private static final int FORMAT_READ = 2;
+
+    /**
+     * The file format without pages compressed with other algorithms.
+     */
+    private static final int FORMAT_WITHOUT_COMPRESSED_ALGORITHM = 1;
+
+    /**
+     * Marks the maps that don't compress their pages.
+     */
+    private static final Supplier<Compressor> NO_COMPRESSOR = () -> null;
 
     /**
      * Store is open.
@@ -181,6 +206,51 @@ public class MVStore implements AutoCloseable
      */
     private final ReentrantLock storeLock = new ReentrantLock(true);
 
+    /**
+     * The monitor used by threads that wait for a group commit, see
+     * syncCommit(). The fields below are protected by it.
+     */
+    private final Object groupCommitSync = new Object();
+
+    /**
+     * The number of requested sync commits; each request gets the next
+     * number as its ticket.
+     */
+    private long groupCommitRequested;
+
+    /**
+     * The last ticket of the last group commit that completed.
+     */
+    private long groupCommitCompleted;
+
+    /**
+     * The first ticket of the first group commit that failed. This and all
+     * later tickets fail with the same exception.
+     */
+    private long groupCommitFailedFrom = Long.MAX_VALUE;
+
+    /**
+     * The exception of the first group commit that failed, or null.
+     */
+    private RuntimeException groupCommitException;
+
+    private boolean groupCommitLeader;
+
+    /**
+     * The number of group commits, that is, the number of sync operations.
+     */
+    private long groupCommitCount;
+
+    /**
+     * The number of sync commits by latency: element i counts the commits
+     * that took at least 2^i and less than 2^(i+1) microseconds.
+     */
+    private final long[] syncCommitLatency = new long[32];
+
+    private final int groupCommitDelay;
+
+    private final int groupCommitSize;
+
     /**
      * Reference to a background thread, which is expected to be running, if any.
      */
@@ -203,7 +273,7 @@ public class MVStore implements AutoCloseable
      * It is split in 16 segments. The stack move distance is 2% of the expected
      * number of entries.
      */
-    private final CacheLongKeyLIRS<Page> cache;
+    private final CacheLongKey<Page> cache;
 
     /**
      * The newest chunk. If nothing was stored yet, this field is not set.
@@ -238,14 +308,46 @@ public class MVStore implements AutoCloseable
     private int versionsToKeep = 5;
 
     /**
-     * The compression level for new pages (0 for disabled, 1 for fast, 2 for
-     * high). Even if disabled, the store may contain (old) compressed pages.
+     * The factory of the compressors for new pages, or null if new pages are
+     * not compressed (unless there is a factory for the map). Even if null,
+     * the store may contain (old) compressed pages.
      */
-    private final int compressionLevel;
+    private final Supplier<? extends Compressor> compressorFactory;
 
-    private Compressor compressorFast;
+    /**
+     * The factories of the compressors for new pages of individual maps, by
+     * map name.
+     */
+    private final Map<String, Supplier<? extends Compressor>> mapCompressorFactories;
 
-    private Compressor compressorHigh;
+    /**
+     * The compressor factory of each map id. Only used if there are factories
+     * for individual maps.
+     */
+    private final ConcurrentHashMap<Integer, Supplier<? extends Compressor>> compressorFactoryByMap =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The compressors used to expand pages, by compression algorithm.
+     */
+    private final ConcurrentHashMap<Integer, Compressor> expanders = new ConcurrentHashMap<>();
+
+    /**
+     * The compressors used to expand pages of maps with their own compressor
+     * factory, by map id.
+     */
+    private final ConcurrentHashMap<Integer, Compressor> mapExpanders = new ConcurrentHashMap<>();
+
+    /**
+     * The compressors used by the thread that stores the changes, by factory.
+     */
+    private final HashMap<Supplier<? extends Compressor>, Compressor> writeCompressors = new HashMap<>();
+
+    /**
+     * The pool used to serialize and compress the changed pages in parallel,
+     * or null if they are serialized by the thread that stores the changes.
+     */
+    private final ForkJoinPool serializationPool;
 
     private final boolean recoveryMode;
 
@@ -328,12 +430,38 @@ public class MVStore implements AutoCloseable
      */
     MVStore(Map<String, Object> config) {
         recoveryMode = config.containsKey("recoveryMode");
-        compressionLevel = DataUtils.getConfigParam(config, "compress", 0);
+        int compressionLevel = DataUtils.getConfigParam(config, "compress", 0);
+        @SuppressWarnings("unchecked")
+        Supplier<? extends Compressor> factory = (Supplier<? extends Compressor>) config.get("compressor");
+        if (factory == null) {
+            if (compressionLevel == 1) {
+                factory = CompressLZF::new;
+            } else if (compressionLevel > 1) {
+                factory = CompressDeflate::new;
+            }
+        }
+        compressorFactory = factory;
+        @SuppressWarnings("unchecked")
+        Map<String, Supplier<? extends Compressor>> mapFactories =
+                (Map<String, Supplier<? extends Compressor>>) config.get("mapCompressors");
+        mapCompressorFactories = mapFactories == null ? Collections.emptyMap() : mapFactories;
+        expanders.put(Compressor.LZF, new CompressLZF());
+        expanders.put(Compressor.DEFLATE, new CompressDeflate());
+        expanders.put(Compressor.LZ4, new CompressLZ4());
+        boolean compressedAlgorithm = false;
+        if (factory != null) {
+            Compressor c = factory.get();
+            expanders.put(c.getAlgorithm(), c);
+            compressedAlgorithm = isCompressedAlgorithm(c);
+        }
+        for (Supplier<? extends Compressor> f : mapCompressorFactories.values()) {
+            compressedAlgorithm |= isCompressedAlgorithm(f.get());
+        }
         String fileName = (String) config.get("fileName");
         FileStore fileStore = (FileStore) config.get("fileStore");
         fileStoreIsProvided = fileStore != null;
         if(fileStore == null && fileName != null) {
-            fileStore = new FileStore();
+            fileStore = config.containsKey("memoryMapped") ? new MappedFileStore() : new FileStore();
         }
         this.fileStore = fileStore;
 
@@ -351,10 +479,18 @@ public class MVStore implements AutoCloseable
             }
             pgSplitSize = 16 * 1024;
         }
-        if (cc != null) {
-            cache = new CacheLongKeyLIRS<>(cc);
-        } else {
+        if (cc == null) {
             cache = null;
+        } else {
+            String cacheType = (String) config.get("cacheType");
+            if (cacheType == null || CacheLongKeyLIRS.TYPE_NAME.equalsIgnoreCase(cacheType)) {
+                cache = new CacheLongKeyLIRS<>(cc);
+            } else if (CacheLongKeyTinyLFU.TYPE_NAME.equalsIgnoreCase(cacheType)) {
+                cache = new CacheLongKeyTinyLFU<>(cc.maxMemory);
+            } else {
+                throw DataUtils.newIllegalArgumentException(
+                        "Unknown cache type {0}", cacheType);
+            }
         }
 
         pgSplitSize = DataUtils.getConfigParam(config, "pageSplitSize", pgSplitSize);
@@ -374,6 +510,10 @@ public class MVStore implements AutoCloseable
             kb = DataUtils.getConfigParam(config, "autoCommitBufferSize", kb);
             autoCommitMemory = kb * 1024;
             autoCompactFillRate = DataUtils.getConfigParam(config, "autoCompactFillRate", 90);
+            int parallelism = DataUtils.getConfigParam(config, "serializationParallelism", 1);
+            serializationPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+            groupCommitDelay = DataUtils.getConfigParam(config, "groupCommitDelay", 0);
+            groupCommitSize = DataUtils.getConfigParam(config, "groupCommitSize", 16);
             char[] encryptionKey = (char[]) config.get("encryptionKey");
             try {
                 if (!fileStoreIsProvided) {
@@ -385,7 +525,8 @@ public class MVStore implements AutoCloseable
                     lastCommitTime = creationTime;
                     storeHeader.put(HDR_H, 2);
                     storeHeader.put(HDR_BLOCK_SIZE, BLOCK_SIZE);
-                    storeHeader.put(HDR_FORMAT, FORMAT_WRITE);
+                    storeHeader.put(HDR_FORMAT,
+                            compressedAlgorithm ? FORMAT_WRITE : FORMAT_WITHOUT_COMPRESSED_ALGORITHM);
                     storeHeader.put(HDR_CREATED, creationTime);
                     writeStoreHeader();
                 } else {
@@ -394,6 +535,13 @@ public class MVStore implements AutoCloseable
                     storeLock.lock();
                     try {
                         readStoreHeader();
+                        if (compressedAlgorithm && !this.fileStore.isReadOnly() && DataUtils.readHexInt(
+                                storeHeader, HDR_FORMAT, 1) < FORMAT_WRITE) {
+                            // older versions must not open the file once
+                            // it contains such pages
+                            storeHeader.put(HDR_FORMAT, FORMAT_WRITE);
+                            writeStoreHeader();
+                        }
                     } finally {
                         storeLock.unlock();
                     }
@@ -416,9 +564,17 @@ public class MVStore implements AutoCloseable
         } else {
             autoCommitMemory = 0;
             autoCompactFillRate = 0;
+            serializationPool = null;
+            groupCommitDelay = 0;
+            groupCommitSize = 0;
         }
     }
 
+    private static boolean isCompressedAlgorithm(Compressor c) {
+        int algorithm = c.getAlgorithm();
+        return algorithm != Compressor.LZF && algorithm != Compressor.DEFLATE;
+    }
+
     private void scrubMetaMap() {
         Set<String> keysToRemove = new HashSet<>();
 
@@ -533,7 +689,9 @@ public <M extends MVMap<K, V>, K, V> M openMap(String name, MVMap.MapBuilder<M,
         M map;
         if (id >= 0) {
             map = openMap(id, builder);
-            assert builder.getKeyType() == null || map.getKeyType().getClass().equals(builder.getKeyType().getClass());
+            // the map may have been opened with a more generic key type,
+            // for example by the transaction store
+            assert builder.getKeyType() == null || map.getKeyType().getClass().isInstance(builder.getKeyType());
             assert builder.getValueType() == null || map.getValueType().getClass().equals(builder.getValueType()
                     .getClass());
         } else {
@@ -1186,6 +1344,9 @@ private void closeStore(boolean normalShutdown, long allowedCompactionTime) {
                             chunks.clear();
                             maps.clear();
                         } finally {
+                            if (serializationPool != null) {
+                                serializationPool.shutdown();
+                            }
                             if (fileStore != null && !fileStoreIsProvided) {
                                 fileStore.close();
                             }
@@ -1411,6 +1572,7 @@ private void storeNow(long reservedLow, long reservedHigh) {
                 }
             }
         }
+        Map<Page, byte[]> serialized = serializePages(changed);
         WriteBuffer buff = getWriteBuffer();
         // need to patch the header later
         c.writeChunkHeader(buff, 0);
@@ -1421,7 +1583,7 @@ private void storeNow(long reservedLow, long reservedHigh) {
             if (p.getTotalCount() == 0) {
                 meta.remove(key);
             } else {
-                p.writeUnsavedRecursive(c, buff);
+                p.writeUnsavedRecursive(c, buff, serialized);
                 long root = p.getPos();
                 meta.put(key, Long.toHexString(root));
             }
@@ -1439,7 +1601,7 @@ private void storeNow(long reservedLow, long reservedHigh) {
         onVersionChange(version);
 
         Page metaRoot = metaRootReference.root;
-        metaRoot.writeUnsavedRecursive(c, buff);
+        metaRoot.writeUnsavedRecursive(c, buff, null);
 
         // last allocated map id should be captured after the meta map was saved, because
         // this will ensure that concurrently created map, which made it into meta before save,
@@ -1534,6 +1696,60 @@ private void storeNow(long reservedLow, long reservedHigh) {
         lastStoredVersion = storeVersion;
     }
 
+    /**
+     * Serialize and compress the keys and values of the changed pages in
+     * parallel, so that only copying the data and assigning the positions is
+     * left to the thread that stores the chunk. The chunk format is the same.
+     *
+     * @param changed the changed root pages
+     * @return the serialized data by page, or null if the pages should be
+     *         serialized while storing them
+     */
+    private Map<Page, byte[]> serializePages(ArrayList<Page> changed) {
+        ForkJoinPool pool = serializationPool;
+        if (pool == null) {
+            return null;
+        }
+        ArrayList<Page> pages = new ArrayList<>();
+        for (Page p : changed) {
+            if (p.getTotalCount() != 0) {
+                p.collectUnsavedRecursive(pages);
+            }
+        }
+        int size = pages.size();
+        int parallelism = pool.getParallelism();
+        if (size < 4 * parallelism) {
+            return null;
+        }
+        // a few more tasks than threads, as page sizes differ
+        int batchSize = (size + 4 * parallelism - 1) / (4 * parallelism);
+        ArrayList<ForkJoinTask<byte[][]>> tasks = new ArrayList<>();
+        for (int from = 0; from < size; from += batchSize) {
+            List<Page> batch = pages.subList(from, Math.min(from + batchSize, size));
+            tasks.add(pool.submit(() -> serializePages(batch)));
+        }
+        IdentityHashMap<Page, byte[]> serialized = new IdentityHashMap<>(size);
+        int i = 0;
+        for (ForkJoinTask<byte[][]> task : tasks) {
+            for (byte[] data : task.join()) {
+                serialized.put(pages.get(i++), data);
+            }
+        }
+        return serialized;
+    }
+
+    private byte[][] serializePages(List<Page> pages) {
+        // compressors are not thread safe
+        HashMap<Supplier<? extends Compressor>, Compressor> compressors = new HashMap<>();
+        WriteBuffer buff = new WriteBuffer();
+        byte[][] result = new byte[pages.size()][];
+        for (int i = 0; i < result.length; i++) {
+            Page p = pages.get(i);
+            result[i] = p.serialize(buff, getCompressor(p.map, compressors));
+        }
+        return result;
+    }
+
     /**
      * Get a buffer for writing. This caller must synchronize on the store
      * before calling the method and until after using the buffer.
@@ -1948,6 +2164,126 @@ public void sync() {
         }
     }
 
+    /**
+     * Commit the changes and force them to be written to the storage. If
+     * multiple threads call this method at the same time, their changes are
+     * written together: one thread stores a chunk with the changes of all of
+     * them and syncs the file once, while the others wait until it is done.
+     * <p>
+     * The thread that does the work may wait up to the group commit delay for
+     * more threads to join, unless the group commit size is reached first.
+     * <p>
+     * If a group commit fails, the changes of the group may be partially
+     * written, so all threads of this group and all later callers get the
+     * same exception.
+     *
+     * @return the new version
+     */
+    public long syncCommit() {
+        checkOpen();
+        if (fileStore == null || storeLock.isHeldByCurrentThread()) {
+            commit();
+            sync();
+            return currentVersion;
+        }
+        long start = System.nanoTime();
+        long ticket, last;
+        synchronized (groupCommitSync) {
+            ticket = ++groupCommitRequested;
+            if (groupCommitDelay > 0 && ticket - groupCommitCompleted >= groupCommitSize) {
+                // wake up the leader that waits for more threads
+                groupCommitSync.notifyAll();
+            }
+            while (true) {
+                if (ticket >= groupCommitFailedFrom) {
+                    throw groupCommitException;
+                }
+                if (ticket <= groupCommitCompleted) {
+                    addSyncCommitLatency(start);
+                    return currentVersion;
+                }
+                if (!groupCommitLeader) {
+                    break;
+                }
+                try {
+                    groupCommitSync.wait();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            groupCommitLeader = true;
+            if (groupCommitDelay > 0) {
+                long end = start + groupCommitDelay * 1_000L;
+                while (groupCommitRequested - groupCommitCompleted < groupCommitSize) {
+                    long wait = end - System.nanoTime();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    try {
+                        groupCommitSync.wait(wait / 1_000_000, (int) (wait % 1_000_000));
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+            // all threads that are waiting now have made their changes
+            last = groupCommitRequested;
+        }
+        RuntimeException exception = null;
+        try {
+            commit();
+            sync();
+        } catch (RuntimeException e) {
+            exception = e;
+        }
+        synchronized (groupCommitSync) {
+            if (exception != null) {
+                groupCommitFailedFrom = groupCommitCompleted + 1;
+                groupCommitException = exception;
+            }
+            groupCommitCompleted = last;
+            groupCommitCount++;
+            groupCommitLeader = false;
+            groupCommitSync.notifyAll();
+            if (exception != null) {
+                throw exception;
+            }
+            addSyncCommitLatency(start);
+        }
+        return currentVersion;
+    }
+
+    private void addSyncCommitLatency(long start) {
+        long micros = (System.nanoTime() - start) / 1_000;
+        int i = micros <= 0 ? 0 : Math.min(63 - Long.numberOfLeadingZeros(micros), syncCommitLatency.length - 1);
+        syncCommitLatency[i]++;
+    }
+
+    /**
+     * Get the number of commits done with syncCommit() by latency. Element i
+     * counts the commits that took at least 2^i and less than 2^(i+1)
+     * microseconds; the first element also counts faster commits.
+     *
+     * @return the histogram (a copy)
+     */
+    public long[] getSyncCommitLatency() {
+        synchronized (groupCommitSync) {
+            return syncCommitLatency.clone();
+        }
+    }
+
+    /**
+     * Get the number of group commits, that is, how often syncCommit()
+     * synced the file.
+     *
+     * @return the number of group commits
+     */
+    public long getGroupCommitCount() {
+        synchronized (groupCommitSync) {
+            return groupCommitCount;
+        }
+    }
+
     /**
      * Compact store file, that is, compact blocks that have a low
      * fill rate, and move chunks next to each other. This will typically
@@ -2263,22 +2599,62 @@ void accountForRemovedPage(long pos, long version, boolean pinned) {
         removedPages.add(rpi);
     }
 
-    Compressor getCompressorFast() {
-        if (compressorFast == null) {
-            compressorFast = new CompressLZF();
-        }
-        return compressorFast;
+    /**
+     * Get the compressor for new pages of a map. This method may only be
+     * called by the thread that stores the changes.
+     *
+     * @param map the map
+     * @return the compressor, or null if the pages are not compressed
+     */
+    Compressor getCompressor(MVMap<?, ?> map) {
+        return getCompressor(map, writeCompressors);
+    }
+
+    private Compressor getCompressor(MVMap<?, ?> map,
+            HashMap<Supplier<? extends Compressor>, Compressor> compressors) {
+        Supplier<? extends Compressor> factory = getCompressorFactory(map);
+        return factory == null ? null : compressors.computeIfAbsent(factory, Supplier::get);
     }
 
-    Compressor getCompressorHigh() {
-        if (compressorHigh == null) {
-            compressorHigh = new CompressDeflate();
+    /**
+     * Get the compressor to expand a page of a map.
+     *
+     * @param map the map
+     * @param algorithm the compression algorithm of the page
+     * @return the compressor
+     */
+    Compressor getExpander(MVMap<?, ?> map, int algorithm) {
+        if (!mapCompressorFactories.isEmpty()) {
+            Supplier<? extends Compressor> factory = getCompressorFactory(map);
+            if (factory != null && factory != compressorFactory) {
+                Compressor c = mapExpanders.computeIfAbsent(map.getId(), k -> factory.get());
+                if (c.getAlgorithm() == algorithm) {
+                    return c;
+                }
+            }
+        }
+        Compressor c = expanders.get(algorithm);
+        if (c == null) {
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_UNSUPPORTED_FORMAT,
+                    "Unknown compression algorithm {0} in map {1}", algorithm, map.getId());
         }
-        return compressorHigh;
+        return c;
     }
 
-    int getCompressionLevel() {
-        return compressionLevel;
+    private Supplier<? extends Compressor> getCompressorFactory(MVMap<?, ?> map) {
+        if (mapCompressorFactories.isEmpty()) {
+            return compressorFactory;
+        }
+        Supplier<? extends Compressor> factory = compressorFactoryByMap.get(map.getId());
+        if (factory == null) {
+            factory = mapCompressorFactories.get(map.getName());
+            if (factory == null) {
+                factory = compressorFactory != null ? compressorFactory : NO_COMPRESSOR;
+            }
+            compressorFactoryByMap.put(map.getId(), factory);
+        }
+        return factory == NO_COMPRESSOR ? null : factory;
     }
 
     public int getPageSplitSize() {
@@ -3083,7 +3459,7 @@ public int getCacheSize() {
      *
      * @return the cache
      */
-    public CacheLongKeyLIRS<Page> getCache() {
+    public CacheLongKey<Page> getCache() {
         return cache;
     }
 
@@ -3493,6 +3869,18 @@ public Builder readOnly() {
             return set("readOnly", 1);
         }
 
+        /**
+         * Read pages directly from the memory mapped file instead of copying
+         * them to the heap. This is faster for read-mostly stores that fit in
+         * the page cache of the operating system. It has no effect for
+         * encrypted files and files that are not on disk.
+         *
+         * @return this
+         */
+        public Builder memoryMapped() {
+            return set("memoryMapped", 1);
+        }
+
         /**
          * Open the file in recovery mode, where some errors may be ignored.
          *
@@ -3523,6 +3911,20 @@ public Builder cacheConcurrency(int concurrency) {
             return set("cacheConcurrency", concurrency);
         }
 
+        /**
+         * Set the read cache implementation. The default is "LIRS", a
+         * segmented cache that synchronizes each access on the segment.
+         * "TinyLFU" is a cache where reads don't need a lock, which scales
+         * better if many threads read concurrently; the cache concurrency
+         * setting is ignored in this case.
+         *
+         * @param type the cache type, "LIRS" or "TinyLFU"
+         * @return this
+         */
+        public Builder cacheType(String type) {
+            return set("cacheType", type);
+        }
+
         /**
          * Compress data before writing using the LZF algorithm. This will save
          * about 50% of the disk space, but will slow down read and write
@@ -3553,6 +3955,49 @@ public Builder compressHigh() {
             return set("compress", 2);
         }
 
+        /**
+         * Compress new pages with compressors that are created by the given
+         * factory (each thread that compresses pages uses its own compressor).
+         * This setting overrides compress() and compressHigh().
+         * <p>
+         * If the algorithm is not LZF or DEFLATE, its identifier (see
+         * {@link Compressor#getAlgorithm()}) is stored in each page. Pages
+         * compressed with the built-in algorithms (LZF, DEFLATE, and LZ4) can
+         * always be read; for other algorithms, the same compressor (for
+         * example with the same dictionary) needs to be set when opening the
+         * store again. The expand method of the compressor may be called
+         * concurrently.
+         *
+         * @param factory the compressor factory
+         * @return this
+         */
+        public Builder compressor(Supplier<? extends Compressor> factory) {
+            return set("compressor", factory);
+        }
+
+        /**
+         * Compress new pages of the given map with compressors that are
+         * created by the given factory. For example, a
+         * {@link org.h2.compress.CompressDictionary} with a dictionary that
+         * was trained with samples of the data of the map can be used. See
+         * also {@link #compressor(Supplier)}.
+         *
+         * @param mapName the map name
+         * @param factory the compressor factory
+         * @return this
+         */
+        public Builder compressor(String mapName, Supplier<? extends Compressor> factory) {
+            @SuppressWarnings("unchecked")
+            HashMap<String, Supplier<? extends Compressor>> factories =
+                    (HashMap<String, Supplier<? extends Compressor>>) config.get("mapCompressors");
+            if (factories == null) {
+                factories = new HashMap<>();
+                set("mapCompressors", factories);
+            }
+            factories.put(mapName, factory);
+            return this;
+        }
+
         /**
          * Set the amount of memory a page should contain at most, in bytes,
          * before it is split. The default is 16 KB for persistent stores and 4
@@ -3567,6 +4012,45 @@ public Builder pageSplitSize(int pageSplitSize) {
             return set("pageSplitSize", pageSplitSize);
         }
 
+        /**
+         * Set the number of threads used to serialize and compress the
+         * changed pages when storing a chunk. The default is 1, meaning the
+         * pages are serialized by the thread that stores the changes.
+         * Using more threads mainly helps if compression is enabled and many
+         * pages are changed between stores.
+         *
+         * @param parallelism the number of threads
+         * @return this
+         */
+        public Builder serializationParallelism(int parallelism) {
+            return set("serializationParallelism", parallelism);
+        }
+
+        /**
+         * Set the time a thread that syncs a group commit waits for other
+         * threads to join, in microseconds. The default is 0, meaning only
+         * threads that started to wait while the previous group commit was
+         * in progress are included. See {@link MVStore#syncCommit()}.
+         *
+         * @param micros the delay in microseconds
+         * @return this
+         */
+        public Builder groupCommitDelay(int micros) {
+            return set("groupCommitDelay", micros);
+        }
+
+        /**
+         * Set the number of waiting threads after which a group commit is
+         * started without waiting for the group commit delay to expire. The
+         * default is 16.
+         *
+         * @param size the number of threads
+         * @return this
+         */
+        public Builder groupCommitSize(int size) {
+            return set("groupCommitSize", size);
+        }
+
         /**
          * Set the listener to be used for exceptions that occur when writing in
          * the background thread.
@@ -18,6 +18,7 @@
 import java.util.TreeMap;
 
 import org.h2.compress.CompressDeflate;
+import org.h2.compress.CompressLZ4;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
 import org.h2.engine.Constants;
@@ -233,8 +234,19 @@ public static void dump(String fileName, Writer writer, boolean details) {
                     if (mapId == 0 && details) {
                         ByteBuffer data;
                         if (compressed) {
-                            boolean fast = (type & DataUtils.PAGE_COMPRESSED_HIGH) != DataUtils.PAGE_COMPRESSED_HIGH;
-                            Compressor compressor = getCompressor(fast);
+                            int algorithm;
+                            if ((type & DataUtils.PAGE_COMPRESSED_ALGORITHM) == DataUtils.PAGE_COMPRESSED_ALGORITHM) {
+                                algorithm = chunk.get() & 255;
+                            } else if ((type & DataUtils.PAGE_COMPRESSED_HIGH) == DataUtils.PAGE_COMPRESSED_HIGH) {
+                                algorithm = Compressor.DEFLATE;
+                            } else {
+                                algorithm = Compressor.LZF;
+                            }
+                            Compressor compressor = getCompressor(algorithm);
+                            if (compressor == null) {
+                                pw.printf("    unknown compression algorithm %d%n", algorithm);
+                                continue;
+                            }
                             int lenAdd = DataUtils.readVarInt(chunk);
                             int compLen = pageSize + start - chunk.position();
                             byte[] comp = Utils.newBytes(compLen);
@@ -336,8 +348,17 @@ public static void dump(String fileName, Writer writer, boolean details) {
         pw.flush();
     }
 
-    private static Compressor getCompressor(boolean fast) {
-        return fast ? new CompressLZF() : new CompressDeflate();
+    private static Compressor getCompressor(int algorithm) {
+        switch (algorithm) {
+        case Compressor.LZF:
+            return new CompressLZF();
+        case Compressor.DEFLATE:
+            return new CompressDeflate();
+        case Compressor.LZ4:
+            return new CompressLZ4();
+        default:
+            return null;
+        }
     }
 
     /**
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.h2.store.fs.FilePath;
+import org.h2.store.fs.FilePathDisk;
+import org.h2.store.fs.FilePathNio;
+
+/**
+ * A file store that reads pages directly from memory mapped regions of the
+ * file, without copying them to the heap first. Writes use the regular file
+ * channel. This is meant for read-mostly databases that fit in the page cache
+ * of the operating system.
+ * <p>
+ * The file is mapped in segments of 1 GB. A segment is mapped when it is
+ * first read, and mapped again when a read is past the end of the mapped
+ * region because the file has grown. Reads that span two segments, and all
+ * reads of encrypted files and of files that are not on disk, use the
+ * regular file channel. The segments are unmapped by the garbage collector,
+ * also when the store is closed or truncated.
+ */
+public class MappedFileStore extends FileStore {
+
+    private static final int SEGMENT_SHIFT = 30;
+
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    /**
+     * How long truncate() waits for the garbage collector to unmap the
+     * segments past the new end of the file, if they prevent truncation.
+     */
+    private static final long UNMAP_TIMEOUT_MS = 10_000;
+
+    /**
+     * The read-only channel used to map the file, or null if the file can't
+     * be mapped.
+     */
+    private volatile FileChannel mappedFile;
+
+    /**
+     * The mapped segments (an entry is null if the segment is not mapped yet).
+     * The array is replaced when a segment is mapped, so that it can be read
+     * without synchronization.
+     */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    @Override
+    public void open(String fileName, boolean readOnly, char[] encryptionKey) {
+        super.open(fileName, readOnly, encryptionKey);
+        if (encryptionKey != null || mappedFile != null) {
+            return;
+        }
+        FilePath p = FilePath.get(getFileName());
+        if (p instanceof FilePathNio) {
+            p = p.unwrap();
+        }
+        if (p instanceof FilePathDisk) {
+            try {
+                mappedFile = FileChannel.open(Paths.get(p.toString()), StandardOpenOption.READ);
+            } catch (IOException e) {
+                try { close(); } catch (Exception ignore) {}
+                throw DataUtils.newIllegalStateException(
+                        DataUtils.ERROR_READING_FAILED,
+                        "Could not open file {0}", fileName, e);
+            }
+        }
+    }
+
+    @Override
+    public ByteBuffer readFully(long pos, int len) {
+        if (mappedFile != null) {
+            int offset = (int) (pos & (SEGMENT_SIZE - 1));
+            int end = offset + len;
+            if (end <= SEGMENT_SIZE && end >= 0) {
+                ByteBuffer segment = getSegment((int) (pos >>> SEGMENT_SHIFT), end);
+                if (segment != null) {
+                    ByteBuffer buff = segment.duplicate();
+                    buff.limit(end);
+                    buff.position(offset);
+                    readCount.incrementAndGet();
+                    readBytes.addAndGet(len);
+                    return buff.slice();
+                }
+            }
+        }
+        return super.readFully(pos, len);
+    }
+
+    private ByteBuffer getSegment(int index, int end) {
+        MappedByteBuffer[] s = segments;
+        if (index < s.length) {
+            MappedByteBuffer segment = s[index];
+            if (segment != null && segment.capacity() >= end) {
+                return segment;
+            }
+        }
+        return map(index, end);
+    }
+
+    /**
+     * Map a segment, or map it again if the mapped region is too small.
+     *
+     * @param index the segment index
+     * @param end the end of the region within the segment that is read
+     * @return the mapped segment, or null if the region is past the end of
+     *         the file
+     */
+    private synchronized ByteBuffer map(int index, int end) {
+        MappedByteBuffer[] s = segments;
+        if (index < s.length && s[index] != null && s[index].capacity() >= end) {
+            return s[index];
+        }
+        if (mappedFile == null) {
+            return null;
+        }
+        long start = (long) index << SEGMENT_SHIFT;
+        try {
+            long size = Math.min(mappedFile.size() - start, SEGMENT_SIZE);
+            if (size < end) {
+                return null;
+            }
+            // a segment that is replaced is unmapped by the garbage collector,
+            // as other threads might still read from it
+            MappedByteBuffer segment = mappedFile.map(MapMode.READ_ONLY, start, size);
+            s = Arrays.copyOf(s, Math.max(s.length, index + 1));
+            s[index] = segment;
+            segments = s;
+            return segment;
+        } catch (IOException e) {
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_READING_FAILED,
+                    "Could not map file {0} at position {1}", getFileName(), start, e);
+        }
+    }
+
+    @Override
+    public synchronized void truncate(long size) {
+        // the mapped regions past the new end of the file must not be read
+        MappedByteBuffer[] s = segments;
+        int keep = (int) Math.min(s.length, size >>> SEGMENT_SHIFT);
+        ArrayList<WeakReference<MappedByteBuffer>> dropped = new ArrayList<>();
+        for (int i = keep; i < s.length; i++) {
+            if (s[i] != null) {
+                dropped.add(new WeakReference<>(s[i]));
+            }
+        }
+        segments = Arrays.copyOf(s, keep);
+        // the dropped segments must not stay reachable from here
+        s = null;
+        try {
+            super.truncate(size);
+        } catch (IllegalStateException e) {
+            // some platforms (Windows) can't truncate a file while a region
+            // past the new end is mapped; wait until the garbage collector
+            // has unmapped the dropped segments, they are not unmapped
+            // explicitly as readers might still use slices of them
+            if (dropped.isEmpty() || !awaitUnmapped(dropped)) {
+                throw e;
+            }
+            super.truncate(size);
+        }
+    }
+
+    private static boolean awaitUnmapped(ArrayList<WeakReference<MappedByteBuffer>> dropped) {
+        long start = System.nanoTime();
+        for (WeakReference<MappedByteBuffer> ref : dropped) {
+            while (ref.get() != null) {
+                if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(UNMAP_TIMEOUT_MS)) {
+                    return false;
+                }
+                System.gc();
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } finally {
+            synchronized (this) {
+                // the segments are not unmapped explicitly, as other threads
+                // might still read from slices of them; accessing an unmapped
+                // buffer would crash the process, so the garbage collector
+                // unmaps them once they are no longer referenced
+                segments = new MappedByteBuffer[0];
+                if (mappedFile != null) {
+                    try { mappedFile.close(); } catch (Exception ignore) {}
+                    mappedFile = null;
+                }
+            }
+        }
+    }
+
+}
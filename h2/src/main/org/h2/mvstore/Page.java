@@ -11,9 +11,12 @@
 import static org.h2.mvstore.DataUtils.PAGE_TYPE_LEAF;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.h2.compress.Compressor;
 import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.LongKeyType;
 import org.h2.util.Utils;
 
 /**
@@ -27,7 +30,9 @@
  * check value: short
  * map id: varInt
  * number of keys: varInt
- * type: byte (0: leaf, 1: node; +2: compressed)
+ * type: byte (0: leaf, 1: node; +2: compressed; +4: DEFLATE instead of LZF;
+ * +8: the compression algorithm follows)
+ * compression algorithm: byte (if stored, see Compressor.getAlgorithm)
  * compressed: bytes saved (varInt)
  * keys
  * leaf: values (one for each key)
@@ -70,10 +75,15 @@ public abstract class Page implements Cloneable
     private int diskSpaceUsed;
 
     /**
-     * The keys.
+     * The keys, or null if the map has a {@link LongKeyType}.
      */
     private Object[] keys;
 
+    /**
+     * The keys if the map has a {@link LongKeyType}, or null.
+     */
+    private long[] longKeys;
+
     /**
      * Updater for pos field, which can be updated when page is saved,
      * but can be concurrently marked as removed
@@ -115,6 +125,11 @@ public abstract class Page implements Cloneable
      */
     private static final Object[] EMPTY_OBJECT_ARRAY = new Object[0];
 
+    /**
+     * An empty long array.
+     */
+    private static final long[] EMPTY_LONG_ARRAY = new long[0];
+
     /**
      * Marker value for memory field, meaning that memory accounting is replaced by key count.
      */
@@ -128,13 +143,25 @@ public abstract class Page implements Cloneable
     }
 
     Page(MVMap<?, ?> map, Page source) {
-        this(map, source.keys);
+        this.map = map;
+        keys = source.keys;
+        longKeys = source.longKeys;
         memory = source.memory;
     }
 
     Page(MVMap<?, ?> map, Object[] keys) {
         this.map = map;
-        this.keys = keys;
+        LongKeyType longKeyType = map.getLongKeyType();
+        if (longKeyType == null) {
+            this.keys = keys;
+        } else {
+            int keyCount = keys.length;
+            long[] k = keyCount == 0 ? EMPTY_LONG_ARRAY : new long[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                k[i] = longKeyType.toLong(keys[i]);
+            }
+            longKeys = k;
+        }
     }
 
     /**
@@ -192,7 +219,7 @@ static Page createLeaf(MVMap<?, ?> map, Object[] keys, Object[] values, int memo
         return page;
     }
 
-    private void initMemoryAccount(int memoryCount) {
+    final void initMemoryAccount(int memoryCount) {
         if(!map.isPersistent()) {
             memory = IN_MEMORY;
         } else if (memoryCount == 0) {
@@ -267,7 +294,8 @@ public final int getMapId() {
      * @return the key
      */
     public Object getKey(int index) {
-        return keys[index];
+        long[] k = longKeys;
+        return k == null ? keys[index] : map.getLongKeyType().fromLong(k[index]);
     }
 
     /**
@@ -300,7 +328,8 @@ public Object getKey(int index) {
      * @return the number of keys
      */
     public final int getKeyCount() {
-        return keys.length;
+        long[] k = longKeys;
+        return k == null ? keys.length : k.length;
     }
 
     /**
@@ -378,6 +407,9 @@ protected final Page clone() {
      * @return the value or null
      */
     int binarySearch(Object key) {
+        if (longKeys != null) {
+            return binarySearch(map.getLongKeyType().toLong(key));
+        }
         int low = 0, high = getKeyCount() - 1;
         // the cached index minus one, so that
         // for the first time (when cachedCompare is 0),
@@ -403,6 +435,36 @@ int binarySearch(Object key) {
         return -(low + 1);
     }
 
+    /**
+     * Search the key in the long keys of this page. See
+     * {@link #binarySearch(Object)}.
+     *
+     * @param key the key
+     * @return the index, or a negative value if not found
+     */
+    private int binarySearch(long key) {
+        long[] k = longKeys;
+        int low = 0, high = k.length - 1;
+        int x = cachedCompare - 1;
+        if (x < 0 || x > high) {
+            x = high >>> 1;
+        }
+        while (low <= high) {
+            long y = k[x];
+            if (key > y) {
+                low = x + 1;
+            } else if (key < y) {
+                high = x - 1;
+            } else {
+                cachedCompare = x + 1;
+                return x;
+            }
+            x = (low + high) >>> 1;
+        }
+        cachedCompare = low;
+        return -(low + 1);
+    }
+
     /**
      * Split the page. This modifies the current page.
      *
@@ -416,16 +478,26 @@ int binarySearch(Object key) {
      *
      * @param aCount size of the first array.
      * @param bCount size of the second array/
-     * @return the second array.
-     */
-    final Object[] splitKeys(int aCount, int bCount) {
-        assert aCount + bCount <= getKeyCount();
-        Object[] aKeys = createKeyStorage(aCount);
-        Object[] bKeys = createKeyStorage(bCount);
-        System.arraycopy(keys, 0, aKeys, 0, aCount);
-        System.arraycopy(keys, getKeyCount() - bCount, bKeys, 0, bCount);
-        keys = aKeys;
-        return bKeys;
+     * @param target the page that gets the second array
+     */
+    final void splitKeys(int aCount, int bCount, Page target) {
+        int keyCount = getKeyCount();
+        assert aCount + bCount <= keyCount;
+        if (longKeys != null) {
+            long[] aKeys = new long[aCount];
+            long[] bKeys = new long[bCount];
+            System.arraycopy(longKeys, 0, aKeys, 0, aCount);
+            System.arraycopy(longKeys, keyCount - bCount, bKeys, 0, bCount);
+            longKeys = aKeys;
+            target.longKeys = bKeys;
+        } else {
+            Object[] aKeys = createKeyStorage(aCount);
+            Object[] bKeys = createKeyStorage(bCount);
+            System.arraycopy(keys, 0, aKeys, 0, aCount);
+            System.arraycopy(keys, keyCount - bCount, bKeys, 0, bCount);
+            keys = aKeys;
+            target.keys = bKeys;
+        }
     }
 
     /**
@@ -446,6 +518,15 @@ final Object[] splitKeys(int aCount, int bCount) {
      */
     final void expandKeys(int extraKeyCount, Object[] extraKeys) {
         int keyCount = getKeyCount();
+        if (longKeys != null) {
+            LongKeyType longKeyType = map.getLongKeyType();
+            long[] newKeys = Arrays.copyOf(longKeys, keyCount + extraKeyCount);
+            for (int i = 0; i < extraKeyCount; i++) {
+                newKeys[keyCount + i] = longKeyType.toLong(extraKeys[i]);
+            }
+            longKeys = newKeys;
+            return;
+        }
         Object[] newKeys = createKeyStorage(keyCount + extraKeyCount);
         System.arraycopy(keys, 0, newKeys, 0, keyCount);
         System.arraycopy(extraKeys, 0, newKeys, keyCount, extraKeyCount);
@@ -482,6 +563,11 @@ final void expandKeys(int extraKeyCount, Object[] extraKeys) {
      * @param key the new key
      */
     public final void setKey(int index, Object key) {
+        if (longKeys != null) {
+            longKeys = longKeys.clone();
+            longKeys[index] = map.getLongKeyType().toLong(key);
+            return;
+        }
         keys = keys.clone();
         if(isPersistent()) {
             Object old = keys[index];
@@ -531,6 +617,16 @@ public final void setKey(int index, Object key) {
     final void insertKey(int index, Object key) {
         int keyCount = getKeyCount();
         assert index <= keyCount : index + " > " + keyCount;
+        if (longKeys != null) {
+            long[] newKeys = new long[keyCount + 1];
+            DataUtils.copyWithGap(longKeys, newKeys, keyCount, index);
+            newKeys[index] = map.getLongKeyType().toLong(key);
+            longKeys = newKeys;
+            if (isPersistent()) {
+                addMemory(8);
+            }
+            return;
+        }
         Object[] newKeys = createKeyStorage(keyCount + 1);
         DataUtils.copyWithGap(keys, newKeys, keyCount, index);
         keys = newKeys;
@@ -553,6 +649,15 @@ public void remove(int index) {
         if (index == keyCount) {
             --index;
         }
+        if (longKeys != null) {
+            long[] newKeys = new long[keyCount - 1];
+            DataUtils.copyExcept(longKeys, newKeys, keyCount, index);
+            longKeys = newKeys;
+            if (isPersistent()) {
+                addMemory(-8);
+            }
+            return;
+        }
         if(isPersistent()) {
             Object old = getKey(index);
             addMemory(-MEMORY_POINTER - keyType.getMemory(old));
@@ -573,7 +678,12 @@ private void read(ByteBuffer buff, int chunkId) {
         // mapId already
         int pageLength = buff.remaining() + 10;
         int len = DataUtils.readVarInt(buff);
-        keys = createKeyStorage(len);
+        LongKeyType longKeyType = map.getLongKeyType();
+        if (longKeyType != null) {
+            longKeys = new long[len];
+        } else {
+            keys = createKeyStorage(len);
+        }
         int type = buff.get();
         if(isLeaf() != ((type & 1) == PAGE_TYPE_LEAF)) {
             throw DataUtils.newIllegalStateException(
@@ -586,13 +696,17 @@ private void read(ByteBuffer buff, int chunkId) {
         }
         boolean compressed = (type & DataUtils.PAGE_COMPRESSED) != 0;
         if (compressed) {
-            Compressor compressor;
-            if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
+            int algorithm;
+            if ((type & DataUtils.PAGE_COMPRESSED_ALGORITHM) ==
+                    DataUtils.PAGE_COMPRESSED_ALGORITHM) {
+                algorithm = buff.get() & 255;
+            } else if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
                     DataUtils.PAGE_COMPRESSED_HIGH) {
-                compressor = map.getStore().getCompressorHigh();
+                algorithm = Compressor.DEFLATE;
             } else {
-                compressor = map.getStore().getCompressorFast();
+                algorithm = Compressor.LZF;
             }
+            Compressor compressor = map.getStore().getExpander(map, algorithm);
             int lenAdd = DataUtils.readVarInt(buff);
             int compLen = buff.remaining();
             byte[] comp = Utils.newBytes(compLen);
@@ -602,7 +716,11 @@ private void read(ByteBuffer buff, int chunkId) {
             compressor.expand(comp, 0, compLen, buff.array(),
                     buff.arrayOffset(), l);
         }
-        map.getKeyType().read(buff, keys, len, true);
+        if (longKeyType != null) {
+            longKeyType.readKeys(buff, longKeys, len);
+        } else {
+            map.getKeyType().read(buff, keys, len, true);
+        }
         if (isLeaf()) {
             readPayLoad(buff);
         }
@@ -652,9 +770,11 @@ private boolean markAsRemoved() {
      *
      * @param chunk the chunk
      * @param buff the target buffer
+     * @param serialized the keys and values of pages that were already
+     *            serialized by {@link #serialize}, or null
      * @return the position of the buffer just after the type
      */
-    protected final int write(Chunk chunk, WriteBuffer buff) {
+    protected final int write(Chunk chunk, WriteBuffer buff, Map<Page, byte[]> serialized) {
         int start = buff.position();
         int len = getKeyCount();
         int type = isLeaf() ? PAGE_TYPE_LEAF : DataUtils.PAGE_TYPE_NODE;
@@ -663,37 +783,21 @@ protected final int write(Chunk chunk, WriteBuffer buff) {
             putVarInt(map.getId()).
             putVarInt(len);
         int typePos = buff.position();
-        buff.put((byte) type);
-        writeChildren(buff, true);
-        int compressStart = buff.position();
-        map.getKeyType().write(buff, keys, len, true);
-        writeValues(buff);
         MVStore store = map.getStore();
-        int expLen = buff.position() - compressStart;
-        if (expLen > 16) {
-            int compressionLevel = store.getCompressionLevel();
-            if (compressionLevel > 0) {
-                Compressor compressor;
-                int compressType;
-                if (compressionLevel == 1) {
-                    compressor = map.getStore().getCompressorFast();
-                    compressType = DataUtils.PAGE_COMPRESSED;
-                } else {
-                    compressor = map.getStore().getCompressorHigh();
-                    compressType = DataUtils.PAGE_COMPRESSED_HIGH;
-                }
-                byte[] exp = new byte[expLen];
-                buff.position(compressStart).get(exp);
-                byte[] comp = new byte[expLen * 2];
-                int compLen = compressor.compress(exp, expLen, comp, 0);
-                int plus = DataUtils.getVarIntLen(compLen - expLen);
-                if (compLen + plus < expLen) {
-                    buff.position(typePos).
-                        put((byte) (type + compressType));
-                    buff.position(compressStart).
-                        putVarInt(expLen - compLen).
-                        put(comp, 0, compLen);
-                }
+        byte[] data = serialized == null ? null : serialized.get(this);
+        if (data != null) {
+            buff.put((byte) (type + data[0]));
+            writeChildren(buff, true);
+            buff.put(data, 1, data.length - 1);
+        } else {
+            buff.put((byte) type);
+            writeChildren(buff, true);
+            int compressType = writeData(buff, store.getCompressor(map));
+            if (compressType != 0) {
+                int end = buff.position();
+                buff.position(typePos).
+                    put((byte) (type + compressType));
+                buff.position(end);
             }
         }
         int pageLength = buff.position() - start;
@@ -728,6 +832,74 @@ protected final int write(Chunk chunk, WriteBuffer buff) {
         return typePos + 1;
     }
 
+    /**
+     * Serialize the keys and values of this page, so that they can be copied
+     * to the chunk by {@link #write} later on. The page itself is not
+     * modified, so different pages may be serialized concurrently, as long
+     * as each thread uses its own buffer and compressor.
+     *
+     * @param buff the buffer to use, its content is discarded
+     * @param compressor the compressor, or null to not compress
+     * @return the compression type (0 if not compressed), followed by the
+     *         serialized data
+     */
+    final byte[] serialize(WriteBuffer buff, Compressor compressor) {
+        buff.clear();
+        buff.put((byte) 0);
+        byte type = (byte) writeData(buff, compressor);
+        byte[] data = new byte[buff.position()];
+        buff.position(0).get(data);
+        data[0] = type;
+        return data;
+    }
+
+    /**
+     * Write the keys and values to the buff, and compress them if possible.
+     *
+     * @param buff the target buffer
+     * @param compressor the compressor, or null to not compress
+     * @return the compression type, or 0 if the data is not compressed
+     */
+    private int writeData(WriteBuffer buff, Compressor compressor) {
+        int compressStart = buff.position();
+        if (longKeys != null) {
+            map.getLongKeyType().writeKeys(buff, longKeys, getKeyCount());
+        } else {
+            map.getKeyType().write(buff, keys, getKeyCount(), true);
+        }
+        writeValues(buff);
+        int expLen = buff.position() - compressStart;
+        if (expLen > 16 && compressor != null) {
+            byte[] exp = new byte[expLen];
+            buff.position(compressStart).get(exp);
+            byte[] comp = new byte[expLen * 2];
+            int compLen = compressor.compress(exp, expLen, comp, 0);
+            int algorithm = compressor.getAlgorithm();
+            int compressType;
+            if (algorithm == Compressor.LZF) {
+                compressType = DataUtils.PAGE_COMPRESSED;
+            } else if (algorithm == Compressor.DEFLATE) {
+                compressType = DataUtils.PAGE_COMPRESSED_HIGH;
+            } else {
+                compressType = DataUtils.PAGE_COMPRESSED_ALGORITHM;
+            }
+            int plus = DataUtils.getVarIntLen(compLen - expLen);
+            if (compressType == DataUtils.PAGE_COMPRESSED_ALGORITHM) {
+                plus++;
+            }
+            if (compLen + plus < expLen) {
+                buff.position(compressStart);
+                if (compressType == DataUtils.PAGE_COMPRESSED_ALGORITHM) {
+                    buff.put((byte) algorithm);
+                }
+                buff.putVarInt(expLen - compLen).
+                    put(comp, 0, compLen);
+                return compressType;
+            }
+        }
+        return 0;
+    }
+
     /**
      * Write values that the buffer contains to the buff.
      *
@@ -749,8 +921,18 @@ protected final int write(Chunk chunk, WriteBuffer buff) {
      *
      * @param chunk the chunk
      * @param buff the target buffer
+     * @param serialized the keys and values of pages that were already
+     *            serialized, or null
      */
-    abstract void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff);
+    abstract void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, Map<Page, byte[]> serialized);
+
+    /**
+     * Add this page and all children that are changed to the list, in the
+     * order they are stored by {@link #writeUnsavedRecursive}.
+     *
+     * @param target the list of pages to store
+     */
+    abstract void collectUnsavedRecursive(List<Page> target);
 
     /**
      * Unlink the children recursively after all data is written.
@@ -827,6 +1009,9 @@ final void recalculateMemory() {
      */
     protected int calculateMemory() {
         int keyCount = getKeyCount();
+        if (longKeys != null) {
+            return keyCount * 8;
+        }
         int mem = keyCount * MEMORY_POINTER;
         DataType keyType = map.getKeyType();
         for (int i = 0; i < keyCount; i++) {
@@ -1061,7 +1246,8 @@ public Object getValue(int index) {
         public Page split(int at) {
             assert !isSaved();
             int b = getKeyCount() - at;
-            Object[] bKeys = splitKeys(at, b - 1);
+            NonLeaf newPage = new NonLeaf(map);
+            splitKeys(at, b - 1, newPage);
             PageReference[] aChildren = new PageReference[at + 1];
             PageReference[] bChildren = new PageReference[b];
             System.arraycopy(children, 0, aChildren, 0, at + 1);
@@ -1077,7 +1263,9 @@ public Page split(int at) {
             for (PageReference x : bChildren) {
                 t += x.count;
             }
-            Page newPage = createNode(map, bKeys, bChildren, t, 0);
+            newPage.children = bChildren;
+            newPage.totalCount = t;
+            newPage.initMemoryAccount(0);
             if(isPersistent()) {
                 recalculateMemory();
             }
@@ -1236,10 +1424,10 @@ protected void writeChildren(WriteBuffer buff, boolean withCounts) {
         }
 
         @Override
-        void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff) {
+        void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, Map<Page, byte[]> serialized) {
             if (!isSaved()) {
-                int patch = write(chunk, buff);
-                writeChildrenRecursive(chunk, buff);
+                int patch = write(chunk, buff, serialized);
+                writeChildrenRecursive(chunk, buff, serialized);
                 int old = buff.position();
                 buff.position(patch);
                 writeChildren(buff, false);
@@ -1247,18 +1435,36 @@ void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff) {
             }
         }
 
-        void writeChildrenRecursive(Chunk chunk, WriteBuffer buff) {
+        void writeChildrenRecursive(Chunk chunk, WriteBuffer buff, Map<Page, byte[]> serialized) {
             int len = getRawChildPageCount();
             for (int i = 0; i < len; i++) {
                 PageReference ref = children[i];
                 Page p = ref.getPage();
                 if (p != null) {
-                    p.writeUnsavedRecursive(chunk, buff);
+                    p.writeUnsavedRecursive(chunk, buff, serialized);
                     ref.resetPos();
                 }
             }
         }
 
+        @Override
+        void collectUnsavedRecursive(List<Page> target) {
+            if (!isSaved()) {
+                target.add(this);
+                collectChildrenRecursive(target);
+            }
+        }
+
+        void collectChildrenRecursive(List<Page> target) {
+            int len = getRawChildPageCount();
+            for (int i = 0; i < len; i++) {
+                Page p = children[i].getPage();
+                if (p != null) {
+                    p.collectUnsavedRecursive(target);
+                }
+            }
+        }
+
         @Override
         void writeEnd() {
             int len = getRawChildPageCount();
@@ -1311,11 +1517,20 @@ private static PageReference[] constructEmptyPageRefs(int size) {
         }
 
         @Override
-        void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff) {
+        void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, Map<Page, byte[]> serialized) {
             if (complete) {
-                super.writeUnsavedRecursive(chunk, buff);
+                super.writeUnsavedRecursive(chunk, buff, serialized);
             } else if (!isSaved()) {
-                writeChildrenRecursive(chunk, buff);
+                writeChildrenRecursive(chunk, buff, serialized);
+            }
+        }
+
+        @Override
+        void collectUnsavedRecursive(List<Page> target) {
+            if (complete) {
+                super.collectUnsavedRecursive(target);
+            } else if (!isSaved()) {
+                collectChildrenRecursive(target);
             }
         }
 
@@ -1389,7 +1604,8 @@ public Object getValue(int index) {
         public Page split(int at) {
             assert !isSaved();
             int b = getKeyCount() - at;
-            Object[] bKeys = splitKeys(at, b);
+            Leaf newPage = new Leaf(map);
+            splitKeys(at, b, newPage);
             Object[] bValues = createValueStorage(b);
             if(values != null) {
                 Object[] aValues = createValueStorage(at);
@@ -1397,7 +1613,8 @@ public Page split(int at) {
                 System.arraycopy(values, at, bValues, 0, b);
                 values = aValues;
             }
-            Page newPage = createLeaf(map, bKeys, bValues, 0);
+            newPage.values = bValues;
+            newPage.initMemoryAccount(0);
             if(isPersistent()) {
                 recalculateMemory();
             }
@@ -1520,9 +1737,16 @@ protected void writeValues(WriteBuffer buff) {
         protected void writeChildren(WriteBuffer buff, boolean withCounts) {}
 
         @Override
-        void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff) {
+        void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, Map<Page, byte[]> serialized) {
+            if (!isSaved()) {
+                write(chunk, buff, serialized);
+            }
+        }
+
+        @Override
+        void collectUnsavedRecursive(List<Page> target) {
             if (!isSaved()) {
-                write(chunk, buff);
+                target.add(this);
             }
         }
 
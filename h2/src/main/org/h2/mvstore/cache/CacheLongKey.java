@@ -0,0 +1,96 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+/**
+ * A cache that uses keys of type long, and where each entry is assigned a
+ * distinct memory size. Implementations are multi-threading safe.
+ *
+ * @param <V> the value type
+ */
+public interface CacheLongKey<V> {
+
+    /**
+     * Get the value for the given key if the entry is cached.
+     *
+     * @param key the key
+     * @return the value, or null if there is no resident entry
+     */
+    V get(long key);
+
+    /**
+     * Add an entry to the cache. The entry may or may not exist in the
+     * cache yet.
+     *
+     * @param key the key
+     * @param value the value (may not be null)
+     * @param memory the memory used for the given entry
+     * @return the old value, or null if there was no resident entry
+     */
+    V put(long key, V value, int memory);
+
+    /**
+     * Remove an entry.
+     *
+     * @param key the key
+     * @return the old value, or null if there was no resident entry
+     */
+    V remove(long key);
+
+    /**
+     * Remove all entries.
+     */
+    void clear();
+
+    /**
+     * Get the number of resident entries.
+     *
+     * @return the number of entries
+     */
+    int size();
+
+    /**
+     * Determines max size of the data item size to fit into cache
+     * @return data items size limit
+     */
+    long getMaxItemSize();
+
+    /**
+     * Get the currently used memory.
+     *
+     * @return the used memory
+     */
+    long getUsedMemory();
+
+    /**
+     * Set the maximum memory this cache should use.
+     *
+     * @param maxMemory the maximum size (1 or larger) in bytes
+     */
+    void setMaxMemory(long maxMemory);
+
+    /**
+     * Get the maximum memory to use.
+     *
+     * @return the maximum memory
+     */
+    long getMaxMemory();
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the cache hits
+     */
+    long getHits();
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the cache misses
+     */
+    long getMisses();
+
+}
@@ -43,7 +43,12 @@
  * @author Thomas Mueller
  * @param <V> the value type
  */
-public class CacheLongKeyLIRS<V> {
+public class CacheLongKeyLIRS<V> implements CacheLongKey<V> {
+
+    /**
+     * The type name.
+     */
+    public static final String TYPE_NAME = "LIRS";
 
     /**
      * The maximum memory this cache should use.
@@ -84,6 +89,7 @@ public CacheLongKeyLIRS(Config config) {
     /**
      * Remove all entries.
      */
+    @Override
     public void clear() {
         long max = getMaxItemSize();
         for (int i = 0; i < segmentCount; i++) {
@@ -96,6 +102,7 @@ public void clear() {
      * Determines max size of the data item size to fit into cache
      * @return data items size limit
      */
+    @Override
     public long getMaxItemSize() {
         return Math.max(1, maxMemory / segmentCount);
     }
@@ -150,6 +157,7 @@ public V put(long key, V value) {
      * @param memory the memory used for the given entry
      * @return the old value, or null if there was no resident entry
      */
+    @Override
     public V put(long key, V value, int memory) {
         if (value == null) {
             throw DataUtils.newIllegalArgumentException(
@@ -201,6 +209,7 @@ protected int sizeOf(V value) {
      * @param key the key (may not be null)
      * @return the old value, or null if there was no resident entry
      */
+    @Override
     public V remove(long key) {
         int hash = getHash(key);
         int segmentIndex = getSegmentIndex(hash);
@@ -233,6 +242,7 @@ public int getMemory(long key) {
      * @param key the key (may not be null)
      * @return the value, or null if there is no resident entry
      */
+    @Override
     public V get(long key) {
         int hash = getHash(key);
         Segment<V> s = getSegment(hash);
@@ -270,6 +280,7 @@ static int getHash(long key) {
      *
      * @return the used memory
      */
+    @Override
     public long getUsedMemory() {
         long x = 0;
         for (Segment<V> s : segments) {
@@ -285,6 +296,7 @@ public long getUsedMemory() {
      *
      * @param maxMemory the maximum size (1 or larger) in bytes
      */
+    @Override
     public void setMaxMemory(long maxMemory) {
         DataUtils.checkArgument(
                 maxMemory > 0,
@@ -303,6 +315,7 @@ public void setMaxMemory(long maxMemory) {
      *
      * @return the maximum memory
      */
+    @Override
     public long getMaxMemory() {
         return maxMemory;
     }
@@ -380,6 +393,7 @@ public int sizeHot() {
      *
      * @return the cache hits
      */
+    @Override
     public long getHits() {
         long x = 0;
         for (Segment<V> s : segments) {
@@ -393,6 +407,7 @@ public long getHits() {
      *
      * @return the cache misses
      */
+    @Override
     public long getMisses() {
         int x = 0;
         for (Segment<V> s : segments) {
@@ -406,6 +421,7 @@ public long getMisses() {
      *
      * @return the number of entries
      */
+    @Override
     public int size() {
         int x = 0;
         for (Segment<V> s : segments) {
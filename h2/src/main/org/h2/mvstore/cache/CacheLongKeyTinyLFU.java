@@ -0,0 +1,597 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.h2.mvstore.DataUtils;
+import org.h2.util.MathUtils;
+
+/**
+ * A cache that uses keys of type long, where reading an entry does not need
+ * a lock. It is an alternative to {@link CacheLongKeyLIRS} for read-heavy
+ * workloads with many threads.
+ * <p>
+ * The replacement policy is an approximation of W-TinyLFU as described in
+ * "TinyLFU: A Highly Efficient Cache Admission Policy" by Gil Einziger, Roy
+ * Friedman and Ben Manes: new entries are added to a small LRU window (1% of
+ * the memory). Entries evicted from the window are only admitted to the main
+ * area (a segmented LRU with a probation and a protected part) if they were
+ * accessed more often than the entry they would replace. Access frequencies
+ * are estimated with a count-min sketch of 4-bit counters that are halved
+ * periodically.
+ * <p>
+ * Entries are kept in a concurrent hash map. A cache hit only records the
+ * access in one of a number of lossy ring buffers; the buffers are drained
+ * and the policy is updated by whichever thread manages to acquire the lock
+ * once a buffer is full, or by the next write. Adding and removing entries
+ * is done while holding the lock.
+ *
+ * @param <V> the value type
+ */
+public class CacheLongKeyTinyLFU<V> implements CacheLongKey<V> {
+
+    /**
+     * The type name.
+     */
+    public static final String TYPE_NAME = "TINYLFU";
+
+    /**
+     * The percentage of memory used for the window.
+     */
+    private static final int WINDOW_PERCENT = 1;
+
+    /**
+     * The percentage of memory of the main area used for the protected part.
+     */
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2,
+            REMOVED = 3;
+
+    private final ConcurrentHashMap<Long, Node<V>> map =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Lock that protects the policy, and writes to the map.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ReadBuffer<V>[] readBuffers;
+
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    /**
+     * The queues, each with a head entry. The entry after the head is the
+     * least recently used entry.
+     */
+    private final Node<V> window, probation, protectedQueue;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private volatile long maxMemory;
+
+    private volatile long usedMemory;
+
+    private long windowMemory, protectedMemory;
+
+    private long maxWindowMemory, maxProtectedMemory;
+
+    /**
+     * Create a new cache with the given memory size.
+     *
+     * @param maxMemory the maximum memory to use (1 or larger)
+     */
+    @SuppressWarnings("unchecked")
+    public CacheLongKeyTinyLFU(long maxMemory) {
+        int count = MathUtils.nextPowerOf2(
+                4 * Runtime.getRuntime().availableProcessors());
+        readBuffers = new ReadBuffer[count];
+        for (int i = 0; i < count; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+        window = new Node<>();
+        probation = new Node<>();
+        protectedQueue = new Node<>();
+        setMaxMemory(maxMemory);
+    }
+
+    @Override
+    public V get(long key) {
+        Node<V> n = map.get(key);
+        if (n == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        ReadBuffer<V> buffer = readBuffers[CacheLongKeyLIRS.getHash(
+                Thread.currentThread().getId()) & (readBuffers.length - 1)];
+        if (buffer.offer(n) && lock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return n.value;
+    }
+
+    /**
+     * Get the value for the given key if the entry is cached. This method does
+     * not record the access.
+     *
+     * @param key the key
+     * @return the value, or null if there is no resident entry
+     */
+    public V peek(long key) {
+        Node<V> n = map.get(key);
+        return n == null ? null : n.value;
+    }
+
+    @Override
+    public V put(long key, V value, int memory) {
+        if (value == null) {
+            throw DataUtils.newIllegalArgumentException(
+                    "The value may not be null");
+        }
+        lock.lock();
+        try {
+            drainReadBuffers();
+            Node<V> old = map.remove(key);
+            if (old != null) {
+                unlink(old);
+            }
+            if (memory <= getMaxItemSize()) {
+                Node<V> n = new Node<>(key, value, memory);
+                map.put(key, n);
+                sketch.ensureCapacity(map.size());
+                sketch.increment(key);
+                n.queue = WINDOW;
+                addLast(window, n);
+                windowMemory += memory;
+                usedMemory += memory;
+                evict();
+            }
+            return old == null ? null : old.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(long key) {
+        lock.lock();
+        try {
+            Node<V> old = map.remove(key);
+            if (old == null) {
+                return null;
+            }
+            unlink(old);
+            return old.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            for (ReadBuffer<V> buffer : readBuffers) {
+                buffer.drain(null);
+            }
+            clear(window);
+            clear(probation);
+            clear(protectedQueue);
+            map.clear();
+            usedMemory = windowMemory = protectedMemory = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Determines max size of the data item size to fit into cache. This is
+     * 1/16 of the memory, the same as for a {@link CacheLongKeyLIRS} with
+     * the default number of segments.
+     *
+     * @return data items size limit
+     */
+    @Override
+    public long getMaxItemSize() {
+        return Math.max(1, maxMemory / 16);
+    }
+
+    @Override
+    public long getUsedMemory() {
+        return usedMemory;
+    }
+
+    @Override
+    public void setMaxMemory(long maxMemory) {
+        DataUtils.checkArgument(
+                maxMemory > 0,
+                "Max memory must be larger than 0, is {0}", maxMemory);
+        lock.lock();
+        try {
+            this.maxMemory = maxMemory;
+            maxWindowMemory = Math.max(1, maxMemory * WINDOW_PERCENT / 100);
+            maxProtectedMemory = (maxMemory - maxWindowMemory) * PROTECTED_PERCENT / 100;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void drainReadBuffers() {
+        for (ReadBuffer<V> buffer : readBuffers) {
+            buffer.drain(this);
+        }
+    }
+
+    /**
+     * Record an access to the given entry. The caller must hold the lock.
+     *
+     * @param n the entry
+     */
+    void onAccess(Node<V> n) {
+        switch (n.queue) {
+        case WINDOW:
+            sketch.increment(n.key);
+            moveToLast(window, n);
+            break;
+        case PROBATION:
+            sketch.increment(n.key);
+            removeNode(n);
+            n.queue = PROTECTED;
+            addLast(protectedQueue, n);
+            protectedMemory += n.memory;
+            while (protectedMemory > maxProtectedMemory) {
+                // demote the least recently used protected entries
+                Node<V> demoted = protectedQueue.next;
+                removeNode(demoted);
+                protectedMemory -= demoted.memory;
+                demoted.queue = PROBATION;
+                addLast(probation, demoted);
+            }
+            break;
+        case PROTECTED:
+            sketch.increment(n.key);
+            moveToLast(protectedQueue, n);
+            break;
+        default:
+            // the entry was removed in the meantime
+        }
+    }
+
+    private void evict() {
+        // move the least recently used window entries to the probation
+        // queue, where they are candidates for admission
+        Node<V> candidate = null;
+        while (windowMemory > maxWindowMemory) {
+            Node<V> n = window.next;
+            removeNode(n);
+            windowMemory -= n.memory;
+            n.queue = PROBATION;
+            addLast(probation, n);
+            if (candidate == null) {
+                candidate = n;
+            }
+        }
+        while (usedMemory > maxMemory) {
+            Node<V> victim = probation.next;
+            if (victim == probation) {
+                victim = protectedQueue.next;
+                if (victim == protectedQueue) {
+                    victim = window.next;
+                }
+                evict(victim);
+            } else if (candidate == null) {
+                evict(victim);
+            } else if (candidate == victim) {
+                candidate = next(probation, candidate);
+                evict(victim);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                Node<V> n = candidate;
+                candidate = next(probation, candidate);
+                evict(n);
+            }
+        }
+    }
+
+    private void evict(Node<V> n) {
+        map.remove(n.key, n);
+        unlink(n);
+    }
+
+    private void unlink(Node<V> n) {
+        if (n.queue == WINDOW) {
+            windowMemory -= n.memory;
+        } else if (n.queue == PROTECTED) {
+            protectedMemory -= n.memory;
+        }
+        removeNode(n);
+        n.queue = REMOVED;
+        usedMemory -= n.memory;
+    }
+
+    private static <V> Node<V> next(Node<V> head, Node<V> n) {
+        Node<V> next = n.next;
+        return next == head ? null : next;
+    }
+
+    private static <V> void addLast(Node<V> head, Node<V> n) {
+        Node<V> last = head.prev;
+        n.prev = last;
+        n.next = head;
+        last.next = n;
+        head.prev = n;
+    }
+
+    private static <V> void removeNode(Node<V> n) {
+        n.prev.next = n.next;
+        n.next.prev = n.prev;
+        n.prev = n.next = null;
+    }
+
+    private static <V> void moveToLast(Node<V> head, Node<V> n) {
+        if (head.prev != n) {
+            removeNode(n);
+            addLast(head, n);
+        }
+    }
+
+    private static <V> void clear(Node<V> head) {
+        for (Node<V> n = head.next; n != head;) {
+            Node<V> next = n.next;
+            n.queue = REMOVED;
+            n.prev = n.next = null;
+            n = next;
+        }
+        head.prev = head.next = head;
+    }
+
+    /**
+     * A cache entry. The links and the queue are only accessed while holding
+     * the lock.
+     *
+     * @param <V> the value type
+     */
+    static class Node<V> {
+
+        /**
+         * The key.
+         */
+        final long key;
+
+        /**
+         * The value.
+         */
+        final V value;
+
+        /**
+         * The estimated memory used.
+         */
+        final int memory;
+
+        /**
+         * The queue this entry is in.
+         */
+        int queue;
+
+        /**
+         * The previous and next entry in the queue.
+         */
+        Node<V> prev, next;
+
+        /**
+         * Create a new queue head.
+         */
+        Node() {
+            this(0L, null, 0);
+            prev = next = this;
+        }
+
+        Node(long key, V value, int memory) {
+            this.key = key;
+            this.value = value;
+            this.memory = memory;
+        }
+    }
+
+    /**
+     * A lossy ring buffer of recently read entries. Writers never block: if
+     * the buffer is full, or another thread added an entry concurrently, the
+     * access is not recorded.
+     *
+     * @param <V> the value type
+     */
+    private static final class ReadBuffer<V> {
+
+        private static final int SIZE = 16;
+
+        private final AtomicReferenceArray<Node<V>> buffer =
+                new AtomicReferenceArray<>(SIZE);
+
+        private final AtomicLong writeCounter = new AtomicLong();
+
+        /**
+         * The number of entries read so far, only changed while holding the
+         * lock.
+         */
+        private volatile long readCounter;
+
+        ReadBuffer() {
+        }
+
+        /**
+         * Record an access.
+         *
+         * @param n the entry
+         * @return true if the buffer is full and should be drained
+         */
+        boolean offer(Node<V> n) {
+            long w = writeCounter.get();
+            long size = w - readCounter;
+            if (size >= SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(w, w + 1)) {
+                buffer.lazySet((int) w & (SIZE - 1), n);
+                return size + 1 >= SIZE;
+            }
+            return false;
+        }
+
+        /**
+         * Apply the recorded accesses. The caller must hold the lock.
+         *
+         * @param cache the cache, or null to discard the entries
+         */
+        void drain(CacheLongKeyTinyLFU<V> cache) {
+            long r = readCounter;
+            long w = writeCounter.get();
+            for (; r < w; r++) {
+                int index = (int) r & (SIZE - 1);
+                Node<V> n = buffer.get(index);
+                if (n == null) {
+                    // not published yet
+                    break;
+                }
+                buffer.lazySet(index, null);
+                if (cache != null) {
+                    cache.onAccess(n);
+                }
+            }
+            readCounter = r;
+        }
+    }
+
+    /**
+     * A count-min sketch with four 4-bit counters per key, used to estimate
+     * how often a key was accessed recently. The counters are halved once the
+     * number of increments reaches ten times the table size, so that old
+     * accesses are forgotten. It is only used while holding the lock.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L,
+                0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private long[] table = new long[8];
+
+        private int sampleSize = 80;
+
+        private int size;
+
+        FrequencySketch() {
+        }
+
+        /**
+         * Grow the table if needed, so that it has about one counter per
+         * entry. This discards the collected frequencies.
+         *
+         * @param entries the number of entries in the cache
+         */
+        void ensureCapacity(int entries) {
+            if (entries <= table.length || table.length >= 1 << 28) {
+                return;
+            }
+            int len = MathUtils.nextPowerOf2(Math.min(entries, 1 << 28));
+            table = new long[len];
+            sampleSize = 10 * len;
+            size = 0;
+        }
+
+        /**
+         * Get the estimated frequency of the key.
+         *
+         * @param key the key
+         * @return the frequency (0 to 15)
+         */
+        int frequency(long key) {
+            int hash = CacheLongKeyLIRS.getHash(key);
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xf);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        /**
+         * Increment the frequency of the key, if not at the maximum already.
+         *
+         * @param key the key
+         */
+        void increment(long key) {
+            int hash = CacheLongKeyLIRS.getHash(key);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = (start + i) << 2;
+                long mask = 0xfL << offset;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++size == sampleSize) {
+                reset();
+            }
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & (table.length - 1);
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size - (odd >>> 2)) >>> 1;
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import org.h2.engine.Constants;
+import org.h2.result.Row;
+import org.h2.result.RowImpl;
+import org.h2.result.SearchRow;
+import org.h2.store.Data;
+import org.h2.value.Value;
+import org.h2.value.ValueLong;
+
+/**
+ * A row of a primary index that decodes its values on first access.
+ */
+final class LazyRow implements Row {
+
+    private final LazyValueArray array;
+
+    /**
+     * The values that were decoded or set, or null if none was.
+     */
+    private Value[] data;
+
+    private long key;
+    private boolean deleted;
+
+    LazyRow(LazyValueArray array) {
+        this.array = array;
+    }
+
+    @Override
+    public void setKey(SearchRow row) {
+        setKey(row.getKey());
+    }
+
+    @Override
+    public long getKey() {
+        return key;
+    }
+
+    @Override
+    public void setKey(long key) {
+        this.key = key;
+    }
+
+    @Override
+    public Value getValue(int i) {
+        if (i == SearchRow.ROWID_INDEX) {
+            return ValueLong.get(key);
+        }
+        Value[] d = data;
+        if (d == null) {
+            data = d = new Value[array.getLength()];
+        }
+        Value v = d[i];
+        if (v == null) {
+            d[i] = v = array.decode(i);
+        }
+        return v;
+    }
+
+    @Override
+    public void setValue(int i, Value v) {
+        if (i == SearchRow.ROWID_INDEX) {
+            key = v.getLong();
+        } else {
+            if (data == null) {
+                data = new Value[array.getLength()];
+            }
+            data[i] = v;
+        }
+    }
+
+    @Override
+    public int getColumnCount() {
+        return array.getLength();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public Value[] getValueList() {
+        for (int i = 0, len = array.getLength(); i < len; i++) {
+            getValue(i);
+        }
+        return data;
+    }
+
+    @Override
+    public int getByteCount(Data dummy) {
+        int size = 0;
+        for (Value v : getValueList()) {
+            size += dummy.getValueLen(v);
+        }
+        return size;
+    }
+
+    @Override
+    public int getMemory() {
+        int m = Constants.MEMORY_ROW + array.getMemory();
+        Value[] d = data;
+        if (d != null) {
+            m += Constants.MEMORY_ARRAY + d.length * Constants.MEMORY_POINTER;
+            for (Value v : d) {
+                if (v != null) {
+                    m += v.getMemory();
+                }
+            }
+        }
+        return m;
+    }
+
+    @Override
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    @Override
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public boolean hasSharedData(Row other) {
+        return other instanceof LazyRow && ((LazyRow) other).array == array;
+    }
+
+    @Override
+    public String toString() {
+        return RowImpl.toString(key, deleted, getValueList());
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.h2.engine.CastDataProvider;
+import org.h2.engine.Constants;
+import org.h2.result.Row;
+import org.h2.value.CompareMode;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
+import org.h2.value.ValueArray;
+
+/**
+ * The data of a row, as stored in the map of a primary index. The values are
+ * kept in serialized form, and only decoded when they are accessed. This
+ * object is immutable, so that it can be shared by the pages of the map and
+ * all rows that are read from it.
+ */
+public final class LazyValueArray extends Value {
+
+    private final ValueDataType type;
+
+    /**
+     * The serialized values.
+     */
+    private final byte[] data;
+
+    /**
+     * The start of each value within the data.
+     */
+    private final int[] offsets;
+
+    LazyValueArray(ValueDataType type, byte[] data, int[] offsets) {
+        this.type = type;
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return the number of values
+     */
+    public int getLength() {
+        return offsets.length;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Decode a value.
+     *
+     * @param index the index of the value (0, 1,...)
+     * @return the value
+     */
+    public Value decode(int index) {
+        int offset = offsets[index];
+        return (Value) type.readValue(ByteBuffer.wrap(data, offset, data.length - offset));
+    }
+
+    /**
+     * Create a row that decodes the values of this array on first access.
+     *
+     * @param key the key of the row
+     * @return the row
+     */
+    public Row createRow(long key) {
+        LazyRow row = new LazyRow(this);
+        row.setKey(key);
+        return row;
+    }
+
+    /**
+     * Decode all values.
+     *
+     * @return the array value
+     */
+    public ValueArray toValueArray() {
+        int len = offsets.length;
+        Value[] list = new Value[len];
+        ByteBuffer buff = ByteBuffer.wrap(data);
+        for (int i = 0; i < len; i++) {
+            list[i] = (Value) type.readValue(buff);
+        }
+        return ValueArray.get(list);
+    }
+
+    @Override
+    public StringBuilder getSQL(StringBuilder builder) {
+        return toValueArray().getSQL(builder);
+    }
+
+    @Override
+    public String getTraceSQL() {
+        return toValueArray().getTraceSQL();
+    }
+
+    @Override
+    public TypeInfo getType() {
+        return toValueArray().getType();
+    }
+
+    @Override
+    public int getValueType() {
+        return ARRAY;
+    }
+
+    @Override
+    public int getMemory() {
+        return Constants.MEMORY_OBJECT + 3 * Constants.MEMORY_POINTER + 2 * Constants.MEMORY_ARRAY + data.length
+                + 4 * offsets.length;
+    }
+
+    @Override
+    public String getString() {
+        return toValueArray().getString();
+    }
+
+    @Override
+    public Object getObject() {
+        return toValueArray().getObject();
+    }
+
+    @Override
+    public void set(PreparedStatement prep, int parameterIndex) throws SQLException {
+        toValueArray().set(prep, parameterIndex);
+    }
+
+    @Override
+    public int compareTypeSafe(Value v, CompareMode mode, CastDataProvider provider) {
+        if (v instanceof LazyValueArray) {
+            v = ((LazyValueArray) v).toValueArray();
+        }
+        return toValueArray().compareTypeSafe(v, mode, provider);
+    }
+
+    @Override
+    public int hashCode() {
+        return toValueArray().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof LazyValueArray) {
+            other = ((LazyValueArray) other).toValueArray();
+        }
+        return toValueArray().equals(other);
+    }
+
+}
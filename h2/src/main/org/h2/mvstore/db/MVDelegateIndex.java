@@ -52,6 +52,11 @@ public void addBufferedRows(List<String> bufferNames) {
         throw DbException.throwInternalError();
     }
 
+    @Override
+    public void addSortedRows(List<Row> rows) {
+        throw DbException.throwInternalError();
+    }
+
     @Override
     public MVMap<Value, VersionedValue> getMVMap() {
         return mainIndex.getMVMap();
@@ -82,6 +87,11 @@ public void close(Session session) {
         // nothing to do
     }
 
+    @Override
+    public Cursor[] findParallel(Session session, int parts) {
+        return mainIndex.findParallel(session, parts);
+    }
+
     @Override
     public Cursor find(Session session, SearchRow first, SearchRow last) {
         ValueLong min = mainIndex.getKey(first, ValueLong.MIN, ValueLong.MIN);
@@ -34,5 +34,13 @@ public interface MVIndex extends Index {
      */
     void addBufferedRows(List<String> bufferNames);
 
+    /**
+     * Add the rows to the empty index. The rows are sorted by the index
+     * columns, so the index can be built page by page.
+     *
+     * @param rows the rows
+     */
+    void addSortedRows(List<Row> rows);
+
     MVMap<?, VersionedValue> getMVMap();
 }
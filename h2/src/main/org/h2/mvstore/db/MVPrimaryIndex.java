@@ -5,6 +5,7 @@
  */
 package org.h2.mvstore.db;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
@@ -53,8 +54,8 @@ public MVPrimaryIndex(Database db, MVTable table, int id,
         for (int i = 0; i < columns.length; i++) {
             sortTypes[i] = SortOrder.ASCENDING;
         }
-        ValueDataType keyType = new ValueDataType();
-        ValueDataType valueType = new ValueDataType(db, sortTypes);
+        RowKeyDataType keyType = new RowKeyDataType();
+        RowDataType valueType = new RowDataType(db, sortTypes);
         mapName = "table." + getId();
         assert db.isStarting() || !db.getStore().getMvStore().getMetaMap().containsKey(DataUtils.META_NAME + mapName);
         Transaction t = mvTable.getTransactionBegin();
@@ -220,8 +221,8 @@ public void update(Session session, Row oldRow, Row newRow) {
     Row lockRow(Session session, Row row) {
         TransactionMap<Value, Value> map = getMap(session);
         long key = row.getKey();
-        ValueArray array = (ValueArray) lockRow(map, key);
-        return array == null ? null : getRow(session, key, array);
+        Value v = lockRow(map, key);
+        return v == null ? null : getRow(session, key, v);
     }
 
     private Value lockRow(TransactionMap<Value, Value> map, long key) {
@@ -253,11 +254,22 @@ public Row getRow(Session session, long key) {
             throw DbException.get(ErrorCode.ROW_NOT_FOUND_IN_PRIMARY_INDEX,
                     getSQL(false), String.valueOf(key));
         }
-        return getRow(session, key, (ValueArray) v);
+        return getRow(session, key, v);
     }
 
-    private static Row getRow(Session session, long key, ValueArray array) {
-        Row row = session.createRow(array.getList(), 0);
+    /**
+     * Create a row from a value of the map.
+     *
+     * @param session the session
+     * @param key the key of the row
+     * @param v the value, a ValueArray or a LazyValueArray
+     * @return the row
+     */
+    static Row getRow(Session session, long key, Value v) {
+        if (v instanceof LazyValueArray) {
+            return ((LazyValueArray) v).createRow(key);
+        }
+        Row row = session.createRow(((ValueArray) v).getList(), 0);
         row.setKey(key);
         return row;
     }
@@ -314,8 +326,7 @@ public Cursor findFirstOrLast(Session session, boolean first) {
         Value key = first ? map.firstKey() : map.lastKey();
         Row row;
         if (key != null) {
-            row = session.createRow(((ValueArray) map.getFromSnapshot(key)).getList(), 0);
-            row.setKey(key.getLong());
+            row = getRow(session, key.getLong(), map.getFromSnapshot(key));
         } else {
             row = null;
         }
@@ -366,6 +377,11 @@ public void addBufferedRows(List<String> bufferNames) {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void addSortedRows(List<Row> rows) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Get the key from the row.
      *
@@ -400,6 +416,30 @@ Cursor find(Session session, ValueLong first, ValueLong last) {
         return new MVStoreCursor(session, map.entryIterator(first, last));
     }
 
+    @Override
+    public Cursor[] findParallel(Session session, int parts) {
+        TransactionMap<Value, Value> map = getMap(session);
+        // includes uncommitted and removed rows, good enough to split
+        long size = map.map.sizeAsLong();
+        if (parts < 2 || size < parts) {
+            return null;
+        }
+        ArrayList<Cursor> list = new ArrayList<>(parts);
+        ValueLong first = ValueLong.MIN;
+        for (int i = 1; i < parts; i++) {
+            Value k = map.map.getKey(size * i / parts);
+            if (k == null || k.getLong() <= first.getLong()) {
+                // concurrently modified
+                continue;
+            }
+            long key = k.getLong();
+            list.add(new MVStoreCursor(session, map.entryIterator(first, ValueLong.get(key - 1))));
+            first = ValueLong.get(key);
+        }
+        list.add(new MVStoreCursor(session, map.entryIterator(first, ValueLong.MAX)));
+        return list.size() < 2 ? null : list.toArray(new Cursor[0]);
+    }
+
     @Override
     public boolean isRowIdIndex() {
         return true;
@@ -443,9 +483,7 @@ public MVStoreCursor(Session session, Iterator<Entry<Value, Value>> it) {
         public Row get() {
             if (row == null) {
                 if (current != null) {
-                    ValueArray array = (ValueArray) current.getValue();
-                    row = session.createRow(array.getList(), 0);
-                    row.setKey(current.getKey().getLong());
+                    row = getRow(session, current.getKey().getLong(), current.getValue());
                 }
             }
             return row;
@@ -5,6 +5,7 @@
  */
 package org.h2.mvstore.db;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
@@ -137,21 +138,16 @@ public void addBufferedRows(List<String> bufferNames) {
         }
 
         try {
+            BulkLoader loader = new BulkLoader();
             while (!queue.isEmpty()) {
                 Source s = queue.poll();
-                ValueArray rowData = s.next();
-                SearchRow row = convertToSearchRow(rowData);
-
-                if (indexType.isUnique() && !mayHaveNullDuplicates(row)) {
-                    checkUnique(dataMap, rowData, Long.MIN_VALUE);
-                }
-
-                dataMap.putCommitted(rowData, ValueNull.INSTANCE);
+                loader.add(s.next());
 
                 if (s.hasNext()) {
                     queue.offer(s);
                 }
             }
+            loader.flush();
         } finally {
             MVStore mvStore = database.getStore().getMvStore();
             for (String tempMapName : bufferNames) {
@@ -160,6 +156,59 @@ public void addBufferedRows(List<String> bufferNames) {
         }
     }
 
+    @Override
+    public void addSortedRows(List<Row> rows) {
+        BulkLoader loader = new BulkLoader();
+        for (Row row : rows) {
+            loader.add(convertToKey(row, null));
+        }
+        loader.flush();
+    }
+
+    /**
+     * Adds the index entries, in index order, to the empty index, in full leaf
+     * pages. As duplicates are next to each other in this order, the unique
+     * check only needs to compare each entry with the previous one.
+     */
+    private final class BulkLoader {
+        private final int keysPerPage = dataMap.map.getStore().getKeysPerPage();
+        private Object[] keys = new Object[keysPerPage];
+        private int count;
+        private ValueArray last;
+
+        BulkLoader() {
+        }
+
+        void add(ValueArray rowData) {
+            if (last != null && indexType.isUnique() && !mayHaveNullDuplicates(convertToSearchRow(rowData))) {
+                Value[] a = last.getList(), b = rowData.getList();
+                CompareMode compareMode = database.getCompareMode();
+                int i = 0;
+                while (i < keyColumns - 1 && a[i].compareTo(b[i], database, compareMode) == 0) {
+                    i++;
+                }
+                if (i == keyColumns - 1) {
+                    throw getDuplicateKeyException(a[i].toString());
+                }
+            }
+            last = rowData;
+            keys[count++] = rowData;
+            if (count == keysPerPage) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (count > 0) {
+                Object[] values = new Object[count];
+                Arrays.fill(values, ValueNull.INSTANCE);
+                dataMap.appendCommitted(count == keysPerPage ? keys : Arrays.copyOf(keys, count), values);
+                keys = new Object[keysPerPage];
+                count = 0;
+            }
+        }
+    }
+
     private MVMap<ValueArray, Value> openMap(String mapName) {
         int[] sortTypes = new int[keyColumns];
         for (int i = 0; i < indexColumns.length; i++) {
@@ -207,6 +256,41 @@ public void add(Session session, Row row) {
         }
     }
 
+    /**
+     * Replace the index entries of the rows, without adding undo log entries.
+     * This is used to catch up with the changes made while the index was
+     * built.
+     *
+     * @param oldRows the rows the index contains now, null for rows the index
+     *            doesn't contain
+     * @param newRows the rows the index should contain instead, at the same
+     *            positions, null for removed rows
+     */
+    void replaceCommitted(List<Row> oldRows, List<Row> newRows) {
+        int size = oldRows.size();
+        // remove all old entries first, so that the unique check only sees the
+        // new state
+        for (int i = 0; i < size; i++) {
+            Row oldRow = oldRows.get(i);
+            if (oldRow != null && (newRows.get(i) == null || !rowsAreEqual(oldRow, newRows.get(i)))) {
+                dataMap.removeCommitted(convertToKey(oldRow, null));
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            Row newRow = newRows.get(i);
+            if (newRow != null && (oldRows.get(i) == null || !rowsAreEqual(oldRows.get(i), newRow))) {
+                dataMap.putCommitted(convertToKey(newRow, null), ValueNull.INSTANCE);
+            }
+        }
+        if (indexType.isUnique()) {
+            for (Row newRow : newRows) {
+                if (newRow != null && !mayHaveNullDuplicates(newRow)) {
+                    checkUnique(dataMap, convertToKey(newRow, null), newRow.getKey());
+                }
+            }
+        }
+    }
+
     private void checkUnique(TransactionMap<Value, Value> map, ValueArray row, long newKey) {
         Iterator<Value> it = map.keyIteratorUncommitted(convertToKey(row, ValueLong.MIN),
                                                         convertToKey(row, ValueLong.MAX));
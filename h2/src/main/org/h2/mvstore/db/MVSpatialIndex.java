@@ -122,6 +122,11 @@ public void addBufferedRows(List<String> bufferNames) {
         throw DbException.throwInternalError();
     }
 
+    @Override
+    public void addSortedRows(List<Row> rows) {
+        throw DbException.throwInternalError();
+    }
+
     @Override
     public void close(Session session) {
         // ok
@@ -7,6 +7,10 @@
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -24,8 +28,10 @@
 import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
 import org.h2.mvstore.db.MVTableEngine.Store;
 import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
 import org.h2.mvstore.tx.TransactionStore;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
@@ -36,6 +42,9 @@
 import org.h2.util.DebuggingThreadLocal;
 import org.h2.util.MathUtils;
 import org.h2.util.Utils;
+import org.h2.value.Value;
+import org.h2.value.ValueLong;
+import org.h2.value.VersionedValue;
 
 /**
  * A table stored in a MVStore.
@@ -102,6 +111,13 @@ public String getEventText() {
      * prevent starvation, since Java's synchronized locking is biased.
      */
     private final ArrayDeque<Session> waitingSessions = new ArrayDeque<>();
+
+    /**
+     * The number of sessions that are currently trying to get an exclusive
+     * lock. As long as there are none, sessions that only need to register a
+     * shared lock for data modification don't have to use the wait queue.
+     */
+    private final AtomicInteger exclusiveLockRequests = new AtomicInteger();
     private final Trace traceLock;
     private final AtomicInteger changesUntilAnalyze;
     private int nextAnalyze;
@@ -109,6 +125,30 @@ public String getEventText() {
     private final MVTableEngine.Store store;
     private final TransactionStore transactionStore;
 
+    /**
+     * The keys of the rows changed while an index is built concurrently, or
+     * null.
+     */
+    private volatile Set<Long> changedRowKeys;
+
+    /**
+     * The number of changed rows up to which the index entries are caught up
+     * under an exclusive lock at the end of a concurrent index build.
+     */
+    private static final int MAX_LOCKED_CATCH_UP = 1_000;
+
+    /**
+     * The maximum number of times the index entries are caught up without a
+     * lock before the exclusive lock is requested.
+     */
+    private static final int MAX_UNLOCKED_CATCH_UP = 10;
+
+    /**
+     * The number of milliseconds to wait for the exclusive lock at the end of
+     * a concurrent index build before the index entries are caught up again.
+     */
+    private static final int CATCH_UP_LOCK_WAIT = 10 * Constants.DEADLOCK_CHECK;
+
     public MVTable(CreateTableData data, MVTableEngine.Store store) {
         super(data);
         nextAnalyze = database.getSettings().analyzeAuto;
@@ -134,13 +174,15 @@ public boolean lock(Session session, boolean exclusive,
             session.registerTableAsUpdated(this);
             return false;
         }
+        boolean modification = false;
         if (!forceLockEvenInMvcc) {
-            // MVCC: update, delete, and insert use a shared lock.
-            // Select doesn't lock except when using FOR UPDATE and
-            // the system property h2.selectForUpdateMvcc
-            // is not enabled
+            // MVCC: update, delete, and insert use a shared lock, conflicts
+            // between them are resolved by the row locks of the
+            // TransactionMap. Select doesn't lock (SELECT ... FOR UPDATE
+            // locks the rows) except to wait for an exclusive lock.
             if (exclusive) {
                 exclusive = false;
+                modification = true;
             } else {
                 if (lockExclusiveSession == null) {
                     return false;
@@ -153,28 +195,80 @@ public boolean lock(Session session, boolean exclusive,
         if (!exclusive && lockSharedSessions.containsKey(session)) {
             return true;
         }
-        synchronized (this) {
-            if (!exclusive && lockSharedSessions.containsKey(session)) {
-                return true;
-            }
-            session.setWaitForLock(this, Thread.currentThread());
-            if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
-                WAITING_FOR_LOCK.set(getName());
-            }
-            waitingSessions.addLast(session);
-            try {
-                doLock1(session, lockMode, exclusive);
-            } finally {
-                session.setWaitForLock(null, null);
+        if (modification && tryLockShared(session)) {
+            return false;
+        }
+        if (exclusive) {
+            exclusiveLockRequests.incrementAndGet();
+        }
+        try {
+            synchronized (this) {
+                if (!exclusive && lockSharedSessions.containsKey(session)) {
+                    return true;
+                }
+                session.setWaitForLock(this, Thread.currentThread());
                 if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
-                    WAITING_FOR_LOCK.remove();
+                    WAITING_FOR_LOCK.set(getName());
+                }
+                waitingSessions.addLast(session);
+                try {
+                    doLock1(session, lockMode, exclusive);
+                } finally {
+                    session.setWaitForLock(null, null);
+                    if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
+                        WAITING_FOR_LOCK.remove();
+                    }
+                    waitingSessions.remove(session);
                 }
-                waitingSessions.remove(session);
+            }
+        } finally {
+            if (exclusive) {
+                exclusiveLockRequests.decrementAndGet();
             }
         }
         return false;
     }
 
+    /**
+     * Try to add a shared lock without entering the wait queue. This is
+     * possible if no other session holds or waits for an exclusive lock.
+     *
+     * @param session the session
+     * @return true if the shared lock was added
+     */
+    private boolean tryLockShared(Session session) {
+        if (exclusiveLockRequests.get() != 0 || lockExclusiveSession != null) {
+            return false;
+        }
+        if (lockSharedSessions.putIfAbsent(session, session) != null) {
+            return true;
+        }
+        // a session that wants an exclusive lock increments the counter
+        // before it checks the shared locks, so one of the two sees the other
+        if (exclusiveLockRequests.get() != 0 || lockExclusiveSession != null) {
+            lockSharedSessions.remove(session);
+            synchronized (this) {
+                notifyAll();
+            }
+            return false;
+        }
+        traceLock(session, false, TraceLockEvent.TRACE_LOCK_OK, NO_EXTRA_INFO);
+        session.registerTableAsLocked(this);
+        if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
+            addLockToDebugList(SHARED_LOCKS);
+        }
+        return true;
+    }
+
+    private void addLockToDebugList(DebuggingThreadLocal<ArrayList<String>> locks) {
+        ArrayList<String> list = locks.get();
+        if (list == null) {
+            list = new ArrayList<>();
+            locks.set(list);
+        }
+        list.add(getName());
+    }
+
     private void doLock1(Session session, int lockMode, boolean exclusive) {
         traceLock(session, exclusive, TraceLockEvent.TRACE_LOCK_REQUESTING_FOR, NO_EXTRA_INFO);
         // don't get the current time unless necessary
@@ -239,10 +333,7 @@ private boolean doLock2(Session session, int lockMode, boolean exclusive) {
                     session.registerTableAsLocked(this);
                     lockExclusiveSession = session;
                     if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
-                        if (EXCLUSIVE_LOCKS.get() == null) {
-                            EXCLUSIVE_LOCKS.set(new ArrayList<String>());
-                        }
-                        EXCLUSIVE_LOCKS.get().add(getName());
+                        addLockToDebugList(EXCLUSIVE_LOCKS);
                     }
                     return true;
                 } else if (lockSharedSessions.size() == 1 &&
@@ -250,10 +341,7 @@ private boolean doLock2(Session session, int lockMode, boolean exclusive) {
                     traceLock(session, exclusive, TraceLockEvent.TRACE_LOCK_ADD_UPGRADED_FOR, NO_EXTRA_INFO);
                     lockExclusiveSession = session;
                     if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
-                        if (EXCLUSIVE_LOCKS.get() == null) {
-                            EXCLUSIVE_LOCKS.set(new ArrayList<String>());
-                        }
-                        EXCLUSIVE_LOCKS.get().add(getName());
+                        addLockToDebugList(EXCLUSIVE_LOCKS);
                     }
                     return true;
                 }
@@ -262,12 +350,7 @@ private boolean doLock2(Session session, int lockMode, boolean exclusive) {
                     traceLock(session, exclusive, TraceLockEvent.TRACE_LOCK_OK, NO_EXTRA_INFO);
                     session.registerTableAsLocked(this);
                     if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
-                        ArrayList<String> list = SHARED_LOCKS.get();
-                        if (list == null) {
-                            list = new ArrayList<>();
-                            SHARED_LOCKS.set(list);
-                        }
-                        list.add(getName());
+                        addLockToDebugList(SHARED_LOCKS);
                     }
                 }
                 return true;
@@ -313,6 +396,81 @@ public void unlock(Session s) {
         }
     }
 
+    /**
+     * Turn the exclusive lock of the session into a shared lock.
+     *
+     * @param session the session
+     */
+    private void downgradeLock(Session session) {
+        traceLock(session, false, TraceLockEvent.TRACE_LOCK_OK, NO_EXTRA_INFO);
+        synchronized (this) {
+            lockSharedSessions.put(session, session);
+            lockExclusiveSession = null;
+            if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
+                if (EXCLUSIVE_LOCKS.get() != null) {
+                    EXCLUSIVE_LOCKS.get().remove(getName());
+                }
+                addLockToDebugList(SHARED_LOCKS);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Try to turn the shared lock of the session into an exclusive lock.
+     * Unlike lock(), this does not wait until the session is the first one in
+     * the queue, because a session that is ahead of it and waits for an
+     * exclusive lock would also wait for the shared lock of this session. New
+     * sessions that want to change the table wait in the queue meanwhile.
+     *
+     * @param session the session
+     * @param timeoutMillis the number of milliseconds to wait
+     * @return true if the lock was upgraded
+     */
+    private boolean tryUpgradeLock(Session session, long timeoutMillis) {
+        exclusiveLockRequests.incrementAndGet();
+        try {
+            synchronized (this) {
+                traceLock(session, true, TraceLockEvent.TRACE_LOCK_REQUESTING_FOR, NO_EXTRA_INFO);
+                session.setWaitForLock(this, Thread.currentThread());
+                waitingSessions.addLast(session);
+                try {
+                    long max = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                    while (true) {
+                        if (lockExclusiveSession == null && lockSharedSessions.size() == 1 &&
+                                lockSharedSessions.containsKey(session)) {
+                            traceLock(session, true, TraceLockEvent.TRACE_LOCK_ADD_UPGRADED_FOR, NO_EXTRA_INFO);
+                            lockExclusiveSession = session;
+                            if (SysProperties.THREAD_DEADLOCK_DETECTOR) {
+                                addLockToDebugList(EXCLUSIVE_LOCKS);
+                            }
+                            return true;
+                        }
+                        long now = System.nanoTime();
+                        if (now >= max) {
+                            traceLock(session, true, TraceLockEvent.TRACE_LOCK_TIMEOUT_AFTER,
+                                    NO_EXTRA_INFO + timeoutMillis);
+                            return false;
+                        }
+                        try {
+                            wait(Math.max(1, Math.min(Constants.DEADLOCK_CHECK,
+                                    TimeUnit.NANOSECONDS.toMillis(max - now))));
+                        } catch (InterruptedException e) {
+                            // ignore
+                        }
+                    }
+                } finally {
+                    session.setWaitForLock(null, null);
+                    waitingSessions.remove(session);
+                    // let the sessions that queued up behind this one go on
+                    notifyAll();
+                }
+            }
+        } finally {
+            exclusiveLockRequests.decrementAndGet();
+        }
+    }
+
     @Override
     public void close(Session session) {
         // ignore
@@ -383,6 +541,132 @@ public Index addIndex(Session session, String indexName, int indexId,
         return index;
     }
 
+    @Override
+    public Index addIndexConcurrently(Session session, String indexName, int indexId,
+            IndexColumn[] cols, IndexType indexType, boolean create, String indexComment) {
+        // in-memory databases also use an MVStore, and are built the same way
+        if (indexType.isPrimaryKey() || indexType.isSpatial() || isTemporary()) {
+            return super.addIndexConcurrently(session, indexName, indexId, cols, indexType, create, indexComment);
+        }
+        // The index is built from a snapshot of the table. The keys of the
+        // rows changed in the meantime are collected, and their index entries
+        // are updated afterwards, first without a lock as long as many rows
+        // were changed, and then with an exclusive lock. The exclusive lock at
+        // the beginning waits for the open transactions that changed the
+        // table, so that all later changes are collected.
+        lock(session, true, true);
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        changedRowKeys = changed;
+        Transaction snapshot = beginSnapshot();
+        downgradeLock(session);
+        MVSecondaryIndex index = new MVSecondaryIndex(session.getDatabase(), this, indexId, indexName, cols,
+                indexType);
+        try {
+            TransactionMap<Value, Value> map = primaryIndex.getMap(null).getInstance(snapshot);
+            rebuildIndexBlockMerge(session, index,
+                    new MVPrimaryIndex.MVStoreCursor(session, map.entryIterator(null, null)), map.sizeAsLong());
+            for (int i = 0; i < MAX_UNLOCKED_CATCH_UP && changed.size() > MAX_LOCKED_CATCH_UP; i++) {
+                snapshot = catchUp(session, index, changed, snapshot, false);
+            }
+            // the open transactions that changed the table may take a while,
+            // the index is kept and caught up while waiting for them
+            while (!tryUpgradeLock(session, CATCH_UP_LOCK_WAIT)) {
+                session.checkCanceled();
+                snapshot = catchUp(session, index, changed, snapshot, false);
+            }
+            snapshot = catchUp(session, index, changed, snapshot, true);
+        } catch (DbException e) {
+            getSchema().freeUniqueName(indexName);
+            index.remove(session);
+            throw e;
+        } finally {
+            changedRowKeys = null;
+            endSnapshot(snapshot);
+        }
+        database.lockMeta(session);
+        index.setTemporary(false);
+        index.setComment(indexComment);
+        database.addSchemaObject(session, index);
+        indexes.add(index);
+        setModified();
+        return index;
+    }
+
+    private Transaction beginSnapshot() {
+        Transaction t = transactionStore.begin();
+        HashSet<MVMap<?, ?>> maps = new HashSet<>();
+        maps.add(primaryIndex.getMVMap());
+        t.markStatementStart(maps);
+        return t;
+    }
+
+    private static void endSnapshot(Transaction t) {
+        if (t != null) {
+            t.markStatementEnd();
+            t.commit();
+        }
+    }
+
+    /**
+     * Update the index entries of the changed rows from the state of the
+     * given snapshot to the state of a new snapshot. The keys of the rows are
+     * removed from the set. Without a lock, the rows changed by open
+     * transactions or after the new snapshot are added again, so that they
+     * are caught up later.
+     *
+     * @param session the session
+     * @param index the index
+     * @param changed the keys of the changed rows
+     * @param from the snapshot the index entries are from, it is ended
+     * @param locked whether the table is locked exclusively
+     * @return the new snapshot
+     */
+    private Transaction catchUp(Session session, MVSecondaryIndex index, Set<Long> changed, Transaction from,
+            boolean locked) {
+        Transaction to = beginSnapshot();
+        try {
+            ArrayList<Long> keys = new ArrayList<>(changed.size());
+            for (Iterator<Long> it = changed.iterator(); it.hasNext();) {
+                keys.add(it.next());
+                it.remove();
+            }
+            TransactionMap<Value, Value> oldMap = primaryIndex.getMap(null).getInstance(from);
+            TransactionMap<Value, Value> newMap = primaryIndex.getMap(null).getInstance(to);
+            int size = keys.size();
+            ArrayList<Row> oldRows = new ArrayList<>(size);
+            ArrayList<Row> newRows = new ArrayList<>(size);
+            Value[] newValues = new Value[size];
+            for (int i = 0; i < size; i++) {
+                long key = keys.get(i);
+                ValueLong k = ValueLong.get(key);
+                Value v = oldMap.getFromSnapshot(k);
+                oldRows.add(v == null ? null : MVPrimaryIndex.getRow(session, key, v));
+                v = newMap.getFromSnapshot(k);
+                newRows.add(v == null ? null : MVPrimaryIndex.getRow(session, key, v));
+                newValues[i] = v;
+            }
+            index.replaceCommitted(oldRows, newRows);
+            if (!locked) {
+                // a row that was changed before its key was removed from the
+                // set is visible here, unless it was rolled back
+                MVMap<Value, VersionedValue> map = primaryIndex.getMVMap();
+                for (int i = 0; i < size; i++) {
+                    long key = keys.get(i);
+                    VersionedValue data = map.get(ValueLong.get(key));
+                    Value v = newValues[i];
+                    if (data == null ? v != null : data.getOperationId() != 0 || data.getCurrentValue() != v) {
+                        changed.add(key);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            endSnapshot(to);
+            throw e;
+        }
+        endSnapshot(from);
+        return to;
+    }
+
     private void rebuildIndex(Session session, MVIndex index, String indexName) {
         try {
             if (session.getDatabase().getStore() == null ||
@@ -411,7 +695,14 @@ private void rebuildIndexBlockMerge(Session session, MVIndex index) {
         if (index instanceof MVSpatialIndex) {
             // the spatial index doesn't support multi-way merge sort
             rebuildIndexBuffered(session, index);
+            return;
         }
+        Index scan = getScanIndex(session);
+        long total = scan.getRowCount(session);
+        rebuildIndexBlockMerge(session, index, scan.find(session, null, null), total);
+    }
+
+    private void rebuildIndexBlockMerge(Session session, MVIndex index, Cursor cursor, long total) {
         // Read entries in memory, sort them, write to a new map (in sorted
         // order); repeat (using a new map for every block of 1 MB) until all
         // record are read. Merge all maps to the target (using merge sort;
@@ -419,10 +710,7 @@ private void rebuildIndexBlockMerge(Session session, MVIndex index) {
         // this should use relatively few write operations.
         // A possible optimization is: change the buffer size from "row count"
         // to "amount of memory", and buffer index keys instead of rows.
-        Index scan = getScanIndex(session);
-        long remaining = scan.getRowCount(session);
-        long total = remaining;
-        Cursor cursor = scan.find(session, null, null);
+        long remaining = total;
         long i = 0;
         Store store = session.getDatabase().getStore();
 
@@ -453,7 +741,8 @@ private void rebuildIndexBlockMerge(Session session, MVIndex index) {
             buffer.clear();
             index.addBufferedRows(bufferNames);
         } else {
-            addRowsToIndex(session, buffer, index);
+            index.addSortedRows(buffer);
+            buffer.clear();
         }
         if (remaining != 0) {
             DbException.throwInternalError("rowcount remaining=" + remaining +
@@ -498,6 +787,7 @@ public void removeRow(Session session, Row row) {
                 Index index = indexes.get(i);
                 index.remove(session, row);
             }
+            rowChanged(row);
         } catch (Throwable e) {
             try {
                 t.rollbackToSavepoint(savepoint);
@@ -530,6 +820,7 @@ public void addRow(Session session, Row row) {
             for (Index index : indexes) {
                 index.add(session, row);
             }
+            rowChanged(row);
         } catch (Throwable e) {
             try {
                 t.rollbackToSavepoint(savepoint);
@@ -551,6 +842,7 @@ public void updateRow(Session session, Row oldRow, Row newRow) {
             for (Index index : indexes) {
                 index.update(session, oldRow, newRow);
             }
+            rowChanged(newRow);
         } catch (Throwable e) {
             try {
                 t.rollbackToSavepoint(savepoint);
@@ -571,6 +863,13 @@ public Row lockRow(Session session, Row row) {
         return lockedRow;
     }
 
+    private void rowChanged(Row row) {
+        Set<Long> changed = changedRowKeys;
+        if (changed != null) {
+            changed.add(row.getKey());
+        }
+    }
+
     private void analyzeIfRequired(Session session) {
         if (changesUntilAnalyze != null) {
             if (changesUntilAnalyze.decrementAndGet() == 0) {
@@ -25,6 +25,7 @@
 import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreTool;
+import org.h2.mvstore.cache.CacheLongKeyTinyLFU;
 import org.h2.mvstore.tx.Transaction;
 import org.h2.mvstore.tx.TransactionStore;
 import org.h2.store.InDoubtTransaction;
@@ -85,6 +86,14 @@ public static Store init(final Database db) {
                 // use a larger page split size to improve the compression ratio
                 builder.pageSplitSize(64 * 1024);
             }
+            if (db.getSettings().memoryMapped) {
+                builder.memoryMapped();
+            }
+            if (CacheLongKeyTinyLFU.TYPE_NAME.equals(db.getCacheType())) {
+                builder.cacheType(CacheLongKeyTinyLFU.TYPE_NAME);
+            }
+            builder.groupCommitDelay(db.getSettings().groupCommitDelay);
+            builder.groupCommitSize(db.getSettings().groupCommitSize);
             builder.backgroundExceptionHandler((t, e) -> db.setBackgroundException(DbException.convert(e)));
             // always start without background thread first, and if necessary,
             // it will be set up later, after db has been fully started,
@@ -351,8 +360,13 @@ public InputStream getInputStream() {
          * Force the changes to disk.
          */
         public void sync() {
-            flush();
-            mvStore.sync();
+            FileStore s = mvStore.getFileStore();
+            if (s == null || s.isReadOnly()) {
+                mvStore.sync();
+            } else {
+                // concurrent callers share one chunk and one sync
+                mvStore.syncCommit();
+            }
         }
 
         /**
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.nio.ByteBuffer;
+
+import org.h2.engine.Database;
+
+/**
+ * The value type of the map of a primary index. The rows are read as
+ * {@link LazyValueArray} objects, so that only the columns that are used are
+ * decoded, and pages in the cache keep the compact serialized form.
+ */
+public final class RowDataType extends ValueDataType {
+
+    public RowDataType(Database database, int[] sortTypes) {
+        super(database, sortTypes);
+    }
+
+    @Override
+    public Object read(ByteBuffer buff) {
+        return readLazyArray(buff);
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.nio.ByteBuffer;
+
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.LongKeyType;
+import org.h2.value.Value;
+import org.h2.value.ValueLong;
+
+/**
+ * The key type of the map of a primary index, where each row is stored under
+ * its key. The pages keep the keys in long arrays, but the keys are stored in
+ * the same format as by a {@link ValueDataType}, as the transaction store
+ * opens the maps of undo log entries with that type.
+ */
+public final class RowKeyDataType extends ValueDataType implements LongKeyType {
+
+    @Override
+    public int compare(Object a, Object b) {
+        if (a instanceof ValueLong && b instanceof ValueLong) {
+            return Long.compare(((ValueLong) a).getLong(), ((ValueLong) b).getLong());
+        }
+        return super.compare(a, b);
+    }
+
+    @Override
+    public long toLong(Object key) {
+        return ((Value) key).getLong();
+    }
+
+    @Override
+    public ValueLong fromLong(long x) {
+        return ValueLong.get(x);
+    }
+
+    @Override
+    public void writeKeys(WriteBuffer buff, long[] keys, int len) {
+        for (int i = 0; i < len; i++) {
+            writeLong(buff, keys[i]);
+        }
+    }
+
+    @Override
+    public void readKeys(ByteBuffer buff, long[] keys, int len) {
+        for (int i = 0; i < len; i++) {
+            keys[i] = readLong(buff);
+        }
+    }
+
+}
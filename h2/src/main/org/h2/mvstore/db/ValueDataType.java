@@ -232,6 +232,12 @@ public void write(WriteBuffer buff, Object obj) {
             getSpatialDataType().write(buff, obj);
             return;
         }
+        if (obj instanceof LazyValueArray) {
+            // still in the same format as when it was read
+            LazyValueArray a = (LazyValueArray) obj;
+            buff.put(ARRAY).putVarInt(a.getLength()).put(a.getData());
+            return;
+        }
         Value x = (Value) obj;
         writeValue(buff, x);
     }
@@ -264,17 +270,9 @@ private void writeValue(WriteBuffer buff, Value v) {
             }
             break;
         }
-        case Value.LONG: {
-            long x = v.getLong();
-            if (x < 0) {
-                buff.put(LONG_NEG).putVarLong(-x);
-            } else if (x < 8) {
-                buff.put((byte) (LONG_0_7 + x));
-            } else {
-                buff.put(LONG).putVarLong(x);
-            }
+        case Value.LONG:
+            writeLong(buff, v.getLong());
             break;
-        }
         case Value.DECIMAL: {
             BigDecimal x = v.getBigDecimal();
             if (BigDecimal.ZERO.equals(x)) {
@@ -548,6 +546,46 @@ private void writeValue(WriteBuffer buff, Value v) {
         }
     }
 
+    /**
+     * Write a long value in the same format as a LONG value.
+     *
+     * @param buff the target buffer
+     * @param x the value
+     */
+    static void writeLong(WriteBuffer buff, long x) {
+        if (x < 0) {
+            buff.put(LONG_NEG).putVarLong(-x);
+        } else if (x < 8) {
+            buff.put((byte) (LONG_0_7 + x));
+        } else {
+            buff.put(LONG).putVarLong(x);
+        }
+    }
+
+    /**
+     * Read a value and convert it to a long.
+     *
+     * @param buff the source buffer
+     * @return the long value
+     */
+    final long readLong(ByteBuffer buff) {
+        int type = buff.get(buff.position()) & 255;
+        switch (type) {
+        case LONG_NEG:
+            buff.get();
+            return -readVarLong(buff);
+        case LONG:
+            buff.get();
+            return readVarLong(buff);
+        default:
+            if (type >= LONG_0_7 && type < LONG_0_7 + 8) {
+                buff.get();
+                return type - LONG_0_7;
+            }
+            return ((Value) readValue(buff)).getLong();
+        }
+    }
+
     private static void writeString(WriteBuffer buff, String s) {
         int len = s.length();
         buff.putVarInt(len).putStringData(s, len);
@@ -566,12 +604,185 @@ private static void writeTimeZone(WriteBuffer buff, int timeZoneOffset) {
         }
     }
 
+    /**
+     * Read an array value without decoding its elements. The elements are
+     * decoded when they are accessed.
+     *
+     * @param buff the source buffer
+     * @return the value
+     */
+    final Object readLazyArray(ByteBuffer buff) {
+        if (buff.get(buff.position()) != ARRAY) {
+            return readValue(buff);
+        }
+        buff.get();
+        int len = readVarInt(buff);
+        int start = buff.position();
+        int[] offsets = new int[len];
+        for (int i = 0; i < len; i++) {
+            offsets[i] = buff.position() - start;
+            skipValue(buff);
+        }
+        byte[] data = Utils.newBytes(buff.position() - start);
+        buff.position(start);
+        buff.get(data);
+        return new LazyValueArray(this, data, offsets);
+    }
+
+    /**
+     * Skip a value without decoding it, if possible.
+     *
+     * @param buff the source buffer
+     */
+    private void skipValue(ByteBuffer buff) {
+        int start = buff.position();
+        int type = buff.get() & 255;
+        switch (type) {
+        case NULL:
+        case BOOLEAN_TRUE:
+        case BOOLEAN_FALSE:
+        case DECIMAL_0_1:
+        case DECIMAL_0_1 + 1:
+        case FLOAT_0_1:
+        case FLOAT_0_1 + 1:
+        case DOUBLE_0_1:
+        case DOUBLE_0_1 + 1:
+            break;
+        case BYTE:
+            skip(buff, 1);
+            break;
+        case SHORT:
+            skip(buff, 2);
+            break;
+        case UUID:
+            skip(buff, 16);
+            break;
+        case INT_NEG:
+        case ENUM:
+        case INT:
+        case FLOAT:
+            readVarInt(buff);
+            break;
+        case LONG_NEG:
+        case LONG:
+        case DECIMAL_SMALL_0:
+        case DATE:
+        case DOUBLE:
+            readVarLong(buff);
+            break;
+        case DECIMAL_SMALL:
+            readVarInt(buff);
+            readVarLong(buff);
+            break;
+        case DECIMAL:
+            readVarInt(buff);
+            skip(buff, readVarInt(buff));
+            break;
+        case TIME:
+            readVarLong(buff);
+            readVarInt(buff);
+            break;
+        case TIME_TZ:
+            readVarInt(buff);
+            readVarInt(buff);
+            readTimeZone(buff);
+            break;
+        case TIMESTAMP:
+            readVarLong(buff);
+            readVarLong(buff);
+            readVarInt(buff);
+            break;
+        case TIMESTAMP_TZ:
+            readVarLong(buff);
+            readVarLong(buff);
+            readVarInt(buff);
+            readVarInt(buff);
+            break;
+        case TIMESTAMP_TZ_2:
+            readVarLong(buff);
+            readVarLong(buff);
+            readVarInt(buff);
+            readTimeZone(buff);
+            break;
+        case BYTES:
+        case JAVA_OBJECT:
+        case GEOMETRY:
+        case JSON:
+            skip(buff, readVarInt(buff));
+            break;
+        case STRING:
+        case STRING_IGNORECASE:
+        case STRING_FIXED:
+            skipString(buff, readVarInt(buff));
+            break;
+        case INTERVAL: {
+            int ordinal = buff.get();
+            readVarLong(buff);
+            if ((ordinal < 0 ? ~ordinal : ordinal) >= 5) {
+                readVarLong(buff);
+            }
+            break;
+        }
+        case BLOB:
+        case CLOB: {
+            int smallLen = readVarInt(buff);
+            if (smallLen >= 0) {
+                skip(buff, smallLen);
+            } else if (smallLen == -3) {
+                readVarInt(buff);
+                readVarLong(buff);
+                readVarLong(buff);
+            } else {
+                buff.position(start);
+                readValue(buff);
+            }
+            break;
+        }
+        case ARRAY:
+        case ROW:
+            for (int i = 0, len = readVarInt(buff); i < len; i++) {
+                skipValue(buff);
+            }
+            break;
+        default:
+            if (type >= INT_0_15 && type < INT_0_15 + 16 || type >= LONG_0_7 && type < LONG_0_7 + 8) {
+                break;
+            } else if (type >= BYTES_0_31 && type < BYTES_0_31 + 32) {
+                skip(buff, type - BYTES_0_31);
+                break;
+            } else if (type >= STRING_0_31 && type < STRING_0_31 + 32) {
+                skipString(buff, type - STRING_0_31);
+                break;
+            }
+            // rarely used types are decoded
+            buff.position(start);
+            readValue(buff);
+        }
+    }
+
+    private static void skip(ByteBuffer buff, int len) {
+        buff.position(buff.position() + len);
+    }
+
+    private static void skipString(ByteBuffer buff, int len) {
+        // see DataUtils.readString
+        for (int i = 0; i < len; i++) {
+            int x = buff.get() & 0xff;
+            if (x >= 0xe0) {
+                skip(buff, 2);
+            } else if (x >= 0x80) {
+                skip(buff, 1);
+            }
+        }
+    }
+
     /**
      * Read a value.
      *
+     * @param buff the source buffer
      * @return the value
      */
-    private Object readValue(ByteBuffer buff) {
+    final Object readValue(ByteBuffer buff) {
         int type = buff.get() & 255;
         switch (type) {
         case NULL:
@@ -15,15 +15,17 @@
  */
 final class RollbackDecisionMaker extends MVMap.DecisionMaker<Object[]> {
     private final TransactionStore store;
+    private final Transaction transaction;
     private final long transactionId;
     private final long toLogId;
     private final TransactionStore.RollbackListener listener;
     private MVMap.Decision decision;
 
-    RollbackDecisionMaker(TransactionStore store, long transactionId, long toLogId,
+    RollbackDecisionMaker(TransactionStore store, Transaction transaction, long toLogId,
                             TransactionStore.RollbackListener listener) {
         this.store = store;
-        this.transactionId = transactionId;
+        this.transaction = transaction;
+        this.transactionId = transaction.transactionId;
         this.toLogId = toLogId;
         this.listener = listener;
     }
@@ -47,6 +49,7 @@ public MVMap.Decision decide(Object[] existingValue, Object[] providedValue) {
                 if (map != null && !map.isClosed()) {
                     Object key = existingValue[1];
                     VersionedValue previousValue = map.operate(key, valueToRestore, MVMap.DecisionMaker.DEFAULT);
+                    transaction.addSizeChange(mapId, exists(valueToRestore) - exists(previousValue));
                     listener.onRollback(map, key, previousValue, valueToRestore);
                 }
             }
@@ -55,6 +58,10 @@ public MVMap.Decision decide(Object[] existingValue, Object[] providedValue) {
         return decision;
     }
 
+    private static int exists(VersionedValue value) {
+        return value == null || value.getCurrentValue() == null ? 0 : 1;
+    }
+
     @Override
     public void reset() {
         decision = null;
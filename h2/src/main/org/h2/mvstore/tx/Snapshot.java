@@ -10,7 +10,7 @@
 import org.h2.mvstore.RootReference;
 
 /**
- * Snapshot of the map root and committing transactions.
+ * Snapshot of the map root, committing transactions, and committed size.
  */
 final class Snapshot {
 
@@ -24,9 +24,16 @@ final class Snapshot {
      */
     final BitSet committingTransactions;
 
-    Snapshot(RootReference root, BitSet committingTransactions) {
+    /**
+     * The number of committed entries of the map, or -1 if not known (see
+     * also TransactionStore.getCommittedSize).
+     */
+    final long committedSize;
+
+    Snapshot(RootReference root, BitSet committingTransactions, long committedSize) {
         this.root = root;
         this.committingTransactions = committingTransactions;
+        this.committedSize = committedSize;
     }
 
     @Override
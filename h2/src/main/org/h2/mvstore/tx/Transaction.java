@@ -10,6 +10,7 @@
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.h2.engine.IsolationLevel;
 import org.h2.mvstore.DataUtils;
@@ -129,6 +130,12 @@ public class Transaction {
      */
     boolean wasStored;
 
+    /**
+     * Indicates whether this transaction is committed, but its changes are
+     * still to be made permanent by the background thread of the store
+     */
+    boolean commitPending;
+
     /**
      * How long to wait for blocking transaction to commit or rollback.
      */
@@ -170,6 +177,13 @@ public class Transaction {
      */
     private final Map<Integer, TransactionMap<?,?>> transactionMaps = new HashMap<>();
 
+    /**
+     * The changes of the number of entries of the maps, as seen by this
+     * transaction, by map id. Null if not known (for transactions that were
+     * restored when opening the store).
+     */
+    private volatile ConcurrentHashMap<Integer, AtomicLong> sizeChanges = new ConcurrentHashMap<>();
+
     /**
      * The current isolation level.
      */
@@ -215,17 +229,65 @@ Snapshot createSnapshot(int mapId) {
         // when neither of the variables concurrently changes it's value.
         BitSet committingTransactions;
         RootReference root;
+        long committedSize;
+        long commitSequence;
         do {
+            commitSequence = store.getCommitSequence();
             committingTransactions = store.committingTransactions.get();
             root = store.openMap(mapId).flushAndGetRoot();
-        } while (committingTransactions != store.committingTransactions.get());
-        return new Snapshot(root, committingTransactions);
+            committedSize = store.getCommittedSize(mapId);
+        } while (committingTransactions != store.committingTransactions.get()
+                || commitSequence != store.getCommitSequence());
+        return new Snapshot(root, committingTransactions, committedSize);
     }
 
     RootReference[] getUndoLogRootReferences() {
         return undoLogRootReferences;
     }
 
+    /**
+     * Get the changes of the number of entries of the maps, by map id.
+     *
+     * @return the size changes, or null if not known
+     */
+    Map<Integer, AtomicLong> getSizeChanges() {
+        return sizeChanges;
+    }
+
+    /**
+     * Get the change of the number of entries of a map, as seen by this
+     * transaction.
+     *
+     * @param mapId the map id
+     * @return the size change, or null if not known
+     */
+    AtomicLong getSizeChange(int mapId) {
+        ConcurrentHashMap<Integer, AtomicLong> changes = sizeChanges;
+        return changes == null ? null : changes.computeIfAbsent(mapId, k -> new AtomicLong());
+    }
+
+    /**
+     * Add to the change of the number of entries of a map.
+     *
+     * @param mapId the map id
+     * @param change the number of added (if positive) or removed entries
+     */
+    void addSizeChange(int mapId, long change) {
+        if (change != 0) {
+            AtomicLong sizeChange = getSizeChange(mapId);
+            if (sizeChange != null) {
+                sizeChange.addAndGet(change);
+            }
+        }
+    }
+
+    /**
+     * Mark the changes of the number of entries as unknown.
+     */
+    void clearSizeChanges() {
+        sizeChanges = null;
+    }
+
     /**
      * Changes transaction status to a specified value
      * @param status to be set
@@ -356,16 +418,20 @@ public void markStatementStart(HashSet<MVMap<?, ?>> maps) {
             // In order to get such a "snapshot", we wait for a moment of silence,
             // when no new transaction were committed / closed.
             BitSet committingTransactions;
+            long commitSequence;
             do {
+                commitSequence = store.getCommitSequence();
                 committingTransactions = store.committingTransactions.get();
                 for (MVMap<?, ?> map : maps) {
                     TransactionMap<?, Object> txMap = openMap((MVMap<?, VersionedValue>) map);
-                    txMap.setStatementSnapshot(new Snapshot(map.flushAndGetRoot(), committingTransactions));
+                    txMap.setStatementSnapshot(new Snapshot(map.flushAndGetRoot(), committingTransactions,
+                            store.getCommittedSize(map.getId())));
                 }
                 if (isolationLevel == IsolationLevel.READ_COMMITTED) {
                     undoLogRootReferences = store.collectUndoLogRootReferences();
                 }
-            } while (committingTransactions != store.committingTransactions.get());
+            } while (committingTransactions != store.committingTransactions.get()
+                    || commitSequence != store.getCommitSequence());
             // Now we have a snapshot, where each map RootReference point to state of the map,
             // undoLogRootReferences captures the state of undo logs
             // and committingTransactions mask tells us which of seemingly uncommitted changes
@@ -632,7 +698,13 @@ public void setTimeoutMillis(int timeoutMillis) {
         this.timeoutMillis = timeoutMillis > 0 ? timeoutMillis : store.timeoutMillis;
     }
 
-    private long getLogId() {
+    /**
+     * Get the log id of the next undo log entry, which is also the number of
+     * entries in the undo log.
+     *
+     * @return the log id
+     */
+    long getLogId() {
         return getLogId(statusAndLogId.get());
     }
 
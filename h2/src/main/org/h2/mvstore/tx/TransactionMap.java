@@ -21,6 +21,7 @@
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A map that supports transactions.
@@ -67,6 +68,12 @@
      */
     private boolean hasChanges;
 
+    /**
+     * The change of the number of entries caused by the transaction, or null
+     * if not known yet.
+     */
+    private AtomicLong sizeChange;
+
 
     TransactionMap(Transaction transaction, MVMap<K, VersionedValue> map) {
         this.transaction = transaction;
@@ -108,17 +115,49 @@ public long sizeAsLongMax() {
 
     /**
      * Get the size of the map as seen by this transaction.
+     * <p>
+     * The number of committed entries is kept for each map (once the size
+     * was requested), and each transaction keeps the change of the number of
+     * entries it made, so that usually the size can be calculated in constant
+     * time.
      *
      * @return the size
      */
     public long sizeAsLong() {
+        Snapshot snapshot = getSnapshot();
+        long size = snapshot.committedSize;
+        if (size >= 0) {
+            if (transaction.isolationLevel == IsolationLevel.READ_UNCOMMITTED) {
+                // the changes of all transactions that were not committed
+                // at the time of the snapshot are visible
+                for (Transaction t : transaction.store.getOpenTransactions()) {
+                    if (!snapshot.committingTransactions.get(t.transactionId)) {
+                        Map<Integer, AtomicLong> sizeChanges = t.getSizeChanges();
+                        if (sizeChanges == null) {
+                            return sizeAsLongSlow();
+                        }
+                        AtomicLong change = sizeChanges.get(map.getId());
+                        if (change != null) {
+                            size += change.get();
+                        }
+                    }
+                }
+                return size;
+            }
+            Map<Integer, AtomicLong> sizeChanges = transaction.getSizeChanges();
+            if (sizeChanges != null) {
+                AtomicLong change = sizeChanges.get(map.getId());
+                return change == null ? size : size + change.get();
+            }
+        } else {
+            transaction.store.initCommittedSize(map);
+        }
         if (transaction.isolationLevel != IsolationLevel.READ_COMMITTED) {
             return sizeAsLongSlow();
         }
         // getting coherent picture of the map, committing transactions, and undo logs
         // either from values stored in transaction (never loops in that case),
         // or current values from the transaction store (loops until moment of silence)
-        Snapshot snapshot;
         RootReference[] undoLogRootReferences;
         do {
             snapshot = getSnapshot();
@@ -128,7 +167,7 @@ public long sizeAsLong() {
         RootReference mapRootReference = snapshot.root;
         BitSet committingTransactions = snapshot.committingTransactions;
         Page mapRootPage = mapRootReference.root;
-        long size = mapRootReference.getTotalCount();
+        size = mapRootReference.getTotalCount();
         long undoLogsTotalSize = undoLogRootReferences == null ? size
                 : TransactionStore.calculateUndoLogsTotalSize(undoLogRootReferences);
         // if we are looking at the map without any uncommitted values
@@ -189,6 +228,14 @@ public long sizeAsLong() {
         return size;
     }
 
+    private AtomicLong getSizeChange() {
+        AtomicLong change = sizeChange;
+        if (change == null) {
+            sizeChange = change = transaction.getSizeChange(map.getId());
+        }
+        return change;
+    }
+
     private long sizeAsLongSlow() {
         long count = 0L;
         Iterator<K> iterator = keyIterator(null, null);
@@ -264,6 +311,7 @@ public V putIfAbsent(K key, V value) {
      */
     public void append(K key, V value) {
         map.append(key, VersionedValueUncommitted.getInstance(transaction.log(map.getId(), key, null), value, null));
+        transaction.addSizeChange(map.getId(), 1);
         hasChanges = true;
     }
 
@@ -293,11 +341,46 @@ public V putCommitted(K key, V value) {
         DataUtils.checkArgument(value != null, "The value may not be null");
         VersionedValue newValue = VersionedValueCommitted.getInstance(value);
         VersionedValue oldValue = map.put(key, newValue);
+        if (oldValue == null || oldValue.getCurrentValue() == null) {
+            transaction.store.addCommittedSize(map.getId(), 1);
+        }
+        @SuppressWarnings("unchecked")
+        V result = (V) (oldValue == null ? null : oldValue.getCurrentValue());
+        return result;
+    }
+
+    /**
+     * Remove the entry for the given key, without adding an undo log entry.
+     *
+     * @param key the key
+     * @return the old value
+     */
+    public V removeCommitted(K key) {
+        VersionedValue oldValue = map.remove(key);
+        if (oldValue != null && oldValue.getCurrentValue() != null) {
+            transaction.store.addCommittedSize(map.getId(), -1);
+        }
         @SuppressWarnings("unchecked")
         V result = (V) (oldValue == null ? null : oldValue.getCurrentValue());
         return result;
     }
 
+    /**
+     * Append the committed entries at the end of the map, without adding undo
+     * log entries. The keys must be sorted and higher than any existing key.
+     *
+     * @param keys the keys
+     * @param values the values
+     * @see MVMap#appendLeaf(Object[], Object[])
+     */
+    public void appendCommitted(Object[] keys, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = VersionedValueCommitted.getInstance(values[i]);
+        }
+        map.appendLeaf(keys, values);
+        transaction.store.addCommittedSize(map.getId(), keys.length);
+    }
+
     private V set(Object key, V value) {
         TxDecisionMaker decisionMaker = new TxDecisionMaker(map.getId(), key, value, transaction);
         return set(key, decisionMaker);
@@ -325,6 +408,13 @@ private V set(Object key, TxDecisionMaker decisionMaker) {
             blockingTransaction = decisionMaker.getBlockingTransaction();
             if (decision != MVMap.Decision.ABORT || blockingTransaction == null) {
                 hasChanges |= decision != MVMap.Decision.ABORT;
+                int change = decisionMaker.getSizeChange();
+                if (change != 0) {
+                    AtomicLong sizeChange = getSizeChange();
+                    if (sizeChange != null) {
+                        sizeChange.addAndGet(change);
+                    }
+                }
                 @SuppressWarnings("unchecked")
                 V res = result == null ? null : (V) result.getCurrentValue();
                 return res;
@@ -552,6 +642,11 @@ public boolean isClosed() {
     public void clear() {
         // TODO truncate transactionally?
         map.clear();
+        transaction.store.removeCommittedSize(map.getId());
+        AtomicLong change = getSizeChange();
+        if (change != null) {
+            change.set(0);
+        }
         hasChanges = true;
     }
 
@@ -6,14 +6,19 @@
 package org.h2.mvstore.tx;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.h2.mvstore.Cursor;
 import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.RootReference;
@@ -76,6 +81,41 @@ public class TransactionStore {
      */
     final AtomicReference<BitSet> committingTransactions = new AtomicReference<>(new BitSet());
 
+    /**
+     * The number of committed entries of the maps, by map id. A map is added
+     * when its size is first requested, and the size is then updated when a
+     * transaction commits, using the size changes of the transaction. This
+     * map is also used as the lock for such updates.
+     */
+    private final ConcurrentHashMap<Integer, CommittedSize> committedSizes = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented before and after the committing transactions or the
+     * committed sizes are changed, so that it is odd while they change. It
+     * is used to read both consistently.
+     */
+    private volatile long commitSequence;
+
+    /**
+     * The committed transactions whose changes are still to be made permanent
+     * in the maps, in the order of the commit. A transaction keeps its slot
+     * (id) until this is done. This queue is also used as the lock for the
+     * commit thread.
+     */
+    private final ArrayDeque<Transaction> pendingCommits = new ArrayDeque<>();
+
+    /**
+     * The thread that processes the pending commits, or null if there are
+     * none.
+     */
+    private Thread commitThread;
+
+    /**
+     * The number of changes from which on the changes of a committed
+     * transaction are made permanent in the background.
+     */
+    private int backgroundCommitThreshold = DEFAULT_BACKGROUND_COMMIT_THRESHOLD;
+
     private boolean init;
 
     /**
@@ -108,6 +148,12 @@ public class TransactionStore {
     // TODO: introduce constructor parameter instead of a static field, driven by URL parameter
     private static final int MAX_OPEN_TRANSACTIONS = 65535;
 
+    /**
+     * The default number of changes from which on a commit is completed in
+     * the background.
+     */
+    private static final int DEFAULT_BACKGROUND_COMMIT_THRESHOLD = 10_000;
+
     // -1 is a bogus map id
     private static final Object[] COMMIT_MARKER = new Object[] {-1, null, null};
 
@@ -206,8 +252,9 @@ public void init() {
                                     assert lastUndoKey == null || getTransactionId(lastUndoKey) == transactionId;
                                     logId = lastUndoKey == null ? 0 : getLogId(lastUndoKey) + 1;
                                 }
-                                registerTransaction(transactionId, status, name, logId, timeoutMillis, 0,
-                                        ROLLBACK_LISTENER_NONE);
+                                Transaction t = registerTransaction(transactionId, status, name, logId,
+                                        timeoutMillis, 0, ROLLBACK_LISTENER_NONE);
+                                t.clearSizeChanges();
                                 continue;
                             }
                         }
@@ -255,6 +302,21 @@ public void setMaxTransactionId(int max) {
         this.maxTransactionId = max;
     }
 
+    /**
+     * Set the number of changes from which on the changes of a committed
+     * transaction are made permanent in a background thread. Until then, the
+     * entries of the maps are still marked as uncommitted, but other
+     * transactions see them as committed, and the id of the transaction is not
+     * re-used. If the store is closed before (without closing the transaction
+     * store), the commit is completed when the store is opened again.
+     *
+     * @param threshold the number of changes, or {@link Integer#MAX_VALUE} to
+     *            always commit in the calling thread
+     */
+    public void setBackgroundCommitThreshold(int threshold) {
+        this.backgroundCommitThreshold = threshold;
+    }
+
     /**
      * Check whether a given map exists.
      *
@@ -330,6 +392,7 @@ public List<Transaction> getOpenTransactions() {
      * Close the transaction store.
      */
     public synchronized void close() {
+        waitForPendingCommits();
         store.commit();
     }
 
@@ -445,6 +508,7 @@ void removeUndoLogRecord(int transactionId) {
      * @param map the map
      */
     void removeMap(TransactionMap<?,?> map) {
+        removeCommittedSize(map.map.getId());
         store.removeMap(map.map);
     }
 
@@ -461,52 +525,278 @@ void commit(Transaction t, boolean recovery) {
             // It does not change the way this transaction is treated by others,
             // but preserves fact of commit in case of abrupt termination.
             MVMap<Long, Object[]> undoLog = undoLogs[transactionId];
-            Cursor<Long, Object[]> cursor;
             if(recovery) {
                 removeUndoLogRecord(transactionId);
-                cursor = undoLog.cursor(null);
             } else {
-                cursor = undoLog.cursor(null);
                 markUndoLogAsCommitted(transactionId);
             }
 
             // this is an atomic action that causes all changes
             // made by this transaction, to be considered as "committed"
-            flipCommittingTransactionsBit(transactionId, true);
+            flipCommittingTransactionsBit(t, true);
+
+            if (!recovery && t.getLogId() >= backgroundCommitThreshold) {
+                // the entries of the maps are replaced later, by the commit
+                // thread; the append buffer of the undo log can only be
+                // flushed by this thread
+                undoLog.flushAndGetRoot();
+                t.commitPending = true;
+            } else {
+                completeCommit(t);
+            }
+        }
+    }
+
+    /**
+     * Replace the uncommitted entries of a committed transaction with
+     * committed ones, and clear the undo log.
+     *
+     * @param t the transaction
+     */
+    private void completeCommit(Transaction t) {
+        try {
+            replaceCommittedEntries(t);
+        } finally {
+            flipCommittingTransactionsBit(t, false);
+        }
+    }
 
-            CommitDecisionMaker commitDecisionMaker = new CommitDecisionMaker();
+    private void replaceCommittedEntries(Transaction t) {
+        int transactionId = t.transactionId;
+        MVMap<Long, Object[]> undoLog = undoLogs[transactionId];
+        Cursor<Long, Object[]> cursor = undoLog.cursor(null);
+        CommitDecisionMaker commitDecisionMaker = new CommitDecisionMaker();
+        while (cursor.hasNext()) {
+            Long undoKey = cursor.next();
+            if (getLogId(undoKey) == LOG_ID_MASK) {
+                // the commit marker
+                break;
+            }
+            Object[] op = cursor.getValue();
+            int mapId = (Integer) op[0];
+            MVMap<Object, VersionedValue> map = openMap(mapId);
+            if (map != null) { // might be null if map was removed later
+                Object key = op[1];
+                commitDecisionMaker.setUndoKey(undoKey);
+                // although second parameter (value) is not really
+                // used by CommitDecisionMaker, MVRTreeMap has weird
+                // traversal logic based on it, and any non-null
+                // value will do, to signify update, not removal
+                map.operate(key, VersionedValue.DUMMY, commitDecisionMaker);
+            }
+        }
+        undoLog.clear();
+    }
+
+    /**
+     * Add a committed transaction to the queue of the commit thread, and
+     * start the thread if needed.
+     *
+     * @param t the transaction
+     */
+    private void addPendingCommit(Transaction t) {
+        synchronized (pendingCommits) {
+            pendingCommits.add(t);
+            if (commitThread == null) {
+                FileStore fileStore = store.getFileStore();
+                commitThread = new Thread(this::completePendingCommits,
+                        fileStore == null ? "MVStore transaction commit" : "MVStore transaction commit " + fileStore);
+                commitThread.setDaemon(true);
+                commitThread.start();
+            }
+        }
+    }
+
+    private void completePendingCommits() {
+        while (true) {
+            Transaction t;
+            synchronized (pendingCommits) {
+                t = pendingCommits.peek();
+                if (t == null) {
+                    commitThread = null;
+                    pendingCommits.notifyAll();
+                    return;
+                }
+            }
             try {
-                while (cursor.hasNext()) {
-                    Long undoKey = cursor.next();
-                    Object[] op = cursor.getValue();
-                    int mapId = (Integer) op[0];
-                    MVMap<Object, VersionedValue> map = openMap(mapId);
-                    if (map != null) { // might be null if map was removed later
-                        Object key = op[1];
-                        commitDecisionMaker.setUndoKey(undoKey);
-                        // although second parameter (value) is not really
-                        // used by CommitDecisionMaker, MVRTreeMap has weird
-                        // traversal logic based on it, and any non-null
-                        // value will do, to signify update, not removal
-                        map.operate(key, VersionedValue.DUMMY, commitDecisionMaker);
+                if (!store.isClosed()) {
+                    replaceCommittedEntries(t);
+                    flipCommittingTransactionsBit(t, false);
+                    releaseTransactionSlot(t);
+                }
+            } catch (RuntimeException e) {
+                // if the store was closed in the meantime, the commit is
+                // completed when it is opened again
+                if (!store.isClosed()) {
+                    // the commit is already durable; the committing bit
+                    // and the slot are kept, so that the entries are still
+                    // seen as committed, and they are replaced when the
+                    // store is opened again
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+            synchronized (pendingCommits) {
+                pendingCommits.poll();
+            }
+        }
+    }
+
+    /**
+     * Wait until the changes of all committed transactions are permanent.
+     */
+    private void waitForPendingCommits() {
+        synchronized (pendingCommits) {
+            while (commitThread != null) {
+                try {
+                    pendingCommits.wait();
+                } catch (InterruptedException ignore) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private void flipCommittingTransactionsBit(Transaction t, boolean flag) {
+        int transactionId = t.transactionId;
+        synchronized (committedSizes) {
+            commitSequence++;
+            try {
+                if (flag) {
+                    Map<Integer, AtomicLong> sizeChanges = t.getSizeChanges();
+                    if (sizeChanges == null) {
+                        // the changes of a transaction that was restored
+                        // when opening the store are not known
+                        committedSizes.clear();
+                    } else {
+                        for (Map.Entry<Integer, AtomicLong> e : sizeChanges.entrySet()) {
+                            CommittedSize committedSize = committedSizes.get(e.getKey());
+                            if (committedSize != null) {
+                                committedSize.size += e.getValue().get();
+                            }
+                        }
                     }
                 }
-                undoLog.clear();
+                boolean success;
+                do {
+                    BitSet original = committingTransactions.get();
+                    assert original.get(transactionId) != flag : flag ? "Double commit" : "Mysterious bit's disappearance";
+                    BitSet clone = (BitSet) original.clone();
+                    clone.set(transactionId, flag);
+                    success = committingTransactions.compareAndSet(original, clone);
+                } while(!success);
             } finally {
-                flipCommittingTransactionsBit(transactionId, false);
+                commitSequence++;
             }
         }
     }
 
-    private void flipCommittingTransactionsBit(int transactionId, boolean flag) {
-        boolean success;
-        do {
-            BitSet original = committingTransactions.get();
-            assert original.get(transactionId) != flag : flag ? "Double commit" : "Mysterious bit's disappearance";
-            BitSet clone = (BitSet) original.clone();
-            clone.set(transactionId, flag);
-            success = committingTransactions.compareAndSet(original, clone);
-        } while(!success);
+    /**
+     * Get the commit sequence, waiting while the committing transactions or
+     * the committed sizes change. To read them consistently, read the
+     * sequence before and after, and repeat if it changed.
+     *
+     * @return the commit sequence
+     */
+    long getCommitSequence() {
+        long sequence;
+        while (((sequence = commitSequence) & 1) != 0) {
+            Thread.yield();
+        }
+        return sequence;
+    }
+
+    /**
+     * Get the number of committed entries of a map. Entries of committing
+     * transactions are included.
+     *
+     * @param mapId the map id
+     * @return the number of entries, or -1 if not known
+     */
+    long getCommittedSize(int mapId) {
+        CommittedSize committedSize = committedSizes.get(mapId);
+        return committedSize != null && committedSize.initialized ? committedSize.size : -1;
+    }
+
+    /**
+     * Start to keep track of the number of committed entries of a map, unless
+     * this is already done. If there are uncommitted changes, the map is
+     * scanned once.
+     *
+     * @param map the map
+     */
+    void initCommittedSize(MVMap<?, VersionedValue> map) {
+        int mapId = map.getId();
+        if (committedSizes.containsKey(mapId)) {
+            return;
+        }
+        CommittedSize committedSize = new CommittedSize();
+        BitSet committing;
+        RootReference root;
+        RootReference[] undoLogRootReferences;
+        synchronized (committedSizes) {
+            if (committedSizes.putIfAbsent(mapId, committedSize) != null) {
+                return;
+            }
+            // transactions that commit from now on add their changes
+            committing = committingTransactions.get();
+            root = map.flushAndGetRoot();
+            undoLogRootReferences = collectUndoLogRootReferences();
+        }
+        long size;
+        if (undoLogRootReferences != null && calculateUndoLogsTotalSize(undoLogRootReferences) == 0) {
+            size = root.getTotalCount();
+        } else {
+            size = 0;
+            Cursor<?, VersionedValue> cursor = new Cursor<>(root.root, null);
+            while (cursor.hasNext()) {
+                cursor.next();
+                VersionedValue value = cursor.getValue();
+                long operationId = value.getOperationId();
+                if ((operationId == 0 || committing.get(getTransactionId(operationId))
+                        ? value.getCurrentValue() : value.getCommittedValue()) != null) {
+                    size++;
+                }
+            }
+        }
+        synchronized (committedSizes) {
+            commitSequence++;
+            committedSize.size += size;
+            committedSize.initialized = true;
+            commitSequence++;
+        }
+    }
+
+    /**
+     * Change the number of committed entries of a map, for changes that are
+     * committed directly (without a transaction).
+     *
+     * @param mapId the map id
+     * @param change the number of added (if positive) or removed entries
+     */
+    void addCommittedSize(int mapId, long change) {
+        synchronized (committedSizes) {
+            CommittedSize committedSize = committedSizes.get(mapId);
+            if (committedSize != null) {
+                commitSequence++;
+                committedSize.size += change;
+                commitSequence++;
+            }
+        }
+    }
+
+    /**
+     * Stop to keep track of the number of committed entries of a map, for
+     * example because it was cleared or removed.
+     *
+     * @param mapId the map id
+     */
+    void removeCommittedSize(int mapId) {
+        synchronized (committedSizes) {
+            commitSequence++;
+            committedSizes.remove(mapId);
+            commitSequence++;
+        }
     }
 
     /**
@@ -568,7 +858,26 @@ void endTransaction(Transaction t, boolean hasChanges) {
         t.closeIt();
         int txId = t.transactionId;
         transactions.set(txId, null);
+        if (t.commitPending) {
+            // the commit is made durable now, but the slot is only released
+            // by the commit thread, after the entries are replaced
+            storeChanges(t);
+            addPendingCommit(t);
+        } else {
+            releaseTransactionSlot(t);
+            if (hasChanges) {
+                storeChanges(t);
+            }
+        }
+    }
 
+    /**
+     * Vacate the slot of a closed transaction.
+     *
+     * @param t the transaction
+     */
+    private void releaseTransactionSlot(Transaction t) {
+        int txId = t.transactionId;
         boolean success;
         do {
             VersionedBitSet original = openTransactions.get();
@@ -577,26 +886,32 @@ void endTransaction(Transaction t, boolean hasChanges) {
             clone.clear(txId);
             success = openTransactions.compareAndSet(original, clone);
         } while(!success);
+    }
 
-        if (hasChanges) {
-            boolean wasStored = t.wasStored;
-            if (wasStored && !preparedTransactions.isClosed()) {
-                preparedTransactions.remove(txId);
-            }
+    /**
+     * Remove a closed transaction that made changes from the prepared
+     * transactions, and commit the store if needed.
+     *
+     * @param t the transaction
+     */
+    private void storeChanges(Transaction t) {
+        boolean wasStored = t.wasStored;
+        if (wasStored && !preparedTransactions.isClosed()) {
+            preparedTransactions.remove(t.transactionId);
+        }
 
-            if (wasStored || store.getAutoCommitDelay() == 0) {
-                store.tryCommit();
-            } else {
-                if (isUndoEmpty()) {
-                    // to avoid having to store the transaction log,
-                    // if there is no open transaction,
-                    // and if there have been many changes, store them now
-                    int unsaved = store.getUnsavedMemory();
-                    int max = store.getAutoCommitMemory();
-                    // save at 3/4 capacity
-                    if (unsaved * 4 > max * 3) {
-                        store.tryCommit();
-                    }
+        if (wasStored || store.getAutoCommitDelay() == 0) {
+            store.tryCommit();
+        } else {
+            if (isUndoEmpty()) {
+                // to avoid having to store the transaction log,
+                // if there is no open transaction,
+                // and if there have been many changes, store them now
+                int unsaved = store.getUnsavedMemory();
+                int max = store.getAutoCommitMemory();
+                // save at 3/4 capacity
+                if (unsaved * 4 > max * 3) {
+                    store.tryCommit();
                 }
             }
         }
@@ -673,7 +988,7 @@ Transaction getTransaction(int transactionId) {
     void rollbackTo(Transaction t, long maxLogId, long toLogId) {
         int transactionId = t.getId();
         MVMap<Long, Object[]> undoLog = undoLogs[transactionId];
-        RollbackDecisionMaker decisionMaker = new RollbackDecisionMaker(this, transactionId, toLogId, t.listener);
+        RollbackDecisionMaker decisionMaker = new RollbackDecisionMaker(this, t, toLogId, t.listener);
         for (long logId = maxLogId - 1; logId >= toLogId; logId--) {
             Long undoKey = getOperationId(transactionId, logId);
             undoLog.operate(undoKey, null, decisionMaker);
@@ -773,6 +1088,24 @@ public Change(String mapName, Object key, Object value) {
         }
     }
 
+    /**
+     * The number of committed entries of a map.
+     */
+    private static final class CommittedSize {
+
+        /**
+         * The number of entries. Until it is initialized, only the changes of
+         * the transactions that committed since then are counted.
+         */
+        volatile long size;
+
+        /**
+         * Whether the existing entries are counted.
+         */
+        volatile boolean initialized;
+
+    }
+
     /**
      * This listener can be registered with the transaction to be notified of
      * every compensating change during transaction rollback.
@@ -49,6 +49,16 @@ class TxDecisionMaker extends MVMap.DecisionMaker<VersionedValue> {
     private       MVMap.Decision decision;
     private       Object         lastCommittedValue;
 
+    /**
+     * Whether the entry exists (as seen by the transaction) before the change
+     */
+    private       boolean        existed;
+
+    /**
+     * The change of the number of entries (as seen by the transaction)
+     */
+    private       int            sizeChange;
+
     TxDecisionMaker(int mapId, Object key, Object value, Transaction transaction) {
         this.mapId = mapId;
         this.key = key;
@@ -113,13 +123,16 @@ public final void reset() {
         }
         blockingTransaction = null;
         decision = null;
+        sizeChange = 0;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     // always return value (ignores existingValue)
     public final VersionedValue selectValue(VersionedValue existingValue, VersionedValue providedValue) {
-        return VersionedValueUncommitted.getInstance(undoKey, getNewValue(existingValue), lastCommittedValue);
+        Object newValue = getNewValue(existingValue);
+        sizeChange = (newValue != null ? 1 : 0) - (existed ? 1 : 0);
+        return VersionedValueUncommitted.getInstance(undoKey, newValue, lastCommittedValue);
     }
 
     /**
@@ -144,6 +157,7 @@ Object getNewValue(VersionedValue existingValue) {
     final MVMap.Decision logAndDecideToPut(VersionedValue valueToLog, Object value) {
         undoKey = transaction.log(mapId, key, valueToLog);
         lastCommittedValue = value;
+        existed = valueToLog != null && valueToLog.getCurrentValue() != null;
         return setDecision(MVMap.Decision.PUT);
     }
 
@@ -151,6 +165,16 @@ final MVMap.Decision getDecision() {
         return decision;
     }
 
+    /**
+     * Get the change of the number of entries caused by the
+     * {@link MVMap.Decision#PUT} decision that has been made.
+     *
+     * @return 1 if an entry was added, -1 if it was removed, otherwise 0
+     */
+    final int getSizeChange() {
+        return sizeChange;
+    }
+
     final Transaction getBlockingTransaction() {
         return blockingTransaction;
     }
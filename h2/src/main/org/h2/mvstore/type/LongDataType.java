@@ -0,0 +1,86 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.type;
+
+import java.nio.ByteBuffer;
+
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+
+/**
+ * A long type. The keys of a page are stored as the first key followed by the
+ * differences between adjacent keys, which are small for dense keys.
+ */
+public class LongDataType implements LongKeyType {
+
+    public static final LongDataType INSTANCE = new LongDataType();
+
+    @Override
+    public int compare(Object a, Object b) {
+        return Long.compare((Long) a, (Long) b);
+    }
+
+    @Override
+    public int getMemory(Object obj) {
+        return 24;
+    }
+
+    @Override
+    public void read(ByteBuffer buff, Object[] obj, int len, boolean key) {
+        for (int i = 0; i < len; i++) {
+            obj[i] = read(buff);
+        }
+    }
+
+    @Override
+    public void write(WriteBuffer buff, Object[] obj, int len, boolean key) {
+        for (int i = 0; i < len; i++) {
+            write(buff, obj[i]);
+        }
+    }
+
+    @Override
+    public Long read(ByteBuffer buff) {
+        return DataUtils.readVarLong(buff);
+    }
+
+    @Override
+    public void write(WriteBuffer buff, Object obj) {
+        buff.putVarLong((Long) obj);
+    }
+
+    @Override
+    public long toLong(Object key) {
+        return (Long) key;
+    }
+
+    @Override
+    public Long fromLong(long x) {
+        return x;
+    }
+
+    @Override
+    public void writeKeys(WriteBuffer buff, long[] keys, int len) {
+        long last = 0;
+        for (int i = 0; i < len; i++) {
+            long x = keys[i];
+            // the keys are ascending, so the difference is positive (possibly
+            // after an overflow, which is undone when reading)
+            buff.putVarLong(x - last);
+            last = x;
+        }
+    }
+
+    @Override
+    public void readKeys(ByteBuffer buff, long[] keys, int len) {
+        long last = 0;
+        for (int i = 0; i < len; i++) {
+            last += DataUtils.readVarLong(buff);
+            keys[i] = last;
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.type;
+
+import java.nio.ByteBuffer;
+
+import org.h2.mvstore.WriteBuffer;
+
+/**
+ * A data type for keys that are 64-bit integers. The pages of a map with such
+ * a key type keep their keys in a long array, so that the keys don't need to
+ * be boxed and can be searched without calling {@link #compare}. The order of
+ * the keys must be the natural order of their long values.
+ */
+public interface LongKeyType extends DataType {
+
+    /**
+     * Convert a key to its long value.
+     *
+     * @param key the key
+     * @return the long value
+     */
+    long toLong(Object key);
+
+    /**
+     * Convert a long value to a key.
+     *
+     * @param x the long value
+     * @return the key
+     */
+    Object fromLong(long x);
+
+    /**
+     * Write the keys of a page.
+     *
+     * @param buff the target buffer
+     * @param keys the keys, in ascending order
+     * @param len the number of keys to write
+     */
+    void writeKeys(WriteBuffer buff, long[] keys, int len);
+
+    /**
+     * Read the keys of a page.
+     *
+     * @param buff the source buffer
+     * @param keys the keys
+     * @param len the number of keys to read
+     */
+    void readKeys(ByteBuffer buff, long[] keys, int len);
+
+}
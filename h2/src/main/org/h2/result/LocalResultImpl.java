@@ -7,6 +7,8 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 import org.h2.engine.Database;
 import org.h2.engine.Session;
@@ -35,6 +37,16 @@ public class LocalResultImpl implements LocalResult {
     private int rowId, rowCount;
     private ArrayList<Value[]> rows;
     private SortOrder sort;
+    /**
+     * The first offset + limit rows in the sort order, with the last of them
+     * on top, if only these rows are needed.
+     */
+    private PriorityQueue<Value[]> topRows;
+    /**
+     * The rows that are equal to the last row of topRows and were not added
+     * to topRows (only used for WITH TIES).
+     */
+    private ArrayList<Value[]> ties;
     // HashSet cannot be used here, because we need to compare values of
     // different type or scale properly.
     private TreeMap<Value, Value[]> distinctRows;
@@ -340,6 +352,14 @@ public void addRow(Value... values) {
                 rowCount = external.addRow(values);
             }
         } else {
+            if (rowCount == 0 && external == null && canKeepTopRows()) {
+                topRows = new PriorityQueue<>(offset + limit, Collections.reverseOrder(sort));
+                ties = Utils.newSmallArrayList();
+            }
+            if (topRows != null) {
+                addTopRow(values);
+                return;
+            }
             rows.add(values);
             rowCount++;
             if (rows.size() > maxMemoryRows) {
@@ -348,6 +368,58 @@ public void addRow(Value... values) {
         }
     }
 
+    /**
+     * Check whether only the first offset + limit rows in the sort order need
+     * to be kept while the rows are added.
+     *
+     * @return true if the other rows can be discarded immediately
+     */
+    private boolean canKeepTopRows() {
+        return sort != null && limit > 0 && !fetchPercent && !limitsWereApplied
+                && (long) Math.max(offset, 0) + limit <= maxMemoryRows;
+    }
+
+    private void addTopRow(Value[] values) {
+        PriorityQueue<Value[]> topRows = this.topRows;
+        if (topRows.size() < Math.max(offset, 0) + limit) {
+            topRows.add(values);
+        } else {
+            Value[] last = topRows.peek();
+            int comp = sort.compare(values, last);
+            if (comp > 0) {
+                return;
+            } else if (comp == 0) {
+                if (withTiesSortOrder == null) {
+                    return;
+                }
+                ties.add(values);
+            } else {
+                topRows.poll();
+                topRows.add(values);
+                if (withTiesSortOrder != null) {
+                    if (sort.compare(last, topRows.peek()) == 0) {
+                        ties.add(last);
+                    } else {
+                        ties.clear();
+                    }
+                }
+            }
+        }
+        rowCount = topRows.size() + ties.size();
+        if (rowCount > maxMemoryRows) {
+            // too many ties, use the regular path
+            addTopRowsToRows();
+            addRowsToDisk();
+        }
+    }
+
+    private void addTopRowsToRows() {
+        rows.addAll(topRows);
+        rows.addAll(ties);
+        topRows = null;
+        ties = null;
+    }
+
     private void addRowsToDisk() {
         if (external == null) {
             createExternalResult();
@@ -366,6 +438,9 @@ public int getVisibleColumnCount() {
      */
     @Override
     public void done() {
+        if (topRows != null) {
+            addTopRowsToRows();
+        }
         if (external != null) {
             addRowsToDisk();
         } else {
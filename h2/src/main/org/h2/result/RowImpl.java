@@ -110,7 +110,7 @@ public String toString() {
      * @param data the row data
      * @return the string representation
      */
-    static String toString(long key, boolean isDeleted, Value[] data) {
+    public static String toString(long key, boolean isDeleted, Value[] data) {
         StringBuilder builder = new StringBuilder("( /* key:").append(key);
         if (isDeleted) {
             builder.append(" deleted");
@@ -6,6 +6,8 @@
 package org.h2.schema;
 
 import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.h2.api.ErrorCode;
 import org.h2.command.ddl.SequenceOptions;
 import org.h2.engine.DbObject;
@@ -28,8 +30,57 @@ public class Sequence extends SchemaObjectBase {
      */
     public static final int DEFAULT_CACHE_SIZE = 32;
 
-    private long value;
-    private long valueWithMargin;
+    /**
+     * The number of ranges of values that are reserved at once, if sessions
+     * use ranges.
+     */
+    private static final int RANGES_PER_RESERVE = 16;
+
+    /**
+     * The next value. Values are handed out with compare-and-set, without
+     * locking, as long as they are below the value with margin.
+     */
+    private final AtomicLong value;
+
+    /**
+     * The last value that was handed out, or inserted explicitly. If sessions
+     * use ranges, this is the highest such value.
+     */
+    private final AtomicLong lastValue;
+
+    /**
+     * The value that is stored when flushing. The values up to this value
+     * are reserved and can be handed out without flushing.
+     */
+    private volatile long valueWithMargin;
+
+    /**
+     * Incremented when the sequence is modified, so that the ranges that the
+     * sessions reserved before are no longer used.
+     */
+    private volatile int generation;
+
+    /**
+     * Whether a thread is extending the reserved values.
+     */
+    private final AtomicBoolean reserving = new AtomicBoolean();
+
+    /**
+     * Whether sessions use ranges of values.
+     */
+    private volatile boolean contended;
+
+    /**
+     * Whether a range was reserved since the generation was last incremented.
+     */
+    private volatile boolean rangesReserved;
+
+    /**
+     * The value at the time the generation was last incremented. The ranges
+     * of the current generation start at this value or after it.
+     */
+    private long rangesStart;
+
     private long increment;
     private long cacheSize;
     private long minValue;
@@ -64,7 +115,10 @@ public Sequence(Session session, Schema schema, int id, String name, SequenceOpt
             throw DbException.get(ErrorCode.SEQUENCE_ATTRIBUTES_INVALID, name, Long.toString(value),
                     Long.toString(minValue), Long.toString(maxValue), Long.toString(increment));
         }
-        this.valueWithMargin = this.value = value;
+        this.value = new AtomicLong(value);
+        this.lastValue = new AtomicLong(value - increment);
+        this.valueWithMargin = value;
+        this.rangesStart = value;
         this.increment = increment;
         t = options.getCacheSize(session);
         this.cacheSize = t != null ? Math.max(1, t) : DEFAULT_CACHE_SIZE;
@@ -89,7 +143,7 @@ public Sequence(Session session, Schema schema, int id, String name, SequenceOpt
     public synchronized void modify(Long startValue, Long minValue,
             Long maxValue, Long increment) {
         if (startValue == null) {
-            startValue = this.value;
+            startValue = this.value.get();
         }
         if (minValue == null) {
             minValue = this.minValue;
@@ -107,11 +161,54 @@ public synchronized void modify(Long startValue, Long minValue,
                     String.valueOf(maxValue),
                     String.valueOf(increment));
         }
-        this.value = startValue;
+        this.value.set(startValue);
+        this.lastValue.set(startValue - increment);
         this.valueWithMargin = startValue;
         this.minValue = minValue;
         this.maxValue = maxValue;
         this.increment = increment;
+        invalidateRanges();
+    }
+
+    /**
+     * Increment the generation, so that the ranges that the sessions reserved
+     * before are no longer used.
+     */
+    private void invalidateRanges() {
+        rangesReserved = false;
+        rangesStart = value.get();
+        generation++;
+    }
+
+    /**
+     * Make sure that a value that was inserted explicitly into a column that
+     * uses this sequence is not handed out later.
+     *
+     * @param session the session
+     * @param v the inserted value
+     * @return whether the value is after the last value that was handed out
+     */
+    public boolean useValue(Session session, long v) {
+        boolean after;
+        synchronized (this) {
+            after = increment > 0 ? v > lastValue.get() : v < lastValue.get();
+            long current = value.get() - increment;
+            if (increment > 0 ? v > current : v < current) {
+                modify(v + increment, null, null, null);
+            } else {
+                if (rangesReserved && (increment > 0 ? v >= rangesStart : v <= rangesStart)) {
+                    // the value may be in a range that another session
+                    // reserved, but did not use yet
+                    invalidateRanges();
+                }
+                if (after) {
+                    setLastValue(v);
+                }
+                return after;
+            }
+        }
+        flush(session);
+        return after;
     }
 
     /**
@@ -204,7 +301,7 @@ public String getCreateSQLForCopy(Table table, String quotedName) {
 
     @Override
     public synchronized String getCreateSQL() {
-        long v = writeWithMargin ? valueWithMargin : value;
+        long v = writeWithMargin ? valueWithMargin : value.get();
         StringBuilder buff = new StringBuilder("CREATE SEQUENCE ");
         getSQL(buff, true).append(" START WITH ").append(v);
         if (increment != 1) {
@@ -233,35 +330,32 @@ public synchronized String getCreateSQL() {
     }
 
     /**
-     * Get the next value for this sequence.
+     * Get the next value for this sequence. If several sessions request values
+     * at the same time, each of them reserves a range of values (the cache
+     * size), so that they don't need to synchronize for each value.
      *
      * @param session the session
      * @return the next value
      */
     public Value getNext(Session session) {
-        boolean needsFlush = false;
+        Range range = session != null ? session.getSequenceRange(this) : null;
         long resultAsLong;
-        synchronized (this) {
-            if ((increment > 0 && value >= valueWithMargin) ||
-                    (increment < 0 && value <= valueWithMargin)) {
-                valueWithMargin += increment * cacheSize;
-                needsFlush = true;
-            }
-            if ((increment > 0 && value > maxValue) ||
-                    (increment < 0 && value < minValue)) {
-                if (cycle) {
-                    value = increment > 0 ? minValue : maxValue;
-                    valueWithMargin = value + (increment * cacheSize);
-                    needsFlush = true;
-                } else {
-                    throw DbException.get(ErrorCode.SEQUENCE_EXHAUSTED, getName());
+        while (true) {
+            int generation = this.generation;
+            if (range != null && range.generation == generation && range.remaining > 0) {
+                resultAsLong = range.next;
+                range.next += increment;
+                range.remaining--;
+                setLastValue(resultAsLong);
+                if (this.generation == generation) {
+                    break;
                 }
+                // the value may have been inserted explicitly meanwhile
+                continue;
             }
-            resultAsLong = value;
-            value += increment;
-        }
-        if (needsFlush) {
-            flush(session);
+            resultAsLong = allocate(session, range, generation);
+            setLastValue(resultAsLong);
+            break;
         }
         Value result;
         if (database.getMode().decimalSequences) {
@@ -275,12 +369,195 @@ public Value getNext(Session session) {
         return result;
     }
 
+    /**
+     * Allocate the next value, and if a range is given, also the following
+     * values for the range.
+     *
+     * @param session the session
+     * @param range the range of the session, or null
+     * @param generation the generation of the sequence
+     * @return the next value
+     */
+    private long allocate(Session session, Range range, int generation) {
+        long count = range != null ? getRangeSize() : 1;
+        while (true) {
+            long v = value.get();
+            long step = increment * count;
+            long next = v + step;
+            if (((v ^ next) & (step ^ next)) < 0 ||
+                    (increment > 0 ? next - increment > maxValue : next - increment < minValue)) {
+                // overflow, or the end of the sequence
+                break;
+            }
+            long margin = valueWithMargin;
+            if (increment > 0 ? next > margin : next < margin) {
+                if (range == null || !reserve(session, margin)) {
+                    break;
+                }
+                continue;
+            }
+            if (value.compareAndSet(v, next)) {
+                if (range != null) {
+                    rangesReserved = true;
+                    range.generation = generation;
+                    range.next = v + increment;
+                    range.remaining = count - 1;
+                }
+                reserveAhead(session, next);
+                return v;
+            }
+            if (range == null && session != null && getRangeSize() > 1) {
+                // another session was faster: from now on, this session
+                // uses a range of values
+                range = new Range();
+                session.setSequenceRange(this, range);
+                count = getRangeSize();
+                contended = true;
+            }
+        }
+        if (range != null) {
+            range.remaining = 0;
+        }
+        return allocateSynchronized(session);
+    }
+
+    /**
+     * Set the last value, unless a later value was handed out already.
+     *
+     * @param v the value
+     */
+    private void setLastValue(long v) {
+        while (true) {
+            long last = lastValue.get();
+            if ((increment > 0 ? v <= last : v >= last) || lastValue.compareAndSet(last, v)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the number of values a session reserves at once.
+     *
+     * @return the number of values, 1 if a session should not reserve values
+     */
+    private long getRangeSize() {
+        long increment = Math.abs(this.increment);
+        // the values of the range must not overflow
+        return increment > 0 && increment <= Long.MAX_VALUE / cacheSize ? cacheSize : 1;
+    }
+
+    /**
+     * Get the number of values that are reserved at once. If sessions use
+     * ranges, this is enough for a number of ranges, so that the reserved
+     * values are not flushed for each range.
+     *
+     * @return the number of values
+     */
+    private long getReserveSize() {
+        long size = getRangeSize();
+        if (contended && Math.abs(increment) <= Long.MAX_VALUE / size / RANGES_PER_RESERVE) {
+            size *= RANGES_PER_RESERVE;
+        }
+        return size;
+    }
+
+    /**
+     * Allocate the next value, reserving more values (and flushing) or
+     * starting a new cycle if needed.
+     *
+     * @param session the session
+     * @return the next value
+     */
+    private long allocateSynchronized(Session session) {
+        boolean needsFlush = false;
+        long resultAsLong;
+        synchronized (this) {
+            while (true) {
+                long v = value.get();
+                if ((increment > 0 && v >= valueWithMargin) ||
+                        (increment < 0 && v <= valueWithMargin)) {
+                    valueWithMargin += increment * cacheSize;
+                    needsFlush = true;
+                }
+                if ((increment > 0 && v > maxValue) ||
+                        (increment < 0 && v < minValue)) {
+                    if (cycle) {
+                        long start = increment > 0 ? minValue : maxValue;
+                        if (!value.compareAndSet(v, start)) {
+                            continue;
+                        }
+                        v = start;
+                        lastValue.set(start - increment);
+                        rangesStart = start;
+                        valueWithMargin = v + (increment * cacheSize);
+                        needsFlush = true;
+                    } else {
+                        throw DbException.get(ErrorCode.SEQUENCE_EXHAUSTED, getName());
+                    }
+                }
+                if (value.compareAndSet(v, v + increment)) {
+                    resultAsLong = v;
+                    break;
+                }
+            }
+        }
+        if (needsFlush) {
+            flush(session);
+        }
+        return resultAsLong;
+    }
+
+    /**
+     * Reserve (and flush) more values, unless another thread did this
+     * already.
+     *
+     * @param session the session
+     * @param margin the value with margin that was seen
+     * @return false if no more values can be reserved (overflow)
+     */
+    private boolean reserve(Session session, long margin) {
+        synchronized (this) {
+            if (valueWithMargin != margin) {
+                return true;
+            }
+            long step = increment * getReserveSize();
+            long newMargin = margin + step;
+            if (((margin ^ newMargin) & (step ^ newMargin)) < 0) {
+                return false;
+            }
+            valueWithMargin = newMargin;
+        }
+        flush(session);
+        return true;
+    }
+
+    /**
+     * Reserve (and flush) more values if half of the reserved values are
+     * used, so that other threads don't need to wait for the flush. Only one
+     * thread does this at a time.
+     *
+     * @param session the session
+     * @param next the next value
+     */
+    private void reserveAhead(Session session, long next) {
+        long margin = valueWithMargin;
+        if ((margin - next) / increment >= getReserveSize() / 2 || !reserving.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reserve(session, margin);
+        } finally {
+            reserving.set(false);
+        }
+    }
+
     /**
      * Flush the current value to disk.
      */
     public void flushWithoutMargin() {
-        if (valueWithMargin != value) {
-            valueWithMargin = value;
+        long v = value.get();
+        if (valueWithMargin != v) {
+            valueWithMargin = v;
             flush(null);
         }
     }
@@ -342,8 +619,13 @@ public void removeChildrenAndResources(Session session) {
         invalidate();
     }
 
-    public synchronized long getCurrentValue() {
-        return value - increment;
+    /**
+     * Get the last value that was handed out, or inserted explicitly.
+     *
+     * @return the last value
+     */
+    public long getCurrentValue() {
+        return lastValue.get();
     }
 
     public void setBelongsToTable(boolean b) {
@@ -358,4 +640,27 @@ public long getCacheSize() {
         return cacheSize;
     }
 
+    /**
+     * A range of values that a session reserved, so that it doesn't need to
+     * synchronize with other sessions for each value.
+     */
+    public static final class Range {
+
+        /**
+         * The generation of the sequence when the range was reserved.
+         */
+        int generation;
+
+        /**
+         * The next value.
+         */
+        long next;
+
+        /**
+         * The number of values that are left.
+         */
+        long remaining;
+
+    }
+
 }
@@ -7,18 +7,25 @@
 
 import java.lang.reflect.Method;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Arrays;
 
 import org.h2.api.ErrorCode;
+import org.h2.api.TransitionTableTrigger;
 import org.h2.api.Trigger;
 import org.h2.command.Parser;
 import org.h2.engine.Constants;
 import org.h2.engine.DbObject;
 import org.h2.engine.Session;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.jdbc.JdbcConnection;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
+import org.h2.result.LocalResult;
 import org.h2.result.Row;
+import org.h2.table.Column;
 import org.h2.table.Table;
 import org.h2.util.JdbcUtils;
 import org.h2.util.SourceCompiler;
@@ -49,6 +56,7 @@ public class TriggerObject extends SchemaObjectBase {
     private String triggerClassName;
     private String triggerSource;
     private Trigger triggerCallback;
+    private String oldTableName, newTableName;
 
     public TriggerObject(Schema schema, int id, String name, Table table) {
         super(schema, id, name, Trace.TRIGGER);
@@ -81,6 +89,10 @@ private synchronized void load() {
             } else {
                 obj = loadFromSource();
             }
+            if (hasTransitionTables() && !(obj instanceof TransitionTableTrigger)) {
+                throw new ClassCastException(obj.getClass().getName() + " does not implement "
+                        + TransitionTableTrigger.class.getName());
+            }
             triggerCallback = (Trigger) obj;
             triggerCallback.init(c2, getSchema().getName(), getName(),
                     table.getName(), before, typeMask);
@@ -153,27 +165,74 @@ private void setTriggerAction(String triggerClassName, String source, boolean fo
      * Call the trigger class if required. This method does nothing if the
      * trigger is not defined for the given action. This method is called before
      * or after any rows have been processed, once for each statement.
+     * <p>
+     * For an after trigger with transition tables, the rows that are changed
+     * by the statement are collected from the time this method is called
+     * before applying the changes.
      *
      * @param session the session
      * @param type the trigger type
      * @param beforeAction if this method is called before applying the changes
      */
     public void fire(Session session, int type, boolean beforeAction) {
-        if (rowBased || before != beforeAction || (typeMask & type) == 0) {
+        if (rowBased || (typeMask & type) == 0) {
             return;
         }
-        load();
-        Connection c2 = session.createConnection(false);
-        boolean old = false;
+        if (before != beforeAction) {
+            if (beforeAction && hasTransitionTables()) {
+                // the rows of an enclosing statement are kept for later
+                session.setTransitionTables(this, new TransitionTables(
+                        session.getTransitionTables(this), session.getSavepointSequence()));
+            }
+            return;
+        }
+        TransitionTables tables = null;
+        if (hasTransitionTables()) {
+            tables = session.getTransitionTables(this);
+            if (tables == null) {
+                // the statement did not fire a before statement event
+                tables = new TransitionTables(null, 0);
+            } else {
+                session.setTransitionTables(this, tables.previous);
+            }
+        }
+        try {
+            load();
+        } catch (RuntimeException e) {
+            if (tables != null) {
+                tables.close();
+            }
+            throw e;
+        }
+        JdbcConnection c2 = session.createConnection(false);
+        boolean old = false, oldAutoCommit = session.getAutoCommit();
         if (type != Trigger.SELECT) {
             old = session.setCommitOrRollbackDisabled(true);
+            // queries of the trigger may not commit the statement
+            session.setAutoCommit(false);
         }
         Value identity = session.getLastScopeIdentity();
         try {
-            triggerCallback.fire(c2, null, null);
+            if (triggerCallback instanceof TransitionTableTrigger) {
+                ResultSet oldRows = null, newRows = null;
+                if (tables != null) {
+                    if (oldTableName != null) {
+                        oldRows = c2.createResultSet(getResult(session, tables.oldRows));
+                    }
+                    if (newTableName != null) {
+                        newRows = c2.createResultSet(getResult(session, tables.newRows));
+                    }
+                }
+                ((TransitionTableTrigger) triggerCallback).fireStatement(c2, oldRows, newRows);
+            } else {
+                triggerCallback.fire(c2, null, null);
+            }
         } catch (Throwable e) {
             throw getErrorExecutingTrigger(e);
         } finally {
+            if (tables != null) {
+                tables.close();
+            }
             if (session.getLastTriggerIdentity() != null) {
                 session.setLastScopeIdentity(session.getLastTriggerIdentity());
                 session.setLastTriggerIdentity(null);
@@ -182,10 +241,60 @@ public void fire(Session session, int type, boolean beforeAction) {
             }
             if (type != Trigger.SELECT) {
                 session.setCommitOrRollbackDisabled(old);
+                session.setAutoCommit(oldAutoCommit);
             }
         }
     }
 
+    private LocalResult getResult(Session session, LocalResult result) {
+        if (result == null) {
+            result = createResult(session);
+        }
+        result.done();
+        return result;
+    }
+
+    private LocalResult createResult(Session session) {
+        Column[] columns = table.getColumns();
+        int columnCount = columns.length;
+        Expression[] expressions = new Expression[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            expressions[i] = new ExpressionColumn(database, columns[i]);
+        }
+        return database.getResultFactory().create(session, expressions, columnCount, columnCount);
+    }
+
+    /**
+     * Add a changed row to the transition tables of the current statement.
+     *
+     * @param session the session
+     * @param oldRow the old row, or null for an insert
+     * @param newRow the new row, or null for a delete
+     */
+    private void addTransitionRow(Session session, Row oldRow, Row newRow) {
+        int type = oldRow == null ? Trigger.INSERT : newRow == null ? Trigger.DELETE : Trigger.UPDATE;
+        if ((typeMask & type) == 0) {
+            return;
+        }
+        TransitionTables tables = session.getTransitionTables(this);
+        if (tables == null) {
+            // the statement does not fire statement triggers
+            return;
+        }
+        if (oldRow != null && oldTableName != null) {
+            if (tables.oldRows == null) {
+                tables.oldRows = createResult(session);
+            }
+            tables.oldRows.addRow(oldRow.getValueList());
+        }
+        if (newRow != null && newTableName != null) {
+            if (tables.newRows == null) {
+                tables.newRows = createResult(session);
+            }
+            tables.newRows.addRow(newRow.getValueList());
+        }
+    }
+
     private static Object[] convertToObjectList(Row row) {
         if (row == null) {
             return null;
@@ -215,7 +324,13 @@ private static Object[] convertToObjectList(Row row) {
      */
     public boolean fireRow(Session session, Table table, Row oldRow, Row newRow,
             boolean beforeAction, boolean rollback) {
-        if (!rowBased || before != beforeAction) {
+        if (!rowBased) {
+            if (!beforeAction && !rollback && hasTransitionTables()) {
+                addTransitionRow(session, oldRow, newRow);
+            }
+            return false;
+        }
+        if (before != beforeAction) {
             return false;
         }
         if (rollback && !onRollback) {
@@ -333,6 +448,26 @@ public void setOnRollback(boolean onRollback) {
         this.onRollback = onRollback;
     }
 
+    /**
+     * Set the names of the transition tables.
+     *
+     * @param oldTableName the name of the old rows, or null
+     * @param newTableName the name of the new rows, or null
+     */
+    public void setTransitionTableNames(String oldTableName, String newTableName) {
+        this.oldTableName = oldTableName;
+        this.newTableName = newTableName;
+    }
+
+    /**
+     * Check whether the changed rows are passed to the trigger.
+     *
+     * @return true if the trigger has an old or a new transition table
+     */
+    public boolean hasTransitionTables() {
+        return oldTableName != null || newTableName != null;
+    }
+
     @Override
     public String getCreateSQLForCopy(Table targetTable, String quotedName) {
         StringBuilder builder = new StringBuilder("CREATE FORCE TRIGGER ");
@@ -346,6 +481,17 @@ public String getCreateSQLForCopy(Table targetTable, String quotedName) {
         }
         getTypeNameList(builder).append(" ON ");
         targetTable.getSQL(builder, true);
+        if (hasTransitionTables()) {
+            builder.append(" REFERENCING");
+            if (oldTableName != null) {
+                builder.append(" OLD TABLE AS ");
+                Parser.quoteIdentifier(builder, oldTableName, true);
+            }
+            if (newTableName != null) {
+                builder.append(" NEW TABLE AS ");
+                Parser.quoteIdentifier(builder, newTableName, true);
+            }
+        }
         if (rowBased) {
             builder.append(" FOR EACH ROW");
         }
@@ -483,4 +629,70 @@ public boolean isSelectTrigger() {
         return (typeMask & Trigger.SELECT) != 0;
     }
 
+    /**
+     * The rows that are changed by a statement, for an after statement
+     * trigger with transition tables. The rows are stored in local results,
+     * so that large transition tables use a temporary file.
+     */
+    public static final class TransitionTables {
+
+        /**
+         * The transition tables of the enclosing statement (the statement
+         * that fired a trigger which changed the same table), or null.
+         */
+        final TransitionTables previous;
+
+        /**
+         * The number of savepoints of the session when the statement was
+         * started.
+         */
+        private final int savepointSequence;
+
+        /**
+         * The old rows, or null if there are none yet.
+         */
+        LocalResult oldRows;
+
+        /**
+         * The new rows, or null if there are none yet.
+         */
+        LocalResult newRows;
+
+        TransitionTables(TransitionTables previous, int savepointSequence) {
+            this.previous = previous;
+            this.savepointSequence = savepointSequence;
+        }
+
+        /**
+         * Remove the transition tables of the statements that were started
+         * after the given savepoint.
+         *
+         * @param sequence the sequence number of the savepoint
+         * @return the remaining transition tables, or null
+         */
+        public TransitionTables rollbackTo(int sequence) {
+            TransitionTables tables = this;
+            while (tables != null && tables.savepointSequence >= sequence) {
+                tables.close();
+                tables = tables.previous;
+            }
+            return tables;
+        }
+
+        /**
+         * Close the results, and delete the temporary files.
+         */
+        void close() {
+            if (oldRows != null) {
+                oldRows.close();
+                oldRows = null;
+            }
+            if (newRows != null) {
+                newRows.close();
+                newRows = null;
+            }
+        }
+
+    }
+
 }
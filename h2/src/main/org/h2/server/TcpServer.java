@@ -24,6 +24,7 @@
 import org.h2.Driver;
 import org.h2.api.ErrorCode;
 import org.h2.engine.Constants;
+import org.h2.engine.SysProperties;
 import org.h2.message.DbException;
 import org.h2.util.JdbcUtils;
 import org.h2.util.MathUtils;
@@ -57,6 +58,7 @@ public class TcpServer implements Service {
     private boolean portIsSet;
     private boolean trace;
     private boolean ssl;
+    private boolean nio;
     private boolean stop;
     private ShutdownHandler shutdownHandler;
     private ServerSocket serverSocket;
@@ -71,6 +73,7 @@ public class TcpServer implements Service {
     private PreparedStatement managementDbRemove;
     private String managementPassword = "";
     private Thread listenerThread;
+    private TcpServerSelector selector;
     private int nextThreadId;
     private String key, keyDatabase;
 
@@ -176,6 +179,8 @@ public void init(String... args) {
                 trace = true;
             } else if (Tool.isOption(a, "-tcpSSL")) {
                 ssl = true;
+            } else if (Tool.isOption(a, "-tcpNio")) {
+                nio = true;
             } else if (Tool.isOption(a, "-tcpPort")) {
                 port = Integer.decode(args[++i]);
                 portIsSet = true;
@@ -241,11 +246,14 @@ boolean allow(Socket socket) {
     @Override
     public synchronized void start() throws SQLException {
         stop = false;
+        if (nio && ssl) {
+            throw DbException.getUnsupportedException("-tcpNio with -tcpSSL");
+        }
         try {
-            serverSocket = NetUtils.createServerSocket(port, ssl);
+            serverSocket = createServerSocket(port);
         } catch (DbException e) {
             if (!portIsSet) {
-                serverSocket = NetUtils.createServerSocket(0, ssl);
+                serverSocket = createServerSocket(0);
             } else {
                 throw e;
             }
@@ -254,17 +262,36 @@ public synchronized void start() throws SQLException {
         initManagementDb();
     }
 
+    private ServerSocket createServerSocket(int p) {
+        return nio ? NetUtils.createServerSocketChannel(p) : NetUtils.createServerSocket(p, ssl);
+    }
+
     @Override
     public void listen() {
         listenerThread = Thread.currentThread();
         String threadName = listenerThread.getName();
         try {
+            TcpServerSelector nioSelector = null;
+            if (nio) {
+                nioSelector = new TcpServerSelector(this, threadName, SysProperties.SERVER_NIO_THREADS, isDaemon);
+                synchronized (this) {
+                    selector = nioSelector;
+                }
+                Thread thread = new Thread(nioSelector, threadName + " selector");
+                thread.setDaemon(isDaemon);
+                thread.start();
+            }
             while (!stop) {
                 Socket s = serverSocket.accept();
                 NetUtils2.setTcpQuickack(s, true);
                 int id = nextThreadId++;
                 TcpServerThread c = new TcpServerThread(s, this, id);
                 running.add(c);
+                if (nioSelector != null) {
+                    // idle connections don't need a thread
+                    nioSelector.add(c);
+                    continue;
+                }
                 Thread thread = new Thread(c, threadName + " thread-" + id);
                 thread.setDaemon(isDaemon);
                 c.setThread(thread);
@@ -327,13 +354,22 @@ public void stop() {
         for (TcpServerThread c : new ArrayList<>(running)) {
             if (c != null) {
                 c.close();
-                try {
-                    c.getThread().join(100);
-                } catch (Exception e) {
-                    DbException.traceThrowable(e);
+                Thread t = c.getThread();
+                if (t != null) {
+                    try {
+                        t.join(100);
+                    } catch (Exception e) {
+                        DbException.traceThrowable(e);
+                    }
                 }
             }
         }
+        synchronized (this) {
+            if (selector != null) {
+                selector.stop();
+                selector = null;
+            }
+        }
     }
 
     /**
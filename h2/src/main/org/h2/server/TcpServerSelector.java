@@ -0,0 +1,212 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.engine.SysProperties;
+import org.h2.message.DbException;
+
+/**
+ * Multiplexes the connections of a TCP server, so that idle connections don't
+ * need a thread. A selector waits until a client sends the connection request
+ * or the next request; the request is then processed by a worker thread. The
+ * wire protocol is the same as with one thread per connection.
+ * <p>
+ * Requests are read and answered using blocking I/O, so the channel of a
+ * connection is in blocking mode while a worker processes it, and in
+ * non-blocking mode while it is registered with the selector.
+ * <p>
+ * A request can block for a long time, for example while it waits for a lock.
+ * So that such requests don't hold up the others (like the commit of the
+ * session that holds the lock), new worker threads are started when all of
+ * them are busy. The threads above the given number are stopped again when
+ * they are idle for a while.
+ */
+class TcpServerSelector implements Runnable {
+
+    private final TcpServer server;
+    private final Selector selector;
+    private final ExecutorService workers;
+
+    /**
+     * The connections that wait to be registered with the selector.
+     */
+    private final ConcurrentLinkedQueue<TcpServerThread> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The connections whose connection request was not read yet.
+     */
+    private final Set<TcpServerThread> connecting = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean stop;
+
+    TcpServerSelector(TcpServer server, String threadName, int threadCount, boolean daemon) {
+        this.server = server;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, "selector");
+        }
+        AtomicInteger id = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, threadName + " worker-" + id.incrementAndGet());
+            t.setDaemon(daemon);
+            return t;
+        };
+        workers = new ThreadPoolExecutor(threadCount, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), factory);
+    }
+
+    /**
+     * Add a new connection. The connection request is read by a worker thread
+     * once the client sent it.
+     *
+     * @param connection the connection
+     */
+    void add(TcpServerThread connection) {
+        connecting.add(connection);
+        pending.add(connection);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        ArrayList<TcpServerThread> ready = new ArrayList<>();
+        try {
+            while (!stop) {
+                selector.select();
+                collectReady(ready);
+                if (!ready.isEmpty()) {
+                    // the keys of the ready connections are cancelled; a
+                    // channel can only be switched to blocking mode when it
+                    // is no longer registered
+                    while (selector.selectNow() > 0) {
+                        collectReady(ready);
+                    }
+                    for (TcpServerThread c : ready) {
+                        workers.execute(() -> process(c));
+                    }
+                    ready.clear();
+                }
+                for (TcpServerThread c; (c = pending.poll()) != null;) {
+                    register(c);
+                }
+            }
+        } catch (IOException | ClosedSelectorException | RejectedExecutionException e) {
+            if (!stop) {
+                DbException.traceThrowable(e);
+            }
+        }
+    }
+
+    private void collectReady(ArrayList<TcpServerThread> ready) {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            key.cancel();
+            ready.add((TcpServerThread) key.attachment());
+        }
+    }
+
+    private static SocketChannel getChannel(TcpServerThread c) {
+        Socket socket = c.transfer.getSocket();
+        return socket == null ? null : socket.getChannel();
+    }
+
+    private void register(TcpServerThread c) {
+        SocketChannel channel = getChannel(c);
+        try {
+            if (channel == null || !channel.isOpen()) {
+                connecting.remove(c);
+                c.close();
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, c);
+        } catch (IOException e) {
+            server.traceError(e);
+            connecting.remove(c);
+            c.close();
+        }
+    }
+
+    /**
+     * Process the connection request or the next requests of a connection,
+     * and then wait for the next request again.
+     *
+     * @param c the connection
+     */
+    private void process(TcpServerThread c) {
+        try {
+            SocketChannel channel = getChannel(c);
+            if (channel == null) {
+                connecting.remove(c);
+                c.close();
+                return;
+            }
+            channel.configureBlocking(true);
+            if (connecting.remove(c)) {
+                // a client that sends only a part of the connection request
+                // must not keep the worker thread
+                Socket socket = channel.socket();
+                socket.setSoTimeout(SysProperties.SOCKET_CONNECT_TIMEOUT);
+                c.connect();
+                if (!c.isStopped()) {
+                    socket.setSoTimeout(0);
+                }
+            } else {
+                c.processRequest();
+            }
+            // the client might have sent more than one request
+            while (!c.isStopped() && c.hasBufferedInput()) {
+                c.processRequest();
+            }
+            if (c.isStopped()) {
+                c.close();
+            } else {
+                pending.add(c);
+                selector.wakeup();
+            }
+        } catch (Throwable e) {
+            server.traceError(e);
+            connecting.remove(c);
+            c.close();
+        }
+    }
+
+    /**
+     * Stop the selector and the worker threads.
+     */
+    void stop() {
+        stop = true;
+        try {
+            selector.close();
+        } catch (IOException e) {
+            DbException.traceThrowable(e);
+        }
+        workers.shutdown();
+    }
+
+}
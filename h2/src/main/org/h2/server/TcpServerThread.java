@@ -78,112 +78,9 @@ private void trace(String s) {
     @Override
     public void run() {
         try {
-            transfer.init();
-            trace("Connect");
-            // TODO server: should support a list of allowed databases
-            // and a list of allowed clients
-            try {
-                Socket socket = transfer.getSocket();
-                if (socket == null) {
-                    // the transfer is already closed, prevent NPE in TcpServer#allow(Socket)
-                    return;
-                }
-                if (!server.allow(transfer.getSocket())) {
-                    throw DbException.get(ErrorCode.REMOTE_CONNECTION_NOT_ALLOWED);
-                }
-                int minClientVersion = transfer.readInt();
-                if (minClientVersion < 6) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
-                }
-                int maxClientVersion = transfer.readInt();
-                if (maxClientVersion < Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(maxClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
-                } else if (minClientVersion > Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
-                    throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
-                            Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED);
-                }
-                if (maxClientVersion >= Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
-                    clientVersion = Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED;
-                } else {
-                    clientVersion = maxClientVersion;
-                }
-                transfer.setVersion(clientVersion);
-                String db = transfer.readString();
-                String originalURL = transfer.readString();
-                if (db == null && originalURL == null) {
-                    String targetSessionId = transfer.readString();
-                    int command = transfer.readInt();
-                    stop = true;
-                    if (command == SessionRemote.SESSION_CANCEL_STATEMENT) {
-                        // cancel a running statement
-                        int statementId = transfer.readInt();
-                        server.cancelStatement(targetSessionId, statementId);
-                    } else if (command == SessionRemote.SESSION_CHECK_KEY) {
-                        // check if this is the correct server
-                        db = server.checkKeyAndGetDatabaseName(targetSessionId);
-                        if (!targetSessionId.equals(db)) {
-                            transfer.writeInt(SessionRemote.STATUS_OK);
-                        } else {
-                            transfer.writeInt(SessionRemote.STATUS_ERROR);
-                        }
-                    }
-                }
-                String baseDir = server.getBaseDir();
-                if (baseDir == null) {
-                    baseDir = SysProperties.getBaseDir();
-                }
-                db = server.checkKeyAndGetDatabaseName(db);
-                ConnectionInfo ci = new ConnectionInfo(db);
-                ci.setOriginalURL(originalURL);
-                ci.setUserName(transfer.readString());
-                ci.setUserPasswordHash(transfer.readBytes());
-                ci.setFilePasswordHash(transfer.readBytes());
-                int len = transfer.readInt();
-                for (int i = 0; i < len; i++) {
-                    ci.setProperty(transfer.readString(), transfer.readString());
-                }
-                // override client's requested properties with server settings
-                if (baseDir != null) {
-                    ci.setBaseDir(baseDir);
-                }
-                if (server.getIfExists()) {
-                    ci.setProperty("FORBID_CREATION", "TRUE");
-                }
-                transfer.writeInt(SessionRemote.STATUS_OK);
-                transfer.writeInt(clientVersion);
-                transfer.flush();
-                if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_13) {
-                    if (ci.getFilePasswordHash() != null) {
-                        ci.setFileEncryptionKey(transfer.readBytes());
-                    }
-                }
-                ci.setNetworkConnectionInfo(new NetworkConnectionInfo(
-                        NetUtils.ipToShortForm(new StringBuilder(server.getSSL() ? "ssl://" : "tcp://"),
-                                socket.getLocalAddress().getAddress(), true) //
-                                .append(':').append(socket.getLocalPort()).toString(), //
-                        socket.getInetAddress().getAddress(), socket.getPort(),
-                        new StringBuilder().append('P').append(clientVersion).toString()));
-                session = Engine.getInstance().createSession(ci);
-                transfer.setSession(session);
-                server.addConnection(threadId, originalURL, ci.getUserName());
-                trace("Connected");
-            } catch (OutOfMemoryError e) {
-                // catch this separately otherwise such errors will never hit the console
-                server.traceError(e);
-                sendError(e);
-                stop = true;
-            } catch (Throwable e) {
-                sendError(e);
-                stop = true;
-            }
+            connect();
             while (!stop) {
-                try {
-                    process();
-                } catch (Throwable e) {
-                    sendError(e);
-                }
+                processRequest();
             }
             trace("Disconnect");
         } catch (Throwable e) {
@@ -193,6 +90,145 @@ public void run() {
         }
     }
 
+    /**
+     * Initialize the transfer and read the connection request. If the
+     * connection can not be established, an error is sent to the client and
+     * the connection is stopped.
+     */
+    void connect() throws IOException {
+        transfer.init();
+        trace("Connect");
+        // TODO server: should support a list of allowed databases
+        // and a list of allowed clients
+        try {
+            Socket socket = transfer.getSocket();
+            if (socket == null) {
+                // the transfer is already closed, prevent NPE in TcpServer#allow(Socket)
+                stop = true;
+                return;
+            }
+            if (!server.allow(transfer.getSocket())) {
+                throw DbException.get(ErrorCode.REMOTE_CONNECTION_NOT_ALLOWED);
+            }
+            int minClientVersion = transfer.readInt();
+            if (minClientVersion < 6) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
+            }
+            int maxClientVersion = transfer.readInt();
+            if (maxClientVersion < Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(maxClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MIN_SUPPORTED);
+            } else if (minClientVersion > Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
+                throw DbException.get(ErrorCode.DRIVER_VERSION_ERROR_2,
+                        Integer.toString(minClientVersion), "" + Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED);
+            }
+            if (maxClientVersion >= Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED) {
+                clientVersion = Constants.TCP_PROTOCOL_VERSION_MAX_SUPPORTED;
+            } else {
+                clientVersion = maxClientVersion;
+            }
+            transfer.setVersion(clientVersion);
+            String db = transfer.readString();
+            String originalURL = transfer.readString();
+            if (db == null && originalURL == null) {
+                String targetSessionId = transfer.readString();
+                int command = transfer.readInt();
+                stop = true;
+                if (command == SessionRemote.SESSION_CANCEL_STATEMENT) {
+                    // cancel a running statement
+                    int statementId = transfer.readInt();
+                    server.cancelStatement(targetSessionId, statementId);
+                } else if (command == SessionRemote.SESSION_CHECK_KEY) {
+                    // check if this is the correct server
+                    db = server.checkKeyAndGetDatabaseName(targetSessionId);
+                    if (!targetSessionId.equals(db)) {
+                        transfer.writeInt(SessionRemote.STATUS_OK);
+                    } else {
+                        transfer.writeInt(SessionRemote.STATUS_ERROR);
+                    }
+                }
+            }
+            String baseDir = server.getBaseDir();
+            if (baseDir == null) {
+                baseDir = SysProperties.getBaseDir();
+            }
+            db = server.checkKeyAndGetDatabaseName(db);
+            ConnectionInfo ci = new ConnectionInfo(db);
+            ci.setOriginalURL(originalURL);
+            ci.setUserName(transfer.readString());
+            ci.setUserPasswordHash(transfer.readBytes());
+            ci.setFilePasswordHash(transfer.readBytes());
+            int len = transfer.readInt();
+            for (int i = 0; i < len; i++) {
+                ci.setProperty(transfer.readString(), transfer.readString());
+            }
+            // override client's requested properties with server settings
+            if (baseDir != null) {
+                ci.setBaseDir(baseDir);
+            }
+            if (server.getIfExists()) {
+                ci.setProperty("FORBID_CREATION", "TRUE");
+            }
+            transfer.writeInt(SessionRemote.STATUS_OK);
+            transfer.writeInt(clientVersion);
+            transfer.flush();
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_13) {
+                if (ci.getFilePasswordHash() != null) {
+                    ci.setFileEncryptionKey(transfer.readBytes());
+                }
+            }
+            ci.setNetworkConnectionInfo(new NetworkConnectionInfo(
+                    NetUtils.ipToShortForm(new StringBuilder(server.getSSL() ? "ssl://" : "tcp://"),
+                            socket.getLocalAddress().getAddress(), true) //
+                            .append(':').append(socket.getLocalPort()).toString(), //
+                    socket.getInetAddress().getAddress(), socket.getPort(),
+                    new StringBuilder().append('P').append(clientVersion).toString()));
+            session = Engine.getInstance().createSession(ci);
+            transfer.setSession(session);
+            server.addConnection(threadId, originalURL, ci.getUserName());
+            trace("Connected");
+        } catch (OutOfMemoryError e) {
+            // catch this separately otherwise such errors will never hit the console
+            server.traceError(e);
+            sendError(e);
+            stop = true;
+        } catch (Throwable e) {
+            sendError(e);
+            stop = true;
+        }
+    }
+
+    /**
+     * Process the next request of the client. Errors are sent to the client.
+     */
+    void processRequest() {
+        try {
+            process();
+        } catch (Throwable e) {
+            sendError(e);
+        }
+    }
+
+    /**
+     * Check whether this connection is stopped.
+     *
+     * @return true if no further requests are processed
+     */
+    boolean isStopped() {
+        return stop;
+    }
+
+    /**
+     * Check whether the next request is already (at least partially) read
+     * from the socket.
+     *
+     * @return true if there is buffered input
+     */
+    boolean hasBufferedInput() throws IOException {
+        return transfer.available() > 0;
+    }
+
     private void closeSession() {
         if (session != null) {
             RuntimeException closeError = null;
@@ -231,23 +267,9 @@ void close() {
 
     private void sendError(Throwable t) {
         try {
-            SQLException e = DbException.convert(t).getSQLException();
-            StringWriter writer = new StringWriter();
-            e.printStackTrace(new PrintWriter(writer));
-            String trace = writer.toString();
-            String message;
-            String sql;
-            if (e instanceof JdbcException) {
-                JdbcException j = (JdbcException) e;
-                message = j.getOriginalMessage();
-                sql = j.getSQL();
-            } else {
-                message = e.getMessage();
-                sql = null;
-            }
-            transfer.writeInt(SessionRemote.STATUS_ERROR).
-                    writeString(e.getSQLState()).writeString(message).
-                    writeString(sql).writeInt(e.getErrorCode()).writeString(trace).flush();
+            transfer.writeInt(SessionRemote.STATUS_ERROR);
+            writeError(t);
+            transfer.flush();
         } catch (Exception e2) {
             if (!transfer.isClosed()) {
                 server.traceError(e2);
@@ -257,6 +279,25 @@ private void sendError(Throwable t) {
         }
     }
 
+    private void writeError(Throwable t) throws IOException {
+        SQLException e = DbException.convert(t).getSQLException();
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        String trace = writer.toString();
+        String message;
+        String sql;
+        if (e instanceof JdbcException) {
+            JdbcException j = (JdbcException) e;
+            message = j.getOriginalMessage();
+            sql = j.getSQL();
+        } else {
+            message = e.getMessage();
+            sql = null;
+        }
+        transfer.writeString(e.getSQLState()).writeString(message).
+                writeString(sql).writeInt(e.getErrorCode()).writeString(trace);
+    }
+
     private void setParameters(Command command) throws IOException {
         int len = transfer.readInt();
         ArrayList<? extends ParameterInterface> params = command.getParameters();
@@ -431,6 +472,42 @@ private void process() throws IOException {
             transfer.flush();
             break;
         }
+        case SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE: {
+            int id = transfer.readInt();
+            Command command = (Command) cache.getObject(id, false);
+            int size = transfer.readInt();
+            ArrayList<Value[]> batchParameters = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Value[] set = new Value[transfer.readInt()];
+                for (int j = 0; j < set.length; j++) {
+                    set[j] = transfer.readValue();
+                }
+                batchParameters.add(set);
+            }
+            int old = session.getModificationId();
+            ArrayList<DbException> exceptions = new ArrayList<>();
+            int[] result;
+            synchronized (session) {
+                result = command.executeBatchUpdate(batchParameters, exceptions);
+            }
+            int status;
+            if (session.isClosed()) {
+                status = SessionRemote.STATUS_CLOSED;
+                stop = true;
+            } else {
+                status = getState(old);
+            }
+            transfer.writeInt(status);
+            for (int updateCount : result) {
+                transfer.writeInt(updateCount);
+            }
+            transfer.writeInt(exceptions.size());
+            for (DbException e : exceptions) {
+                writeError(e);
+            }
+            transfer.writeBoolean(session.getAutoCommit()).flush();
+            break;
+        }
         case SessionRemote.COMMAND_CLOSE: {
             int id = transfer.readInt();
             Command command = (Command) cache.getObject(id, true);
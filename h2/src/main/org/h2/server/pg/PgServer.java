@@ -27,6 +27,9 @@
 import org.h2.util.NetUtils;
 import org.h2.util.NetUtils2;
 import org.h2.util.Tool;
+import org.h2.value.DataType;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
 
 /**
  * This class implements a subset of the PostgreSQL protocol as described here:
@@ -65,6 +68,8 @@ public class PgServer implements Service {
     public static final int PG_TYPE_DATE = 1082;
     public static final int PG_TYPE_TIME = 1083;
     public static final int PG_TYPE_TIMESTAMP_NO_TMZONE = 1114;
+    public static final int PG_TYPE_TIMESTAMPTZ = 1184;
+    public static final int PG_TYPE_UUID = 2950;
     public static final int PG_TYPE_NUMERIC = 1700;
 
     private final HashSet<Integer> typeSet = new HashSet<>();
@@ -492,6 +497,25 @@ public static String formatType(Connection conn, int pgType, int typeMod)
         return null;
     }
 
+    /**
+     * Convert the H2 data type to a PostgreSQL type. Unlike the SQL type, the
+     * data type distinguishes UUID from BINARY.
+     *
+     * @param type the data type
+     * @return the PostgreSQL type
+     */
+    static int convertType(TypeInfo type) {
+        switch (type.getValueType()) {
+        case Value.UNKNOWN:
+            // parameters of unknown type are sent as strings
+            return PG_TYPE_VARCHAR;
+        case Value.UUID:
+            return PG_TYPE_UUID;
+        default:
+            return convertType(DataType.convertTypeToSQLType(type.getValueType()));
+        }
+    }
+
     /**
      * Convert the SQL type to a PostgreSQL type
      *
@@ -526,6 +550,8 @@ public static int convertType(final int type) {
             return PG_TYPE_DATE;
         case Types.TIMESTAMP:
             return PG_TYPE_TIMESTAMP_NO_TMZONE;
+        case Types.TIMESTAMP_WITH_TIMEZONE:
+            return PG_TYPE_TIMESTAMPTZ;
         case Types.VARBINARY:
             return PG_TYPE_BYTEA;
         case Types.BLOB:
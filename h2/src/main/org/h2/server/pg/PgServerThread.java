@@ -5,6 +5,8 @@
  */
 package org.h2.server.pg;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -16,29 +18,29 @@
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.net.Socket;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.sql.Connection;
-import java.sql.ParameterMetaData;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Properties;
+import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
 import org.h2.engine.ConnectionInfo;
 import org.h2.engine.Constants;
+import org.h2.engine.SessionInterface;
 import org.h2.engine.SysProperties;
+import org.h2.expression.ParameterInterface;
 import org.h2.jdbc.JdbcConnection;
-import org.h2.jdbc.JdbcPreparedStatement;
-import org.h2.jdbc.JdbcResultSet;
-import org.h2.jdbc.JdbcStatement;
 import org.h2.message.DbException;
+import org.h2.result.ResultInterface;
 import org.h2.util.DateTimeUtils;
 import org.h2.util.JdbcUtils;
 import org.h2.util.MathUtils;
@@ -48,11 +50,23 @@
 import org.h2.util.StringUtils;
 import org.h2.util.Utils;
 import org.h2.value.CaseInsensitiveMap;
+import org.h2.value.TypeInfo;
 import org.h2.value.Value;
+import org.h2.value.ValueArray;
+import org.h2.value.ValueBytes;
 import org.h2.value.ValueDate;
+import org.h2.value.ValueDecimal;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueFloat;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueLong;
 import org.h2.value.ValueNull;
+import org.h2.value.ValueShort;
+import org.h2.value.ValueString;
 import org.h2.value.ValueTime;
 import org.h2.value.ValueTimestamp;
+import org.h2.value.ValueTimestampTimeZone;
+import org.h2.value.ValueUuid;
 
 /**
  * One server thread is opened for each client.
@@ -62,7 +76,8 @@ public class PgServerThread implements Runnable {
 
     private final PgServer server;
     private Socket socket;
-    private Connection conn;
+    private JdbcConnection conn;
+    private SessionInterface session;
     private boolean stop;
     private DataInputStream dataInRaw;
     private DataInputStream dataIn;
@@ -76,7 +91,7 @@ public class PgServerThread implements Runnable {
     private String databaseName;
     private int processId;
     private final int secret;
-    private JdbcStatement activeRequest;
+    private CommandInterface activeRequest;
     private String clientEncoding = SysProperties.PG_DEFAULT_CLIENT_ENCODING;
     private String dateStyle = "ISO, MDY";
     private final HashMap<String, Prepared> prepared =
@@ -95,11 +110,15 @@ public void run() {
         try {
             server.trace("Connect");
             InputStream ins = socket.getInputStream();
-            out = socket.getOutputStream();
-            dataInRaw = new DataInputStream(ins);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            dataInRaw = new DataInputStream(new BufferedInputStream(ins));
             while (!stop) {
                 process();
-                out.flush();
+                // clients may pipeline several messages (for example
+                // Parse, Bind, Execute, Sync), answer them all at once
+                if (!stop && dataInRaw.available() == 0) {
+                    out.flush();
+                }
             }
         } catch (EOFException e) {
             // more or less normal disconnect
@@ -233,6 +252,7 @@ private void process() throws IOException {
                                 .append(':').append(socket.getLocalPort()).toString(), //
                         socket.getInetAddress().getAddress(), socket.getPort(), null));
                 conn = new JdbcConnection(ci, false);
+                session = conn.getSession();
                 // can not do this because when called inside
                 // DriverManager.getConnection, a deadlock occurs
                 // conn = DriverManager.getConnection(url, userName, password);
@@ -258,16 +278,16 @@ private void process() throws IOException {
                 }
             }
             try {
-                p.prep = (JdbcPreparedStatement) conn.prepareStatement(p.sql);
-                ParameterMetaData meta = p.prep.getParameterMetaData();
-                p.paramType = new int[meta.getParameterCount()];
+                p.command = session.prepareCommand(conn.nativeSQL(p.sql), Integer.MAX_VALUE);
+                ArrayList<? extends ParameterInterface> parameters = p.command.getParameters();
+                p.paramType = new int[parameters.size()];
                 for (int i = 0; i < p.paramType.length; i++) {
                     int type;
                     if (i < paramTypesCount && paramTypes[i] != 0) {
                         type = paramTypes[i];
                         server.checkType(type);
                     } else {
-                        type = PgServer.convertType(meta.getParameterType(i + 1));
+                        type = PgServer.convertType(parameters.get(i).getType());
                     }
                     p.paramType[i] = type;
                 }
@@ -297,8 +317,9 @@ private void process() throws IOException {
             }
             int paramCount = readShort();
             try {
+                ArrayList<? extends ParameterInterface> parameters = prep.command.getParameters();
                 for (int i = 0; i < paramCount; i++) {
-                    setParameter(prep.prep, prep.paramType[i], i, formatCodes);
+                    setParameter(parameters, prep.paramType[i], i, formatCodes);
                 }
             } catch (Exception e) {
                 sendErrorResponse(e);
@@ -319,7 +340,7 @@ private void process() throws IOException {
             if (type == 'S') {
                 Prepared p = prepared.remove(name);
                 if (p != null) {
-                    JdbcUtils.closeSilently(p.prep);
+                    p.command.close();
                 }
             } else if (type == 'P') {
                 portals.remove(name);
@@ -341,8 +362,8 @@ private void process() throws IOException {
                     sendErrorResponse("Prepared not found: " + name);
                 } else {
                     try {
-                        sendParameterDescription(p.prep.getParameterMetaData(), p.paramType);
-                        sendRowDescription(p.prep.getMetaData());
+                        sendParameterDescription(p.command.getParameters(), p.paramType);
+                        sendRowDescription(p.command.getMetaData());
                     } catch (Exception e) {
                         sendErrorResponse(e);
                     }
@@ -352,10 +373,8 @@ private void process() throws IOException {
                 if (p == null) {
                     sendErrorResponse("Portal not found: " + name);
                 } else {
-                    PreparedStatement prep = p.prep.prep;
                     try {
-                        ResultSetMetaData meta = prep.getMetaData();
-                        sendRowDescription(meta);
+                        sendRowDescription(p.prep.command.getMetaData());
                     } catch (Exception e) {
                         sendErrorResponse(e);
                     }
@@ -376,28 +395,26 @@ private void process() throws IOException {
             }
             int maxRows = readShort();
             Prepared prepared = p.prep;
-            JdbcPreparedStatement prep = prepared.prep;
+            CommandInterface command = prepared.command;
             server.trace(prepared.sql);
             try {
-                prep.setMaxRows(maxRows);
-                setActiveRequest(prep);
-                boolean result = prep.execute();
-                if (result) {
+                setActiveRequest(command);
+                if (command.isQuery()) {
+                    ResultInterface result = command.executeQuery(maxRows, false);
                     try {
-                        JdbcResultSet rs = (JdbcResultSet) prep.getResultSet();
                         // the meta-data is sent in the prior 'Describe'
-                        while (rs.next()) {
-                            sendDataRow(rs, p.resultColumnFormat);
-                        }
-                        sendCommandComplete(prep, 0);
+                        sendDataRows(result, p.resultColumnFormat);
+                        sendCommandComplete(command, 0);
                     } catch (Exception e) {
                         sendErrorResponse(e);
+                    } finally {
+                        result.close();
                     }
                 } else {
-                    sendCommandComplete(prep, prep.getUpdateCount());
+                    sendCommandComplete(command, command.executeUpdate(null).getUpdateCount());
                 }
             } catch (Exception e) {
-                if (prep.isCancelled()) {
+                if (isCancelled(e)) {
                     sendCancelQueryResponse();
                 } else {
                     sendErrorResponse(e);
@@ -412,46 +429,51 @@ private void process() throws IOException {
             sendReadyForQuery();
             break;
         }
+        case 'H': {
+            server.trace("Flush");
+            out.flush();
+            break;
+        }
         case 'Q': {
             server.trace("Query");
             String query = readString();
             ScriptReader reader = new ScriptReader(new StringReader(query));
             while (true) {
-                JdbcStatement stat = null;
+                CommandInterface command = null;
                 try {
                     String s = reader.readStatement();
                     if (s == null) {
                         break;
                     }
                     s = getSQL(s);
-                    stat = (JdbcStatement) conn.createStatement();
-                    setActiveRequest(stat);
-                    boolean result = stat.execute(s);
-                    if (result) {
-                        JdbcResultSet rs = (JdbcResultSet) stat.getResultSet();
-                        ResultSetMetaData meta = rs.getMetaData();
+                    command = session.prepareCommand(conn.nativeSQL(s), Integer.MAX_VALUE);
+                    setActiveRequest(command);
+                    if (command.isQuery()) {
+                        ResultInterface result = command.executeQuery(0, false);
                         try {
-                            sendRowDescription(meta);
-                            while (rs.next()) {
-                                sendDataRow(rs, null);
-                            }
-                            sendCommandComplete(stat, 0);
+                            sendRowDescription(result);
+                            sendDataRows(result, null);
+                            sendCommandComplete(command, 0);
                         } catch (Exception e) {
                             sendErrorResponse(e);
                             break;
+                        } finally {
+                            result.close();
                         }
                     } else {
-                        sendCommandComplete(stat, stat.getUpdateCount());
+                        sendCommandComplete(command, command.executeUpdate(null).getUpdateCount());
                     }
-                } catch (SQLException e) {
-                    if (stat != null && stat.isCancelled()) {
+                } catch (DbException | SQLException e) {
+                    if (isCancelled(e)) {
                         sendCancelQueryResponse();
                     } else {
                         sendErrorResponse(e);
                     }
                     break;
                 } finally {
-                    JdbcUtils.closeSilently(stat);
+                    if (command != null) {
+                        command.close();
+                    }
                     setActiveRequest(null);
                 }
             }
@@ -483,10 +505,22 @@ private String getSQL(String s) {
         return s;
     }
 
-    private void sendCommandComplete(JdbcStatement stat, int updateCount)
+    private static boolean isCancelled(Exception e) {
+        int errorCode;
+        if (e instanceof DbException) {
+            errorCode = ((DbException) e).getErrorCode();
+        } else if (e instanceof SQLException) {
+            errorCode = ((SQLException) e).getErrorCode();
+        } else {
+            return false;
+        }
+        return errorCode == ErrorCode.STATEMENT_WAS_CANCELED;
+    }
+
+    private void sendCommandComplete(CommandInterface command, int updateCount)
             throws IOException {
         startMessage('C');
-        switch (stat.getLastExecutedCommandType()) {
+        switch (command.getCommandType()) {
         case CommandInterface.INSERT:
             writeStringPart("INSERT 0 ");
             writeString(Integer.toString(updateCount));
@@ -507,42 +541,48 @@ private void sendCommandComplete(JdbcStatement stat, int updateCount)
             writeString("BEGIN");
             break;
         default:
-            server.trace("check CommandComplete tag for command " + stat);
+            server.trace("check CommandComplete tag for command " + command);
             writeStringPart("UPDATE ");
             writeString(Integer.toString(updateCount));
         }
         sendMessage();
     }
 
-    private void sendDataRow(JdbcResultSet rs, int[] formatCodes) throws IOException, SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columns = metaData.getColumnCount();
-        startMessage('D');
-        writeShort(columns);
-        for (int i = 1; i <= columns; i++) {
-            int pgType = PgServer.convertType(metaData.getColumnType(i));
-            boolean text = formatAsText(pgType);
+    private void sendDataRows(ResultInterface result, int[] formatCodes) throws IOException {
+        int columns = result.getVisibleColumnCount();
+        int[] pgTypes = new int[columns];
+        boolean[] text = new boolean[columns];
+        for (int i = 0; i < columns; i++) {
+            int pgType = PgServer.convertType(result.getColumnType(i));
+            boolean t = formatAsText(pgType);
             if (formatCodes != null) {
                 if (formatCodes.length == 0) {
-                    text = true;
+                    t = true;
                 } else if (formatCodes.length == 1) {
-                    text = formatCodes[0] == 0;
-                } else if (i - 1 < formatCodes.length) {
-                    text = formatCodes[i - 1] == 0;
+                    t = formatCodes[0] == 0;
+                } else if (i < formatCodes.length) {
+                    t = formatCodes[i] == 0;
                 }
             }
-            writeDataColumn(rs, i, pgType, text);
+            pgTypes[i] = pgType;
+            text[i] = t;
+        }
+        while (result.next()) {
+            Value[] row = result.currentRow();
+            startMessage('D');
+            writeShort(columns);
+            for (int i = 0; i < columns; i++) {
+                writeDataColumn(row[i], pgTypes[i], text[i]);
+            }
+            sendMessage();
         }
-        sendMessage();
     }
 
     private static long toPostgreDays(long dateValue) {
         return DateTimeUtils.absoluteDayFromDateValue(dateValue) - 10_957;
     }
 
-    private void writeDataColumn(JdbcResultSet rs, int column, int pgType, boolean text)
-            throws IOException, SQLException {
-        Value v = rs.get(column);
+    private void writeDataColumn(Value v, int pgType, boolean text) throws IOException {
         if (v == ValueNull.INSTANCE) {
             writeInt(-1);
             return;
@@ -562,6 +602,20 @@ private void writeDataColumn(JdbcResultSet rs, int column, int pgType, boolean t
         } else {
             // binary
             switch (pgType) {
+            case PgServer.PG_TYPE_BOOL:
+                writeInt(1);
+                dataOut.writeByte(v.getBoolean() ? 1 : 0);
+                break;
+            case PgServer.PG_TYPE_VARCHAR:
+            case PgServer.PG_TYPE_BPCHAR:
+            case PgServer.PG_TYPE_TEXT:
+            case PgServer.PG_TYPE_UNKNOWN: {
+                // the binary format of the character types is the text
+                byte[] data = v.getString().getBytes(getEncoding());
+                writeInt(data.length);
+                write(data);
+                break;
+            }
             case PgServer.PG_TYPE_INT2:
                 writeInt(2);
                 writeShort(v.getShort());
@@ -595,8 +649,7 @@ private void writeDataColumn(JdbcResultSet rs, int column, int pgType, boolean t
                 break;
             }
             case PgServer.PG_TYPE_TIME: {
-                ValueTime t = (ValueTime) v.convertTo(Value.TIME,
-                        (JdbcConnection) rs.getStatement().getConnection(), false);
+                ValueTime t = (ValueTime) v.convertTo(Value.TIME, conn, false);
                 writeInt(8);
                 long m = t.getNanos();
                 if (INTEGER_DATE_TYPES) {
@@ -610,26 +663,134 @@ private void writeDataColumn(JdbcResultSet rs, int column, int pgType, boolean t
                 break;
             }
             case PgServer.PG_TYPE_TIMESTAMP_NO_TMZONE: {
-                ValueTimestamp t = (ValueTimestamp) v.convertTo(Value.TIMESTAMP,
-                        (JdbcConnection) rs.getStatement().getConnection(), false);
+                ValueTimestamp t = (ValueTimestamp) v.convertTo(Value.TIMESTAMP, conn, false);
                 writeInt(8);
-                long m = toPostgreDays(t.getDateValue()) * 86_400;
-                long nanos = t.getTimeNanos();
-                if (INTEGER_DATE_TYPES) {
-                    // long format
-                    m = m * 1_000_000 + nanos / 1_000;
-                } else {
-                    // double format
-                    m = Double.doubleToLongBits(m + nanos * 0.000_000_001);
-                }
-                dataOut.writeLong(m);
+                writeTimestamp(t.getDateValue(), t.getTimeNanos(), 0);
+                break;
+            }
+            case PgServer.PG_TYPE_TIMESTAMPTZ: {
+                ValueTimestampTimeZone t = (ValueTimestampTimeZone) v.convertTo(Value.TIMESTAMP_TZ, conn, false);
+                writeInt(8);
+                writeTimestamp(t.getDateValue(), t.getTimeNanos(), t.getTimeZoneOffsetSeconds());
                 break;
             }
+            case PgServer.PG_TYPE_NUMERIC:
+                writeNumeric(v.getBigDecimal());
+                break;
+            case PgServer.PG_TYPE_UUID: {
+                ValueUuid u = (ValueUuid) v.convertTo(Value.UUID);
+                writeInt(16);
+                dataOut.writeLong(u.getHigh());
+                dataOut.writeLong(u.getLow());
+                break;
+            }
+            case PgServer.PG_TYPE_TEXTARRAY:
+                writeTextArray((ValueArray) v.convertTo(Value.ARRAY));
+                break;
             default: throw new IllegalStateException("output binary format is undefined");
             }
         }
     }
 
+    private void writeTimestamp(long dateValue, long timeNanos, int offsetSeconds) throws IOException {
+        long m = toPostgreDays(dateValue) * 86_400 - offsetSeconds;
+        if (INTEGER_DATE_TYPES) {
+            // long format
+            m = m * 1_000_000 + timeNanos / 1_000;
+        } else {
+            // double format
+            m = Double.doubleToLongBits(m + timeNanos * 0.000_000_001);
+        }
+        dataOut.writeLong(m);
+    }
+
+    /**
+     * Write a numeric value in the binary format: the number of digits, the
+     * weight of the first digit, the sign, the display scale, and the digits
+     * in base 10000.
+     *
+     * @param value the value
+     */
+    private void writeNumeric(BigDecimal value) throws IOException {
+        int scale = value.scale();
+        if (scale < 0) {
+            value = value.setScale(0);
+            scale = 0;
+        }
+        String s = value.unscaledValue().abs().toString();
+        int intLength = s.length() - scale;
+        int leading = intLength > 0 ? (4 - intLength % 4) % 4 : -intLength;
+        StringBuilder builder = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < leading; i++) {
+            builder.append('0');
+        }
+        builder.append(s);
+        intLength += leading;
+        while ((builder.length() - intLength) % 4 != 0) {
+            builder.append('0');
+        }
+        int first = 0, last = builder.length() / 4;
+        int weight = intLength / 4 - 1;
+        while (first < last && getNumericDigit(builder, first) == 0) {
+            first++;
+            weight--;
+        }
+        while (last > first && getNumericDigit(builder, last - 1) == 0) {
+            last--;
+        }
+        if (first == last) {
+            weight = 0;
+        }
+        writeInt(8 + 2 * (last - first));
+        writeShort(last - first);
+        writeShort(weight);
+        writeShort(value.signum() < 0 ? 0x4000 : 0);
+        writeShort(scale);
+        for (int i = first; i < last; i++) {
+            writeShort(getNumericDigit(builder, i));
+        }
+    }
+
+    private static int getNumericDigit(StringBuilder builder, int i) {
+        return Integer.parseInt(builder.substring(i * 4, i * 4 + 4));
+    }
+
+    private void writeTextArray(ValueArray array) throws IOException {
+        Value[] list = array.getList();
+        int length = list.length;
+        byte[][] data = new byte[length][];
+        boolean hasNull = false;
+        int size = length > 0 ? 20 : 12;
+        for (int i = 0; i < length; i++) {
+            Value v = list[i];
+            if (v == ValueNull.INSTANCE) {
+                hasNull = true;
+            } else {
+                data[i] = v.getString().getBytes(getEncoding());
+                size += data[i].length;
+            }
+            size += 4;
+        }
+        writeInt(size);
+        // number of dimensions
+        writeInt(length > 0 ? 1 : 0);
+        writeInt(hasNull ? 1 : 0);
+        writeInt(PgServer.PG_TYPE_TEXT);
+        if (length > 0) {
+            writeInt(length);
+            // lower bound
+            writeInt(1);
+            for (byte[] d : data) {
+                if (d == null) {
+                    writeInt(-1);
+                } else {
+                    writeInt(d.length);
+                    write(d);
+                }
+            }
+        }
+    }
+
     private Charset getEncoding() {
         if ("UNICODE".equals(clientEncoding)) {
             return StandardCharsets.UTF_8;
@@ -637,13 +798,16 @@ private Charset getEncoding() {
         return Charset.forName(clientEncoding);
     }
 
-    private void setParameter(PreparedStatement prep,
-            int pgType, int i, int[] formatCodes) throws SQLException, IOException {
+    private void setParameter(ArrayList<? extends ParameterInterface> parameters,
+            int pgType, int i, int[] formatCodes) throws IOException {
         boolean text = (i >= formatCodes.length) || (formatCodes[i] == 0);
-        int col = i + 1;
+        if (i >= parameters.size()) {
+            throw DbException.getInvalidValueException("parameterIndex", i + 1);
+        }
         int paramLen = readInt();
+        Value value;
         if (paramLen == -1) {
-            prep.setNull(col, Types.NULL);
+            value = ValueNull.INSTANCE;
         } else if (text) {
             // plain text
             byte[] data = Utils.newBytes(paramLen);
@@ -656,6 +820,7 @@ private void setParameter(PreparedStatement prep,
                 if (idx > 0) {
                     str = str.substring(0, idx);
                 }
+                value = ValueString.get(str);
                 break;
             }
             case PgServer.PG_TYPE_TIME: {
@@ -667,45 +832,223 @@ private void setParameter(PreparedStatement prep,
                 if (idx > 0) {
                     str = str.substring(0, idx);
                 }
+                value = ValueString.get(str);
                 break;
             }
+            case PgServer.PG_TYPE_TEXTARRAY:
+                value = parseArray(str);
+                break;
+            default:
+                value = ValueString.get(str);
             }
-            prep.setString(col, str);
         } else {
             // binary
-            switch (pgType) {
-            case PgServer.PG_TYPE_INT2:
-                checkParamLength(2, paramLen);
-                prep.setShort(col, readShort());
-                break;
-            case PgServer.PG_TYPE_INT4:
-                checkParamLength(4, paramLen);
-                prep.setInt(col, readInt());
-                break;
-            case PgServer.PG_TYPE_INT8:
-                checkParamLength(8, paramLen);
-                prep.setLong(col, dataIn.readLong());
-                break;
-            case PgServer.PG_TYPE_FLOAT4:
-                checkParamLength(4, paramLen);
-                prep.setFloat(col, dataIn.readFloat());
-                break;
-            case PgServer.PG_TYPE_FLOAT8:
-                checkParamLength(8, paramLen);
-                prep.setDouble(col, dataIn.readDouble());
-                break;
-            case PgServer.PG_TYPE_BYTEA:
-                byte[] d1 = Utils.newBytes(paramLen);
-                readFully(d1);
-                prep.setBytes(col, d1);
-                break;
-            default:
-                server.trace("Binary format for type: "+pgType+" is unsupported");
-                byte[] d2 = Utils.newBytes(paramLen);
-                readFully(d2);
-                prep.setString(col, new String(d2, getEncoding()));
+            value = readBinaryValue(pgType, paramLen);
+        }
+        parameters.get(i).setValue(value, true);
+    }
+
+    /**
+     * Parse an array in the text format, for example {a,"b,c",NULL}.
+     *
+     * @param s the text
+     * @return the array
+     */
+    private static ValueArray parseArray(String s) {
+        try {
+            int[] pos = { 0 };
+            ValueArray array = parseArray(s, pos);
+            if (!s.substring(pos[0]).trim().isEmpty()) {
+                throw DbException.getInvalidValueException("array", s);
+            }
+            return array;
+        } catch (IndexOutOfBoundsException e) {
+            throw DbException.getInvalidValueException("array", s);
+        }
+    }
+
+    private static ValueArray parseArray(String s, int[] pos) {
+        int i = skipWhitespace(s, pos[0]);
+        if (s.charAt(i++) != '{') {
+            throw DbException.getInvalidValueException("array", s);
+        }
+        ArrayList<Value> list = new ArrayList<>();
+        i = skipWhitespace(s, i);
+        if (s.charAt(i) == '}') {
+            i++;
+        } else {
+            while (true) {
+                char c = s.charAt(i);
+                if (c == '{') {
+                    pos[0] = i;
+                    list.add(parseArray(s, pos));
+                    i = pos[0];
+                } else if (c == '"') {
+                    StringBuilder builder = new StringBuilder();
+                    for (i++; (c = s.charAt(i)) != '"'; i++) {
+                        if (c == '\\') {
+                            c = s.charAt(++i);
+                        }
+                        builder.append(c);
+                    }
+                    i++;
+                    list.add(ValueString.get(builder.toString()));
+                } else {
+                    int start = i;
+                    while ((c = s.charAt(i)) != ',' && c != '}') {
+                        i++;
+                    }
+                    String e = s.substring(start, i).trim();
+                    list.add("NULL".equalsIgnoreCase(e) ? ValueNull.INSTANCE : ValueString.get(e));
+                }
+                i = skipWhitespace(s, i);
+                char next = s.charAt(i++);
+                if (next == '}') {
+                    break;
+                } else if (next != ',') {
+                    throw DbException.getInvalidValueException("array", s);
+                }
+                i = skipWhitespace(s, i);
+            }
+        }
+        pos[0] = i;
+        return ValueArray.get(list.toArray(new Value[0]));
+    }
+
+    private static int skipWhitespace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private Value readBinaryValue(int pgType, int paramLen) throws IOException {
+        switch (pgType) {
+        case PgServer.PG_TYPE_INT2:
+            checkParamLength(2, paramLen);
+            return ValueShort.get(readShort());
+        case PgServer.PG_TYPE_INT4:
+            checkParamLength(4, paramLen);
+            return ValueInt.get(readInt());
+        case PgServer.PG_TYPE_INT8:
+            checkParamLength(8, paramLen);
+            return ValueLong.get(dataIn.readLong());
+        case PgServer.PG_TYPE_FLOAT4:
+            checkParamLength(4, paramLen);
+            return ValueFloat.get(dataIn.readFloat());
+        case PgServer.PG_TYPE_FLOAT8:
+            checkParamLength(8, paramLen);
+            return ValueDouble.get(dataIn.readDouble());
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] data = Utils.newBytes(paramLen);
+            readFully(data);
+            return ValueBytes.getNoCopy(data);
+        }
+        case PgServer.PG_TYPE_NUMERIC:
+            return ValueDecimal.get(readNumeric(paramLen));
+        case PgServer.PG_TYPE_DATE:
+            checkParamLength(4, paramLen);
+            return ValueDate.fromDateValue(DateTimeUtils.dateValueFromAbsoluteDay(readInt() + 10_957L));
+        case PgServer.PG_TYPE_TIME: {
+            checkParamLength(8, paramLen);
+            long nanos;
+            if (INTEGER_DATE_TYPES) {
+                // long format
+                nanos = dataIn.readLong() * 1_000;
+            } else {
+                // double format
+                nanos = Math.round(dataIn.readDouble() * 1_000_000) * 1_000;
+            }
+            return ValueTime.fromNanos(nanos);
+        }
+        case PgServer.PG_TYPE_TIMESTAMP_NO_TMZONE:
+        case PgServer.PG_TYPE_TIMESTAMPTZ: {
+            checkParamLength(8, paramLen);
+            long micros;
+            if (INTEGER_DATE_TYPES) {
+                // long format
+                micros = dataIn.readLong();
+            } else {
+                // double format
+                micros = Math.round(dataIn.readDouble() * 1_000_000);
+            }
+            long dateValue = DateTimeUtils.dateValueFromAbsoluteDay(
+                    Math.floorDiv(micros, 86_400_000_000L) + 10_957);
+            long timeNanos = Math.floorMod(micros, 86_400_000_000L) * 1_000;
+            if (pgType == PgServer.PG_TYPE_TIMESTAMPTZ) {
+                return ValueTimestampTimeZone.fromDateValueAndNanos(dateValue, timeNanos, 0);
+            }
+            return ValueTimestamp.fromDateValueAndNanos(dateValue, timeNanos);
+        }
+        case PgServer.PG_TYPE_UUID:
+            checkParamLength(16, paramLen);
+            return ValueUuid.get(dataIn.readLong(), dataIn.readLong());
+        case PgServer.PG_TYPE_TEXTARRAY:
+            return readArray();
+        case PgServer.PG_TYPE_VARCHAR:
+        case PgServer.PG_TYPE_BPCHAR:
+        case PgServer.PG_TYPE_TEXT: {
+            byte[] data = Utils.newBytes(paramLen);
+            readFully(data);
+            return ValueString.get(new String(data, getEncoding()));
+        }
+        default:
+            server.trace("Binary format for type: "+pgType+" is unsupported");
+            byte[] data = Utils.newBytes(paramLen);
+            readFully(data);
+            return ValueString.get(new String(data, getEncoding()));
+        }
+    }
+
+    private BigDecimal readNumeric(int paramLen) throws IOException {
+        int digits = readShort();
+        int weight = readShort();
+        int sign = readShort() & 0xffff;
+        int scale = readShort();
+        checkParamLength(8 + 2 * digits, paramLen);
+        if (sign != 0 && sign != 0x4000) {
+            throw DbException.getInvalidValueException("numeric sign", sign);
+        }
+        BigInteger unscaled = BigInteger.ZERO;
+        BigInteger base = BigInteger.valueOf(10_000);
+        for (int i = 0; i < digits; i++) {
+            unscaled = unscaled.multiply(base).add(BigInteger.valueOf(readShort()));
+        }
+        BigDecimal value = new BigDecimal(unscaled, (digits - weight - 1) * 4);
+        if (sign == 0x4000) {
+            value = value.negate();
+        }
+        return value.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    private Value readArray() throws IOException {
+        int dimensions = readInt();
+        // has null flag
+        readInt();
+        int elementType = readInt();
+        if (dimensions == 0) {
+            return ValueArray.getEmpty();
+        }
+        int[] lengths = new int[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            lengths[i] = readInt();
+            // lower bound
+            readInt();
+        }
+        return readArrayElements(elementType, lengths, 0);
+    }
+
+    private ValueArray readArrayElements(int elementType, int[] lengths, int dimension) throws IOException {
+        Value[] list = new Value[lengths[dimension]];
+        for (int i = 0; i < list.length; i++) {
+            if (dimension + 1 < lengths.length) {
+                list[i] = readArrayElements(elementType, lengths, dimension + 1);
+            } else {
+                int len = readInt();
+                list[i] = len == -1 ? ValueNull.INSTANCE : readBinaryValue(elementType, len);
             }
         }
+        return ValueArray.get(list);
     }
 
     private static void checkParamLength(int expected, int got) {
@@ -743,9 +1086,9 @@ private void sendCancelQueryResponse() throws IOException {
         sendMessage();
     }
 
-    private void sendParameterDescription(ParameterMetaData meta,
+    private void sendParameterDescription(ArrayList<? extends ParameterInterface> parameters,
             int[] paramTypes) throws Exception {
-        int count = meta.getParameterCount();
+        int count = parameters.size();
         startMessage('t');
         writeShort(count);
         for (int i = 0; i < count; i++) {
@@ -766,18 +1109,18 @@ private void sendNoData() throws IOException {
         sendMessage();
     }
 
-    private void sendRowDescription(ResultSetMetaData meta) throws IOException, SQLException {
-        if (meta == null) {
+    private void sendRowDescription(ResultInterface result) throws IOException {
+        if (result == null) {
             sendNoData();
         } else {
-            int columns = meta.getColumnCount();
+            int columns = result.getVisibleColumnCount();
             int[] types = new int[columns];
             int[] precision = new int[columns];
             String[] names = new String[columns];
             for (int i = 0; i < columns; i++) {
-                String name = meta.getColumnName(i + 1);
+                String name = result.getColumnName(i);
                 names[i] = name;
-                int type = meta.getColumnType(i + 1);
+                TypeInfo type = result.getColumnType(i);
                 int pgType = PgServer.convertType(type);
                 // the ODBC client needs the column pg_catalog.pg_index
                 // to be of type 'int2vector'
@@ -786,8 +1129,8 @@ private void sendRowDescription(ResultSetMetaData meta) throws IOException, SQLE
                 //         meta.getTableName(i + 1))) {
                 //     type = PgServer.PG_TYPE_INT2VECTOR;
                 // }
-                precision[i] = meta.getColumnDisplaySize(i + 1);
-                if (type != Types.NULL) {
+                precision[i] = type.getDisplaySize();
+                if (type.getValueType() != Value.NULL) {
                     server.checkType(pgType);
                 }
                 types[i] = pgType;
@@ -930,6 +1273,10 @@ private static void installPgCatalog(Statement stat) throws SQLException {
     void close() {
         try {
             stop = true;
+            for (Prepared p : prepared.values()) {
+                p.command.close();
+            }
+            prepared.clear();
             JdbcUtils.closeSilently(conn);
             if (socket != null) {
                 socket.close();
@@ -1021,19 +1368,25 @@ private void write(int b) throws IOException {
 
     private void startMessage(int newMessageType) {
         this.messageType = newMessageType;
-        outBuffer = new ByteArrayOutputStream();
-        dataOut = new DataOutputStream(outBuffer);
+        if (outBuffer == null) {
+            outBuffer = new ByteArrayOutputStream();
+            dataOut = new DataOutputStream(outBuffer);
+        } else {
+            outBuffer.reset();
+        }
     }
 
     private void sendMessage() throws IOException {
+        // the message is buffered and only flushed once all pending client
+        // messages are processed
         dataOut.flush();
-        byte[] buff = outBuffer.toByteArray();
-        int len = buff.length;
-        dataOut = new DataOutputStream(out);
-        dataOut.write(messageType);
-        dataOut.writeInt(len + 4);
-        dataOut.write(buff);
-        dataOut.flush();
+        int len = outBuffer.size() + 4;
+        out.write(messageType);
+        out.write(len >>> 24);
+        out.write(len >>> 16);
+        out.write(len >>> 8);
+        out.write(len);
+        outBuffer.writeTo(out);
     }
 
     private void sendParameterStatus(String param, String value)
@@ -1060,8 +1413,8 @@ int getProcessId() {
         return this.processId;
     }
 
-    private synchronized void setActiveRequest(JdbcStatement statement) {
-        activeRequest = statement;
+    private synchronized void setActiveRequest(CommandInterface command) {
+        activeRequest = command;
     }
 
     /**
@@ -1069,12 +1422,8 @@ private synchronized void setActiveRequest(JdbcStatement statement) {
      */
     private synchronized void cancelRequest() {
         if (activeRequest != null) {
-            try {
-                activeRequest.cancel();
-                activeRequest = null;
-            } catch (SQLException e) {
-                throw DbException.convert(e);
-            }
+            activeRequest.cancel();
+            activeRequest = null;
         }
     }
 
@@ -1094,9 +1443,9 @@ static class Prepared {
         String sql;
 
         /**
-         * The prepared statement.
+         * The prepared command.
          */
-        JdbcPreparedStatement prep;
+        CommandInterface command;
 
         /**
          * The list of parameter types (if set).
@@ -76,6 +76,7 @@ public class Column {
     private boolean isComputed;
     private TableFilter computeTableFilter;
     private int selectivity;
+    private ColumnStatistics statistics;
     private SingleColumnResolver resolver;
     private String comment;
     private boolean primaryKey;
@@ -417,19 +418,9 @@ private DbException getDataConversionError(Value value, DbException cause) {
 
     private void updateSequenceIfRequired(Session session, Value value) {
         if (sequence != null) {
-            long current = sequence.getCurrentValue();
-            long inc = sequence.getIncrement();
             long now = value.getLong();
-            boolean update = false;
-            if (inc > 0 && now > current) {
-                update = true;
-            } else if (inc < 0 && now < current) {
-                update = true;
-            }
-            if (update) {
-                sequence.modify(now + inc, null, null, null);
+            if (sequence.useValue(session, now)) {
                 session.setLastIdentity(ValueLong.get(now));
-                sequence.flush(session);
             }
         }
     }
@@ -540,6 +531,10 @@ private String getCreateSQL(boolean includeName) {
         if (selectivity != 0) {
             buff.append(" SELECTIVITY ").append(selectivity);
         }
+        if (includeName && statistics != null) {
+            // only persisted with the table, not part of the column type
+            statistics.getSQL(buff.append(' '));
+        }
         if (comment != null) {
             buff.append(" COMMENT ");
             StringUtils.quoteStringSQL(buff, comment);
@@ -639,6 +634,19 @@ public void setSelectivity(int selectivity) {
         this.selectivity = selectivity;
     }
 
+    /**
+     * Get the statistics of the values of this column.
+     *
+     * @return the statistics, or null if the column was not analyzed
+     */
+    public ColumnStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(ColumnStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     /**
      * Add a check constraint expression to this column. An existing check
      * constraint is added using AND.
@@ -852,6 +860,7 @@ public void copy(Column source) {
         computeTableFilter = source.computeTableFilter;
         isComputed = source.isComputed;
         selectivity = source.selectivity;
+        statistics = source.statistics;
         primaryKey = source.primaryKey;
         visible = source.visible;
     }
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.h2.engine.Session;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * The statistics of a column, calculated by ANALYZE from a sample of rows.
+ * The most common values are stored with their number of rows; the remaining
+ * values are described by an equi-depth histogram, where each bucket contains
+ * about the same number of rows.
+ */
+public final class ColumnStatistics {
+
+    /**
+     * The maximum number of most common values.
+     */
+    public static final int MAX_COMMON_VALUES = 10;
+
+    /**
+     * The maximum number of histogram buckets.
+     */
+    public static final int MAX_BUCKETS = 16;
+
+    /**
+     * The maximum length of a string value that is stored. Longer common
+     * values are not stored, longer histogram bounds are truncated.
+     */
+    private static final int MAX_STRING_LENGTH = 100;
+
+    private final int rowCount;
+    private final int nullCount;
+    private final int distinctCount;
+    private final Value[] commonValues;
+    private final int[] commonCounts;
+    private final Value[] bounds;
+    private final int otherCount;
+
+    /**
+     * Create the statistics of a column.
+     *
+     * @param rowCount the number of sampled rows
+     * @param nullCount the number of sampled rows where the value is NULL
+     * @param distinctCount the number of distinct values (excluding NULL)
+     * @param commonValues the most common values
+     * @param commonCounts the number of rows of each common value
+     * @param bounds the histogram bounds of all other values; the first bound
+     *            is the smallest and the last bound the largest value
+     */
+    public ColumnStatistics(int rowCount, int nullCount, int distinctCount, Value[] commonValues,
+            int[] commonCounts, Value[] bounds) {
+        this.rowCount = rowCount;
+        this.nullCount = nullCount;
+        this.distinctCount = distinctCount;
+        this.commonValues = commonValues;
+        this.commonCounts = commonCounts;
+        this.bounds = bounds;
+        int count = rowCount - nullCount;
+        for (int c : commonCounts) {
+            count -= c;
+        }
+        otherCount = Math.max(count, 0);
+    }
+
+    /**
+     * Check whether statistics can be calculated for columns of the given
+     * type.
+     *
+     * @param valueType the value type
+     * @return true if they can
+     */
+    public static boolean isSupported(int valueType) {
+        switch (valueType) {
+        case Value.BOOLEAN:
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+        case Value.DECIMAL:
+        case Value.DOUBLE:
+        case Value.FLOAT:
+        case Value.TIME:
+        case Value.TIME_TZ:
+        case Value.DATE:
+        case Value.TIMESTAMP:
+        case Value.TIMESTAMP_TZ:
+        case Value.STRING:
+        case Value.STRING_IGNORECASE:
+        case Value.STRING_FIXED:
+        case Value.UUID:
+        case Value.ENUM:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Calculate the statistics from the sampled values of a column.
+     *
+     * @param session the session
+     * @param values the sampled values, including NULL values
+     * @return the statistics
+     */
+    public static ColumnStatistics create(Session session, ArrayList<Value> values) {
+        int rowCount = values.size();
+        Value[] sorted = new Value[rowCount];
+        int count = 0;
+        for (Value v : values) {
+            if (v != ValueNull.INSTANCE) {
+                sorted[count++] = v;
+            }
+        }
+        int nullCount = rowCount - count;
+        Comparator<Value> comparator = getComparator(session);
+        Arrays.sort(sorted, 0, count, comparator);
+        // the start index and the length of each run of equal values
+        int[] runStart = new int[count];
+        int[] runLength = new int[count];
+        int runs = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || comparator.compare(sorted[i - 1], sorted[i]) != 0) {
+                runStart[runs++] = i;
+            }
+            runLength[runs - 1]++;
+        }
+        Integer[] order = new Integer[runs];
+        for (int i = 0; i < runs; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(runLength[b], runLength[a]));
+        // if there are only a few distinct values, all of them are common,
+        // otherwise only those that are clearly more common than the average
+        boolean all = runs <= MAX_COMMON_VALUES;
+        boolean[] common = new boolean[runs];
+        int commonCount = 0;
+        for (int i = 0; i < runs && commonCount < MAX_COMMON_VALUES; i++) {
+            int run = order[i];
+            int length = runLength[run];
+            if (!all && (length < 2 || length * 4L * runs <= count * 5L)) {
+                break;
+            }
+            if (isTooLong(sorted[runStart[run]])) {
+                continue;
+            }
+            common[run] = true;
+            commonCount++;
+        }
+        Value[] commonValues = new Value[commonCount];
+        int[] commonCounts = new int[commonCount];
+        for (int i = 0, j = 0; j < commonCount; i++) {
+            int run = order[i];
+            if (common[run]) {
+                commonValues[j] = sorted[runStart[run]];
+                commonCounts[j++] = runLength[run];
+            }
+        }
+        int otherCount = 0;
+        for (int run = 0; run < runs; run++) {
+            if (!common[run]) {
+                System.arraycopy(sorted, runStart[run], sorted, otherCount, runLength[run]);
+                otherCount += runLength[run];
+            }
+        }
+        Value[] bounds;
+        if (otherCount == 0) {
+            bounds = new Value[0];
+        } else {
+            int buckets = Math.min(MAX_BUCKETS, otherCount - 1);
+            bounds = new Value[buckets + 1];
+            for (int i = 0; i <= buckets; i++) {
+                int index = buckets == 0 ? 0 : (int) ((long) i * (otherCount - 1) / buckets);
+                bounds[i] = truncate(sorted[index]);
+            }
+        }
+        return new ColumnStatistics(rowCount, nullCount, runs, commonValues, commonCounts, bounds);
+    }
+
+    private static boolean isTooLong(Value v) {
+        return DataType.isStringType(v.getValueType()) && v.getString().length() > MAX_STRING_LENGTH;
+    }
+
+    private static Value truncate(Value v) {
+        if (isTooLong(v)) {
+            return v.convertPrecision(MAX_STRING_LENGTH);
+        }
+        return v;
+    }
+
+    private static Comparator<Value> getComparator(Session session) {
+        CompareMode compareMode = session.getDatabase().getCompareMode();
+        return (a, b) -> a.compareTo(b, session, compareMode);
+    }
+
+    /**
+     * Estimate the fraction of rows where the column is equal to the given
+     * value.
+     *
+     * @param session the session
+     * @param v the value, NULL to estimate the fraction of NULL values
+     * @return the fraction of rows, between 0 and 1
+     */
+    public double getEqualFraction(Session session, Value v) {
+        if (rowCount == 0) {
+            return 0;
+        }
+        if (v == ValueNull.INSTANCE) {
+            return (double) nullCount / rowCount;
+        }
+        Comparator<Value> comparator = getComparator(session);
+        for (int i = 0; i < commonValues.length; i++) {
+            if (comparator.compare(commonValues[i], v) == 0) {
+                return (double) commonCounts[i] / rowCount;
+            }
+        }
+        int otherDistinct = distinctCount - commonValues.length;
+        if (otherDistinct <= 0 || comparator.compare(v, bounds[0]) < 0
+                || comparator.compare(v, bounds[bounds.length - 1]) > 0) {
+            return 0;
+        }
+        return (double) otherCount / otherDistinct / rowCount;
+    }
+
+    /**
+     * Estimate the fraction of rows where the column is within the given
+     * range.
+     *
+     * @param session the session
+     * @param min the smallest value, or null if there is no lower bound
+     * @param minInclusive whether the smallest value is included
+     * @param max the largest value, or null if there is no upper bound
+     * @param maxInclusive whether the largest value is included
+     * @return the fraction of rows, between 0 and 1
+     */
+    public double getRangeFraction(Session session, Value min, boolean minInclusive, Value max,
+            boolean maxInclusive) {
+        if (rowCount == 0) {
+            return 0;
+        }
+        Comparator<Value> comparator = getComparator(session);
+        double count = 0;
+        for (int i = 0; i < commonValues.length; i++) {
+            if (isInRange(comparator, commonValues[i], min, minInclusive, max, maxInclusive)) {
+                count += commonCounts[i];
+            }
+        }
+        int buckets = bounds.length - 1;
+        if (buckets == 0) {
+            if (isInRange(comparator, bounds[0], min, minInclusive, max, maxInclusive)) {
+                count += otherCount;
+            }
+        } else if (buckets > 0) {
+            double start = min == null ? 0 : getPosition(comparator, min);
+            double end = max == null ? buckets : getPosition(comparator, max);
+            if (end > start) {
+                count += otherCount * (end - start) / buckets;
+            }
+        }
+        return Math.min(count / rowCount, 1);
+    }
+
+    private static boolean isInRange(Comparator<Value> comparator, Value v, Value min, boolean minInclusive,
+            Value max, boolean maxInclusive) {
+        if (min != null) {
+            int c = comparator.compare(v, min);
+            if (c < 0 || c == 0 && !minInclusive) {
+                return false;
+            }
+        }
+        if (max != null) {
+            int c = comparator.compare(v, max);
+            if (c > 0 || c == 0 && !maxInclusive) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the position of a value within the histogram, from 0 (at or below
+     * the smallest value) to the number of buckets (at or above the largest
+     * value). Within a bucket, the position of numeric values is interpolated.
+     */
+    private double getPosition(Comparator<Value> comparator, Value v) {
+        int buckets = bounds.length - 1;
+        if (comparator.compare(v, bounds[0]) <= 0) {
+            return 0;
+        }
+        if (comparator.compare(v, bounds[buckets]) >= 0) {
+            return buckets;
+        }
+        int low = 0, high = buckets;
+        // bounds[low] < v < bounds[high]
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(bounds[mid], v) <= 0) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        Value a = bounds[low], b = bounds[high];
+        double offset = 0.5;
+        if (DataType.isNumericType(a.getValueType()) && DataType.isNumericType(v.getValueType())) {
+            double x = a.getDouble(), y = b.getDouble();
+            if (y > x) {
+                offset = Math.min(Math.max((v.getDouble() - x) / (y - x), 0), 1);
+            }
+        }
+        return low + offset;
+    }
+
+    /**
+     * Append the SQL of these statistics, as used in a column definition, to
+     * the given builder.
+     *
+     * @param builder the string builder
+     * @return the string builder
+     */
+    public StringBuilder getSQL(StringBuilder builder) {
+        builder.append("STATISTICS(").append(rowCount).append(", ").append(nullCount).append(", ")
+                .append(distinctCount).append(", ");
+        getCommonValuesSQL(builder).append(", ");
+        return getBoundsSQL(builder).append(')');
+    }
+
+    /**
+     * Append the list of common values and their number of rows to the given
+     * builder.
+     *
+     * @param builder the string builder
+     * @return the string builder
+     */
+    public StringBuilder getCommonValuesSQL(StringBuilder builder) {
+        builder.append('(');
+        for (int i = 0; i < commonValues.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            commonValues[i].getSQL(builder).append(", ").append(commonCounts[i]);
+        }
+        return builder.append(')');
+    }
+
+    /**
+     * Append the list of histogram bounds to the given builder.
+     *
+     * @param builder the string builder
+     * @return the string builder
+     */
+    public StringBuilder getBoundsSQL(StringBuilder builder) {
+        builder.append('(');
+        for (int i = 0; i < bounds.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            bounds[i].getSQL(builder);
+        }
+        return builder.append(')');
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getNullCount() {
+        return nullCount;
+    }
+
+    public int getDistinctCount() {
+        return distinctCount;
+    }
+
+}
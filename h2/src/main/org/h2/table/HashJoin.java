@@ -0,0 +1,266 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.h2.engine.Session;
+import org.h2.expression.condition.Comparison;
+import org.h2.index.Cursor;
+import org.h2.index.Index;
+import org.h2.index.IndexCondition;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.value.CompareMode;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
+
+/**
+ * An in-memory hash table over all rows of a joined table. It is used to
+ * answer equi-join lookups against a table that has no usable index on the
+ * join columns: the table is scanned once per query execution, and each row
+ * of the outer table then probes the hash table instead of scanning the inner
+ * table again.
+ * <p>
+ * If the table turns out to have more rows than MAX_MEMORY_ROWS, the hash
+ * table is discarded and the nested loop join is used instead.
+ * </p>
+ */
+final class HashJoin implements Cursor {
+
+    private final TableFilter filter;
+
+    private final IndexCondition[] conditions;
+
+    private final int[] columnIds;
+
+    private HashMap<Value, ArrayList<Row>> map;
+
+    private boolean tooLarge;
+
+    private ArrayList<Row> bucket;
+
+    private int bucketIndex;
+
+    private Row current;
+
+    private HashJoin(TableFilter filter, IndexCondition[] conditions) {
+        this.filter = filter;
+        this.conditions = conditions;
+        int length = conditions.length;
+        columnIds = new int[length];
+        for (int i = 0; i < length; i++) {
+            columnIds[i] = conditions[i].getColumn().getColumnId();
+        }
+    }
+
+    /**
+     * Create a hash join for the given table filter.
+     *
+     * @param filter the inner table filter
+     * @param indexConditions the evaluatable index conditions of the filter
+     * @return the hash join, or {@code null} if there are no conditions that
+     *         can be used for hash lookups
+     */
+    static HashJoin create(TableFilter filter, ArrayList<IndexCondition> indexConditions) {
+        IndexCondition[] conditions = getConditions(filter.getSession(), indexConditions);
+        return conditions == null ? null : new HashJoin(filter, conditions);
+    }
+
+    /**
+     * Get the index conditions that can be used for hash lookups.
+     *
+     * @param session the session
+     * @param indexConditions the index conditions
+     * @return the usable conditions, or {@code null} if there are none
+     */
+    static IndexCondition[] getConditions(Session session, ArrayList<IndexCondition> indexConditions) {
+        if (!session.getDatabase().getCompareMode().getName().equals(CompareMode.OFF)) {
+            return null;
+        }
+        ArrayList<IndexCondition> list = null;
+        for (IndexCondition condition : indexConditions) {
+            if (condition.getCompareType() != Comparison.EQUAL || !condition.isEvaluatable()) {
+                continue;
+            }
+            Column column = condition.getColumn();
+            if (column.getColumnId() < 0) {
+                continue;
+            }
+            int type = column.getType().getValueType();
+            if (!isHashable(type) || condition.getExpression().getType().getValueType() != type) {
+                continue;
+            }
+            if (list == null) {
+                list = new ArrayList<>();
+            }
+            list.add(condition);
+        }
+        return list == null ? null : list.toArray(new IndexCondition[0]);
+    }
+
+    /**
+     * Check whether equal values of this data type always have equal hash
+     * codes, and values that compare as equal are always equal.
+     *
+     * @param type the value type
+     * @return true if values of this type can be used as hash keys
+     */
+    private static boolean isHashable(int type) {
+        switch (type) {
+        case Value.BOOLEAN:
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+        case Value.DATE:
+        case Value.TIME:
+        case Value.TIMESTAMP:
+        case Value.BYTES:
+        case Value.STRING:
+        case Value.UUID:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Forget the hash table. It will be built again on the next lookup.
+     */
+    void reset() {
+        map = null;
+        tooLarge = false;
+        bucket = null;
+        current = null;
+    }
+
+    /**
+     * Look up the rows that match the current values of the join conditions.
+     *
+     * @param session the session
+     * @return false if the table is too large to be hashed and the nested loop
+     *         join needs to be used instead
+     */
+    boolean find(Session session) {
+        if (map == null) {
+            if (tooLarge) {
+                return false;
+            }
+            if (!build(session)) {
+                tooLarge = true;
+                return false;
+            }
+        }
+        bucket = map.get(getKey(session));
+        bucketIndex = 0;
+        current = null;
+        return true;
+    }
+
+    private boolean build(Session session) {
+        int maxRows = session.getDatabase().getMaxMemoryRows();
+        HashMap<Value, ArrayList<Row>> m = new HashMap<>();
+        Index index = filter.getIndex();
+        Cursor cursor = index.find(filter, null, null);
+        int count = 0;
+        while (cursor.next()) {
+            if ((++count & 4095) == 0) {
+                session.checkCanceled();
+            }
+            if (count > maxRows) {
+                return false;
+            }
+            Row row = cursor.get();
+            Value key = getKey(row);
+            if (key != null) {
+                m.computeIfAbsent(key, k -> new ArrayList<>(1)).add(row);
+            }
+        }
+        map = m;
+        return true;
+    }
+
+    private Value getKey(Row row) {
+        int length = columnIds.length;
+        if (length == 1) {
+            Value v = row.getValue(columnIds[0]);
+            return v == ValueNull.INSTANCE ? null : v;
+        }
+        Value[] values = new Value[length];
+        for (int i = 0; i < length; i++) {
+            Value v = row.getValue(columnIds[i]);
+            if (v == ValueNull.INSTANCE) {
+                return null;
+            }
+            values[i] = v;
+        }
+        return ValueRow.get(values);
+    }
+
+    private Value getKey(Session session) {
+        int length = conditions.length;
+        if (length == 1) {
+            Value v = conditions[0].getCurrentValue(session);
+            return v == ValueNull.INSTANCE ? null : v;
+        }
+        Value[] values = new Value[length];
+        for (int i = 0; i < length; i++) {
+            Value v = conditions[i].getCurrentValue(session);
+            if (v == ValueNull.INSTANCE) {
+                return null;
+            }
+            values[i] = v;
+        }
+        return ValueRow.get(values);
+    }
+
+    /**
+     * Append the hash join conditions to the query plan.
+     *
+     * @param builder the string builder
+     * @return the specified builder
+     */
+    StringBuilder getPlanSQL(StringBuilder builder) {
+        builder.append("hash join: ");
+        for (int i = 0, length = conditions.length; i < length; i++) {
+            if (i > 0) {
+                builder.append("\n    AND ");
+            }
+            builder.append(conditions[i].getSQL(false));
+        }
+        return builder;
+    }
+
+    @Override
+    public Row get() {
+        return current;
+    }
+
+    @Override
+    public SearchRow getSearchRow() {
+        return current;
+    }
+
+    @Override
+    public boolean next() {
+        if (bucket == null || bucketIndex >= bucket.size()) {
+            current = null;
+            return false;
+        }
+        current = bucket.get(bucketIndex++);
+        return true;
+    }
+
+    @Override
+    public boolean previous() {
+        throw DbException.throwInternalError(toString());
+    }
+
+}
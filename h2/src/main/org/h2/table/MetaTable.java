@@ -117,7 +117,8 @@ public class MetaTable extends Table {
     private static final int TABLE_CONSTRAINTS = 30;
     private static final int KEY_COLUMN_USAGE = 31;
     private static final int REFERENTIAL_CONSTRAINTS = 32;
-    private static final int META_TABLE_TYPE_COUNT = REFERENTIAL_CONSTRAINTS + 1;
+    private static final int COLUMN_STATISTICS = 33;
+    private static final int META_TABLE_TYPE_COUNT = COLUMN_STATISTICS + 1;
 
     private final int type;
     private final int indexColumn;
@@ -625,6 +626,22 @@ public MetaTable(Schema schema, int id, int type) {
             );
             break;
         }
+        case COLUMN_STATISTICS: {
+            setMetaTableName("COLUMN_STATISTICS");
+            cols = createColumns(
+                    "TABLE_CATALOG",
+                    "TABLE_SCHEMA",
+                    "TABLE_NAME",
+                    "COLUMN_NAME",
+                    "SAMPLE_ROWS INT",
+                    "NULL_ROWS INT",
+                    "DISTINCT_VALUES INT",
+                    "COMMON_VALUES",
+                    "HISTOGRAM_BOUNDS"
+            );
+            indexColumnName = "TABLE_NAME";
+            break;
+        }
         default:
             throw DbException.throwInternalError("type="+type);
         }
@@ -1182,6 +1199,23 @@ public ArrayList<Row> generateRows(Session session, SearchRow first,
                                 Integer.toString(mvStore.getCacheSizeUsed()));
                         add(rows, "info.CACHE_HIT_RATIO",
                                 Integer.toString(mvStore.getCacheHitRatio()));
+                        add(rows, "info.GROUP_COMMIT_COUNT",
+                                Long.toString(mvStore.getGroupCommitCount()));
+                        // the number of commits by latency, where the nth
+                        // value counts the commits of 2^n to 2^(n+1) us
+                        long[] latency = mvStore.getSyncCommitLatency();
+                        int count = latency.length;
+                        while (count > 1 && latency[count - 1] == 0) {
+                            count--;
+                        }
+                        StringBuilder builder = new StringBuilder();
+                        for (int i = 0; i < count; i++) {
+                            if (i > 0) {
+                                builder.append(',');
+                            }
+                            builder.append(latency[i]);
+                        }
+                        add(rows, "info.SYNC_COMMIT_LATENCY", builder.toString());
                     }
                 }
             }
@@ -2168,6 +2202,44 @@ public ArrayList<Row> generateRows(Session session, SearchRow first,
             }
             break;
         }
+        case COLUMN_STATISTICS: {
+            for (Table table : getAllTables(session)) {
+                String tableName = table.getName();
+                if (!checkIndex(session, tableName, indexFrom, indexTo)) {
+                    continue;
+                }
+                if (hideTable(table, session)) {
+                    continue;
+                }
+                for (Column c : table.getColumns()) {
+                    ColumnStatistics statistics = c.getStatistics();
+                    if (statistics == null) {
+                        continue;
+                    }
+                    add(rows,
+                            // TABLE_CATALOG
+                            catalog,
+                            // TABLE_SCHEMA
+                            table.getSchema().getName(),
+                            // TABLE_NAME
+                            tableName,
+                            // COLUMN_NAME
+                            c.getName(),
+                            // SAMPLE_ROWS
+                            ValueInt.get(statistics.getRowCount()),
+                            // NULL_ROWS
+                            ValueInt.get(statistics.getNullCount()),
+                            // DISTINCT_VALUES
+                            ValueInt.get(statistics.getDistinctCount()),
+                            // COMMON_VALUES
+                            statistics.getCommonValuesSQL(new StringBuilder()).toString(),
+                            // HISTOGRAM_BOUNDS
+                            statistics.getBoundsSQL(new StringBuilder()).toString()
+                    );
+                }
+            }
+            break;
+        }
         default:
             DbException.throwInternalError("type="+type);
         }
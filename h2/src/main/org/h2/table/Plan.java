@@ -119,7 +119,7 @@ public double calculateCost(Session session, AllColumnsForPlan allColumnsSet) {
                 t.debug("Plan       :   best plan item cost {0} index {1}",
                         item.cost, item.getIndex().getPlanSQL());
             }
-            cost += cost * item.cost;
+            cost += cost * item.cost + item.buildCost;
             setEvaluatable(tableFilter, true);
             Expression on = tableFilter.getJoinCondition();
             if (on != null) {
@@ -18,10 +18,16 @@ public class PlanItem {
      */
     double cost;
 
+    /**
+     * The one-time cost to build the hash table of a hash join, or 0.
+     */
+    double buildCost;
+
     private int[] masks;
     private Index index;
     private PlanItem joinPlan;
     private PlanItem nestedJoinPlan;
+    private boolean hashJoin;
 
     void setMasks(int[] masks) {
         this.masks = masks;
@@ -39,6 +45,14 @@ public Index getIndex() {
         return index;
     }
 
+    void setHashJoin(boolean hashJoin) {
+        this.hashJoin = hashJoin;
+    }
+
+    boolean isHashJoin() {
+        return hashJoin;
+    }
+
     PlanItem getJoinPlan() {
         return joinPlan;
     }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.util.Arrays;
+
+import org.h2.index.Cursor;
+import org.h2.result.Row;
+
+/**
+ * A batch of rows read from a table filter. Expressions can be evaluated for
+ * all rows of a batch at once, see
+ * {@link org.h2.expression.Expression#getValues(org.h2.engine.Session, RowBatch)}.
+ */
+public final class RowBatch {
+
+    /**
+     * The default number of rows in a batch.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final TableFilter filter;
+    private final Cursor cursor;
+    private final Row[] rows;
+    private int size;
+
+    public RowBatch(TableFilter filter) {
+        this(filter, null, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a batch that reads the rows from the given cursor instead of the
+     * table filter. Such a batch may be used by a thread other than the one
+     * that uses the table filter, as long as it is only passed to expressions
+     * that do not change the current row of the table filter, see
+     * {@link org.h2.expression.Expression#isBatchThreadSafe(TableFilter)}.
+     *
+     * @param filter the table filter the rows belong to
+     * @param cursor the cursor
+     */
+    public RowBatch(TableFilter filter, Cursor cursor) {
+        this(filter, cursor, DEFAULT_CAPACITY);
+    }
+
+    public RowBatch(TableFilter filter, Cursor cursor, int capacity) {
+        this.filter = filter;
+        this.cursor = cursor;
+        this.rows = new Row[capacity];
+    }
+
+    /**
+     * Read the next rows from the table filter or the cursor, replacing the
+     * current rows.
+     *
+     * @return true if at least one row was read
+     */
+    public boolean fill() {
+        int oldSize = size, capacity = rows.length;
+        size = 0;
+        if (cursor != null) {
+            while (size < capacity && cursor.next()) {
+                rows[size++] = cursor.get();
+            }
+        } else {
+            while (size < capacity && filter.next()) {
+                rows[size++] = filter.get();
+            }
+        }
+        if (size < oldSize) {
+            Arrays.fill(rows, size, oldSize, null);
+        }
+        return size > 0;
+    }
+
+    /**
+     * Remove all rows.
+     */
+    public void clear() {
+        Arrays.fill(rows, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Keep only the selected rows, in their original order.
+     *
+     * @param selected whether the row at the given index should be kept
+     */
+    public void retain(boolean[] selected) {
+        int oldSize = size, j = 0;
+        for (int i = 0; i < oldSize; i++) {
+            if (selected[i]) {
+                rows[j++] = rows[i];
+            }
+        }
+        Arrays.fill(rows, j, oldSize, null);
+        size = j;
+    }
+
+    /**
+     * Make the row with the given index the current row of the table filter.
+     *
+     * @param index the index of the row
+     */
+    public void setCurrentRow(int index) {
+        filter.set(rows[index]);
+    }
+
+    /**
+     * Get the row with the given index.
+     *
+     * @param index the index of the row
+     * @return the row
+     */
+    public Row getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Get the number of rows in this batch.
+     *
+     * @return the number of rows
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public TableFilter getTableFilter() {
+        return filter;
+    }
+
+}
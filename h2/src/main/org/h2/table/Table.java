@@ -155,6 +155,27 @@ public abstract Index addIndex(Session session, String indexName,
             int indexId, IndexColumn[] cols, IndexType indexType,
             boolean create, String indexComment);
 
+    /**
+     * Create an index for this table while other sessions continue to update
+     * it. The caller doesn't lock the table. This implementation takes an
+     * exclusive lock for the whole build.
+     *
+     * @param session the session
+     * @param indexName the name of the index
+     * @param indexId the id
+     * @param cols the index columns
+     * @param indexType the index type
+     * @param create whether this is a new index
+     * @param indexComment the comment
+     * @return the index
+     */
+    public Index addIndexConcurrently(Session session, String indexName,
+            int indexId, IndexColumn[] cols, IndexType indexType,
+            boolean create, String indexComment) {
+        lock(session, true, true);
+        return addIndex(session, indexName, indexId, cols, indexType, create, indexComment);
+    }
+
     /**
      * Get the given row.
      *
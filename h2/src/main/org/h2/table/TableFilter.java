@@ -15,6 +15,7 @@
 import org.h2.command.Parser;
 import org.h2.command.dml.AllColumnsForPlan;
 import org.h2.command.dml.Select;
+import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -78,6 +79,13 @@ public class TableFilter implements ColumnResolver {
     private JoinBatch joinBatch;
     private int joinFilterId = -1;
 
+    /**
+     * Hash join support.
+     */
+    private boolean hashJoinPlanned;
+    private HashJoin hashJoin;
+    private boolean hashJoinLookup;
+
     /**
      * Indicates that this filter is used in the plan.
      */
@@ -259,6 +267,16 @@ public PlanItem getBestPlanItem(Session s, TableFilter[] filters, int filter,
             item = item1;
         }
 
+        if (masks != null && filter > 0 && filters[filter] == this && nestedJoin == null
+                && table.getTableType() == TableType.TABLE
+                && s.getDatabase().getSettings().optimizeHashJoin) {
+            PlanItem hashItem = getHashJoinPlanItem(s, filters, filter, allColumnsSet);
+            if (hashItem != null && hashItem.cost < item.cost) {
+                hashItem.setMasks(masks);
+                item = hashItem;
+            }
+        }
+
         if (nestedJoin != null) {
             setEvaluatable(true);
             item.setNestedJoinPlan(nestedJoin.getBestPlanItem(s, filters, filter, allColumnsSet));
@@ -279,6 +297,39 @@ public PlanItem getBestPlanItem(Session s, TableFilter[] filters, int filter,
         return item;
     }
 
+    private PlanItem getHashJoinPlanItem(Session s, TableFilter[] filters, int filter,
+            AllColumnsForPlan allColumnsSet) {
+        IndexCondition[] conditions = HashJoin.getConditions(s, indexConditions);
+        if (conditions == null) {
+            return null;
+        }
+        Index scanIndex = table.getScanIndex(s);
+        long rowCount = scanIndex.getRowCountApproximation();
+        if (rowCount > s.getDatabase().getMaxMemoryRows()) {
+            return null;
+        }
+        rowCount += Constants.COST_ROW_OFFSET;
+        int totalSelectivity = 0;
+        for (IndexCondition condition : conditions) {
+            totalSelectivity = 100 - ((100 - totalSelectivity) *
+                    (100 - condition.getColumn().getSelectivity()) / 100);
+        }
+        long distinctRows = rowCount * totalSelectivity / 100;
+        if (distinctRows <= 0) {
+            distinctRows = 1;
+        }
+        long rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
+        PlanItem item = new PlanItem();
+        item.setIndex(scanIndex);
+        item.setHashJoin(true);
+        // slightly more expensive than a lookup in a secondary index, so that
+        // existing indexes are preferred: the hash table needs to be built
+        // first, this is accounted for in the plan cost separately
+        item.cost = 10 * (rowsCost + rowsCost + 20) + 10;
+        item.buildCost = scanIndex.getCost(s, null, filters, filter, null, allColumnsSet);
+        return item;
+    }
+
     /**
      * Set what plan item (index, cost, masks) to use.
      *
@@ -292,6 +343,7 @@ public void setPlanItem(PlanItem item) {
         }
         setIndex(item.getIndex());
         masks = item.getMasks();
+        hashJoinPlanned = item.isHashJoin();
         if (nestedJoin != null) {
             if (item.getNestedJoinPlan() != null) {
                 nestedJoin.setPlanItem(item.getNestedJoinPlan());
@@ -328,6 +380,7 @@ private void setScanIndexes() {
      * can not be used, and optimize the conditions.
      */
     public void prepare() {
+        hashJoin = hashJoinPlanned ? HashJoin.create(this, indexConditions) : null;
         // forget all unused index conditions
         // the indexConditions list may be modified here
         for (int i = 0; i < indexConditions.size(); i++) {
@@ -370,6 +423,9 @@ public void prepare() {
     public void startQuery(Session s) {
         this.session = s;
         scanCount = 0;
+        if (hashJoin != null) {
+            hashJoin.reset();
+        }
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
@@ -455,6 +511,8 @@ public JoinBatch prepareJoinBatch(JoinBatch jb, TableFilter[] filters, int filte
             if (nestedJoin != null) {
                 throw DbException.throwInternalError();
             }
+            // lookups are performed by the join batch
+            hashJoin = null;
             joinBatch = jb;
             joinFilterId = filter;
             if (lookupBatch == null && !isAlwaysTopTableFilter(filter)) {
@@ -495,7 +553,10 @@ public boolean next() {
         if (state == AFTER_LAST) {
             return false;
         } else if (state == BEFORE_FIRST) {
-            cursor.find(session, indexConditions);
+            hashJoinLookup = hashJoin != null && hashJoin.find(session);
+            if (!hashJoinLookup) {
+                cursor.find(session, indexConditions);
+            }
             if (!cursor.isAlwaysFalse()) {
                 if (nestedJoin != null) {
                     nestedJoin.reset();
@@ -526,7 +587,15 @@ public boolean next() {
                 if ((++scanCount & 4095) == 0) {
                     checkTimeout();
                 }
-                if (cursor.next()) {
+                if (hashJoinLookup) {
+                    if (hashJoin.next()) {
+                        current = hashJoin.get();
+                        currentSearchRow = current;
+                        state = FOUND;
+                    } else {
+                        state = AFTER_LAST;
+                    }
+                } else if (cursor.next()) {
                     currentSearchRow = cursor.getSearchRow();
                     current = null;
                     state = FOUND;
@@ -875,7 +944,9 @@ public StringBuilder getPlanSQL(StringBuilder builder, boolean isJoin, boolean a
                 }
             }
             planBuilder.append(index.getPlanSQL());
-            if (!indexConditions.isEmpty()) {
+            if (hashJoin != null) {
+                hashJoin.getPlanSQL(planBuilder.append(' '));
+            } else if (!indexConditions.isEmpty()) {
                 planBuilder.append(": ");
                 for (int i = 0, size = indexConditions.size(); i < size; i++) {
                     if (i > 0) {
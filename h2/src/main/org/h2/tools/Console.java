@@ -140,6 +140,8 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
+                } else if ("-tcpNio".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpPort".equals(arg)) {
                     i++;
                 } else if ("-tcpPassword".equals(arg)) {
@@ -84,6 +84,8 @@ public Server(Service service, String... args) throws SQLException {
      * <td>The port (default: 9092)</td></tr>
      * <tr><td>[-tcpSSL]</td>
      * <td>Use encrypted (SSL) connections</td></tr>
+     * <tr><td>[-tcpNio]</td>
+     * <td>Use a selector and a pool of worker threads</td></tr>
      * <tr><td>[-tcpPassword &lt;pwd&gt;]</td>
      * <td>The password for shutting down a TCP server</td></tr>
      * <tr><td>[-tcpShutdown "&lt;url&gt;"]</td>
@@ -155,6 +157,8 @@ private void verifyArgs(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
+                } else if ("-tcpNio".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpPort".equals(arg)) {
                     i++;
                 } else if ("-tcpPassword".equals(arg)) {
@@ -258,6 +262,8 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
+                } else if ("-tcpNio".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpPort".equals(arg)) {
                     i++;
                 } else if ("-tcpPassword".equals(arg)) {
@@ -457,7 +463,7 @@ static Server createWebServer(String[] args, String key, boolean allowSecureCrea
      *     "-tcpPort", "9123", "-tcpAllowOthers").start();
      * </pre>
      * Supported options are:
-     * -tcpPort, -tcpSSL, -tcpPassword, -tcpAllowOthers, -tcpDaemon,
+     * -tcpPort, -tcpSSL, -tcpNio, -tcpPassword, -tcpAllowOthers, -tcpDaemon,
      * -trace, -ifExists, -ifNotExists, -baseDir, -key.
      * See the main method for details.
      * <p>
@@ -13,6 +13,7 @@
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.concurrent.TimeUnit;
 
 import org.h2.api.ErrorCode;
@@ -147,6 +148,31 @@ public static ServerSocket createServerSocket(int port, boolean ssl) {
         }
     }
 
+    /**
+     * Create a server socket that is backed by a channel, so that the accepted
+     * sockets can be used with a selector. SSL is not supported.
+     *
+     * @param port the port to listen on
+     * @return the server socket
+     */
+    public static ServerSocket createServerSocketChannel(int port) {
+        try {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            try {
+                channel.socket().bind(new InetSocketAddress(getBindAddress(), port));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return channel.socket();
+        } catch (BindException be) {
+            throw DbException.get(ErrorCode.EXCEPTION_OPENING_PORT_2,
+                    be, Integer.toString(port), be.toString());
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, "port: " + port);
+        }
+    }
+
     /**
      * Get the bind address if the system property h2.bindAddress is set, or
      * null if not.
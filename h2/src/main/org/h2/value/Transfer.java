@@ -115,6 +115,15 @@ public void flush() throws IOException {
         out.flush();
     }
 
+    /**
+     * Get the number of bytes that can be read without blocking.
+     *
+     * @return the number of bytes
+     */
+    public int available() throws IOException {
+        return in.available();
+    }
+
     /**
      * Write a boolean.
      *
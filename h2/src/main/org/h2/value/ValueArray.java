@@ -122,6 +122,11 @@ public String getString() {
 
     @Override
     public int compareTypeSafe(Value o, CompareMode mode, CastDataProvider provider) {
+        if (!(o instanceof ValueArray)) {
+            // another implementation of an array value, such as an array
+            // that is decoded on demand
+            return -o.compareTypeSafe(this, mode, provider);
+        }
         ValueArray v = (ValueArray) o;
         if (values == v.values) {
             return 0;
@@ -192,7 +197,7 @@ public String getTraceSQL() {
     @Override
     public boolean equals(Object other) {
         if (!(other instanceof ValueArray)) {
-            return false;
+            return other instanceof Value && ((Value) other).getValueType() == ARRAY && other.equals(this);
         }
         ValueArray v = (ValueArray) other;
         if (values == v.values) {
@@ -71,6 +71,7 @@
 import org.h2.test.db.TestSQLInjection;
 import org.h2.test.db.TestSelectCountNonNullColumn;
 import org.h2.test.db.TestSequence;
+import org.h2.test.db.TestSequenceRanges;
 import org.h2.test.db.TestSessionsLocks;
 import org.h2.test.db.TestSetCollation;
 import org.h2.test.db.TestSpaceReuse;
@@ -128,21 +129,25 @@
 import org.h2.test.server.TestAutoServer;
 import org.h2.test.server.TestInit;
 import org.h2.test.server.TestNestedLoop;
+import org.h2.test.server.TestTcpServerNio;
 import org.h2.test.server.TestWeb;
 import org.h2.test.store.TestCacheConcurrentLIRS;
 import org.h2.test.store.TestCacheLIRS;
 import org.h2.test.store.TestCacheLongKeyLIRS;
+import org.h2.test.store.TestCacheLongKeyTinyLFU;
 import org.h2.test.store.TestConcurrent;
 import org.h2.test.store.TestDataUtils;
 import org.h2.test.store.TestDefrag;
 import org.h2.test.store.TestFreeSpace;
 import org.h2.test.store.TestKillProcessWhileWriting;
+import org.h2.test.store.TestLongDataType;
 import org.h2.test.store.TestMVRTree;
 import org.h2.test.store.TestMVStore;
 import org.h2.test.store.TestMVStoreBenchmark;
 import org.h2.test.store.TestMVStoreStopCompact;
 import org.h2.test.store.TestMVStoreTool;
 import org.h2.test.store.TestMVTableEngine;
+import org.h2.test.store.TestMappedFileStore;
 import org.h2.test.store.TestObjectDataType;
 import org.h2.test.store.TestRandomMapOps;
 import org.h2.test.store.TestSpinLock;
@@ -771,6 +776,7 @@ private void test() throws SQLException {
         addTest(new TestSessionsLocks());
         addTest(new TestSelectCountNonNullColumn());
         addTest(new TestSequence());
+        addTest(new TestSequenceRanges());
         addTest(new TestSpaceReuse());
         addTest(new TestSpatial());
         addTest(new TestSpeed());
@@ -819,6 +825,7 @@ private void test() throws SQLException {
         // server
         addTest(new TestAutoServer());
         addTest(new TestNestedLoop());
+        addTest(new TestTcpServerNio());
 
         // mvcc & row level locking
         addTest(new TestMvcc1());
@@ -927,13 +934,16 @@ private void testUtils() {
         addTest(new TestCacheConcurrentLIRS());
         addTest(new TestCacheLIRS());
         addTest(new TestCacheLongKeyLIRS());
+        addTest(new TestCacheLongKeyTinyLFU());
         addTest(new TestDataUtils());
         addTest(new TestFreeSpace());
         addTest(new TestKillProcessWhileWriting());
+        addTest(new TestLongDataType());
         addTest(new TestMVRTree());
         addTest(new TestMVStore());
         addTest(new TestMVStoreBenchmark());
         addTest(new TestMVStoreStopCompact());
+        addTest(new TestMappedFileStore());
         addTest(new TestMVStoreTool());
         addTest(new TestObjectDataType());
         addTest(new TestRandomMapOps());
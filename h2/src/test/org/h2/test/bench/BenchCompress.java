@@ -0,0 +1,146 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.bench;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.h2.compress.CompressDeflate;
+import org.h2.compress.CompressDictionary;
+import org.h2.compress.CompressLZ4;
+import org.h2.compress.CompressLZF;
+import org.h2.compress.Compressor;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreTool;
+import org.h2.store.fs.FileUtils;
+
+/**
+ * Compares the page compression algorithms of the MVStore. A database is
+ * created with the data of the performance test (BenchA, BenchB), and
+ * is then copied to a new store with each algorithm. The compression ratio
+ * (compared to the uncompressed copy), the write and the read throughput
+ * (megabytes of uncompressed data per second) are printed. Reading means
+ * copying the store to an uncompressed store, so that the result of the
+ * algorithm "none" is the baseline.
+ * <p>
+ * The size can be set on the command line, the default is the size in
+ * test.properties.
+ */
+public class BenchCompress implements Database.DatabaseTest {
+
+    private static final String DIR = "./data/compress";
+
+    /**
+     * This method is called when executing this application from the command
+     * line.
+     *
+     * @param args the size (optional)
+     */
+    public static void main(String... args) throws Exception {
+        new BenchCompress().test(args);
+    }
+
+    private void test(String... args) throws Exception {
+        Properties prop = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("test.properties")) {
+            prop.load(in);
+        }
+        int size = Integer.parseInt(prop.getProperty("size"));
+        if (args.length > 0) {
+            size = Integer.parseInt(args[0]);
+        }
+        FileUtils.deleteRecursive(DIR, false);
+        Database db = Database.parse(this, 1,
+                "H2, org.h2.Driver, jdbc:h2:" + DIR + "/test, sa, sa", 1);
+        db.setTranslations(prop);
+        for (Bench bench : new Bench[] { new BenchA(), new BenchB() }) {
+            bench.init(db, size);
+        }
+        String source = DIR + "/test.mv.db";
+        String plain = DIR + "/uncompressed.mv.db";
+        compact(source, null, plain, null);
+        long plainSize = FileUtils.size(plain);
+
+        ArrayList<byte[]> samples = new ArrayList<>();
+        try (InputStream in = FileUtils.newInputStream(plain)) {
+            byte[] block = new byte[4096];
+            for (int i = 0; in.read(block) == block.length; i++) {
+                // every 16th block, so that the dictionary is not trained
+                // with all the data
+                if (i % 16 == 0) {
+                    samples.add(Arrays.copyOf(block, block.length));
+                }
+            }
+        }
+        byte[] dictionary = CompressDictionary.train(samples, 4096);
+
+        System.out.println("uncompressed: " + plainSize / 1024 + " KB");
+        System.out.println("algorithm\tsize KB\tratio\twrite MB/s\tread MB/s");
+        for (int i = 0; i < 3; i++) {
+            test("none", plain, plainSize, null);
+            test("LZF", plain, plainSize, CompressLZF::new);
+            test("LZ4", plain, plainSize, CompressLZ4::new);
+            test("DEFLATE", plain, plainSize, CompressDeflate::new);
+            test("dictionary", plain, plainSize, () -> new CompressDictionary(dictionary));
+        }
+        FileUtils.deleteRecursive(DIR, false);
+    }
+
+    private static void test(String name, String plain, long plainSize,
+            Supplier<? extends Compressor> factory) {
+        String target = DIR + "/" + name + ".mv.db";
+        String copy = DIR + "/copy.mv.db";
+        long time = System.nanoTime();
+        compact(plain, null, target, factory);
+        long writeNanos = System.nanoTime() - time;
+        long size = FileUtils.size(target);
+        time = System.nanoTime();
+        // all pages are expanded and copied to an uncompressed store
+        compact(target, factory, copy, null);
+        long readNanos = System.nanoTime() - time;
+        System.out.println(name + "\t" + size / 1024 +
+                "\t" + String.format("%.2f", (double) plainSize / size) +
+                "\t" + megabytesPerSecond(plainSize, writeNanos) +
+                "\t" + megabytesPerSecond(plainSize, readNanos));
+        FileUtils.delete(target);
+        FileUtils.delete(copy);
+    }
+
+    private static void compact(String source, Supplier<? extends Compressor> sourceFactory,
+            String target, Supplier<? extends Compressor> targetFactory) {
+        FileUtils.delete(target);
+        MVStore.Builder sourceBuilder = new MVStore.Builder().fileName(source).readOnly();
+        if (sourceFactory != null) {
+            sourceBuilder.compressor(sourceFactory);
+        }
+        MVStore.Builder targetBuilder = new MVStore.Builder().fileName(target);
+        if (targetFactory != null) {
+            targetBuilder.compressor(targetFactory);
+        }
+        try (MVStore s = sourceBuilder.open(); MVStore t = targetBuilder.open()) {
+            MVStoreTool.compact(s, t);
+        }
+    }
+
+    private static long megabytesPerSecond(long bytes, long nanos) {
+        return bytes * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos) / 1024 / 1024;
+    }
+
+    @Override
+    public boolean isCollect() {
+        return false;
+    }
+
+    @Override
+    public void trace(String msg) {
+        // ignore
+    }
+
+}
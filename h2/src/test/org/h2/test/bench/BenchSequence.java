@@ -0,0 +1,106 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.store.fs.FileUtils;
+import org.h2.util.Task;
+
+/**
+ * Measures the contention on sequences. For each number of threads, each
+ * thread uses its own connection to get values of a sequence, and then to
+ * insert rows into a table with an identity column. The operations per
+ * second are printed, and it is checked that no value was returned twice.
+ * <p>
+ * The numbers of threads can be set on the command line, for example
+ * "1 4 16 64" (the default).
+ */
+public class BenchSequence {
+
+    private static final String DIR = "./data/sequence";
+
+    private static final String URL = "jdbc:h2:" + DIR + "/test";
+
+    private static final int RUN_MILLIS = 3000;
+
+    /**
+     * This method is called when executing this application from the command
+     * line.
+     *
+     * @param args the numbers of threads
+     */
+    public static void main(String... args) throws Exception {
+        int[] counts = { 1, 4, 16, 64 };
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        org.h2.Driver.load();
+        System.out.println("operation\tthreads\toperations/s");
+        for (int count : counts) {
+            FileUtils.deleteRecursive(DIR, false);
+            try (Connection conn = DriverManager.getConnection(URL)) {
+                Statement stat = conn.createStatement();
+                stat.execute("CREATE SEQUENCE SEQ");
+                stat.execute("CREATE TABLE TEST(ID BIGINT AUTO_INCREMENT PRIMARY KEY, NAME VARCHAR)");
+                test(count, "SELECT NEXT VALUE FOR SEQ", "NEXT VALUE");
+                test(count, "INSERT INTO TEST(NAME) VALUES('Hello')", "INSERT");
+                ResultSet rs = stat.executeQuery("SELECT COUNT(*), COUNT(DISTINCT ID) FROM TEST");
+                rs.next();
+                if (rs.getLong(1) != rs.getLong(2)) {
+                    throw new AssertionError("Duplicate identity values");
+                }
+            }
+        }
+        FileUtils.deleteRecursive(DIR, false);
+    }
+
+    private static void test(int count, String sql, String name) throws Exception {
+        AtomicLong operations = new AtomicLong();
+        long end = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+        Task[] tasks = new Task[count];
+        for (int t = 0; t < count; t++) {
+            tasks[t] = new Task() {
+                @Override
+                public void call() throws SQLException {
+                    try (Connection conn = DriverManager.getConnection(URL)) {
+                        PreparedStatement prep = conn.prepareStatement(sql);
+                        long last = Long.MIN_VALUE;
+                        while (System.nanoTime() < end) {
+                            if (prep.execute()) {
+                                try (ResultSet rs = prep.getResultSet()) {
+                                    rs.next();
+                                    long value = rs.getLong(1);
+                                    // the values of a session are increasing
+                                    if (value <= last) {
+                                        throw new AssertionError(value + " <= " + last);
+                                    }
+                                    last = value;
+                                }
+                            }
+                            operations.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            tasks[t].execute();
+        }
+        for (Task task : tasks) {
+            task.get();
+        }
+        System.out.println(name + "\t" + count + "\t" + operations.get() * 1000 / RUN_MILLIS);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.bench;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.tools.Server;
+import org.h2.util.Task;
+
+/**
+ * Compares the TCP server with one thread per connection to the TCP server
+ * with a selector and a pool of worker threads (option -tcpNio). For each
+ * number of open connections, a few client threads run short queries on all
+ * connections in turn. The throughput, the number of threads, and the used
+ * memory are printed.
+ * <p>
+ * The number of connections can be set on the command line, for example
+ * "100 1000 5000" (the default).
+ */
+public class BenchTcpServer {
+
+    private static final int CLIENT_THREADS = 8;
+
+    private static final int RUN_MILLIS = 5000;
+
+    /**
+     * This method is called when executing this application from the command
+     * line.
+     *
+     * @param args the numbers of connections
+     */
+    public static void main(String... args) throws Exception {
+        int[] counts = { 100, 1000, 5000 };
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        org.h2.Driver.load();
+        System.out.println("mode\tconnections\tqueries/s\tthreads\tused MB");
+        for (int count : counts) {
+            for (boolean nio : new boolean[] { false, true }) {
+                test(nio, count);
+            }
+        }
+    }
+
+    private static void test(boolean nio, int count) throws Exception {
+        Server server = nio ? Server.createTcpServer("-tcpNio", "-ifNotExists")
+                : Server.createTcpServer("-ifNotExists");
+        server.start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:bench;DB_CLOSE_DELAY=-1";
+        ArrayList<Connection> connections = new ArrayList<>(count);
+        try {
+            try (Connection conn = DriverManager.getConnection(url)) {
+                Statement stat = conn.createStatement();
+                stat.execute("CREATE TABLE IF NOT EXISTS TEST(ID INT PRIMARY KEY, NAME VARCHAR) "
+                        + "AS SELECT X, 'Hello ' || X FROM SYSTEM_RANGE(1, 1000)");
+            }
+            for (int i = 0; i < count; i++) {
+                connections.add(DriverManager.getConnection(url));
+            }
+            long used = getUsedMemory();
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            AtomicLong queries = new AtomicLong();
+            long end = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+            Task[] tasks = new Task[CLIENT_THREADS];
+            for (int t = 0; t < CLIENT_THREADS; t++) {
+                int first = t;
+                tasks[t] = new Task() {
+                    @Override
+                    public void call() throws SQLException {
+                        ArrayList<PreparedStatement> list = new ArrayList<>();
+                        for (int i = first; i < count; i += CLIENT_THREADS) {
+                            list.add(connections.get(i).prepareStatement("SELECT NAME FROM TEST WHERE ID = ?"));
+                        }
+                        for (int i = 0; System.nanoTime() < end; i++) {
+                            PreparedStatement prep = list.get(i % list.size());
+                            prep.setInt(1, i % 1000 + 1);
+                            try (ResultSet rs = prep.executeQuery()) {
+                                rs.next();
+                            }
+                            queries.incrementAndGet();
+                        }
+                    }
+                };
+                tasks[t].execute();
+            }
+            for (Task task : tasks) {
+                task.get();
+            }
+            System.out.println((nio ? "nio" : "threads") + "\t" + count + "\t"
+                    + queries.get() * 1000 / RUN_MILLIS + "\t" + threads + "\t" + used / 1024 / 1024);
+        } finally {
+            for (Connection conn : connections) {
+                conn.close();
+            }
+            server.stop();
+        }
+    }
+
+    private static long getUsedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            rt.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+}
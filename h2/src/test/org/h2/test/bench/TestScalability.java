@@ -93,6 +93,18 @@ private void test() throws Exception {
         dbs.add(createDbEntry(id++, "MV", 32, mvUrl));
         dbs.add(createDbEntry(id++, "MV", 64, mvUrl));
 
+        // the default lock mode: data modification only registers a shared
+        // table lock, concurrent updates are resolved by row locks
+        final String mvRowLockUrl = "jdbc:h2:./data/mvRowLockTest;" +
+                "LOCK_TIMEOUT=10000";
+        dbs.add(createDbEntry(id++, "MVRowLock", 1, mvRowLockUrl));
+        dbs.add(createDbEntry(id++, "MVRowLock", 2, mvRowLockUrl));
+        dbs.add(createDbEntry(id++, "MVRowLock", 4, mvRowLockUrl));
+        dbs.add(createDbEntry(id++, "MVRowLock", 8, mvRowLockUrl));
+        dbs.add(createDbEntry(id++, "MVRowLock", 16, mvRowLockUrl));
+        dbs.add(createDbEntry(id++, "MVRowLock", 32, mvRowLockUrl));
+        dbs.add(createDbEntry(id++, "MVRowLock", 64, mvRowLockUrl));
+
         final BenchB test = new BenchB() {
             // Since we focus on scalability here, lets emphasize multi-threaded
             // part of the test (transactions) and minimize impact of the init.
@@ -53,6 +53,7 @@ public void test() throws SQLException {
         testLargeUpdateDelete();
         testCloseConnectionDelete();
         testOrderGroup();
+        testManyGroups();
         testLimitBufferedResult();
         deleteDb("bigResult");
     }
@@ -424,6 +425,58 @@ private void testLimitBufferedResult() throws SQLException {
         conn.close();
     }
 
+    private void testManyGroups() throws SQLException {
+        deleteDb("bigResult");
+        Connection conn = getConnection("bigResult");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, K INT, V INT) AS "
+                + "SELECT X, MOD(X * 7, 1000), X FROM SYSTEM_RANGE(1, 10000)");
+        stat.execute("SET MAX_MEMORY_ROWS 100");
+        ResultSet rs = stat.executeQuery("EXPLAIN ANALYZE SELECT K, COUNT(*), SUM(V) FROM TEST GROUP BY K");
+        rs.next();
+        assertContains(rs.getString(1), "/* group spill count: ");
+        rs = stat.executeQuery("EXPLAIN SELECT K, COUNT(*), SUM(V) FROM TEST GROUP BY K");
+        rs.next();
+        assertFalse(rs.getString(1).contains("group spill count"));
+        rs = stat.executeQuery("SELECT K, COUNT(*), SUM(V), MIN(V), MAX(V), AVG(V) FROM TEST GROUP BY K ORDER BY K");
+        for (int k = 0; k < 1000; k++) {
+            assertTrue(rs.next());
+            // 7 * 143 = 1001
+            int first = (k * 143 + 999) % 1000 + 1;
+            assertEquals(k, rs.getInt(1));
+            assertEquals(10, rs.getInt(2));
+            assertEquals(10 * first + 45000, rs.getInt(3));
+            assertEquals(first, rs.getInt(4));
+            assertEquals(first + 9000, rs.getInt(5));
+            assertEquals(first + 4500, rs.getInt(6));
+        }
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT COUNT(*) FROM (SELECT K FROM TEST GROUP BY K HAVING COUNT(*) = 10)");
+        rs.next();
+        assertEquals(1000, rs.getInt(1));
+        // 20 frequent groups and 5000 groups with one row each, frequent
+        // groups are kept in memory and are not written on each spill
+        stat.execute("CREATE TABLE TEST2(K INT, V INT) AS SELECT CASE WHEN MOD(X, 2) = 0 THEN MOD(X, 40) "
+                + "ELSE 1000 + X END, X FROM SYSTEM_RANGE(1, 10000)");
+        rs = stat.executeQuery("EXPLAIN ANALYZE SELECT K, COUNT(*) FROM TEST2 GROUP BY K");
+        rs.next();
+        String plan = rs.getString(1);
+        int index = plan.indexOf("/* group spill count: ") + "/* group spill count: ".length();
+        int spillCount = Integer.parseInt(plan.substring(index, plan.indexOf(' ', index)));
+        assertTrue(spillCount >= 5000);
+        assertTrue("spill count: " + spillCount, spillCount < 5500);
+        rs = stat.executeQuery("SELECT COUNT(*), SUM(C) FROM (SELECT K, COUNT(*) C FROM TEST2 GROUP BY K) "
+                + "WHERE K < 40 AND C = 250 OR K > 1000 AND C = 1");
+        rs.next();
+        assertEquals(5020, rs.getInt(1));
+        assertEquals(10000, rs.getInt(2));
+        // LISTAGG cannot merge partial results, all groups are kept in memory
+        rs = stat.executeQuery("EXPLAIN ANALYZE SELECT K, LISTAGG(V) FROM TEST GROUP BY K");
+        rs.next();
+        assertFalse(rs.getString(1).contains("group spill count"));
+        conn.close();
+    }
+
     private void testOrderGroup() throws SQLException {
         deleteDb("bigResult");
         Connection conn = getConnection("bigResult");
@@ -11,6 +11,9 @@
 import java.sql.Statement;
 
 import org.h2.api.ErrorCode;
+import org.h2.command.Command;
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
 
@@ -33,6 +36,7 @@ public void test() throws Exception {
         deleteDb("queryCache");
         test1();
         testClearingCacheWithTableStructureChanges();
+        testSharedCache();
         deleteDb("queryCache");
     }
 
@@ -107,4 +111,63 @@ private void testClearingCacheWithTableStructureChanges() throws Exception {
                     prepareStatement("SELECT * FROM TEST");
         }
     }
+
+    private void testSharedCache() throws Exception {
+        deleteDb("queryCache");
+        String url = "queryCache;QUERY_CACHE_SIZE=2";
+        try (Connection conn = getConnection(url)) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+            stat.execute("INSERT INTO TEST VALUES (1, 'Hello')");
+            stat.execute("CREATE SCHEMA S2");
+            stat.execute("CREATE TABLE S2.TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+            stat.execute("INSERT INTO S2.TEST VALUES (1, 'World')");
+            String query = "SELECT NAME FROM TEST WHERE ID = ?";
+            Connection conn3 = getConnection(url);
+            conn3.createStatement().execute("SET SCHEMA S2");
+            Connection conn1 = getConnection(url);
+            conn1.setAutoCommit(false);
+            conn1.createStatement().execute("INSERT INTO TEST VALUES (2, 'Uncommitted')");
+            PreparedStatement prep = conn1.prepareStatement(query);
+            prep.setInt(1, 2);
+            ResultSet rs = prep.executeQuery();
+            assertTrue(rs.next());
+            assertEquals("Uncommitted", rs.getString(1));
+            prep.close();
+            Command command = null;
+            if (!config.networked) {
+                command = ((Session) ((JdbcConnection) conn1).getSession()).prepareLocal(query);
+                command.close();
+            }
+            // the commands of the closed session are moved to the shared cache
+            conn1.close();
+            Connection conn2 = getConnection(url);
+            prep = conn3.prepareStatement(query);
+            prep.setInt(1, 1);
+            rs = prep.executeQuery();
+            assertTrue(rs.next());
+            assertEquals("World", rs.getString(1));
+            prep.close();
+            if (command != null) {
+                Session session = (Session) ((JdbcConnection) conn2).getSession();
+                assertTrue(command == session.prepareLocal(query));
+                command.close();
+            }
+            prep = conn2.prepareStatement(query);
+            prep.setInt(1, 2);
+            // the rolled back row must not be returned from the last result
+            rs = prep.executeQuery();
+            assertFalse(rs.next());
+            prep.setInt(1, 1);
+            rs = prep.executeQuery();
+            assertTrue(rs.next());
+            assertEquals("Hello", rs.getString(1));
+            prep.close();
+            conn2.close();
+            conn3.close();
+            stat.execute("DROP TABLE TEST");
+            stat.execute("DROP SCHEMA S2 CASCADE");
+        }
+    }
+
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.schema.Sequence;
+import org.h2.test.TestBase;
+import org.h2.test.TestDb;
+import org.h2.util.Task;
+
+/**
+ * Tests the ranges of sequence values that sessions reserve.
+ */
+public class TestSequenceRanges extends TestDb {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().test();
+    }
+
+    @Override
+    public void test() throws Exception {
+        testConcurrentRanges();
+        testExplicitValueInRange();
+        deleteDb("sequenceRanges");
+    }
+
+    private void testConcurrentRanges() throws Exception {
+        deleteDb("sequenceRanges");
+        final String url = getURL("sequenceRanges", true);
+        Connection[] connections = new Connection[4];
+        Task[] tasks = new Task[connections.length];
+        try {
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = getConnection(url);
+            }
+            Statement stat = connections[0].createStatement();
+            stat.execute("CREATE SEQUENCE SEQ");
+            stat.execute("CREATE TABLE TEST(ID BIGINT AUTO_INCREMENT PRIMARY KEY)");
+            final ArrayList<Long> all = new ArrayList<>();
+            for (int i = 0; i < tasks.length; i++) {
+                final Connection conn = connections[i];
+                tasks[i] = new Task() {
+                    @Override
+                    public void call() throws Exception {
+                        PreparedStatement next = conn.prepareStatement("CALL NEXT VALUE FOR SEQ");
+                        PreparedStatement insert = conn.prepareStatement("INSERT INTO TEST DEFAULT VALUES");
+                        long last = 0;
+                        while (!stop) {
+                            try (ResultSet rs = next.executeQuery()) {
+                                rs.next();
+                                long v = rs.getLong(1);
+                                // the values of a session are increasing
+                                if (v <= last) {
+                                    throw new RuntimeException(v + " <= " + last);
+                                }
+                                last = v;
+                                synchronized (all) {
+                                    all.add(v);
+                                }
+                            }
+                            insert.execute();
+                        }
+                    }
+                }.execute();
+            }
+            Thread.sleep(500);
+            for (Task t : tasks) {
+                t.get();
+            }
+            assertEquals(all.size(), new HashSet<>(all).size());
+            ResultSet rs = stat.executeQuery("SELECT COUNT(*), COUNT(DISTINCT ID) FROM TEST");
+            rs.next();
+            assertEquals(rs.getLong(1), rs.getLong(2));
+
+            // the ranges that the sessions reserved are not used after a
+            // restart, or after inserting a larger identity value
+            stat.execute("ALTER SEQUENCE SEQ RESTART WITH 1000000");
+            stat.execute("INSERT INTO TEST VALUES(1000000)");
+            ArrayList<Long> values = new ArrayList<>();
+            for (Connection conn : connections) {
+                rs = conn.createStatement().executeQuery("CALL NEXT VALUE FOR SEQ");
+                rs.next();
+                values.add(rs.getLong(1));
+                conn.createStatement().execute("INSERT INTO TEST DEFAULT VALUES");
+            }
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(1000000 + i, values.get(i).longValue());
+            }
+            rs = stat.executeQuery("SELECT MIN(ID) FROM TEST WHERE ID > 1000000");
+            rs.next();
+            assertEquals(1000001, rs.getLong(1));
+        } finally {
+            for (Task t : tasks) {
+                if (t != null) {
+                    t.join();
+                }
+            }
+            for (Connection conn : connections) {
+                if (conn != null) {
+                    conn.close();
+                }
+            }
+        }
+    }
+
+
+    private void testExplicitValueInRange() throws SQLException {
+        deleteDb("sequenceRanges");
+        Connection conn = getConnection("sequenceRanges");
+        Connection conn2 = getConnection("sequenceRanges");
+        Statement stat = conn.createStatement();
+        Statement stat2 = conn2.createStatement();
+        stat.execute("CREATE TABLE TEST(ID BIGINT AUTO_INCREMENT PRIMARY KEY)");
+        Session session2 = (Session) ((JdbcConnection) conn2).getSession();
+        Sequence sequence = session2.getDatabase().getSchema("PUBLIC").findTableOrView(session2, "TEST")
+                .getColumn("ID").getSequence();
+        // the second session reserves a range of values
+        session2.setSequenceRange(sequence, new Sequence.Range());
+        stat2.execute("INSERT INTO TEST DEFAULT VALUES");
+        assertEquals(1L, sequence.getCurrentValue());
+        ResultSet rs = stat.executeQuery("SELECT CURRENT_VALUE FROM INFORMATION_SCHEMA.SEQUENCES");
+        rs.next();
+        assertEquals(1L, rs.getLong(1));
+        // a value in the range that is not used yet
+        stat.execute("INSERT INTO TEST VALUES(10)");
+        assertEquals(10L, sequence.getCurrentValue());
+        for (int i = 0; i < 40; i++) {
+            stat2.execute("INSERT INTO TEST DEFAULT VALUES");
+        }
+        rs = stat.executeQuery("SELECT COUNT(*), COUNT(DISTINCT ID) FROM TEST");
+        rs.next();
+        assertEquals(42, rs.getInt(1));
+        assertEquals(42, rs.getInt(2));
+        // a value below the last one does not change the current value
+        stat.execute("INSERT INTO TEST VALUES(5)");
+        rs = stat.executeQuery("SELECT MAX(ID) FROM TEST");
+        rs.next();
+        assertEquals(rs.getLong(1), sequence.getCurrentValue());
+        conn2.close();
+        conn.close();
+    }
+
+}
@@ -14,8 +14,10 @@
 import java.util.HashSet;
 import java.util.concurrent.CountDownLatch;
 import org.h2.api.ErrorCode;
+import org.h2.api.TransitionTableTrigger;
 import org.h2.api.Trigger;
 import org.h2.engine.Session;
+import org.h2.engine.SysProperties;
 import org.h2.jdbc.JdbcConnection;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
@@ -46,6 +48,7 @@ public void test() throws Exception {
         testTriggerDeadlock();
         testDeleteInTrigger();
         testTriggerAdapter();
+        testTransitionTables();
         testTriggerSelectEachRow();
         testViewTrigger();
         testViewTriggerGeneratedKeys();
@@ -168,6 +171,106 @@ private void testTriggerAdapter() throws SQLException {
         conn.close();
     }
 
+    /**
+     * A trigger that records the number and the sum of the ids of the old and
+     * the new rows of each statement.
+     */
+    public static class TestTransitionTables implements TransitionTableTrigger {
+
+        @Override
+        public void fireStatement(Connection conn, ResultSet oldRows, ResultSet newRows)
+                throws SQLException {
+            if (!"ID".equals(oldRows.getMetaData().getColumnName(1))) {
+                throw new SQLException("wrong column name");
+            }
+            long[] old = sum(oldRows), added = sum(newRows);
+            // the rows of an update are in the same order
+            oldRows.beforeFirst();
+            newRows.beforeFirst();
+            while (oldRows.next() && newRows.next()) {
+                if (!oldRows.getString(2).equals(newRows.getString(2))) {
+                    throw new SQLException("wrong order");
+                }
+            }
+            PreparedStatement prep = conn.prepareStatement("insert into audit values(?, ?, ?, ?)");
+            prep.setLong(1, old[0]);
+            prep.setLong(2, added[0]);
+            prep.setLong(3, old[1]);
+            prep.setLong(4, added[1]);
+            prep.execute();
+        }
+
+        private static long[] sum(ResultSet rs) throws SQLException {
+            long[] countAndSum = new long[2];
+            while (rs.next()) {
+                countAndSum[0]++;
+                countAndSum[1] += rs.getLong(1);
+            }
+            return countAndSum;
+        }
+
+    }
+
+    private void testTransitionTables() throws SQLException {
+        try (Connection conn = getConnection("trigger")) {
+            Statement stat = conn.createStatement();
+            stat.execute("drop table if exists test, audit");
+            stat.execute("create table test(id int primary key, name varchar)");
+            stat.execute("create table audit(old_count int, new_count int, old_sum bigint, new_sum bigint)");
+            stat.execute("create trigger public.test_audit after insert, update, delete on test "
+                    + "referencing old table as o new table as n for each statement call \""
+                    + TestTransitionTables.class.getName() + "\"");
+            ResultSet rs = stat.executeQuery("select sql from information_schema.triggers");
+            rs.next();
+            assertContains(rs.getString(1), " REFERENCING OLD TABLE AS \"O\" NEW TABLE AS \"N\" ");
+            stat.execute("insert into test select x, 'n' || x from system_range(1, 1000)");
+            assertAudit(stat, 0, 1000, 0, 500500);
+            // large transition tables are stored in a temporary file
+            stat.execute("set max_memory_rows 100");
+            stat.execute("update test set id = id + 1000");
+            assertAudit(stat, 1000, 1000, 500500, 1500500);
+            // the rows of a failed statement are not passed to the next one
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).
+                    execute("insert into test values(3000, 'a'), (1001, 'b')");
+            stat.execute("insert into test values(1, 'n1')");
+            assertAudit(stat, 0, 1, 0, 1);
+            stat.execute("delete from test where id <= 1000");
+            assertAudit(stat, 1, 0, 1, 0);
+            // the trigger class can not be loaded, the collected rows are
+            // discarded
+            stat.execute("create force trigger public.test_missing after insert on test "
+                    + "referencing new table as n call \"org.h2.test.db.NotExisting\"");
+            assertThrows(ErrorCode.ERROR_CREATING_TRIGGER_OBJECT_3, stat).
+                    execute("insert into test select x, 'n' || x from system_range(1, 1000)");
+            stat.execute("drop trigger public.test_missing");
+            stat.execute("insert into test values(2, 'n2')");
+            assertAudit(stat, 0, 1, 0, 2);
+            stat.execute("set max_memory_rows " + SysProperties.MAX_MEMORY_ROWS);
+            assertThrows(ErrorCode.FEATURE_NOT_SUPPORTED_1, stat).
+                    execute("create trigger public.test_before before insert on test "
+                    + "referencing new table as n call \"" + TestTransitionTables.class.getName() + "\"");
+            assertThrows(ErrorCode.FEATURE_NOT_SUPPORTED_1, stat).
+                    execute("create trigger public.test_old after insert on test "
+                    + "referencing old table as o call \"" + TestTransitionTables.class.getName() + "\"");
+            assertThrows(ErrorCode.ERROR_CREATING_TRIGGER_OBJECT_3, stat).
+                    execute("create trigger public.test_class after insert on test "
+                    + "referencing new table as n call \"" + TestSelect.class.getName() + "\"");
+            stat.execute("drop table test, audit");
+        }
+    }
+
+    private void assertAudit(Statement stat, long oldCount, long newCount,
+            long oldSum, long newSum) throws SQLException {
+        ResultSet rs = stat.executeQuery("select * from audit");
+        assertTrue(rs.next());
+        assertEquals(oldCount, rs.getLong(1));
+        assertEquals(newCount, rs.getLong(2));
+        assertEquals(oldSum, rs.getLong(3));
+        assertEquals(newSum, rs.getLong(4));
+        assertFalse(rs.next());
+        stat.execute("delete from audit");
+    }
+
     private void testTriggerSelectEachRow() throws SQLException {
         Connection conn;
         Statement stat;
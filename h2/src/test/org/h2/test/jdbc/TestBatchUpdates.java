@@ -65,6 +65,7 @@ public void test() throws SQLException {
         testRootCause();
         testExecuteCall();
         testException();
+        testPartialFailure();
         testCoffee();
         deleteDb("batchUpdates");
     }
@@ -111,6 +112,51 @@ private void testRootCause() throws SQLException {
         conn.close();
     }
 
+    private void testPartialFailure() throws SQLException {
+        deleteDb("batchUpdates");
+        conn = getConnection("batchUpdates");
+        stat = conn.createStatement();
+        stat.execute("create table test(id int primary key)");
+        prep = conn.prepareStatement("insert into test values(?)");
+        for (int autoCommit = 0; autoCommit < 2; autoCommit++) {
+            conn.setAutoCommit(autoCommit == 1);
+            stat.execute("delete from test");
+            if (autoCommit == 0) {
+                conn.commit();
+            }
+            for (int id : new int[] { 1, 2, 1, 3, 2 }) {
+                prep.setInt(1, id);
+                prep.addBatch();
+            }
+            try {
+                prep.executeBatch();
+                fail();
+            } catch (BatchUpdateException e) {
+                int[] counts = e.getUpdateCounts();
+                assertEquals(5, counts.length);
+                assertEquals(1, counts[0]);
+                assertEquals(1, counts[1]);
+                assertEquals(Statement.EXECUTE_FAILED, counts[2]);
+                assertEquals(1, counts[3]);
+                assertEquals(Statement.EXECUTE_FAILED, counts[4]);
+                SQLException next = e.getNextException();
+                assertEquals(ErrorCode.DUPLICATE_KEY_1, next.getErrorCode());
+                next = next.getNextException();
+                assertEquals(ErrorCode.DUPLICATE_KEY_1, next.getErrorCode());
+                assertNull(next.getNextException());
+            }
+            if (autoCommit == 0) {
+                conn.commit();
+            }
+            Connection conn2 = getConnection("batchUpdates");
+            ResultSet rs = conn2.createStatement().executeQuery("select count(*) from test");
+            rs.next();
+            assertEquals(3, rs.getInt(1));
+            conn2.close();
+        }
+        conn.close();
+    }
+
     private void testExecuteCall() throws SQLException {
         deleteDb("batchUpdates");
         conn = getConnection("batchUpdates");
@@ -1096,6 +1096,8 @@ private void testGeneral() throws SQLException {
         rs.next();
         assertEquals("COLUMN_PRIVILEGES", rs.getString("TABLE_NAME"));
         rs.next();
+        assertEquals("COLUMN_STATISTICS", rs.getString("TABLE_NAME"));
+        rs.next();
         assertEquals("CONSTANTS", rs.getString("TABLE_NAME"));
         rs.next();
         assertEquals("CONSTRAINTS", rs.getString("TABLE_NAME"));
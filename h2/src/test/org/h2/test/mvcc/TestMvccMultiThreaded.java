@@ -6,9 +6,12 @@
 package org.h2.test.mvcc;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.concurrent.CyclicBarrier;
 import org.h2.api.ErrorCode;
 import org.h2.test.TestBase;
@@ -43,6 +46,8 @@ public void test() throws Exception {
         testMergeWithUniqueKeyViolation();
         testConcurrentMerge();
         testConcurrentUpdate();
+        testCreateIndexConcurrently();
+        testCreateIndexConcurrentlyOpenTransaction();
     }
 
     private void testConcurrentSelectForUpdate() throws Exception {
@@ -179,4 +184,128 @@ public void call() throws Exception {
         }
     }
 
+    private void testCreateIndexConcurrently() throws Exception {
+        deleteDb(getTestName());
+        Connection conn = getConnection(getTestName() + ";LOCK_TIMEOUT=10000");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, v int)");
+        stat.execute("insert into test select x, mod(x * 7, 1000) from system_range(1, 20000)");
+        int len = 2;
+        Task[] tasks = new Task[len];
+        for (int i = 0; i < len; i++) {
+            final Connection c = getConnection(getTestName() + ";LOCK_TIMEOUT=10000");
+            final Random random = new Random(i);
+            tasks[i] = new Task() {
+                @Override
+                public void call() throws Exception {
+                    c.setAutoCommit(false);
+                    PreparedStatement merge = c.prepareStatement("merge into test values(?, ?)");
+                    PreparedStatement delete = c.prepareStatement("delete from test where id = ?");
+                    while (!stop) {
+                        try {
+                            for (int j = random.nextInt(5); j >= 0; j--) {
+                                int id = random.nextInt(25000);
+                                if (random.nextInt(4) == 0) {
+                                    delete.setInt(1, id);
+                                    delete.execute();
+                                } else {
+                                    merge.setInt(1, id);
+                                    merge.setInt(2, random.nextInt(1000));
+                                    merge.execute();
+                                }
+                            }
+                            if (random.nextInt(5) == 0) {
+                                c.rollback();
+                            } else {
+                                c.commit();
+                            }
+                        } catch (SQLException e) {
+                            // deadlock or lock timeout with the other writer
+                            c.rollback();
+                        }
+                    }
+                    c.close();
+                }
+            };
+            tasks[i].execute();
+        }
+        Thread.sleep(100);
+        stat.execute("create index concurrently public.test_v on test(v)");
+        Thread.sleep(100);
+        for (Task t : tasks) {
+            t.get();
+        }
+        assertIndexMatches(stat, "test_v");
+        stat.execute("create unique index concurrently public.test_v_id on test(v, id)");
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).
+                execute("create unique index concurrently public.test_v_unique on test(v)");
+        conn.close();
+        deleteDb(getTestName());
+    }
+
+    private void testCreateIndexConcurrentlyOpenTransaction() throws Exception {
+        deleteDb(getTestName());
+        final Connection conn = getConnection(getTestName() + ";LOCK_TIMEOUT=1000");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, v int)");
+        stat.execute("insert into test select x, mod(x * 7, 1000) from system_range(1, 20000)");
+        Connection writer = getConnection(getTestName());
+        writer.setAutoCommit(false);
+        Statement writerStat = writer.createStatement();
+        writerStat.execute("update test set v = -1 where id = 1");
+        Task create = new Task() {
+            @Override
+            public void call() throws Exception {
+                conn.createStatement().execute("create index concurrently public.test_v on test(v)");
+            }
+        };
+        create.execute();
+        // the build waits for this transaction at the beginning, the next one
+        // is started once the index is built from the snapshot, and stays open
+        // for longer than the lock timeout
+        Thread.sleep(200);
+        writer.commit();
+        writerStat.execute("update test set v = -2 where id = 2");
+        final Connection other = getConnection(getTestName() + ";LOCK_TIMEOUT=10000");
+        Task createOther = new Task() {
+            @Override
+            public void call() throws Exception {
+                // waits for the shared lock of the concurrent build, which
+                // must not wait for this one in turn
+                other.createStatement().execute("create index public.test_v_id on test(v, id)");
+            }
+        };
+        createOther.execute();
+        for (int i = 0; i < 20; i++) {
+            Thread.sleep(100);
+            writerStat.execute("insert into test values(" + (30000 + i) + ", " + i + ")");
+            writerStat.execute("delete from test where id = " + (100 + i));
+            writerStat.execute("update test set v = v + 1 where id = " + (1000 + i));
+        }
+        writer.commit();
+        create.get();
+        createOther.get();
+        assertIndexMatches(stat, "test_v");
+        assertIndexMatches(stat, "test_v_id");
+        writer.close();
+        other.close();
+        conn.close();
+        deleteDb(getTestName());
+    }
+
+    private void assertIndexMatches(Statement stat, String index) throws SQLException {
+        ArrayList<String> expected = new ArrayList<>();
+        ResultSet rs = stat.executeQuery("select v, id from test use index() order by v, id");
+        while (rs.next()) {
+            expected.add(rs.getInt(1) + " " + rs.getInt(2));
+        }
+        ArrayList<String> actual = new ArrayList<>();
+        rs = stat.executeQuery("select v, id from test use index(" + index + ") where v >= -10 order by v, id");
+        while (rs.next()) {
+            actual.add(rs.getInt(1) + " " + rs.getInt(2));
+        }
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.toString(), actual.toString());
+    }
+
 }
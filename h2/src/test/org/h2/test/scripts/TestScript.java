@@ -158,9 +158,9 @@ public void test() throws Exception {
             testScript("datatypes/" + s + ".sql");
         }
         for (String s : new String[] { "alterTableAdd", "alterTableAlterColumn", "alterTableDropColumn",
-                "alterTableRename", "createAlias", "createSequence", "createSynonym", "createTable", "createTrigger",
-                "createView", "dropAllObjects", "dropDomain", "dropIndex", "dropSchema", "dropTable",
-                "truncateTable" }) {
+                "alterTableRename", "analyze", "createAlias", "createIndex", "createSequence", "createSynonym",
+                "createTable", "createTrigger", "createView", "dropAllObjects", "dropDomain", "dropIndex", "dropSchema",
+                "dropTable", "truncateTable" }) {
             testScript("ddl/" + s + ".sql");
         }
         for (String s : new String[] { "delete", "error_reporting", "execute_immediate", "insert", "insertIgnore",
@@ -0,0 +1,80 @@
+-- Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+-- and the EPL 1.0 (https://h2database.com/html/license.html).
+-- Initial Developer: H2 Group
+--
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, STATUS INT, TENANT INT, NAME VARCHAR);
+> ok
+
+INSERT INTO TEST SELECT X, CASE WHEN X <= 950 THEN 0 ELSE MOD(X, 10) + 1 END, X / 10,
+    CASE WHEN MOD(X, 100) = 0 THEN NULL ELSE 'N' || X END FROM SYSTEM_RANGE(1, 1000);
+> update count: 1000
+
+CREATE INDEX TEST_STATUS ON TEST(STATUS);
+> ok
+
+CREATE INDEX TEST_TENANT ON TEST(TENANT);
+> ok
+
+SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMN_STATISTICS WHERE TABLE_NAME = 'TEST';
+>> 0
+
+ANALYZE TABLE TEST;
+> ok
+
+SELECT COLUMN_NAME, SAMPLE_ROWS, NULL_ROWS, DISTINCT_VALUES, COMMON_VALUES, HISTOGRAM_BOUNDS
+    FROM INFORMATION_SCHEMA.COLUMN_STATISTICS WHERE TABLE_NAME = 'TEST' AND COLUMN_NAME IN ('STATUS', 'TENANT')
+    ORDER BY COLUMN_NAME;
+> COLUMN_NAME SAMPLE_ROWS NULL_ROWS DISTINCT_VALUES COMMON_VALUES HISTOGRAM_BOUNDS
+> ----------- ----------- --------- --------------- ------------- -------------------------------------------------------------------
+> STATUS      1000        0         11              (0, 950)      (1, 1, 2, 2, 3, 4, 4, 5, 5, 6, 7, 7, 8, 8, 9, 10, 10)
+> TENANT      1000        0         101             ()            (0, 6, 12, 18, 25, 31, 37, 43, 50, 56, 62, 68, 75, 81, 87, 93, 100)
+> rows (ordered): 2
+
+SELECT NULL_ROWS, DISTINCT_VALUES FROM INFORMATION_SCHEMA.COLUMN_STATISTICS
+    WHERE TABLE_NAME = 'TEST' AND COLUMN_NAME = 'NAME';
+> NULL_ROWS DISTINCT_VALUES
+> --------- ---------------
+> 10        990
+> rows: 1
+
+EXPLAIN SELECT * FROM TEST WHERE STATUS = 0 AND TENANT = 5;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."STATUS", "PUBLIC"."TEST"."TENANT", "PUBLIC"."TEST"."NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_TENANT: TENANT = 5 */ WHERE ("STATUS" = 0) AND ("TENANT" = 5)
+
+EXPLAIN SELECT * FROM TEST WHERE STATUS = 3 AND TENANT > 10;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."STATUS", "PUBLIC"."TEST"."TENANT", "PUBLIC"."TEST"."NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS: STATUS = 3 */ WHERE ("STATUS" = 3) AND ("TENANT" > 10)
+
+EXPLAIN SELECT * FROM TEST WHERE STATUS IN(1, 2) AND TENANT BETWEEN 10 AND 90;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."STATUS", "PUBLIC"."TEST"."TENANT", "PUBLIC"."TEST"."NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS: STATUS IN(1, 2) */ WHERE ("STATUS" IN(1, 2)) AND (("TENANT" >= 10) AND ("TENANT" <= 90))
+
+EXPLAIN SELECT * FROM TEST WHERE STATUS = 0 AND TENANT BETWEEN 10 AND 12;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."STATUS", "PUBLIC"."TEST"."TENANT", "PUBLIC"."TEST"."NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_TENANT: TENANT >= 10 AND TENANT <= 12 */ WHERE ("STATUS" = 0) AND (("TENANT" >= 10) AND ("TENANT" <= 12))
+
+EXPLAIN SELECT * FROM TEST WHERE STATUS > 0 AND TENANT < 99;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."STATUS", "PUBLIC"."TEST"."TENANT", "PUBLIC"."TEST"."NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_STATUS: STATUS > 0 */ WHERE ("STATUS" > 0) AND ("TENANT" < 99)
+
+EXPLAIN SELECT * FROM TEST WHERE STATUS >= 0 AND TENANT < 99;
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."STATUS", "PUBLIC"."TEST"."TENANT", "PUBLIC"."TEST"."NAME" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("STATUS" >= 0) AND ("TENANT" < 99)
+
+SELECT COUNT(*) FROM TEST WHERE STATUS > 0 AND TENANT < 99;
+>> 39
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(A INT SELECTIVITY 50 STATISTICS(5, 1, 3, (1, 2), (3, 4)), B VARCHAR STATISTICS(5, 0, 1, ('X', 5), ()));
+> ok
+
+SELECT COLUMN_NAME, SAMPLE_ROWS, NULL_ROWS, DISTINCT_VALUES, COMMON_VALUES, HISTOGRAM_BOUNDS
+    FROM INFORMATION_SCHEMA.COLUMN_STATISTICS WHERE TABLE_NAME = 'TEST' ORDER BY COLUMN_NAME;
+> COLUMN_NAME SAMPLE_ROWS NULL_ROWS DISTINCT_VALUES COMMON_VALUES HISTOGRAM_BOUNDS
+> ----------- ----------- --------- --------------- ------------- ----------------
+> A           5           1         3               (1, 2)        (3, 4)
+> B           5           0         1               ('X', 5)      ()
+> rows (ordered): 2
+
+SELECT SQL FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'TEST';
+>> CREATE CACHED TABLE "PUBLIC"."TEST"( "A" INT SELECTIVITY 50 STATISTICS(5, 1, 3, (1, 2), (3, 4)), "B" VARCHAR STATISTICS(5, 0, 1, ('X', 5), ()) )
+
+DROP TABLE TEST;
+> ok
@@ -0,0 +1,123 @@
+-- Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+-- and the EPL 1.0 (https://h2database.com/html/license.html).
+-- Initial Developer: H2 Group
+--
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B VARCHAR) AS
+    SELECT X, MOD(X * 7, 1000), CASEWHEN(MOD(X, 10) = 0, NULL, 'b' || MOD(X, 3)) FROM SYSTEM_RANGE(1, 1000);
+> ok
+
+CREATE INDEX PUBLIC.TEST_B_IDX ON PUBLIC.TEST(B, A DESC);
+> ok
+
+SELECT COUNT(*), MIN(A), MAX(A) FROM TEST WHERE B = 'b1';
+> COUNT(*) MIN(A) MAX(A)
+> -------- ------ ------
+> 300      2      997
+> rows: 1
+
+SELECT ID, A FROM TEST WHERE B = 'b2' ORDER BY A DESC LIMIT 2;
+> ID  A
+> --- ---
+> 857 999
+> 428 996
+> rows (ordered): 2
+
+CREATE UNIQUE INDEX PUBLIC.TEST_A_IDX ON PUBLIC.TEST(A);
+> ok
+
+SELECT ID FROM TEST WHERE A = 7;
+>> 1
+
+INSERT INTO TEST VALUES (1001, 7, NULL);
+> exception DUPLICATE_KEY_1
+
+CREATE UNIQUE INDEX PUBLIC.TEST_B_UNIQUE_IDX ON PUBLIC.TEST(B);
+> exception DUPLICATE_KEY_1
+
+ALTER TABLE TEST ADD CONSTRAINT TEST_B_UNIQUE UNIQUE(B, ID);
+> ok
+
+INSERT INTO TEST VALUES (1001, 1001, NULL);
+> update count: 1
+
+-- NULL values are distinct
+UPDATE TEST SET B = NULL WHERE ID > 100;
+> update count: 901
+
+CREATE UNIQUE INDEX PUBLIC.TEST_B_UNIQUE_IDX ON PUBLIC.TEST(B);
+> exception DUPLICATE_KEY_1
+
+DELETE FROM TEST WHERE ID <= 100;
+> update count: 100
+
+CREATE UNIQUE INDEX PUBLIC.TEST_B_UNIQUE_IDX ON PUBLIC.TEST(B);
+> ok
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT) AS SELECT X, MOD(X, 10) FROM SYSTEM_RANGE(1, 100);
+> ok
+
+CREATE INDEX CONCURRENTLY PUBLIC.TEST_A_IDX ON PUBLIC.TEST(A);
+> ok
+
+SELECT COUNT(*) FROM TEST USE INDEX (TEST_A_IDX) WHERE A = 3;
+>> 10
+
+CREATE UNIQUE INDEX CONCURRENTLY PUBLIC.TEST_A_UNIQUE_IDX ON PUBLIC.TEST(A);
+> exception DUPLICATE_KEY_1
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS PUBLIC.TEST_A_ID_IDX ON PUBLIC.TEST(A, ID);
+> ok
+
+SELECT INDEX_NAME, NON_UNIQUE FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'TEST' ORDER BY INDEX_NAME;
+> INDEX_NAME    NON_UNIQUE
+> ------------- ----------
+> PRIMARY_KEY_2 FALSE
+> TEST_A_IDX    TRUE
+> TEST_A_ID_IDX FALSE
+> TEST_A_ID_IDX FALSE
+> rows (ordered): 4
+
+DROP TABLE TEST;
+> ok
+
+-- The next tests should be at the of this file
+
+SET MAX_MEMORY_ROWS = 10;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT) AS SELECT X, MOD(X * 7, 100) FROM SYSTEM_RANGE(1, 1000);
+> ok
+
+CREATE INDEX PUBLIC.TEST_A_IDX ON PUBLIC.TEST(A);
+> ok
+
+SELECT COUNT(*), COUNT(DISTINCT ID) FROM TEST WHERE A = 7;
+> COUNT(*) COUNT(DISTINCT ID)
+> -------- ------------------
+> 10       10
+> rows: 1
+
+SELECT MIN(ID), MAX(ID) FROM TEST WHERE A = 7;
+> MIN(ID) MAX(ID)
+> ------- -------
+> 1       901
+> rows: 1
+
+ALTER TABLE TEST ADD CONSTRAINT TEST_A_UNIQUE UNIQUE(A);
+> exception DUPLICATE_KEY_1
+
+DELETE FROM TEST WHERE ID > 100;
+> update count: 900
+
+ALTER TABLE TEST ADD CONSTRAINT TEST_A_UNIQUE UNIQUE(A);
+> ok
+
+INSERT INTO TEST VALUES (1001, 7);
+> exception DUPLICATE_KEY_1
+
+DROP TABLE TEST;
+> ok
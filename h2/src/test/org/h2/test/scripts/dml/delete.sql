@@ -21,3 +21,78 @@ SELECT ID FROM TEST;
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE PARENT(ID INT PRIMARY KEY, A INT, B INT, UNIQUE(A, B));
+> ok
+
+CREATE TABLE CHILD1(ID INT PRIMARY KEY, P INT REFERENCES PARENT(ID) ON DELETE CASCADE);
+> ok
+
+CREATE TABLE CHILD2(ID INT PRIMARY KEY, P INT REFERENCES PARENT(ID) ON DELETE SET NULL);
+> ok
+
+CREATE TABLE CHILD3(ID INT PRIMARY KEY, A INT, B INT, FOREIGN KEY(A, B) REFERENCES PARENT(A, B) ON DELETE CASCADE);
+> ok
+
+CREATE TABLE CHILD4(ID INT PRIMARY KEY, P INT REFERENCES PARENT(ID));
+> ok
+
+INSERT INTO PARENT SELECT X, X / 2, MOD(X, 2) FROM SYSTEM_RANGE(1, 10);
+> update count: 10
+
+INSERT INTO CHILD1 SELECT X, MOD(X, 10) + 1 FROM SYSTEM_RANGE(1, 100);
+> update count: 100
+
+INSERT INTO CHILD2 SELECT X, MOD(X, 10) + 1 FROM SYSTEM_RANGE(1, 100);
+> update count: 100
+
+INSERT INTO CHILD3 SELECT X, (MOD(X, 10) + 1) / 2, MOD(X + 1, 2) FROM SYSTEM_RANGE(1, 100);
+> update count: 100
+
+INSERT INTO CHILD4 VALUES (1, 10);
+> update count: 1
+
+DELETE FROM PARENT WHERE ID <= 5;
+> update count: 5
+
+SELECT COUNT(*), MIN(P) FROM CHILD1;
+> COUNT(*) MIN(P)
+> -------- ------
+> 50       6
+> rows: 1
+
+SELECT COUNT(*), COUNT(P), MIN(P) FROM CHILD2;
+> COUNT(*) COUNT(P) MIN(P)
+> -------- -------- ------
+> 100      50       6
+> rows: 1
+
+SELECT COUNT(*), MIN(A * 2 + B) M FROM CHILD3;
+> COUNT(*) M
+> -------- -
+> 50       6
+> rows: 1
+
+DELETE FROM PARENT WHERE ID >= 9;
+> exception REFERENTIAL_INTEGRITY_VIOLATED_CHILD_EXISTS_1
+
+SELECT COUNT(*) FROM PARENT;
+>> 5
+
+SELECT COUNT(*) FROM CHILD1;
+>> 50
+
+DELETE FROM CHILD4;
+> update count: 1
+
+DELETE FROM PARENT;
+> update count: 5
+
+SELECT (SELECT COUNT(*) FROM CHILD1) C1, (SELECT COUNT(P) FROM CHILD2) C2, (SELECT COUNT(*) FROM CHILD3) C3;
+> C1 C2 C3
+> -- -- --
+> 0  0  0
+> rows: 1
+
+DROP TABLE CHILD1, CHILD2, CHILD3, CHILD4, PARENT;
+> ok
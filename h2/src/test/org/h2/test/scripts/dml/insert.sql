@@ -44,3 +44,30 @@ SELECT _ROWID_, ID FROM TEST;
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE PARENT(ID INT PRIMARY KEY);
+> ok
+
+CREATE TABLE CHILD(ID INT PRIMARY KEY, P INT REFERENCES PARENT(ID));
+> ok
+
+INSERT INTO PARENT SELECT X FROM SYSTEM_RANGE(1, 10);
+> update count: 10
+
+INSERT INTO CHILD SELECT X, MOD(X, 10) + 1 FROM SYSTEM_RANGE(1, 100);
+> update count: 100
+
+INSERT INTO CHILD VALUES (101, 1), (102, NULL), (103, 10);
+> update count: 3
+
+INSERT INTO CHILD VALUES (104, 1), (105, 11), (106, 10);
+> exception REFERENTIAL_INTEGRITY_VIOLATED_PARENT_MISSING_1
+
+INSERT INTO CHILD SELECT X, X - 100 FROM SYSTEM_RANGE(104, 111);
+> exception REFERENTIAL_INTEGRITY_VIOLATED_PARENT_MISSING_1
+
+SELECT COUNT(*) FROM CHILD;
+>> 103
+
+DROP TABLE CHILD, PARENT;
+> ok
@@ -732,6 +732,43 @@ EXPLAIN SELECT * FROM TEST ORDER BY V FOR UPDATE;
 DROP TABLE TEST;
 > ok
 
+CREATE TABLE TEST(ID INT PRIMARY KEY, V INT) AS SELECT X, MOD(X * 37, 100) / 10 FROM SYSTEM_RANGE(1, 1000);
+> ok
+
+SELECT ID, V FROM TEST ORDER BY V, ID DESC OFFSET 2 ROWS FETCH FIRST 3 ROWS ONLY;
+> ID  V
+> --- -
+> 984 0
+> 973 0
+> 965 0
+> rows (ordered): 3
+
+SELECT COUNT(*), MIN(V), MAX(V) FROM (SELECT V FROM TEST ORDER BY V DESC OFFSET 95 ROWS FETCH NEXT 10 ROWS WITH TIES);
+> COUNT(*) MIN(V) MAX(V)
+> -------- ------ ------
+> 105      8      9
+> rows: 1
+
+SELECT COUNT(*), MIN(V), MAX(V) FROM (SELECT V FROM TEST ORDER BY V FETCH FIRST 1 ROW WITH TIES);
+> COUNT(*) MIN(V) MAX(V)
+> -------- ------ ------
+> 100      0      0
+> rows: 1
+
+SELECT ID FROM TEST WHERE ID < 5 UNION ALL SELECT ID FROM TEST WHERE ID > 995 ORDER BY ID DESC FETCH FIRST 6 ROWS ONLY;
+> ID
+> ----
+> 1000
+> 999
+> 998
+> 997
+> 996
+> 4
+> rows (ordered): 6
+
+DROP TABLE TEST;
+> ok
+
 -- The next tests should be at the of this file
 
 SET MAX_MEMORY_ROWS = 1;
@@ -743,6 +780,22 @@ CREATE TABLE TEST(I INT) AS SELECT * FROM SYSTEM_RANGE(1, 10);
 SELECT COUNT(*) FROM (SELECT I, SUM(I) S, COUNT(I) C FROM TEST GROUP BY I HAVING S + C <= 9 ORDER BY I);
 >> 8
 
+SELECT MOD(I, 4) K, COUNT(*), SUM(I), AVG(I), MIN(I), MAX(I) FROM TEST GROUP BY K ORDER BY K;
+> K COUNT(*) SUM(I) AVG(I) MIN(I) MAX(I)
+> - -------- ------ ------ ------ ------
+> 0 2        12     6      4      8
+> 1 3        15     5      1      9
+> 2 3        18     6      2      10
+> 3 2        10     5      3      7
+> rows (ordered): 4
+
+SELECT MOD(I, 2) K, LISTAGG(I) WITHIN GROUP (ORDER BY I) FROM TEST GROUP BY K ORDER BY K;
+> K LISTAGG(I) WITHIN GROUP (ORDER BY I)
+> - ------------------------------------
+> 0 2,4,6,8,10
+> 1 1,3,5,7,9
+> rows (ordered): 2
+
 DROP TABLE TEST;
 > ok
 
@@ -949,7 +1002,7 @@ SELECT * FROM DUAL JOIN (SELECT * FROM DUAL) ON 1 = 1;
 > rows: 1
 
 EXPLAIN SELECT * FROM DUAL JOIN (SELECT * FROM DUAL) ON 1 = 1;
->> SELECT FROM DUAL /* dual index */ INNER JOIN ( SELECT ) "_51" /* SELECT */ ON 1=1 WHERE TRUE
+>> SELECT FROM DUAL /* dual index */ INNER JOIN ( SELECT ) "_53" /* SELECT */ ON 1=1 WHERE TRUE
 
 SELECT WHERE FALSE;
 >
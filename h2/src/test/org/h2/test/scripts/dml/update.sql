@@ -81,3 +81,42 @@ SELECT _ROWID_ FROM TEST;
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE PARENT(ID INT PRIMARY KEY);
+> ok
+
+CREATE TABLE CHILD(ID INT PRIMARY KEY, P INT REFERENCES PARENT(ID));
+> ok
+
+INSERT INTO PARENT SELECT X FROM SYSTEM_RANGE(1, 10);
+> update count: 10
+
+INSERT INTO CHILD SELECT X, MOD(X, 5) + 1 FROM SYSTEM_RANGE(1, 100);
+> update count: 100
+
+UPDATE CHILD SET P = P + 5;
+> update count: 100
+
+UPDATE CHILD SET P = P + 1;
+> exception REFERENTIAL_INTEGRITY_VIOLATED_PARENT_MISSING_1
+
+UPDATE PARENT SET ID = ID + 10 WHERE ID <= 5;
+> update count: 5
+
+UPDATE PARENT SET ID = ID + 10 WHERE ID >= 9;
+> exception REFERENTIAL_INTEGRITY_VIOLATED_CHILD_EXISTS_1
+
+SELECT MIN(P), MAX(P) FROM CHILD;
+> MIN(P) MAX(P)
+> ------ ------
+> 6      10
+> rows: 1
+
+SELECT MIN(ID), MAX(ID) FROM PARENT;
+> MIN(ID) MAX(ID)
+> ------- -------
+> 6       15
+> rows: 1
+
+DROP TABLE CHILD, PARENT;
+> ok
@@ -38,12 +38,12 @@ drop table a, b, c;
 create table test(a int, b int) as select x, x from system_range(1, 100);
 > ok
 
--- the table t1 should be processed first
+-- the table t1 should be joined using a hash table
 explain select * from test t2, test t1 where t1.a=1 and t1.b = t2.b;
->> SELECT "T2"."A", "T2"."B", "T1"."A", "T1"."B" FROM "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan */ /* WHERE T1.A = 1 */ INNER JOIN "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.tableScan */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
+>> SELECT "T2"."A", "T2"."B", "T1"."A", "T1"."B" FROM "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.tableScan */ INNER JOIN "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan hash join: A = 1 AND B = T2.B */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
 
 explain select * from test t1, test t2 where t1.a=1 and t1.b = t2.b;
->> SELECT "T1"."A", "T1"."B", "T2"."A", "T2"."B" FROM "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan */ /* WHERE T1.A = 1 */ INNER JOIN "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.tableScan */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
+>> SELECT "T1"."A", "T1"."B", "T2"."A", "T2"."B" FROM "PUBLIC"."TEST" "T2" /* PUBLIC.TEST.tableScan */ INNER JOIN "PUBLIC"."TEST" "T1" /* PUBLIC.TEST.tableScan hash join: A = 1 AND B = T2.B */ ON 1=1 WHERE ("T1"."A" = 1) AND ("T1"."B" = "T2"."B")
 
 drop table test;
 > ok
@@ -570,7 +570,7 @@ select * from t1 natural join t2;
 > rows: 0
 
 explain select * from t1 natural join t2;
->> SELECT "PUBLIC"."T1"."ID", "PUBLIC"."T1"."NAME" FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2.tableScan */ ON 1=1 WHERE ("PUBLIC"."T1"."ID" = "PUBLIC"."T2"."ID") AND ("PUBLIC"."T1"."NAME" = "PUBLIC"."T2"."NAME")
+>> SELECT "PUBLIC"."T1"."ID", "PUBLIC"."T1"."NAME" FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2.tableScan hash join: ID = PUBLIC.T1.ID AND NAME = PUBLIC.T1.NAME */ ON 1=1 WHERE ("PUBLIC"."T1"."ID" = "PUBLIC"."T2"."ID") AND ("PUBLIC"."T1"."NAME" = "PUBLIC"."T2"."NAME")
 
 drop table t1;
 > ok
@@ -604,7 +604,7 @@ select * from customer c natural join invoice i natural join INVOICE_LINE l;
 > rows: 2
 
 explain select * from customer c natural join invoice i natural join INVOICE_LINE l;
->> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.tableScan */ ON 1=1 /* WHERE (I.CUSTOMERID = L.CUSTOMERID) AND (I.INVOICEID = L.INVOICEID) */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.tableScan */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND (("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID"))
+>> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.tableScan hash join: CUSTOMERID = I.CUSTOMERID */ ON 1=1 /* WHERE C.CUSTOMERID = I.CUSTOMERID */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.tableScan hash join: CUSTOMERID = I.CUSTOMERID AND INVOICEID = I.INVOICEID */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND (("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID"))
 
 select c.*, i.*, l.* from customer c natural join invoice i natural join INVOICE_LINE l;
 > CUSTOMERID CUSTOMER_NAME CUSTOMERID INVOICEID INVOICE_TEXT LINE_ID INVOICEID CUSTOMERID LINE_TEXT
@@ -614,7 +614,7 @@ select c.*, i.*, l.* from customer c natural join invoice i natural join INVOICE
 > rows: 2
 
 explain select c.*, i.*, l.* from customer c natural join invoice i natural join INVOICE_LINE l;
->> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."CUSTOMERID", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."INVOICEID", "L"."CUSTOMERID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.tableScan */ ON 1=1 /* WHERE (I.CUSTOMERID = L.CUSTOMERID) AND (I.INVOICEID = L.INVOICEID) */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.tableScan */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND (("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID"))
+>> SELECT "C"."CUSTOMERID", "C"."CUSTOMER_NAME", "I"."CUSTOMERID", "I"."INVOICEID", "I"."INVOICE_TEXT", "L"."LINE_ID", "L"."INVOICEID", "L"."CUSTOMERID", "L"."LINE_TEXT" FROM "PUBLIC"."INVOICE" "I" /* PUBLIC.INVOICE.tableScan */ INNER JOIN "PUBLIC"."CUSTOMER" "C" /* PUBLIC.CUSTOMER.tableScan hash join: CUSTOMERID = I.CUSTOMERID */ ON 1=1 /* WHERE C.CUSTOMERID = I.CUSTOMERID */ INNER JOIN "PUBLIC"."INVOICE_LINE" "L" /* PUBLIC.INVOICE_LINE.tableScan hash join: CUSTOMERID = I.CUSTOMERID AND INVOICEID = I.INVOICEID */ ON 1=1 WHERE ("C"."CUSTOMERID" = "I"."CUSTOMERID") AND (("I"."CUSTOMERID" = "L"."CUSTOMERID") AND ("I"."INVOICEID" = "L"."INVOICEID"))
 
 drop table customer;
 > ok
@@ -1005,3 +1005,49 @@ DROP SCHEMA S1 CASCADE;
 
 DROP SCHEMA S2 CASCADE;
 > ok
+
+CREATE TABLE T1(A INT, B VARCHAR) AS SELECT X, 'T1-' || X FROM SYSTEM_RANGE(1, 5);
+> ok
+
+CREATE TABLE T2(A INT, C INT) AS (VALUES (1, 10), (1, 11), (3, 30), (6, 60), (NULL, 0));
+> ok
+
+SELECT T1.A, B, C FROM T1 JOIN T2 ON T1.A = T2.A;
+> A B    C
+> - ---- --
+> 1 T1-1 10
+> 1 T1-1 11
+> 3 T1-3 30
+> rows: 3
+
+EXPLAIN SELECT T1.A, B, C FROM T1 JOIN T2 ON T1.A = T2.A;
+>> SELECT "T1"."A", "B", "C" FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2.tableScan hash join: A = T1.A */ ON 1=1 WHERE "T1"."A" = "T2"."A"
+
+SELECT T1.A, B, C FROM T1 LEFT JOIN T2 ON T1.A = T2.A AND C > 10 ORDER BY T1.A;
+> A B    C
+> - ---- ----
+> 1 T1-1 11
+> 2 T1-2 null
+> 3 T1-3 30
+> 4 T1-4 null
+> 5 T1-5 null
+> rows (ordered): 5
+
+SELECT A, (SELECT COUNT(*) FROM T1, T2 WHERE T1.A = T2.A AND T2.A = T.A) CNT FROM T1 T ORDER BY A;
+> A CNT
+> - ---
+> 1 2
+> 2 0
+> 3 1
+> 4 0
+> 5 0
+> rows (ordered): 5
+
+CREATE INDEX T2_A ON T2(A);
+> ok
+
+EXPLAIN SELECT T1.A, B, C FROM T1 JOIN T2 ON T1.A = T2.A;
+>> SELECT "T1"."A", "B", "C" FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2_A: A = T1.A */ ON 1=1 WHERE "T1"."A" = "T2"."A"
+
+DROP TABLE T1, T2;
+> ok
@@ -17,3 +17,118 @@ insert into person select convert(x,varchar) as firstname, (convert(x,varchar) |
 --
 explain analyze SELECT * FROM person WHERE firstname IN ('FirstName1', 'FirstName2') AND lastname='LastName1';
 >> SELECT "PUBLIC"."PERSON"."FIRSTNAME", "PUBLIC"."PERSON"."LASTNAME" FROM "PUBLIC"."PERSON" /* PUBLIC.PERSON_1: FIRSTNAME IN('FirstName1', 'FirstName2') AND LASTNAME = 'LastName1' */ /* scanCount: 1 */ WHERE ("FIRSTNAME" IN('FirstName1', 'FirstName2')) AND ("LASTNAME" = 'LastName1')
+
+drop table person;
+> ok
+
+create table test(id int primary key, a int, b bigint, c double, d varchar);
+> ok
+
+insert into test select x, case when mod(x, 7) = 0 then null else mod(x, 5) end, x * 1000000000000,
+    x / 3.0, 'v' || mod(x, 3) from system_range(1, 3000);
+> update count: 3000
+
+select count(*), count(a), sum(a), min(a), max(a), avg(a) from test where a <> 0 and 10 / a > 2;
+> COUNT(*) COUNT(A) SUM(A) MIN(A) MAX(A) AVG(A)
+> -------- -------- ------ ------ ------ ------
+> 1543     1543     3087   1      3      2
+> rows: 1
+
+select count(*) from test where id > 10 and (a is null or a = 4) or d = 'v0';
+>> 1626
+
+select sum(b), min(c), max(c) from test where id >= 1500;
+> SUM(B)              MIN(C) MAX(C)
+> ------------------- ------ ------
+> 3377250000000000000 500.0  1000.0
+> rows: 1
+
+select sum(b * 4) from test;
+>> 18006000000000000000
+
+select sum(a * 2147483647) from test;
+> exception NUMERIC_VALUE_OUT_OF_RANGE_1
+
+select count(*) from test where b * 4000 > 0;
+> exception NUMERIC_VALUE_OUT_OF_RANGE_1
+
+select id, a + 1 from test where id > 2990 and mod(id, 2) = 0 and a >= 1 order by id;
+> ID   A + 1
+> ---- -----
+> 2992 3
+> 2994 5
+> 2998 4
+> rows (ordered): 3
+
+drop table test;
+> ok
+
+create table test(id int primary key, a int, b bigint, d varchar);
+> ok
+
+insert into test select x, case when mod(x, 7) = 0 then null else mod(x, 5) end, x * 1000000000000, 'v' || mod(x, 3)
+    from system_range(1, 20000);
+> update count: 20000
+
+set query_parallelism 4;
+> ok
+
+explain select count(*), sum(a), min(b), max(d) from test where a <> 0 and 10 / a > 2;
+>> SELECT COUNT(*), SUM("A"), MIN("B"), MAX("D") FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE ("A" <> 0) AND ((10 / "A") > 2) /* parallel: 4 */
+
+select count(*), sum(a), min(b), max(d) from test where a <> 0 and 10 / a > 2;
+> COUNT(*) SUM(A) MIN(B)        MAX(D)
+> -------- ------ ------------- ------
+> 10286    20572  1000000000000 v2
+> rows: 1
+
+select a, count(*), sum(b), avg(id) from test group by a order by a;
+> A    COUNT(*) SUM(B)               AVG(ID)
+> ---- -------- -------------------- -------
+> null 2857     28578571000000000000 10003
+> 0    3429     34294290000000000000 10001
+> 1    3429     34286284000000000000 9998
+> 2    3428     34278286000000000000 9999
+> 3    3429     34290287000000000000 10000
+> 4    3428     34282282000000000000 10000
+> rows (ordered): 6
+
+select count(*) from test where 1000 / (a - 1) > 0;
+> exception DIVISION_BY_ZERO_1
+
+explain select d, count(*) from test where id > 100 group by d;
+>> SELECT "D", COUNT(*) FROM "PUBLIC"."TEST" /* PUBLIC.PRIMARY_KEY_2: ID > 100 */ WHERE "ID" > 100 GROUP BY "D"
+
+set query_parallelism 1;
+> ok
+
+drop table test;
+> ok
+
+CREATE TABLE T(ID INT PRIMARY KEY, X INT) AS SELECT X, CASE WHEN X = 5 THEN 0 ELSE 1 END FROM SYSTEM_RANGE(1, 100);
+> ok
+
+SELECT ID FROM T WHERE 10 / X > 0 LIMIT 1;
+>> 1
+
+SELECT ID FROM T WHERE 10 / X > 0 OFFSET 2 ROWS FETCH NEXT 2 ROWS ONLY;
+> ID
+> --
+> 3
+> 4
+> rows: 2
+
+SET LAZY_QUERY_EXECUTION 1;
+> ok
+
+SELECT ID FROM T WHERE 10 / X > 0 LIMIT 1;
+>> 1
+
+SET LAZY_QUERY_EXECUTION 0;
+> ok
+
+SELECT ID FROM T WHERE 10 / X > 0;
+> exception DIVISION_BY_ZERO_1
+
+DROP TABLE T;
+> ok
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.server;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.h2.api.ErrorCode;
+import org.h2.engine.SysProperties;
+import org.h2.test.TestBase;
+import org.h2.test.TestDb;
+import org.h2.tools.Server;
+import org.h2.util.Task;
+
+/**
+ * Tests the TCP server with a selector and a pool of worker threads.
+ */
+public class TestTcpServerNio extends TestDb {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().test();
+    }
+
+    @Override
+    public void test() throws Exception {
+        Server server = Server.createTcpServer("-tcpNio", "-ifNotExists").start();
+        try {
+            String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:" + getTestName()
+                    + ";DB_CLOSE_DELAY=-1";
+            testQueries(url);
+            testManyConnections(url);
+            testSilentSockets(server, url);
+            testLockWaits(url);
+            testCancel(url);
+            testStop(server, url);
+        } finally {
+            server.stop();
+        }
+        try {
+            Server.createTcpServer("-tcpNio", "-tcpSSL").start();
+            fail();
+        } catch (SQLException e) {
+            assertEquals(ErrorCode.FEATURE_NOT_SUPPORTED_1, e.getErrorCode());
+        }
+    }
+
+    private void testQueries(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, getUser(), getPassword())) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR, DATA CLOB)");
+            PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST VALUES(?, ?, ?)");
+            for (int i = 0; i < 1000; i++) {
+                prep.setInt(1, i);
+                prep.setString(2, "Hello " + i);
+                prep.setString(3, i % 100 == 0 ? new String(new char[100_000]).replace('\0', 'x') : null);
+                prep.addBatch();
+            }
+            prep.executeBatch();
+            // the result is fetched in several requests
+            stat.setFetchSize(10);
+            ResultSet rs = stat.executeQuery("SELECT * FROM TEST ORDER BY ID");
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertEquals("Hello " + i, rs.getString(2));
+                Clob clob = rs.getClob(3);
+                if (i % 100 == 0) {
+                    assertEquals(100_000, clob.getSubString(1, 200_000).length());
+                } else {
+                    assertNull(clob);
+                }
+            }
+            assertFalse(rs.next());
+        }
+    }
+
+    private void testManyConnections(String url) throws Exception {
+        ArrayList<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                connections.add(DriverManager.getConnection(url, getUser(), getPassword()));
+            }
+            // idle connections don't have a thread
+            for (Thread t : Thread.getAllStackTraces().keySet()) {
+                String name = t.getName();
+                assertFalse(name, name.startsWith("H2 TCP Server") && name.contains(" thread-"));
+            }
+            Task[] tasks = new Task[4];
+            for (int t = 0; t < tasks.length; t++) {
+                int first = t;
+                tasks[t] = new Task() {
+                    @Override
+                    public void call() throws Exception {
+                        for (int i = first; i < connections.size(); i += tasks.length) {
+                            Statement stat = connections.get(i).createStatement();
+                            ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM TEST WHERE ID < " + i);
+                            assertTrue(rs.next());
+                            assertEquals(i, rs.getInt(1));
+                        }
+                    }
+                };
+                tasks[t].execute();
+            }
+            for (Task task : tasks) {
+                task.get();
+            }
+        } finally {
+            for (Connection conn : connections) {
+                conn.close();
+            }
+        }
+    }
+
+    private void testSilentSockets(Server server, String url) throws Exception {
+        ArrayList<Socket> sockets = new ArrayList<>();
+        try {
+            // sockets that never send the connection request don't use
+            // worker threads
+            for (int i = 0; i < SysProperties.SERVER_NIO_THREADS + 8; i++) {
+                sockets.add(new Socket("localhost", server.getPort()));
+            }
+            Task task = new Task() {
+                @Override
+                public void call() throws Exception {
+                    try (Connection conn = DriverManager.getConnection(url, getUser(), getPassword())) {
+                        ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM TEST");
+                        assertTrue(rs.next());
+                        assertEquals(1000, rs.getInt(1));
+                    }
+                }
+            };
+            task.execute();
+            for (int i = 0; i < 100 && !task.isFinished(); i++) {
+                Thread.sleep(50);
+            }
+            assertTrue(task.isFinished());
+            task.get();
+            // a partial connection request is not waited for forever, the
+            // server closes the socket
+            Socket socket = sockets.get(0);
+            socket.getOutputStream().write(new byte[] { 0, 0 });
+            socket.getOutputStream().flush();
+            socket.setSoTimeout(SysProperties.SOCKET_CONNECT_TIMEOUT * 5);
+            InputStream in = socket.getInputStream();
+            while (in.read(new byte[1024]) >= 0) {
+                // skip the error message
+            }
+        } finally {
+            for (Socket s : sockets) {
+                s.close();
+            }
+        }
+    }
+
+    private void testLockWaits(String url) throws Exception {
+        try (Connection conn = DriverManager.getConnection(url + ";LOCK_TIMEOUT=20000", getUser(), getPassword())) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE LOCKED(ID INT PRIMARY KEY, V INT) AS SELECT 1, 0");
+            conn.setAutoCommit(false);
+            stat.execute("UPDATE LOCKED SET V = V + 1");
+            // more statements wait for the lock than there are worker
+            // threads, the commit that releases the lock is still processed
+            Task[] tasks = new Task[SysProperties.SERVER_NIO_THREADS + 8];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new Task() {
+                    @Override
+                    public void call() throws Exception {
+                        try (Connection c = DriverManager.getConnection(url + ";LOCK_TIMEOUT=20000", getUser(),
+                                getPassword())) {
+                            c.createStatement().execute("UPDATE LOCKED SET V = V + 1");
+                        }
+                    }
+                };
+                tasks[i].execute();
+            }
+            Thread.sleep(1000);
+            long start = System.nanoTime();
+            conn.commit();
+            for (Task task : tasks) {
+                task.get();
+            }
+            assertTrue(System.nanoTime() - start < 10_000_000_000L);
+            ResultSet rs = stat.executeQuery("SELECT V FROM LOCKED");
+            assertTrue(rs.next());
+            assertEquals(tasks.length + 1, rs.getInt(1));
+            stat.execute("DROP TABLE LOCKED");
+            conn.commit();
+        }
+    }
+
+    private void testCancel(String url) throws Exception {
+        try (Connection conn = DriverManager.getConnection(url, getUser(), getPassword())) {
+            Statement stat = conn.createStatement();
+            AtomicReference<SQLException> exception = new AtomicReference<>();
+            Task task = new Task() {
+                @Override
+                public void call() {
+                    try {
+                        stat.executeQuery("SELECT MAX(RAND()) FROM SYSTEM_RANGE(1, 10000000000)");
+                    } catch (SQLException e) {
+                        exception.set(e);
+                    }
+                }
+            };
+            task.execute();
+            while (!task.isFinished()) {
+                Thread.sleep(10);
+                stat.cancel();
+            }
+            task.get();
+            assertEquals(ErrorCode.STATEMENT_WAS_CANCELED, exception.get().getErrorCode());
+            // the connection can still be used
+            ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM TEST");
+            assertTrue(rs.next());
+            assertEquals(1000, rs.getInt(1));
+        }
+    }
+
+    private void testStop(Server server, String url) throws SQLException {
+        Connection conn = DriverManager.getConnection(url, getUser(), getPassword());
+        server.stop();
+        assertThrows(ErrorCode.CONNECTION_BROKEN_1, conn.createStatement()).execute("SELECT 1");
+        conn.close();
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.cache.CacheLongKey;
+import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.mvstore.cache.CacheLongKeyTinyLFU;
+import org.h2.store.fs.FileUtils;
+import org.h2.test.TestBase;
+import org.h2.util.Task;
+
+/**
+ * Tests the lock-free TinyLFU cache, and compares it with the LIRS cache.
+ */
+public class TestCacheLongKeyTinyLFU extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().test();
+    }
+
+    @Override
+    public void test() throws Exception {
+        testEdgeCases();
+        testGetPutPeekRemove();
+        testClear();
+        testLimitMemory();
+        testScanResistance();
+        testRandomOperations();
+        testMVStore();
+        testConcurrent();
+    }
+
+    private void testEdgeCases() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(16);
+        test.put(1, 10, 100);
+        assertEquals(0, test.size());
+        assertEquals(0, test.getUsedMemory());
+        try {
+            test.put(1, null, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            test.setMaxMemory(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void testGetPutPeekRemove() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(1000);
+        assertNull(test.get(1));
+        assertNull(test.put(1, 10, 5));
+        assertEquals(10, test.get(1).intValue());
+        assertEquals(10, test.peek(1).intValue());
+        assertEquals(10, test.put(1, 11, 7).intValue());
+        assertEquals(11, test.get(1).intValue());
+        assertEquals(1, test.size());
+        assertEquals(7, test.getUsedMemory());
+        assertEquals(11, test.remove(1).intValue());
+        assertNull(test.remove(1));
+        assertNull(test.get(1));
+        assertEquals(0, test.size());
+        assertEquals(0, test.getUsedMemory());
+        assertEquals(2, test.getHits());
+        assertEquals(2, test.getMisses());
+    }
+
+    private void testClear() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(400);
+        for (int i = 0; i < 5; i++) {
+            test.put(i, 10 * i, 9);
+        }
+        for (int i = 0; i < 100; i++) {
+            test.get(i % 5);
+        }
+        test.clear();
+        assertEquals(0, test.size());
+        assertEquals(0, test.getUsedMemory());
+        assertNull(test.get(0));
+        test.put(1, 10, 9);
+        assertEquals(10, test.get(1).intValue());
+        assertEquals(9, test.getUsedMemory());
+    }
+
+    private void testLimitMemory() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(100);
+        for (int i = 0; i < 1000; i++) {
+            test.put(i, i, 1 + i % 3);
+            assertTrue(test.getUsedMemory() <= 100);
+        }
+        assertTrue(test.size() > 30);
+        test.setMaxMemory(10);
+        assertTrue(test.getUsedMemory() <= 10);
+        assertEquals(10, test.getMaxMemory());
+    }
+
+    private void testScanResistance() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(100);
+        for (int i = 0; i < 100; i++) {
+            test.put(i, i, 1);
+        }
+        for (int j = 0; j < 5; j++) {
+            for (int i = 0; i < 50; i++) {
+                test.get(i);
+            }
+        }
+        // a scan of entries that are used only once
+        for (int i = 1000; i < 2000; i++) {
+            if (test.get(i) == null) {
+                test.put(i, i, 1);
+            }
+        }
+        int resident = 0;
+        for (int i = 0; i < 50; i++) {
+            if (test.peek(i) != null) {
+                resident++;
+            }
+        }
+        assertTrue("resident: " + resident, resident > 45);
+    }
+
+    private void testRandomOperations() {
+        Random r = new Random(1);
+        for (int j = 0; j < 100; j++) {
+            int maxMemory = 1 + r.nextInt(100);
+            CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(maxMemory);
+            HashMap<Integer, Integer> good = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                int key = r.nextInt(50);
+                switch (r.nextInt(4)) {
+                case 0: {
+                    int memory = 1 + r.nextInt(10);
+                    test.put(key, i, memory);
+                    good.put(key, i);
+                    break;
+                }
+                case 1:
+                    test.remove(key);
+                    good.remove(key);
+                    break;
+                default: {
+                    Integer value = test.get(key);
+                    if (value != null) {
+                        assertEquals(good.get(key), value);
+                    }
+                }
+                }
+                assertTrue(test.getUsedMemory() <= maxMemory);
+            }
+            int size = 0;
+            for (int key = 0; key < 50; key++) {
+                if (test.peek(key) != null) {
+                    size++;
+                }
+            }
+            assertEquals(size, test.size());
+        }
+    }
+
+    private void testMVStore() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        MVStore s = new MVStore.Builder().fileName(fileName).
+                cacheType("TinyLFU").open();
+        assertTrue(s.getCache() instanceof CacheLongKeyTinyLFU);
+        MVMap<Integer, String> map = s.openMap("data");
+        for (int i = 0; i < 10000; i++) {
+            map.put(i, "Hello " + i);
+        }
+        s.close();
+        s = new MVStore.Builder().fileName(fileName).
+                cacheType("TinyLFU").open();
+        map = s.openMap("data");
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("Hello " + i, map.get(i));
+        }
+        assertTrue(s.getCacheSizeUsed() >= 0);
+        s.close();
+        try {
+            new MVStore.Builder().fileName(fileName).cacheType("unknown").open();
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void testConcurrent() throws Exception {
+        int threadCount = Math.max(4, Runtime.getRuntime().availableProcessors());
+        CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
+        cc.maxMemory = 10000;
+        long lirs = testConcurrent(new CacheLongKeyLIRS<Integer>(cc), threadCount);
+        CacheLongKeyTinyLFU<Integer> tinyLfu = new CacheLongKeyTinyLFU<>(10000);
+        long lfu = testConcurrent(tinyLfu, threadCount);
+        assertTrue(tinyLfu.getUsedMemory() <= 10000);
+        trace("threads: " + threadCount + " lookups LIRS: " + lirs + " TinyLFU: " + lfu);
+    }
+
+    /**
+     * Run point lookups with a few updates concurrently for one second.
+     *
+     * @param cache the cache
+     * @param threadCount the number of threads
+     * @return the number of lookups
+     */
+    private static long testConcurrent(final CacheLongKey<Integer> cache,
+            int threadCount) throws Exception {
+        final int count = 12000;
+        for (int i = 0; i < count; i++) {
+            cache.put(i, i, 1);
+        }
+        final CountDownLatch wait = new CountDownLatch(1);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final long[] getCounts = new long[threadCount];
+        Task[] tasks = new Task[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int x = i;
+            Task t = new Task() {
+                @Override
+                public void call() throws Exception {
+                    Random random = new Random(x);
+                    wait.await();
+                    long i = 0;
+                    for (; !stopped.get(); i++) {
+                        // mostly the same 90% of the entries
+                        int key = (int) Math.abs(random.nextGaussian() * count / 2);
+                        if (cache.get(key) == null) {
+                            cache.put(key, key, 1);
+                        }
+                    }
+                    getCounts[x] = i;
+                }
+            };
+            t.execute("t" + i);
+            tasks[i] = t;
+        }
+        wait.countDown();
+        Thread.sleep(1000);
+        stopped.set(true);
+        for (Task t : tasks) {
+            t.get();
+        }
+        long totalCount = 0;
+        for (long x : getCounts) {
+            totalCount += x;
+        }
+        return totalCount;
+    }
+
+}
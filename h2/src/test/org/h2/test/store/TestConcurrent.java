@@ -18,12 +18,14 @@
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.h2.mvstore.Chunk;
 import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
 import org.h2.mvstore.WriteBuffer;
 import org.h2.mvstore.type.ObjectDataType;
 import org.h2.store.fs.FileChannelInputStream;
@@ -59,6 +61,8 @@ public void test() throws Exception {
         testConcurrentFree();
         testConcurrentStoreAndRemoveMap();
         testConcurrentStoreAndClose();
+        testConcurrentSyncCommit();
+        testSyncCommitFailure();
         testConcurrentOnlineBackup();
         testConcurrentMap();
         testConcurrentIterate();
@@ -485,6 +489,105 @@ public void call() {
         }
     }
 
+    private void testConcurrentSyncCommit() throws Exception {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        final int threadCount = 4, count = 100;
+        try (final MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                groupCommitDelay(1000).
+                groupCommitSize(threadCount).
+                autoCommitDisabled().
+                open()) {
+            final MVMap<Integer, Integer> map = s.openMap("data");
+            Task[] tasks = new Task[threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                final int start = t * count;
+                tasks[t] = new Task() {
+                    @Override
+                    public void call() {
+                        for (int i = start; i < start + count; i++) {
+                            map.put(i, i);
+                            s.syncCommit();
+                        }
+                    }
+                }.execute();
+            }
+            for (Task t : tasks) {
+                t.get();
+            }
+            long commits = 0;
+            for (long c : s.getSyncCommitLatency()) {
+                commits += c;
+            }
+            assertEquals(threadCount * count, commits);
+            long groupCommits = s.getGroupCommitCount();
+            assertTrue("group commits: " + groupCommits, groupCommits > 0 && groupCommits < commits);
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, Integer> map = s.openMap("data");
+            assertEquals(threadCount * count, map.size());
+        }
+    }
+
+    private void testSyncCommitFailure() throws Exception {
+        final AtomicBoolean fail = new AtomicBoolean();
+        OffHeapStore fileStore = new OffHeapStore() {
+
+            @Override
+            public void sync() {
+                if (fail.get()) {
+                    throw DataUtils.newIllegalStateException(DataUtils.ERROR_WRITING_FAILED, "Sync failed");
+                }
+                super.sync();
+            }
+        };
+        final int threadCount = 4;
+        final MVStore s = new MVStore.Builder().
+                fileStore(fileStore).
+                groupCommitDelay(1000).
+                groupCommitSize(threadCount).
+                autoCommitDisabled().
+                open();
+        try {
+            final MVMap<Integer, Integer> map = s.openMap("data");
+            map.put(0, 0);
+            s.syncCommit();
+            fail.set(true);
+            final AtomicInteger failed = new AtomicInteger();
+            Task[] tasks = new Task[threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                final int key = t + 1;
+                tasks[t] = new Task() {
+                    @Override
+                    public void call() {
+                        map.put(key, key);
+                        try {
+                            s.syncCommit();
+                        } catch (IllegalStateException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }.execute();
+            }
+            for (Task t : tasks) {
+                t.get();
+            }
+            // every thread sees the failure, whichever group it was in
+            assertEquals(threadCount, failed.get());
+            fail.set(false);
+            // and so do later callers, as the store may be inconsistent
+            try {
+                s.syncCommit();
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals(DataUtils.ERROR_WRITING_FAILED, DataUtils.getErrorCode(e.getMessage()));
+            }
+        } finally {
+            s.closeImmediately();
+        }
+    }
+
     private void testConcurrentStoreAndClose() throws InterruptedException {
         String fileName = "memFS:" + getTestName();
         for (int i = 0; i < 10; i++) {
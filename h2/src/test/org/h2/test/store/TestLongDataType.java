@@ -0,0 +1,164 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.db.RowKeyDataType;
+import org.h2.mvstore.db.ValueDataType;
+import org.h2.mvstore.type.LongDataType;
+import org.h2.mvstore.type.LongKeyType;
+import org.h2.mvstore.type.StringDataType;
+import org.h2.store.fs.FileUtils;
+import org.h2.test.TestBase;
+import org.h2.value.Value;
+import org.h2.value.ValueLong;
+
+/**
+ * Test maps with long keys.
+ */
+public class TestLongDataType extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().test();
+    }
+
+    @Override
+    public void test() {
+        testKeyEncoding(LongDataType.INSTANCE);
+        testKeyEncoding(new RowKeyDataType());
+        testRandomOps();
+        testRowKeyCompatibility();
+    }
+
+    private void testKeyEncoding(LongKeyType type) {
+        long[] keys = { Long.MIN_VALUE, Long.MIN_VALUE + 1, -1000, -1, 0, 1, 7, 8, 127, 128,
+                1000, Integer.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE };
+        WriteBuffer buff = new WriteBuffer();
+        type.writeKeys(buff, keys, keys.length);
+        ByteBuffer bb = buff.getBuffer();
+        bb.flip();
+        long[] read = new long[keys.length];
+        type.readKeys(bb, read, keys.length);
+        assertEquals(0, bb.remaining());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], read[i]);
+            assertEquals(keys[i], type.toLong(type.fromLong(keys[i])));
+        }
+        // dense keys only need one byte each
+        long[] dense = new long[100];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = 1_000_000_000_000L + i;
+        }
+        buff.clear();
+        LongDataType.INSTANCE.writeKeys(buff, dense, dense.length);
+        assertTrue(buff.position() < 8 + dense.length);
+    }
+
+    private void testRandomOps() {
+        String fileName = "memFS:longKeys.h3";
+        FileUtils.delete(fileName);
+        MVStore s = openStore(fileName);
+        MVMap<Long, String> m = openMap(s);
+        TreeMap<Long, String> map = new TreeMap<>();
+        Random r = new Random(1);
+        for (int op = 0; op < 5000; op++) {
+            long k = r.nextInt(10) == 0 ? r.nextLong() : r.nextInt(1000) - 100;
+            switch (r.nextInt(8)) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+                String v = Long.toString(k);
+                m.put(k, v);
+                map.put(k, v);
+                break;
+            case 4:
+            case 5:
+                assertEquals(map.remove(k), m.remove(k));
+                break;
+            case 6:
+                s.commit();
+                break;
+            case 7:
+                if (r.nextInt(10) == 0) {
+                    s.close();
+                    s = openStore(fileName);
+                    m = openMap(s);
+                }
+                break;
+            }
+            assertEquals(map.get(k), m.get(k));
+            assertEquals(map.ceilingKey(k), m.ceilingKey(k));
+            assertEquals(map.floorKey(k), m.floorKey(k));
+            assertEquals(map.higherKey(k), m.higherKey(k));
+            assertEquals(map.lowerKey(k), m.lowerKey(k));
+            assertEquals(map.size(), m.size());
+        }
+        Iterator<Entry<Long, String>> it = map.entrySet().iterator();
+        for (Entry<Long, String> e : m.entrySet()) {
+            Entry<Long, String> expected = it.next();
+            assertEquals(expected.getKey(), e.getKey());
+            assertEquals(expected.getValue(), e.getValue());
+        }
+        assertFalse(it.hasNext());
+        s.close();
+        FileUtils.delete(fileName);
+    }
+
+    private void testRowKeyCompatibility() {
+        String fileName = "memFS:rowKeys.h3";
+        FileUtils.delete(fileName);
+        MVStore s = openStore(fileName);
+        MVMap<Value, String> m = s.openMap("data",
+                new MVMap.Builder<Value, String>().keyType(new RowKeyDataType()).valueType(StringDataType.INSTANCE));
+        for (long i = -10; i < 200; i++) {
+            m.put(ValueLong.get(i * 3), Long.toString(i));
+        }
+        s.close();
+        // the pages can be read by the generic value type
+        s = openStore(fileName);
+        m = s.openMap("data",
+                new MVMap.Builder<Value, String>().keyType(new ValueDataType()).valueType(StringDataType.INSTANCE));
+        assertEquals(210, m.size());
+        assertEquals("7", m.get(ValueLong.get(21)));
+        assertEquals(ValueLong.get(-30), m.firstKey());
+        m.put(ValueLong.get(1000), "x");
+        s.close();
+        // and the other way round
+        s = openStore(fileName);
+        m = s.openMap("data",
+                new MVMap.Builder<Value, String>().keyType(new RowKeyDataType()).valueType(StringDataType.INSTANCE));
+        assertEquals(211, m.size());
+        assertEquals("x", m.get(ValueLong.get(1000)));
+        assertEquals(ValueLong.get(597), m.lowerKey(ValueLong.get(1000)));
+        assertNull(m.get(ValueLong.get(22)));
+        s.close();
+        FileUtils.delete(fileName);
+    }
+
+    private static MVStore openStore(String fileName) {
+        return new MVStore.Builder().fileName(fileName).pageSplitSize(100).autoCommitDisabled().open();
+    }
+
+    private static MVMap<Long, String> openMap(MVStore s) {
+        return s.openMap("data",
+                new MVMap.Builder<Long, String>().keyType(LongDataType.INSTANCE).valueType(StringDataType.INSTANCE));
+    }
+
+}
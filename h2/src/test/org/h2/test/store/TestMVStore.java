@@ -24,6 +24,7 @@
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.OffHeapStore;
+import org.h2.mvstore.Page;
 import org.h2.mvstore.type.DataType;
 import org.h2.mvstore.type.ObjectDataType;
 import org.h2.mvstore.type.StringDataType;
@@ -56,8 +57,10 @@ public void test() throws Exception {
         testProvidedFileStoreNotOpenedAndClosed();
         testVolatileMap();
         testEntrySet();
+        testAppendLeaf();
         testCompressEmptyPage();
         testCompressed();
+        testSerializationParallelism();
         testFileFormatExample();
         testMaxChunkLength();
         testCacheInfo();
@@ -205,6 +208,63 @@ private void testEntrySet() {
         }
     }
 
+    private void testAppendLeaf() {
+        MVStore s = new MVStore.Builder().open();
+        int keysPerPage = s.getKeysPerPage();
+        MVMap<Integer, Integer> map = s.openMap("data");
+        MVMap<Integer, Integer> map2 = s.openMap("data2");
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i * 10);
+        }
+        int key = 10;
+        for (int j = 0; j < 100; j++) {
+            Object[] keys = new Object[keysPerPage];
+            Object[] values = new Object[keysPerPage];
+            for (int i = 0; i < keysPerPage; i++, key++) {
+                keys[i] = key;
+                values[i] = key * 10;
+            }
+            map.appendLeaf(keys, values);
+        }
+        map.appendLeaf(new Object[] { key }, new Object[] { key * 10 });
+        key++;
+        for (int i = 0; i < key; i++) {
+            map2.put(i, i * 10);
+        }
+        assertEquals(key, map.size());
+        assertEquals(key - 1, map.lastKey().intValue());
+        int next = 0;
+        for (Entry<Integer, Integer> e : map.entrySet()) {
+            assertEquals(next, e.getKey().intValue());
+            assertEquals(next * 10, e.getValue().intValue());
+            next++;
+        }
+        assertEquals(key, next);
+        for (int i = 0; i < key; i++) {
+            assertEquals(i * 10, map.get(i).intValue());
+            assertEquals(i, map.getKeyIndex(i));
+        }
+        // the leaf pages are full, also for keys added in ascending order
+        int leafCount = (key + keysPerPage - 1) / keysPerPage;
+        assertTrue(getLeafCount(map.getRootPage()) <= leafCount + 2);
+        assertTrue(getLeafCount(map2.getRootPage()) <= leafCount + 2);
+        map.put(-1, 0);
+        map.remove(5);
+        assertEquals(key, map.size());
+        s.close();
+    }
+
+    private static int getLeafCount(Page p) {
+        if (p.isLeaf()) {
+            return 1;
+        }
+        int count = 0;
+        for (int i = 0; i < p.getRawChildPageCount(); i++) {
+            count += getLeafCount(p.getChildPage(i));
+        }
+        return count;
+    }
+
     private void testCompressEmptyPage() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -256,6 +316,45 @@ private void testCompressed() {
         }
     }
 
+    private void testSerializationParallelism() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        for (int level = 0; level <= 2; level++) {
+            FileUtils.delete(fileName);
+            MVStore.Builder builder = new MVStore.Builder().fileName(fileName).
+                    serializationParallelism(4).pageSplitSize(1000);
+            if (level == 1) {
+                builder.compress();
+            } else if (level == 2) {
+                builder.compressHigh();
+            }
+            MVStore s = builder.open();
+            for (int j = 0; j < 3; j++) {
+                MVMap<Integer, String> map = s.openMap("data" + j);
+                for (int i = 0; i < 2000; i++) {
+                    map.put(i, "Hello " + i * j);
+                }
+                s.commit();
+            }
+            MVMap<Integer, String> map = s.openMap("data0");
+            for (int i = 0; i < 2000; i += 3) {
+                map.remove(i);
+            }
+            s.close();
+            s = new MVStore.Builder().fileName(fileName).open();
+            for (int j = 0; j < 3; j++) {
+                map = s.openMap("data" + j);
+                for (int i = 0; i < 2000; i++) {
+                    if (j == 0 && i % 3 == 0) {
+                        assertNull(map.get(i));
+                    } else {
+                        assertEquals("Hello " + i * j, map.get(i));
+                    }
+                }
+            }
+            s.close();
+        }
+    }
+
     private void testFileFormatExample() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -435,7 +534,7 @@ private void testNewerWriteVersion() throws Exception {
         Map<String, Object> header = s.getStoreHeader();
         assertEquals("1", header.get("format").toString());
         header.put("formatRead", "1");
-        header.put("format", "2");
+        header.put("format", "3");
         forceWriteStoreHeader(s);
         MVMap<Integer, String> m = s.openMap("data");
         forceWriteStoreHeader(s);
@@ -750,7 +849,9 @@ private void testFileFormatChange() {
         Map<String, Object> header = s.getStoreHeader();
         int format = Integer.parseInt(header.get("format").toString());
         assertEquals(1, format);
-        header.put("format", Integer.toString(format + 1));
+        // format 2 is supported, it is used for pages compressed with
+        // other algorithms
+        header.put("format", Integer.toString(format + 2));
         forceWriteStoreHeader(s);
         s.close();
         try {
@@ -10,6 +10,7 @@
 import java.io.InputStream;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -26,6 +27,9 @@
 import org.h2.jdbc.JdbcConnection;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.db.LazyValueArray;
+import org.h2.mvstore.db.RowDataType;
 import org.h2.mvstore.tx.TransactionStore;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
@@ -35,6 +39,10 @@
 import org.h2.util.IOUtils;
 import org.h2.util.JdbcUtils;
 import org.h2.util.Task;
+import org.h2.value.Value;
+import org.h2.value.ValueArray;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueString;
 
 /**
  * Tests the MVStore in a database.
@@ -64,6 +72,8 @@ public void test() throws Exception {
         testLobReuse();
         testShutdownDuringLobCreation();
         testLobCreationThenShutdown();
+        testLazyRows();
+        testLazyArrayCompare();
         testManyTransactions();
         testAppendOnly();
         testNoRetentionTime();
@@ -207,6 +217,123 @@ public int read() throws IOException {
         }
     }
 
+    private void testLazyRows() throws Exception {
+        if (config.memory) {
+            return;
+        }
+        deleteDb(getTestName());
+        String dbName = getTestName();
+        Connection conn = getConnection(dbName);
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, vc varchar, ch char(3), vi varchar_ignorecase, "
+                + "bo boolean, ti tinyint, sm smallint, i int, bi bigint, de decimal(30, 3), re real, "
+                + "do double, t time, ttz time with time zone, d date, ts timestamp, "
+                + "tstz timestamp with time zone, bin binary, uu uuid, bl blob, cl clob, "
+                + "iym interval year to month, ids interval day to second, ar array, "
+                + "en enum('a', 'b'), js json, last int)");
+        PreparedStatement prep = conn.prepareStatement("insert into test values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, "
+                + "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        String[][] rows = {
+                { "1", "", "a", "A", "true", "0", "0", "0", "0", "0", "0", "0", "00:00:00",
+                        "00:00:00+00", "2001-01-01", "2001-01-01 00:00:00", "2001-01-01 00:00:00+00", "",
+                        "00000000-0000-0000-0000-000000000000", "", "", "1-0", "0 00:00:00", "(1, 'x')", "a",
+                        "{}", "1" },
+                { "2", "x\u00e4\u1234y", "bc", "Xy", "false", "-8", "-1000", "-5", "-7", "1", "1", "1",
+                        "12:34:56.789", "12:34:56+05:45", "1999-12-31", "1999-12-31 23:59:59.123456789",
+                        "1999-12-31 23:59:59+01:00", "0102", "12345678-9abc-def0-1234-56789abcdef0", "ff",
+                        "clob", "-2-11", "-3 04:05:06.7", "(1, (2, NULL))", "b", "[1, 2]", "2" },
+                { "3", "quite a long string " + new String(new char[50]).replace((char) 0, 'x'), null,
+                        null, null, "127", "32767", "2147483647", "9223372036854775807",
+                        "1234567890123456789012345.678", "3.5", "-2.5E100", null, null, null, null, null,
+                        "0102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f2021", null,
+                        null, new String(new char[5000]).replace((char) 0, 'y'), null, "12 00:00:00",
+                        null, null, null, "3" },
+        };
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                prep.setString(i + 1, row[i]);
+            }
+            prep.execute();
+        }
+        String[] expected = new String[rows.length];
+        ResultSet rs = stat.executeQuery("select * from test order by id");
+        int columnCount = rs.getMetaData().getColumnCount();
+        for (int i = 0; rs.next(); i++) {
+            StringBuilder builder = new StringBuilder();
+            for (int j = 1; j <= columnCount; j++) {
+                builder.append(rs.getString(j)).append(';');
+            }
+            expected[i] = builder.toString();
+        }
+        conn.close();
+        // the rows are now read from disk, and each column is decoded on
+        // its own
+        conn = getConnection(dbName);
+        stat = conn.createStatement();
+        for (int j = columnCount; j > 0; j--) {
+            rs = stat.executeQuery("select * from test order by id");
+            for (int i = 0; rs.next(); i++) {
+                String row = expected[i];
+                int start = 0;
+                for (int k = 1; k < j; k++) {
+                    start = row.indexOf(';', start) + 1;
+                }
+                assertEquals(row.substring(start, row.indexOf(';', start)), String.valueOf(rs.getString(j)));
+            }
+        }
+        rs = stat.executeQuery("select last, id from test where i < 10 order by id");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertFalse(rs.next());
+        conn.setAutoCommit(false);
+        stat.execute("update test set vc = 'new' where id = 2");
+        stat.execute("delete from test where id = 3");
+        rs = stat.executeQuery("select count(*), min(vc) from test");
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals("", rs.getString(2));
+        conn.rollback();
+        rs = stat.executeQuery("select * from test order by id");
+        for (int i = 0; rs.next(); i++) {
+            StringBuilder builder = new StringBuilder();
+            for (int j = 1; j <= columnCount; j++) {
+                builder.append(rs.getString(j)).append(';');
+            }
+            assertEquals(expected[i], builder.toString());
+        }
+        conn.close();
+        deleteDb(getTestName());
+    }
+
+    private void testLazyArrayCompare() throws Exception {
+        deleteDb(getTestName());
+        Connection conn = getConnection(getTestName());
+        Database db = (Database) ((JdbcConnection) conn).getSession().getDataHandler();
+        RowDataType type = new RowDataType(db, null);
+        ValueArray array = ValueArray.get(new Value[] { ValueInt.get(1), ValueString.get("a") });
+        ValueArray greater = ValueArray.get(new Value[] { ValueInt.get(2), ValueString.get("a") });
+        WriteBuffer buff = new WriteBuffer();
+        type.write(buff, array);
+        ByteBuffer data = buff.getBuffer();
+        data.flip();
+        Value lazy = (Value) type.read(data);
+        assertTrue(lazy instanceof LazyValueArray);
+        // the lazy array may be on either side
+        assertEquals(0, type.compare(lazy, array));
+        assertEquals(0, type.compare(array, lazy));
+        assertTrue(type.compare(lazy, greater) < 0);
+        assertTrue(type.compare(greater, lazy) > 0);
+        assertTrue(lazy.equals(array));
+        assertTrue(array.equals(lazy));
+        assertFalse(lazy.equals(greater));
+        assertFalse(greater.equals(lazy));
+        assertEquals(array.hashCode(), lazy.hashCode());
+        conn.close();
+        deleteDb(getTestName());
+    }
+
     private void testLobCreationThenShutdown() throws Exception {
         if (config.memory) {
             return;
@@ -602,11 +729,11 @@ private void testExplainAnalyze() throws Exception {
             ResultSet rs = stat.executeQuery("explain analyze select * from test");
             rs.next();
             String plan = rs.getString(1);
-            // expect about 1000 reads
+            // the rows were added in key order, so the pages are full
             String readCount = plan.substring(plan.indexOf("reads: "));
             readCount = readCount.substring("reads: ".length(), readCount.indexOf('\n'));
             int rc = Integer.parseInt(readCount);
-            assertTrue(plan, rc >= 60 && rc <= 80);
+            assertTrue(plan, rc >= 30 && rc <= 40);
         }
     }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MappedFileStore;
+import org.h2.store.fs.FileUtils;
+import org.h2.test.TestBase;
+import org.h2.test.TestDb;
+
+/**
+ * Tests the file store that reads pages from the memory mapped file.
+ */
+public class TestMappedFileStore extends TestDb {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase test = TestBase.createCaller().init();
+        test.config.traceTest = true;
+        test.test();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return config.mvStore && !config.memory;
+    }
+
+    @Override
+    public void test() throws Exception {
+        testReadWrite();
+        testGrowAndCompact();
+        testReadAfterClose();
+        testEncrypted();
+        testDatabaseSetting();
+        if (config.big) {
+            testPerformance();
+        }
+    }
+
+    private void testReadWrite() {
+        String fileName = getBaseDir() + "/" + getTestName() + ".h3";
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().open()) {
+            assertTrue(s.getFileStore() instanceof MappedFileStore);
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "Hello " + i);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().cacheSize(0).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals("Hello " + i, map.get(i));
+            }
+            assertTrue(s.getFileStore().getReadCount() > 0);
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().readOnly().open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            assertEquals(10_000, map.size());
+            assertEquals("Hello 9999", map.get(9999));
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void testGrowAndCompact() {
+        String fileName = getBaseDir() + "/" + getTestName() + ".h3";
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().cacheSize(0).open()) {
+            s.setRetentionTime(0);
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 1000; i++) {
+                    map.put(round * 1000 + i, "Round " + round + " " + i);
+                }
+                s.commit();
+                // the pages that were just written are read again
+                for (int i = 0; i < (round + 1) * 1000; i += 97) {
+                    assertEquals("Round " + i / 1000 + " " + i % 1000, map.get(i));
+                }
+            }
+            for (int i = 0; i < 10_000; i += 2) {
+                map.remove(i);
+            }
+            s.commit();
+            s.compactMoveChunks();
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(i % 2 == 0 ? null : "Round " + i / 1000 + " " + i % 1000, map.get(i));
+            }
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void testReadAfterClose() {
+        String fileName = getBaseDir() + "/" + getTestName() + ".h3";
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().open()) {
+            s.openMap("data").put(1, "Hello");
+        }
+        MappedFileStore fileStore = new MappedFileStore();
+        fileStore.open(fileName, true, null);
+        ByteBuffer buff = fileStore.readFully(0, 16);
+        fileStore.close();
+        // a reader can still use a buffer it got before the store was
+        // closed, the segment is not unmapped
+        assertEquals('H', (char) buff.get(0));
+        FileUtils.delete(fileName);
+    }
+
+    private void testEncrypted() {
+        String fileName = getBaseDir() + "/" + getTestName() + ".h3";
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped()
+                .encryptionKey("secret".toCharArray()).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            map.put(1, "Hello");
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped()
+                .encryptionKey("secret".toCharArray()).cacheSize(0).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            assertEquals("Hello", map.get(1));
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void testDatabaseSetting() throws Exception {
+        deleteDb(getTestName());
+        String url = getTestName() + ";MEMORY_MAPPED=TRUE";
+        try (Connection conn = getConnection(url)) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR) "
+                    + "AS SELECT X, 'Hello ' || X FROM SYSTEM_RANGE(1, 10000)");
+        }
+        try (Connection conn = getConnection(url)) {
+            Statement stat = conn.createStatement();
+            ResultSet rs = stat.executeQuery("SELECT SUM(ID), MAX(NAME) FROM TEST");
+            assertTrue(rs.next());
+            assertEquals(50_005_000L, rs.getLong(1));
+            assertEquals("Hello 9999", rs.getString(2));
+        }
+        deleteDb(getTestName());
+    }
+
+    private void testPerformance() {
+        String fileName = getBaseDir() + "/" + getTestName() + ".h3";
+        FileUtils.delete(fileName);
+        int count = 1_000_000;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < count; i++) {
+                map.put(i, "Hello World " + i);
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            long copy = readRandom(fileName, false, count);
+            long mapped = readRandom(fileName, true, count);
+            println("random reads (ms): file channel " + copy + ", memory mapped " + mapped);
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private static long readRandom(String fileName, boolean memoryMapped, int count) {
+        MVStore.Builder builder = new MVStore.Builder().fileName(fileName).readOnly().cacheSize(1);
+        if (memoryMapped) {
+            builder.memoryMapped();
+        }
+        try (MVStore s = builder.open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            Random r = new Random(1);
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                map.get(r.nextInt(count));
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+}
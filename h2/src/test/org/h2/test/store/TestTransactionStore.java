@@ -11,13 +11,16 @@
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.h2.engine.IsolationLevel;
 import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.tx.Transaction;
 import org.h2.mvstore.tx.TransactionMap;
@@ -27,6 +30,7 @@
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.util.Task;
+import org.h2.value.VersionedValue;
 
 /**
  * Test concurrent transactions.
@@ -49,6 +53,11 @@ public void test() throws Exception {
         testConcurrentAddRemove();
         testConcurrentAdd();
         testCountWithOpenTransactions();
+        testCountWithIsolationLevels();
+        testCountAfterReopen();
+        testBackgroundCommit();
+        testBackgroundCommitAfterReopen();
+        testBackgroundCommitAfterCrash();
         testConcurrentUpdate();
         testRepeatedChange();
         testTransactionAge();
@@ -247,6 +256,276 @@ private void testCountWithOpenTransactions() {
         s.close();
     }
 
+    private void testCountWithIsolationLevels() {
+        MVStore s = MVStore.open(null);
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+
+        Transaction tx = ts.begin();
+        TransactionMap<Integer, Integer> map = tx.openMap("data");
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        tx.commit();
+
+        Transaction readCommitted = ts.begin();
+        readCommitted.setIsolationLevel(IsolationLevel.READ_COMMITTED);
+        TransactionMap<Integer, Integer> rc = readCommitted.openMap("data");
+        Transaction readUncommitted = ts.begin();
+        readUncommitted.setIsolationLevel(IsolationLevel.READ_UNCOMMITTED);
+        TransactionMap<Integer, Integer> ru = readUncommitted.openMap("data");
+        Transaction repeatableRead = ts.begin();
+        repeatableRead.setIsolationLevel(IsolationLevel.REPEATABLE_READ);
+        TransactionMap<Integer, Integer> rr = repeatableRead.openMap("data");
+        assertCount(100, rc);
+        assertCount(100, ru);
+        HashSet<MVMap<?, ?>> maps = new HashSet<>();
+        maps.add(rr.map);
+        repeatableRead.markStatementStart(maps);
+        assertCount(100, rr);
+
+        Transaction writer = ts.begin();
+        TransactionMap<Integer, Integer> w = writer.openMap("data");
+        for (int i = 100; i < 150; i++) {
+            w.put(i, i);
+        }
+        for (int i = 0; i < 10; i++) {
+            w.remove(i);
+        }
+        for (int i = 10; i < 20; i++) {
+            w.put(i, -i);
+        }
+        w.remove(1000);
+        w.putIfAbsent(20, 0);
+        w.lock(21);
+        w.append(999, 999);
+        assertCount(141, w);
+        assertCount(100, rc);
+        assertCount(141, ru);
+        assertCount(100, rr);
+
+        long savepoint = writer.setSavepoint();
+        for (int i = 150; i < 160; i++) {
+            w.put(i, i);
+        }
+        for (int i = 20; i < 30; i++) {
+            w.remove(i);
+        }
+        w.put(0, 0);
+        w.remove(100);
+        assertCount(141, w);
+        assertCount(141, ru);
+        writer.rollbackToSavepoint(savepoint);
+        assertCount(141, w);
+        assertCount(141, ru);
+
+        Transaction rolledBack = ts.begin();
+        TransactionMap<Integer, Integer> rb = rolledBack.openMap("data");
+        rb.put(2000, 0);
+        rb.remove(50);
+        assertCount(100, rb);
+        assertCount(141, ru);
+        rolledBack.rollback();
+        assertCount(141, ru);
+
+        writer.commit();
+        assertCount(141, rc);
+        assertCount(141, ru);
+        assertCount(100, rr);
+        repeatableRead.markStatementEnd();
+        repeatableRead.commit();
+
+        tx = ts.begin();
+        map = tx.openMap("data");
+        map.putCommitted(1000, 0);
+        map.putCommitted(1000, 1);
+        assertCount(142, map);
+        assertCount(142, rc);
+        assertEquals(1, map.removeCommitted(1000).intValue());
+        assertNull(map.removeCommitted(1000));
+        assertCount(141, map);
+        assertCount(141, rc);
+        map.clear();
+        assertCount(0, map);
+        assertCount(0, rc);
+        map.put(1, 1);
+        assertCount(1, map);
+        assertCount(0, rc);
+        tx.commit();
+        assertCount(1, rc);
+        assertCount(1, ru);
+        s.close();
+    }
+
+    private void testCountAfterReopen() {
+        String fileName = getBaseDir() + "/testCountAfterReopen.h3";
+        FileUtils.delete(fileName);
+
+        MVStore s = MVStore.open(fileName);
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        Transaction tx = ts.begin();
+        TransactionMap<Integer, Integer> map = tx.openMap("data");
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        tx.commit();
+        tx = ts.begin();
+        map = tx.openMap("data");
+        for (int i = 0; i < 10; i++) {
+            map.remove(i);
+        }
+        map.put(100, 100);
+        tx.prepare();
+        s.commit();
+        s.close();
+
+        s = MVStore.open(fileName);
+        ts = new TransactionStore(s);
+        ts.init();
+        Transaction prepared = ts.getOpenTransactions().get(0);
+        assertEquals(Transaction.STATUS_PREPARED, prepared.getStatus());
+        tx = ts.begin();
+        map = tx.openMap("data");
+        assertCount(100, map);
+        map.put(200, 200);
+        assertCount(101, map);
+        map = prepared.openMap("data");
+        assertCount(91, map);
+        prepared.commit();
+        map = tx.openMap("data");
+        assertCount(92, map);
+        tx.commit();
+        tx = ts.begin();
+        map = tx.openMap("data");
+        assertCount(92, map);
+        s.close();
+
+        FileUtils.delete(fileName);
+    }
+
+    private void testBackgroundCommit() {
+        MVStore s = MVStore.open(null);
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        ts.setBackgroundCommitThreshold(100);
+
+        Transaction tx = ts.begin();
+        TransactionMap<Integer, Integer> map = tx.openMap("data");
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        tx.commit();
+        assertEquals(Transaction.STATUS_CLOSED, tx.getStatus());
+        Transaction tx2 = ts.begin();
+        assertTrue(tx2.getId() != tx.getId());
+        map = tx2.openMap("data");
+        assertCount(1000, map);
+        for (int i = 0; i < 1000; i += 10) {
+            assertEquals(i, map.get(i).intValue());
+            map.put(i, -i);
+        }
+        for (int i = 1; i < 1000; i += 10) {
+            map.remove(i);
+        }
+        tx2.commit();
+
+        tx = ts.begin();
+        map = tx.openMap("data");
+        for (int i = 2; i < 1000; i += 10) {
+            map.put(i, 0);
+        }
+        tx.rollback();
+        ts.close();
+
+        tx = ts.begin();
+        map = tx.openMap("data");
+        assertCount(900, map);
+        for (int i = 0; i < 1000; i++) {
+            Integer expected = i % 10 == 1 ? null : Integer.valueOf(i % 10 == 0 ? -i : i);
+            assertEquals(expected, map.get(i));
+        }
+        for (VersionedValue value : map.map.values()) {
+            assertEquals(0, value.getOperationId());
+        }
+        tx.commit();
+        assertEquals(0, ts.getOpenTransactions().size());
+        s.close();
+    }
+
+    private void testBackgroundCommitAfterReopen() {
+        String fileName = getBaseDir() + "/testBackgroundCommitAfterReopen.h3";
+        FileUtils.delete(fileName);
+
+        MVStore s = MVStore.open(fileName);
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        ts.setBackgroundCommitThreshold(100);
+        Transaction tx = ts.begin();
+        TransactionMap<Integer, Integer> map = tx.openMap("data");
+        for (int i = 0; i < 10000; i++) {
+            map.put(i, i);
+        }
+        tx.commit();
+        // the store is closed while the commit may not be completed
+        s.close();
+
+        s = MVStore.open(fileName);
+        ts = new TransactionStore(s);
+        ts.init();
+        ts.endLeftoverTransactions();
+        tx = ts.begin();
+        map = tx.openMap("data");
+        assertCount(10000, map);
+        for (VersionedValue value : map.map.values()) {
+            assertEquals(0, value.getOperationId());
+        }
+        s.close();
+
+        FileUtils.delete(fileName);
+    }
+
+    private void testBackgroundCommitAfterCrash() {
+        String fileName = getBaseDir() + "/testBackgroundCommitAfterCrash.h3";
+        FileUtils.delete(fileName);
+
+        MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open();
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        ts.setBackgroundCommitThreshold(100);
+        Transaction tx = ts.begin();
+        TransactionMap<Integer, Integer> map = tx.openMap("data");
+        for (int i = 0; i < 20000; i++) {
+            map.put(i, i);
+        }
+        tx.commit();
+        // the commit is durable when commit() returns,
+        // even if the commit thread did not finish
+        s.closeImmediately();
+
+        s = MVStore.open(fileName);
+        ts = new TransactionStore(s);
+        ts.init();
+        ts.endLeftoverTransactions();
+        tx = ts.begin();
+        map = tx.openMap("data");
+        assertCount(20000, map);
+        assertEquals(19999, map.get(19999).intValue());
+        s.close();
+
+        FileUtils.delete(fileName);
+    }
+
+    private void assertCount(int expected, TransactionMap<Integer, Integer> map) {
+        int count = 0;
+        for (Iterator<Integer> it = map.keyIterator(null); it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(expected, count);
+        assertEquals(expected, map.sizeAsLong());
+        assertEquals(expected, map.sizeAsLong());
+    }
+
     private void testConcurrentUpdate() {
         MVStore s;
         TransactionStore ts;
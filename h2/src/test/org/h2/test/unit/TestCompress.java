@@ -19,9 +19,15 @@
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
+import org.h2.api.ErrorCode;
+import org.h2.compress.CompressDictionary;
+import org.h2.compress.CompressLZ4;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
 import org.h2.engine.Constants;
+import org.h2.message.DbException;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
@@ -55,6 +61,9 @@ public void test() throws Exception {
         }
         testVariableSizeInt();
         testMultiThreaded();
+        testLZ4();
+        testDictionary();
+        testPageCompressors();
         if (config.big) {
             for (int i = 0; i < 100; i++) {
                 test(i);
@@ -73,6 +82,197 @@ public void test() throws Exception {
         testVariableEnd();
     }
 
+    private void testLZ4() {
+        CompressLZ4 comp = new CompressLZ4();
+        Random r = new Random(1);
+        for (int len = 0; len < 200; len++) {
+            for (int pattern = 0; pattern < 3; pattern++) {
+                byte[] b = new byte[len];
+                for (int x = 0; x < len; x++) {
+                    switch (pattern) {
+                    case 0:
+                        b[x] = (byte) r.nextInt();
+                        break;
+                    case 1:
+                        // overlapping back-references
+                        b[x] = (byte) (x % 3);
+                        break;
+                    default:
+                        b[x] = (byte) (r.nextInt(4) == 0 ? r.nextInt() : x / 20);
+                    }
+                }
+                byte[] out = new byte[len * 2 + 20];
+                int outLen = comp.compress(b, len, out, 0);
+                byte[] test = new byte[len];
+                comp.expand(out, 0, outLen, test, 0, len);
+                assertEquals(b, test);
+            }
+        }
+        byte[] b = new byte[100_000];
+        Arrays.fill(b, (byte) 'x');
+        byte[] out = new byte[b.length];
+        int outLen = comp.compress(b, b.length, out, 0);
+        assertTrue(outLen < 1000);
+        // corrupt data
+        try {
+            comp.expand(out, 0, outLen, new byte[b.length - 1], 0, b.length - 1);
+            fail();
+        } catch (DbException e) {
+            assertEquals(ErrorCode.COMPRESSION_ERROR, e.getErrorCode());
+        }
+        // the literals do not fit in the output, which is part of a larger
+        // array that must not be changed
+        byte[] literals = new byte[50];
+        r.nextBytes(literals);
+        byte[] literalsOut = new byte[100];
+        int literalsLen = comp.compress(literals, literals.length, literalsOut, 0);
+        byte[] window = new byte[100];
+        try {
+            comp.expand(literalsOut, 0, literalsLen, window, 0, 10);
+            fail();
+        } catch (DbException e) {
+            assertEquals(ErrorCode.COMPRESSION_ERROR, e.getErrorCode());
+        }
+        for (int i = 10; i < window.length; i++) {
+            assertEquals(0, window[i]);
+        }
+        // a reference before the start of the output
+        byte[] test = new byte[b.length + 10];
+        try {
+            comp.expand(out, 0, outLen, test, 10, b.length);
+            assertEquals((byte) 'x', test[10]);
+            out[2] = 2;
+            comp.expand(out, 0, outLen, test, 10, b.length);
+            fail();
+        } catch (DbException e) {
+            assertEquals(ErrorCode.COMPRESSION_ERROR, e.getErrorCode());
+        }
+        out[1] = 0;
+        out[2] = 0;
+        try {
+            comp.expand(out, 0, outLen, new byte[b.length], 0, b.length);
+            fail();
+        } catch (DbException e) {
+            assertEquals(ErrorCode.COMPRESSION_ERROR, e.getErrorCode());
+        }
+    }
+
+    private void testDictionary() {
+        ArrayList<byte[]> samples = new ArrayList<>();
+        Random r = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            samples.add(createRecord(r, i));
+        }
+        byte[] dictionary = CompressDictionary.train(samples, 4096);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 4096);
+        assertTrue(CompressDictionary.train(samples, 1_000_000).length <= CompressDictionary.MAX_SIZE);
+        CompressDictionary comp = new CompressDictionary(dictionary);
+        assertEquals(Compressor.DICTIONARY, comp.getAlgorithm());
+        byte[] plain = createRecord(r, 1000);
+        byte[] out = new byte[plain.length * 2 + 100];
+        int withDictionary = comp.compress(plain, plain.length, out, 0);
+        byte[] test = new byte[plain.length];
+        comp.expand(out, 0, withDictionary, test, 0, plain.length);
+        assertEquals(plain, test);
+        int withoutDictionary = new CompressDictionary(new byte[0]).compress(
+                plain, plain.length, new byte[out.length], 0);
+        assertSmaller(withDictionary, withoutDictionary);
+        try {
+            new CompressDictionary(new byte[] { 1, 2, 3 }).expand(out, 0, withDictionary, test, 0, plain.length);
+            fail();
+        } catch (DbException e) {
+            assertEquals(ErrorCode.COMPRESSION_ERROR, e.getErrorCode());
+        }
+    }
+
+    private static byte[] createRecord(Random r, int i) {
+        return ("{\"id\": " + i + ", \"name\": \"customer " + r.nextInt(1000) +
+                "\", \"street\": \"" + r.nextInt(100) + " Main Street\", \"city\": \"Springfield\", " +
+                "\"country\": \"United States\", \"status\": \"active\"}").getBytes();
+    }
+
+    private void testPageCompressors() {
+        String fileName = getBaseDir() + "/" + getTestName() + ".h3";
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).compressor(CompressLZ4::new).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "Hello World " + i);
+            }
+        }
+        // the pages compressed with LZ4 can be read without setting the
+        // compressor
+        try (MVStore s = new MVStore.Builder().fileName(fileName).cacheSize(0).open()) {
+            // older versions can not read such files
+            assertEquals("2", s.getStoreHeader().get("format").toString());
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals("Hello World " + i, map.get(i));
+            }
+        }
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).compress().open()) {
+            assertEquals("1", s.getStoreHeader().get("format").toString());
+            s.openMap("data").put(1, "Hello");
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).compressor(CompressLZ4::new).open()) {
+            assertEquals("2", s.getStoreHeader().get("format").toString());
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            assertEquals("2", s.getStoreHeader().get("format").toString());
+            assertEquals("Hello", s.openMap("data").get(1));
+        }
+        FileUtils.delete(fileName);
+
+        ArrayList<byte[]> samples = new ArrayList<>();
+        Random r = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            samples.add(createRecord(r, i));
+        }
+        byte[] dictionary = CompressDictionary.train(samples, 4096);
+        MVStore.Builder builder = new MVStore.Builder().fileName(fileName).cacheSize(0).compress().
+                compressor("data", () -> new CompressDictionary(dictionary));
+        try (MVStore s = builder.open()) {
+            MVMap<Integer, String> data = s.openMap("data");
+            MVMap<Integer, String> other = s.openMap("other");
+            for (int i = 0; i < 1000; i++) {
+                data.put(i, new String(createRecord(r, i)));
+                other.put(i, "Hello World " + i);
+            }
+            s.commit();
+            for (int i = 0; i < 1000; i += 100) {
+                assertEquals("Hello World " + i, other.get(i));
+            }
+        }
+        r = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            createRecord(r, i);
+        }
+        try (MVStore s = builder.open()) {
+            MVMap<Integer, String> data = s.openMap("data");
+            MVMap<Integer, String> other = s.openMap("other");
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(new String(createRecord(r, i)), data.get(i));
+                assertEquals("Hello World " + i, other.get(i));
+            }
+            s.compactMoveChunks();
+            assertEquals(1000, data.size());
+        }
+        // the dictionary is needed to read the map
+        try (MVStore s = new MVStore.Builder().fileName(fileName).cacheSize(0).open()) {
+            MVMap<Integer, String> other = s.openMap("other");
+            assertEquals("Hello World 1", other.get(1));
+            MVMap<Integer, String> data = s.openMap("data");
+            try {
+                data.get(1);
+                fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+        FileUtils.delete(fileName);
+    }
+
     private void testVariableSizeInt() {
         assertEquals(1, CompressTool.getVariableIntLength(0));
         assertEquals(2, CompressTool.getVariableIntLength(0x80));
@@ -245,7 +445,7 @@ private void testByteArray(int len) throws IOException {
             }
             CompressTool utils = CompressTool.getInstance();
             // level 9 is highest, strategy 2 is huffman only
-            for (String a : new String[] { "LZF", "No",
+            for (String a : new String[] { "LZF", "No", "LZ4",
                     "Deflate", "Deflate level 9 strategy 2" }) {
                 long time = System.nanoTime();
                 byte[] out = utils.compress(b, a);
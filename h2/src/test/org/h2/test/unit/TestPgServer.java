@@ -21,6 +21,7 @@
 import java.sql.Types;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -32,6 +33,7 @@
 import org.h2.test.TestDb;
 import org.h2.tools.Server;
 import org.h2.util.DateTimeUtils;
+import org.h2.value.ValueUuid;
 
 /**
  * Tests the PostgreSQL server protocol compliant implementation.
@@ -66,6 +68,7 @@ public void test() throws Exception {
         testKeyAlias();
         testCancelQuery();
         testBinaryTypes();
+        testBinaryExtendedTypes();
         testDateTime();
         testPrepareWithUnspecifiedType();
     }
@@ -468,6 +471,79 @@ private void testBinaryTypes() throws SQLException {
         }
     }
 
+    private void testBinaryExtendedTypes() throws SQLException {
+        if (!getPgJdbcDriver()) {
+            return;
+        }
+
+        Server server = createPgServer(
+                "-ifNotExists", "-pgPort", "5535", "-pgDaemon", "-key", "pgserver", "mem:pgserver");
+        try {
+            Properties props = new Properties();
+            props.setProperty("user", "sa");
+            props.setProperty("password", "sa");
+            // force binary
+            props.setProperty("prepareThreshold", "-1");
+
+            Connection conn = DriverManager.getConnection(
+                    "jdbc:postgresql://localhost:5535/pgserver", props);
+            Statement stat = conn.createStatement();
+
+            stat.execute("create table test(id int primary key, x1 uuid, " +
+                    "x2 timestamp with time zone, x3 array, x4 numeric(30, 10))");
+
+            UUID[] uuids = { UUID.fromString("01234567-89ab-cdef-fedc-ba9876543210"),
+                    new UUID(-1L, 1L), null };
+            String[][] arrays = { { "a", "b,c" }, { }, { "x", null } };
+            String[] numbers = { "0.0000000000", "-0.0001230000", "10000000000000000000.0000000000",
+                    "10000.5000000000", "-9999999999999999999.9999999999" };
+            // the batch is sent in a single round trip
+            PreparedStatement ps = conn.prepareStatement(
+                    "insert into test values (?, ?, ?, ?, ?)");
+            for (int i = 0; i < numbers.length; i++) {
+                ps.setInt(1, i);
+                UUID u = uuids[i % uuids.length];
+                ps.setString(2, u == null ? null : u.toString());
+                ps.setTimestamp(3, i == 2 ? null : new Timestamp(1_000_000_000_000L + i * 1_125L));
+                ps.setArray(4, conn.createArrayOf("text", arrays[i % arrays.length]));
+                ps.setBigDecimal(5, new BigDecimal(numbers[i]));
+                ps.addBatch();
+            }
+            assertEquals(numbers.length, ps.executeBatch().length);
+
+            ps = conn.prepareStatement("select * from test where id = ?");
+            for (int i = 0; i < numbers.length; i++) {
+                ps.setInt(1, i);
+                ResultSet rs = ps.executeQuery();
+                assertTrue(rs.next());
+                UUID u = uuids[i % uuids.length];
+                // the value is transferred as 16 bytes
+                assertEquals(u == null ? null : ValueUuid.get(u).getBytes(), rs.getBytes(2));
+                if (i == 2) {
+                    assertNull(rs.getTimestamp(3));
+                } else {
+                    assertEquals(1_000_000_000_000L + i * 1_125L, rs.getTimestamp(3).getTime());
+                }
+                assertEquals(arrays[i % arrays.length], (Object[]) rs.getArray(4).getArray());
+                assertEquals(new BigDecimal(numbers[i]), rs.getBigDecimal(5));
+                assertFalse(rs.next());
+            }
+
+            ps = conn.prepareStatement("select id from test where x1 = ? order by id");
+            ps.setString(1, uuids[1].toString());
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(4, rs.getInt(1));
+            assertFalse(rs.next());
+
+            conn.close();
+        } finally {
+            server.stop();
+        }
+    }
+
     private void testDateTime() throws SQLException {
         if (!getPgJdbcDriver()) {
             return;